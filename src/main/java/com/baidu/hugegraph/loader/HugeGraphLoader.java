@@ -23,35 +23,32 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
 import com.baidu.hugegraph.driver.HugeClient;
-import com.baidu.hugegraph.loader.builder.Record;
 import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.loader.constant.ElemType;
 import com.baidu.hugegraph.loader.exception.InitException;
 import com.baidu.hugegraph.loader.exception.LoadException;
-import com.baidu.hugegraph.loader.exception.ReadException;
 import com.baidu.hugegraph.loader.executor.GroovyExecutor;
 import com.baidu.hugegraph.loader.executor.LoadContext;
 import com.baidu.hugegraph.loader.executor.LoadOptions;
-import com.baidu.hugegraph.loader.mapping.ElementMapping;
 import com.baidu.hugegraph.loader.mapping.InputStruct;
 import com.baidu.hugegraph.loader.mapping.LoadMapping;
-import com.baidu.hugegraph.loader.metrics.LoadMetrics;
 import com.baidu.hugegraph.loader.metrics.LoadSummary;
 import com.baidu.hugegraph.loader.reader.InputReader;
-import com.baidu.hugegraph.loader.reader.line.Line;
-import com.baidu.hugegraph.loader.task.ParseTaskBuilder;
-import com.baidu.hugegraph.loader.task.ParseTaskBuilder.ParseTask;
+import com.baidu.hugegraph.loader.task.ReadHandler;
 import com.baidu.hugegraph.loader.task.TaskManager;
 import com.baidu.hugegraph.loader.util.HugeClientHolder;
 import com.baidu.hugegraph.loader.util.LoadUtil;
 import com.baidu.hugegraph.loader.util.Printer;
+import com.baidu.hugegraph.util.ExecutorUtil;
 import com.baidu.hugegraph.util.Log;
 
 public final class HugeGraphLoader {
@@ -203,138 +200,60 @@ public final class HugeGraphLoader {
     }
 
     private void loadStructs(List<InputStruct> structs) {
-        // Load input structs one by one
-        for (InputStruct struct : structs) {
-            if (this.context.stopped()) {
-                break;
-            }
-            if (struct.skip()) {
-                continue;
-            }
-            // Create and init InputReader, fetch next batch lines
-            try (InputReader reader = InputReader.create(struct.input())) {
-                // Init reader
-                reader.init(this.context, struct);
-                // Load data from current input mapping
-                this.loadStruct(struct, reader);
-            } catch (InitException e) {
-                throw new LoadException("Failed to init input reader", e);
-            }
-        }
-    }
-
-    /**
-     * TODO: Seperate classes: ReadHandler -> ParseHandler -> InsertHandler
-     * Let load task worked in pipeline mode
-     */
-    private void loadStruct(InputStruct struct, InputReader reader) {
-        LOG.info("Start parsing '{}'", struct);
-        LoadMetrics metrics = this.context.summary().metrics(struct);
-        metrics.startInFlight();
-
-        ParseTaskBuilder taskBuilder = new ParseTaskBuilder(this.context,
-                                                            struct);
-        final int batchSize = this.context.options().batchSize;
-        List<Line> lines = new ArrayList<>(batchSize);
-        for (boolean finished = false; !finished;) {
-            if (this.context.stopped()) {
-                break;
-            }
-            try {
-                // Read next line from data source
-                if (reader.hasNext()) {
-                    lines.add(reader.next());
-                    metrics.increaseReadSuccess();
-                } else {
-                    finished = true;
+        int structThreads = Math.min(this.context.options().structThreads,
+                                     structs.size());
+        if (structThreads <= 1) {
+            // Load input structs one by one
+            for (InputStruct struct : structs) {
+                if (this.context.stopped()) {
+                    break;
                 }
-            } catch (ReadException e) {
-                metrics.increaseReadFailure();
-                this.handleReadFailure(struct, e);
-            }
-            // If readed max allowed lines, stop loading
-            boolean reachedMaxReadLines = this.reachedMaxReadLines();
-            if (reachedMaxReadLines) {
-                finished = true;
+                this.loadStruct(struct);
             }
-            if (lines.size() >= batchSize || finished) {
-                List<ParseTask> tasks = taskBuilder.build(lines);
-                for (ParseTask task : tasks) {
-                    this.executeParseTask(struct, task.mapping(), task);
-                }
-                // Confirm offset to avoid lost records
-                reader.confirmOffset();
-                this.context.newProgress().markLoaded(struct, finished);
+            return;
+        }
 
-                this.handleParseFailure();
-                if (reachedMaxReadLines) {
-                    LOG.warn("Read lines exceed limit, stopped loading tasks");
-                    this.context.stopLoading();
-                }
-                lines = new ArrayList<>(batchSize);
+        // Load input structs concurrently, they share the task manager
+        ExecutorService service = ExecutorUtil.newFixedThreadPool(
+                                  structThreads, Constants.STRUCT_WORKER);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            for (InputStruct struct : structs) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    // The structs waiting in queue are skipped after stopped
+                    if (!this.context.stopped()) {
+                        this.loadStruct(struct);
+                    }
+                }, service).whenComplete((r, e) -> {
+                    if (e != null) {
+                        // Let other loading structs stop as soon as possible
+                        this.context.stopLoading();
+                    }
+                }));
             }
+            CompletableFuture.allOf(futures.toArray(
+                              new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw LoadUtil.targetRuntimeException(e.getCause());
+        } finally {
+            service.shutdown();
         }
-
-        metrics.stopInFlight();
-        LOG.info("Finish parsing '{}'", struct);
     }
 
-    /**
-     * Execute parse task sync
-     */
-    private void executeParseTask(InputStruct struct, ElementMapping mapping,
-                                  ParseTaskBuilder.ParseTask task) {
-        long start = System.currentTimeMillis();
-        // Sync parse
-        List<List<Record>> batches = task.get();
-        long end = System.currentTimeMillis();
-        this.context.summary().addTimeRange(mapping.type(), start, end);
-
-        if (this.context.options().dryRun || CollectionUtils.isEmpty(batches)) {
+    private void loadStruct(InputStruct struct) {
+        if (struct.skip()) {
             return;
         }
-        // Async load
-        for (List<Record> batch : batches) {
-            this.manager.submitBatch(struct, mapping, batch);
-        }
-    }
-
-    private void handleReadFailure(InputStruct struct, ReadException e) {
-        LOG.error("Read {} error", struct, e);
-        this.context.occuredError();
-        LoadOptions options = this.context.options();
-        if (options.testMode) {
-            throw e;
-        }
-        // Write to current mapping's read failure log
-        this.context.failureLogger(struct).write(e);
-
-        long failures = this.context.summary().totalReadFailures();
-        if (options.maxReadErrors != Constants.NO_LIMIT &&
-            failures >= options.maxReadErrors) {
-            Printer.printError("More than %s read error, stop reading and " +
-                               "waiting all parse/insert tasks stopped",
-                               options.maxReadErrors);
-            this.context.stopLoading();
-        }
-    }
-
-    private void handleParseFailure() {
-        LoadOptions options = this.context.options();
-        long failures = this.context.summary().totalParseFailures();
-        if (options.maxParseErrors != Constants.NO_LIMIT &&
-            failures >= options.maxParseErrors) {
-            if (this.context.stopped()) {
-                return;
-            }
-            synchronized (this.context) {
-                if (!this.context.stopped()) {
-                    Printer.printError("More than %s parse error, stop " +
-                                       "parsing and waiting all insert tasks " +
-                                       "stopped", options.maxParseErrors);
-                    this.context.stopLoading();
-                }
-            }
+        // Create and init InputReader, fetch next batch lines
+        try (InputReader reader = InputReader.create(struct.input())) {
+            // Init reader
+            reader.init(this.context, struct);
+            // Load data from current input mapping
+            ReadHandler handler = new ReadHandler(this.context, this.manager,
+                                                  struct);
+            handler.load(reader);
+        } catch (InitException e) {
+            throw new LoadException("Failed to init input reader", e);
         }
     }
 
@@ -355,14 +274,6 @@ public final class HugeGraphLoader {
         return splitted;
     }
 
-    private boolean reachedMaxReadLines() {
-        final long maxReadLines = this.context.options().maxReadLines;
-        if (maxReadLines == -1L) {
-            return false;
-        }
-        return this.context.summary().totalReadLines() >= maxReadLines;
-    }
-
     /**
      * TODO: How to distinguish load task finished normally or abnormally
      */
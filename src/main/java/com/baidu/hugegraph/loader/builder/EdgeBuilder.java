@@ -25,13 +25,11 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import com.baidu.hugegraph.loader.executor.LoadContext;
 import com.baidu.hugegraph.loader.mapping.EdgeMapping;
 import com.baidu.hugegraph.loader.mapping.InputStruct;
 import com.baidu.hugegraph.structure.graph.Edge;
-import com.baidu.hugegraph.structure.graph.Vertex;
 import com.baidu.hugegraph.structure.schema.EdgeLabel;
 import com.baidu.hugegraph.structure.schema.SchemaLabel;
 import com.baidu.hugegraph.structure.schema.VertexLabel;
@@ -45,6 +43,8 @@ public class EdgeBuilder extends ElementBuilder<Edge> {
     private final VertexLabel sourceLabel;
     private final VertexLabel targetLabel;
     private final Collection<String> nonNullKeys;
+    // The kv pairs reused by every line
+    private final EdgeKVPairs kvPairs;
     // Used to optimize access performace
     private VertexIdsIndex vertexIdsIndex;
     private String[] lastNames;
@@ -61,6 +61,7 @@ public class EdgeBuilder extends ElementBuilder<Edge> {
         this.checkIdFields(this.sourceLabel, this.mapping.sourceFields());
         this.checkIdFields(this.targetLabel, this.mapping.targetFields());
 
+        this.kvPairs = this.newEdgeKVPairs();
         this.vertexIdsIndex = null;
     }
 
@@ -71,20 +72,21 @@ public class EdgeBuilder extends ElementBuilder<Edge> {
 
     @Override
     public List<Edge> build(String[] names, Object[] values) {
-        if (this.vertexIdsIndex == null ||
-            !Arrays.equals(this.lastNames, names)) {
+        if (this.vertexIdsIndex == null || (this.lastNames != names &&
+            !Arrays.equals(this.lastNames, names))) {
             this.vertexIdsIndex = this.extractVertexIdsIndex(names);
         }
         this.lastNames = names;
-        EdgeKVPairs kvPairs = this.newEdgeKVPairs();
+        EdgeKVPairs kvPairs = this.kvPairs;
         kvPairs.source.extractFromEdge(names, values,
                                        this.vertexIdsIndex.sourceIndexes);
         kvPairs.target.extractFromEdge(names, values,
                                        this.vertexIdsIndex.targetIndexes);
         kvPairs.extractProperties(names, values);
 
-        List<Vertex> sources = kvPairs.source.buildVertices(false);
-        List<Vertex> targets = kvPairs.target.buildVertices(false);
+        // Only the ids and labels of source/target vertices are needed
+        List<Object> sources = kvPairs.source.buildVertexIds();
+        List<Object> targets = kvPairs.target.buildVertexIds();
         if (sources.isEmpty() || targets.isEmpty()) {
             return ImmutableList.of();
         }
@@ -95,13 +97,15 @@ public class EdgeBuilder extends ElementBuilder<Edge> {
         int size = Math.max(sources.size(), targets.size());
         List<Edge> edges = new ArrayList<>(size);
         for (int i = 0; i < size; i++) {
-            Vertex source = i < sources.size() ?
-                            sources.get(i) : sources.get(0);
-            Vertex target = i < targets.size() ?
-                            targets.get(i) : targets.get(0);
+            Object sourceId = i < sources.size() ?
+                              sources.get(i) : sources.get(0);
+            Object targetId = i < targets.size() ?
+                              targets.get(i) : targets.get(0);
             Edge edge = new Edge(this.mapping.label());
-            edge.source(source);
-            edge.target(target);
+            edge.sourceId(sourceId);
+            edge.sourceLabel(this.sourceLabel.name());
+            edge.targetId(targetId);
+            edge.targetLabel(this.targetLabel.name());
             // Add properties
             this.addProperties(edge, kvPairs.properties);
             this.checkNonNullableKeys(edge);
@@ -131,8 +135,7 @@ public class EdgeBuilder extends ElementBuilder<Edge> {
 
     @Override
     protected boolean isIdField(String fieldName) {
-        return this.mapping.sourceFields().contains(fieldName) ||
-               this.mapping.targetFields().contains(fieldName);
+        return this.mapping.isIdField(fieldName);
     }
 
     private void checkIdFields(VertexLabel vertexLabel, List<String> fields) {
@@ -159,24 +162,24 @@ public class EdgeBuilder extends ElementBuilder<Edge> {
         private Map<String, Object> properties;
 
         public void extractProperties(String[] names, Object[] values) {
-            // General properties
-            this.properties = new HashMap<>();
-            Set<String> props = schemaLabel().properties();
-            for (int i = 0; i < names.length; i++) {
-                String fieldName = names[i];
+            MappingPlan plan = plan(names);
+            // General properties, which are copied to edges when adding
+            if (this.properties == null) {
+                this.properties = new HashMap<>();
+            } else {
+                this.properties.clear();
+            }
+            for (int i = 0; i < plan.size(); i++) {
                 Object fieldValue = values[i];
-                if (!retainField(fieldName, fieldValue)) {
+                if (!plan.retain(i, fieldValue)) {
                     continue;
                 }
-
-                String key = mapping.mappingField(fieldName);
-                if (isIdField(fieldName) &&
-                    !props.contains(fieldName) && !props.contains(key)) {
+                // Skip the id fields which are not used as properties
+                if (plan.isIdOnlyField(i)) {
                     continue;
                 }
-
-                Object value = mappingValue(fieldName, fieldValue);
-                this.properties.put(key, value);
+                Object value = plan.mappingValue(i, fieldValue);
+                this.properties.put(plan.key(i), value);
             }
         }
     }
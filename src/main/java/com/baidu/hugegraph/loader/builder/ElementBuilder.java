@@ -19,31 +19,24 @@
 
 package com.baidu.hugegraph.loader.builder;
 
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharsetEncoder;
-import java.nio.charset.CoderResult;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.ListUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.loader.executor.LoadContext;
 import com.baidu.hugegraph.loader.mapping.ElementMapping;
 import com.baidu.hugegraph.loader.mapping.InputStruct;
 import com.baidu.hugegraph.loader.source.InputSource;
 import com.baidu.hugegraph.loader.util.DataTypeUtil;
+import com.baidu.hugegraph.loader.util.DataTypeUtil.Converter;
 import com.baidu.hugegraph.structure.GraphElement;
 import com.baidu.hugegraph.structure.constant.IdStrategy;
 import com.baidu.hugegraph.structure.graph.Vertex;
@@ -52,7 +45,6 @@ import com.baidu.hugegraph.structure.schema.PropertyKey;
 import com.baidu.hugegraph.structure.schema.SchemaLabel;
 import com.baidu.hugegraph.structure.schema.VertexLabel;
 import com.baidu.hugegraph.util.E;
-import com.baidu.hugegraph.util.LongEncoding;
 import com.google.common.collect.ImmutableList;
 
 public abstract class ElementBuilder<GE extends GraphElement> {
@@ -60,15 +52,19 @@ public abstract class ElementBuilder<GE extends GraphElement> {
     private final InputStruct struct;
     private final SchemaCache schema;
 
-    // NOTE: CharsetEncoder is not thread safe
-    private final CharsetEncoder encoder;
-    private final ByteBuffer buffer;
+    // NOTE: VertexIdEncoder is not thread safe
+    private final VertexIdEncoder idEncoder;
+    // The value converters resolved for each property key
+    private final Map<String, Converter> converters;
+    // The plan compiled for the last header, used to optimize access
+    private MappingPlan plan;
 
     public ElementBuilder(LoadContext context, InputStruct struct) {
         this.struct = struct;
         this.schema = context.schemaCache();
-        this.encoder = Constants.CHARSET.newEncoder();
-        this.buffer = ByteBuffer.allocate(Constants.VERTEX_ID_LIMIT);
+        this.idEncoder = new VertexIdEncoder();
+        this.converters = new HashMap<>();
+        this.plan = null;
     }
 
     public abstract ElementMapping mapping();
@@ -107,27 +103,15 @@ public abstract class ElementBuilder<GE extends GraphElement> {
     }
 
     /**
-     * Retain only the key-value pairs needed by the current vertex or edge
+     * Return the mapping plan of the header, it's compiled only when the
+     * header is different from the last one
      */
-    protected boolean retainField(String fieldName, Object fieldValue) {
-        ElementMapping mapping = this.mapping();
-        Set<String> selectedFields = mapping.selectedFields();
-        Set<String> ignoredFields = mapping.ignoredFields();
-        // Retain selected fields or remove ignored fields
-        if (!selectedFields.isEmpty() && !selectedFields.contains(fieldName)) {
-            return false;
-        }
-        if (!ignoredFields.isEmpty() && ignoredFields.contains(fieldName)) {
-            return false;
-        }
-        String mappedKey = mapping.mappingField(fieldName);
-        Set<String> nullableKeys = this.schemaLabel().nullableKeys();
-        Set<Object> nullValues = mapping.nullValues();
-        if (nullableKeys.isEmpty() || nullValues.isEmpty()) {
-            return true;
+    protected MappingPlan plan(String[] names) {
+        if (this.plan == null || !this.plan.matches(names)) {
+            this.plan = new MappingPlan(names, this.mapping(),
+                                        this.schemaLabel(), this::isIdField);
         }
-        return !nullableKeys.contains(mappedKey) ||
-               !nullValues.contains(fieldValue);
+        return this.plan;
     }
 
     protected void addProperty(GraphElement element, String key, Object value) {
@@ -180,37 +164,32 @@ public abstract class ElementBuilder<GE extends GraphElement> {
         return this.schema.getEdgeLabel(name);
     }
 
-    protected Object mappingValue(String fieldName, Object fieldValue) {
-        if (this.mapping().mappingValues().isEmpty()) {
-            return fieldValue;
-        }
-        String fieldStrValue = String.valueOf(fieldValue);
-        return this.mapping().mappingValue(fieldName, fieldStrValue);
-    }
-
-    private void customizeId(VertexLabel vertexLabel, Vertex vertex,
-                             String idField, Object idValue) {
+    private Object customizeId(VertexLabel vertexLabel, String idField,
+                               Object idValue) {
         E.checkArgumentNotNull(idField, "The vertex id field can't be null");
         E.checkArgumentNotNull(idValue, "The vertex id value can't be null");
         IdStrategy idStrategy = vertexLabel.idStrategy();
         if (idStrategy.isCustomizeString()) {
             String id = (String) idValue;
-            this.checkVertexIdLength(id);
-            vertex.id(id);
+            VertexIdEncoder.checkLength(id);
+            return id;
         } else if (idStrategy.isCustomizeNumber()) {
-            Long id = DataTypeUtil.parseNumber(idField, idValue);
-            vertex.id(id);
+            return DataTypeUtil.parseNumber(idField, idValue);
         } else {
             assert idStrategy.isCustomizeUuid();
-            UUID id = DataTypeUtil.parseUUID(idField, idValue);
-            vertex.id(id);
+            return DataTypeUtil.parseUUID(idField, idValue);
         }
     }
 
     private Object convertPropertyValue(String key, Object rawValue) {
-        PropertyKey propertyKey = this.getPropertyKey(key);
-        InputSource inputSource = this.struct.input();
-        return DataTypeUtil.convert(rawValue, propertyKey, inputSource);
+        Converter converter = this.converters.get(key);
+        if (converter == null) {
+            PropertyKey propertyKey = this.getPropertyKey(key);
+            InputSource inputSource = this.struct.input();
+            converter = DataTypeUtil.converter(propertyKey, inputSource);
+            this.converters.put(key, converter);
+        }
+        return converter.convert(rawValue);
     }
 
     private void checkFieldValue(String fieldName, Object fieldValue) {
@@ -225,10 +204,9 @@ public abstract class ElementBuilder<GE extends GraphElement> {
                         fieldValue.getClass());
     }
 
-    private boolean vertexIdEmpty(VertexLabel vertexLabel, Vertex vertex) {
+    private boolean vertexIdEmpty(VertexLabel vertexLabel, Object vertexId) {
         IdStrategy idStrategy = vertexLabel.idStrategy();
         if (idStrategy.isCustomizeString()) {
-            Object vertexId = vertex.id();
             return vertexId == null || StringUtils.isEmpty((String) vertexId);
         }
         return false;
@@ -251,41 +229,6 @@ public abstract class ElementBuilder<GE extends GraphElement> {
         }
     }
 
-    private String spliceVertexId(VertexLabel vertexLabel,
-                                  Object... primaryValues) {
-        StringBuilder vertexId = new StringBuilder();
-        StringBuilder vertexKeysId = new StringBuilder();
-        for (int i = 0; i < primaryValues.length; i++) {
-            Object value = primaryValues[i];
-            String pkValue;
-            if (value instanceof Number || value instanceof Date) {
-                pkValue = LongEncoding.encodeNumber(value);
-            } else {
-                pkValue = String.valueOf(value);
-            }
-            if (StringUtils.containsAny(pkValue, Constants.SEARCH_LIST)) {
-                pkValue = StringUtils.replaceEach(pkValue,
-                                                  Constants.SEARCH_LIST,
-                                                  Constants.TARGET_LIST);
-            }
-            vertexKeysId.append(pkValue);
-            vertexKeysId.append("!");
-        }
-        vertexId.append(vertexLabel.id()).append(":").append(vertexKeysId);
-        vertexId.deleteCharAt(vertexId.length() - 1);
-        return vertexId.toString();
-    }
-
-    private void checkVertexIdLength(String id) {
-        this.encoder.reset();
-        this.buffer.clear();
-        CoderResult r = this.encoder.encode(CharBuffer.wrap(id.toCharArray()),
-                                            this.buffer, true);
-        E.checkArgument(r.isUnderflow(),
-                        "The vertex id length exceeds limit %s : '%s'",
-                        Constants.VERTEX_ID_LIMIT, id);
-    }
-
     private boolean isEmptyPkValue(Object pkValue) {
         if (pkValue == null) {
             return true;
@@ -316,9 +259,28 @@ public abstract class ElementBuilder<GE extends GraphElement> {
 
         public abstract List<Vertex> buildVertices(boolean withProperty);
 
+        /**
+         * Build the ids of vertices only, which are used as the source or
+         * target of edges, to avoid creating the vertices
+         */
+        public abstract List<Object> buildVertexIds();
+
         public List<Object> splitField(String key, Object value) {
             return DataTypeUtil.splitField(key, value, struct.input());
         }
+
+        /**
+         * Split the value of the column and map each of the split values
+         */
+        public List<Object> splitField(MappingPlan plan, int index,
+                                       Object value) {
+            List<Object> rawValues = this.splitField(plan.name(index), value);
+            List<Object> mappedValues = new ArrayList<>(rawValues.size());
+            for (Object rawValue : rawValues) {
+                mappedValues.add(plan.mappingValue(index, rawValue));
+            }
+            return mappedValues;
+        }
     }
 
     public class VertexIdKVPairs extends VertexKVPairs {
@@ -334,21 +296,20 @@ public abstract class ElementBuilder<GE extends GraphElement> {
 
         @Override
         public void extractFromVertex(String[] names, Object[] values) {
+            MappingPlan plan = plan(names);
             // General properties
             this.properties = new HashMap<>();
-            for (int i = 0; i < names.length; i++) {
-                String fieldName = names[i];
+            for (int i = 0; i < plan.size(); i++) {
                 Object fieldValue = values[i];
-                if (!retainField(fieldName, fieldValue)) {
+                if (!plan.retain(i, fieldValue)) {
                     continue;
                 }
-                if (isIdField(fieldName)) {
-                    this.idField = fieldName;
-                    this.idValue = mappingValue(fieldName, fieldValue);
+                if (plan.isIdField(i)) {
+                    this.idField = plan.name(i);
+                    this.idValue = plan.mappingValue(i, fieldValue);
                 } else {
-                    String key = mapping().mappingField(fieldName);
-                    Object value = mappingValue(fieldName, fieldValue);
-                    this.properties.put(key, value);
+                    Object value = plan.mappingValue(i, fieldValue);
+                    this.properties.put(plan.key(i), value);
                 }
             }
         }
@@ -357,19 +318,20 @@ public abstract class ElementBuilder<GE extends GraphElement> {
         public void extractFromEdge(String[] names, Object[] values,
                                     int[] fieldIndexes) {
             assert fieldIndexes.length == 1;
-            String fieldName = names[fieldIndexes[0]];
-            Object fieldValue = values[fieldIndexes[0]];
-            this.idField = fieldName;
-            this.idValue = mappingValue(fieldName, fieldValue);
+            MappingPlan plan = plan(names);
+            int index = fieldIndexes[0];
+            this.idField = plan.name(index);
+            this.idValue = plan.mappingValue(index, values[index]);
         }
 
         @Override
         public List<Vertex> buildVertices(boolean withProperty) {
-            Vertex vertex = new Vertex(vertexLabel.name());
-            customizeId(vertexLabel, vertex, this.idField, this.idValue);
-            if (vertexIdEmpty(vertexLabel, vertex)) {
+            Object id = customizeId(vertexLabel, this.idField, this.idValue);
+            if (vertexIdEmpty(vertexLabel, id)) {
                 return ImmutableList.of();
             }
+            Vertex vertex = new Vertex(vertexLabel.name());
+            vertex.id(id);
             if (withProperty) {
                 String key = mapping().mappingField(this.idField);
                 // The id field is also used as a general property
@@ -381,6 +343,15 @@ public abstract class ElementBuilder<GE extends GraphElement> {
             }
             return ImmutableList.of(vertex);
         }
+
+        @Override
+        public List<Object> buildVertexIds() {
+            Object id = customizeId(vertexLabel, this.idField, this.idValue);
+            if (vertexIdEmpty(vertexLabel, id)) {
+                return ImmutableList.of();
+            }
+            return ImmutableList.of(id);
+        }
     }
 
     public class VertexFlatIdKVPairs extends VertexKVPairs {
@@ -399,25 +370,20 @@ public abstract class ElementBuilder<GE extends GraphElement> {
 
         @Override
         public void extractFromVertex(String[] names, Object[] values) {
+            MappingPlan plan = plan(names);
             // General properties
             this.properties = new HashMap<>();
-            for (int i = 0; i < names.length; i++) {
-                String fieldName = names[i];
+            for (int i = 0; i < plan.size(); i++) {
                 Object fieldValue = values[i];
-                if (!retainField(fieldName, fieldValue)) {
+                if (!plan.retain(i, fieldValue)) {
                     continue;
                 }
-                if (isIdField(fieldName)) {
-                    this.idField = fieldName;
-                    List<Object> rawIdValues = splitField(fieldName,
-                                                          fieldValue);
-                    this.idValues = rawIdValues.stream().map(rawIdValue -> {
-                        return mappingValue(fieldName, rawIdValue);
-                    }).collect(Collectors.toList());
+                if (plan.isIdField(i)) {
+                    this.idField = plan.name(i);
+                    this.idValues = this.splitField(plan, i, fieldValue);
                 } else {
-                    String key = mapping().mappingField(fieldName);
-                    Object value = mappingValue(fieldName, fieldValue);
-                    this.properties.put(key, value);
+                    Object value = plan.mappingValue(i, fieldValue);
+                    this.properties.put(plan.key(i), value);
                 }
             }
         }
@@ -426,24 +392,22 @@ public abstract class ElementBuilder<GE extends GraphElement> {
         public void extractFromEdge(String[] names, Object[] values,
                                     int[] fieldIndexes) {
             assert fieldIndexes.length == 1;
-            String fieldName = names[fieldIndexes[0]];
-            Object fieldValue = values[fieldIndexes[0]];
-            this.idField = fieldName;
-            List<Object> rawIdValues = splitField(fieldName, fieldValue);
-            this.idValues = rawIdValues.stream().map(rawIdValue -> {
-                return mappingValue(fieldName, rawIdValue);
-            }).collect(Collectors.toList());
+            MappingPlan plan = plan(names);
+            int index = fieldIndexes[0];
+            this.idField = plan.name(index);
+            this.idValues = this.splitField(plan, index, values[index]);
         }
 
         @Override
         public List<Vertex> buildVertices(boolean withProperty) {
             List<Vertex> vertices = new ArrayList<>(this.idValues.size());
             for (Object idValue : this.idValues) {
-                Vertex vertex = new Vertex(vertexLabel.name());
-                customizeId(vertexLabel, vertex, this.idField, idValue);
-                if (vertexIdEmpty(vertexLabel, vertex)) {
+                Object id = customizeId(vertexLabel, this.idField, idValue);
+                if (vertexIdEmpty(vertexLabel, id)) {
                     continue;
                 }
+                Vertex vertex = new Vertex(vertexLabel.name());
+                vertex.id(id);
                 if (withProperty) {
                     String key = mapping().mappingField(this.idField);
                     // The id field is also used as a general property
@@ -457,6 +421,18 @@ public abstract class ElementBuilder<GE extends GraphElement> {
             }
             return vertices;
         }
+
+        @Override
+        public List<Object> buildVertexIds() {
+            List<Object> ids = new ArrayList<>(this.idValues.size());
+            for (Object idValue : this.idValues) {
+                Object id = customizeId(vertexLabel, this.idField, idValue);
+                if (!vertexIdEmpty(vertexLabel, id)) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
     }
 
     public class VertexPkKVPairs extends VertexKVPairs {
@@ -478,26 +454,24 @@ public abstract class ElementBuilder<GE extends GraphElement> {
 
         @Override
         public void extractFromVertex(String[] names, Object[] values) {
+            MappingPlan plan = plan(names);
             List<String> primaryKeys = this.vertexLabel.primaryKeys();
             this.pkNames = primaryKeys;
             this.pkValues = new Object[primaryKeys.size()];
             // General properties
             this.properties = new HashMap<>();
-            for (int i = 0; i < names.length; i++) {
-                String fieldName = names[i];
+            for (int i = 0; i < plan.size(); i++) {
                 Object fieldValue = values[i];
-                if (!retainField(fieldName, fieldValue)) {
+                if (!plan.retain(i, fieldValue)) {
                     continue;
                 }
-                String key = mapping().mappingField(fieldName);
-                if (primaryKeys.contains(key)) {
+                Object value = plan.mappingValue(i, fieldValue);
+                int pkSlot = plan.pkSlot(i);
+                if (pkSlot != MappingPlan.NO_PK_SLOT) {
                     // Don't put priamry key/values into general properties
-                    int index = primaryKeys.indexOf(key);
-                    Object pkValue = mappingValue(fieldName, fieldValue);
-                    this.pkValues[index] = pkValue;
+                    this.pkValues[pkSlot] = value;
                 } else {
-                    Object value = mappingValue(fieldName, fieldValue);
-                    this.properties.put(key, value);
+                    this.properties.put(plan.key(i), value);
                 }
             }
         }
@@ -505,11 +479,10 @@ public abstract class ElementBuilder<GE extends GraphElement> {
         @Override
         public void extractFromEdge(String[] names, Object[] values,
                                     int[] fieldIndexes) {
+            MappingPlan plan = plan(names);
             this.pkNames = new ArrayList<>(fieldIndexes.length);
             for (int fieldIndex : fieldIndexes) {
-                String fieldName = names[fieldIndex];
-                String mappingField = mapping().mappingField(fieldName);
-                this.pkNames.add(mappingField);
+                this.pkNames.add(plan.key(fieldIndex));
             }
             List<String> primaryKeys = this.vertexLabel.primaryKeys();
             E.checkArgument(ListUtils.isEqualList(this.pkNames, primaryKeys),
@@ -519,26 +492,17 @@ public abstract class ElementBuilder<GE extends GraphElement> {
                             primaryKeys);
             this.pkValues = new Object[this.pkNames.size()];
             for (int i = 0; i < fieldIndexes.length; i++) {
-                String fieldName = names[fieldIndexes[i]];
-                Object fieldValue = values[fieldIndexes[i]];
-                Object pkValue = mappingValue(fieldName, fieldValue);
-                this.pkValues[i] = pkValue;
+                int index = fieldIndexes[i];
+                this.pkValues[i] = plan.mappingValue(index, values[index]);
             }
         }
 
         @Override
         public List<Vertex> buildVertices(boolean withProperty) {
-            checkPrimaryValuesValid(vertexLabel, this.pkValues);
-            for (int i = 0; i < this.pkNames.size(); i++) {
-                if (isEmptyPkValue(this.pkValues[i])) {
-                    return ImmutableList.of();
-                }
-                Object pkValue = convertPropertyValue(this.pkNames.get(i),
-                                                      this.pkValues[i]);
-                this.pkValues[i] = pkValue;
+            String id = this.encodeId();
+            if (id == null) {
+                return ImmutableList.of();
             }
-            String id = spliceVertexId(vertexLabel, this.pkValues);
-            checkVertexIdLength(id);
 
             Vertex vertex = new Vertex(vertexLabel.name());
             // NOTE: withProperty is true means that parsing vertex
@@ -554,6 +518,32 @@ public abstract class ElementBuilder<GE extends GraphElement> {
             }
             return ImmutableList.of(vertex);
         }
+
+        @Override
+        public List<Object> buildVertexIds() {
+            String id = this.encodeId();
+            if (id == null) {
+                return ImmutableList.of();
+            }
+            return ImmutableList.of(id);
+        }
+
+        /**
+         * Convert the primary values and encode the id, return null if any
+         * of primary values is empty
+         */
+        private String encodeId() {
+            checkPrimaryValuesValid(vertexLabel, this.pkValues);
+            for (int i = 0; i < this.pkNames.size(); i++) {
+                if (isEmptyPkValue(this.pkValues[i])) {
+                    return null;
+                }
+                Object pkValue = convertPropertyValue(this.pkNames.get(i),
+                                                      this.pkValues[i]);
+                this.pkValues[i] = pkValue;
+            }
+            return idEncoder.encode(vertexLabel.id(), this.pkValues);
+        }
     }
 
     public class VertexFlatPkKVPairs extends VertexKVPairs {
@@ -580,27 +570,22 @@ public abstract class ElementBuilder<GE extends GraphElement> {
                             "In case unfold is true, just supported " +
                             "a single primary key");
             this.pkName = primaryKeys.get(0);
+            MappingPlan plan = plan(names);
             // General properties
             this.properties = new HashMap<>();
             boolean handledPk = false;
-            for (int i = 0; i < names.length; i++) {
-                String fieldName = names[i];
+            for (int i = 0; i < plan.size(); i++) {
                 Object fieldValue = values[i];
-                if (!retainField(fieldName, fieldValue)) {
+                if (!plan.retain(i, fieldValue)) {
                     continue;
                 }
-                String key = mapping().mappingField(fieldName);
-                if (!handledPk && primaryKeys.contains(key)) {
+                if (!handledPk && plan.pkSlot(i) != MappingPlan.NO_PK_SLOT) {
                     // Don't put priamry key/values into general properties
-                    List<Object> rawPkValues = splitField(fieldName,
-                                                          fieldValue);
-                    this.pkValues = rawPkValues.stream().map(rawPkValue -> {
-                        return mappingValue(fieldName, rawPkValue);
-                    }).collect(Collectors.toList());
+                    this.pkValues = this.splitField(plan, i, fieldValue);
                     handledPk = true;
                 } else {
-                    Object value = mappingValue(fieldName, fieldValue);
-                    this.properties.put(key, value);
+                    Object value = plan.mappingValue(i, fieldValue);
+                    this.properties.put(plan.key(i), value);
                 }
             }
         }
@@ -612,19 +597,16 @@ public abstract class ElementBuilder<GE extends GraphElement> {
             E.checkArgument(fieldIndexes.length == 1 && primaryKeys.size() == 1,
                             "In case unfold is true, just supported " +
                             "a single primary key");
-            String fieldName = names[fieldIndexes[0]];
-            this.pkName = mapping().mappingField(fieldName);
+            MappingPlan plan = plan(names);
+            int index = fieldIndexes[0];
+            this.pkName = plan.key(index);
             String primaryKey = primaryKeys.get(0);
             E.checkArgument(this.pkName.equals(primaryKey),
                             "Make sure the the primary key field '%s' is " +
                             "not empty, or check whether the headers or " +
                             "field_mapping are configured correctly",
                             primaryKey);
-            Object fieldValue = values[fieldIndexes[0]];
-            List<Object> rawPkValues = splitField(fieldName, fieldValue);
-            this.pkValues = rawPkValues.stream().map(rawPkValue -> {
-                return mappingValue(fieldName, rawPkValue);
-            }).collect(Collectors.toList());
+            this.pkValues = this.splitField(plan, index, values[index]);
         }
 
         @Override
@@ -637,8 +619,7 @@ public abstract class ElementBuilder<GE extends GraphElement> {
                     continue;
                 }
                 pkValue = convertPropertyValue(this.pkName, pkValue);
-                String id = spliceVertexId(vertexLabel, pkValue);
-                checkVertexIdLength(id);
+                String id = idEncoder.encode(vertexLabel.id(), pkValue);
 
                 Vertex vertex = new Vertex(vertexLabel.name());
                 // NOTE: withProperty is true means that parsing vertex
@@ -653,5 +634,20 @@ public abstract class ElementBuilder<GE extends GraphElement> {
             }
             return vertices;
         }
+
+        @Override
+        public List<Object> buildVertexIds() {
+            E.checkArgument(this.pkValues != null,
+                            "The primary values shouldn't be null");
+            List<Object> ids = new ArrayList<>(this.pkValues.size());
+            for (Object pkValue : this.pkValues) {
+                if (isEmptyPkValue(pkValue)) {
+                    continue;
+                }
+                pkValue = convertPropertyValue(this.pkName, pkValue);
+                ids.add(idEncoder.encode(vertexLabel.id(), pkValue));
+            }
+            return ids;
+        }
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.builder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
+import com.baidu.hugegraph.structure.schema.SchemaLabel;
+import com.baidu.hugegraph.structure.schema.VertexLabel;
+
+/**
+ * The mapping of an element mapping compiled for a header, it resolves the
+ * role, mapped key and value mapping of every column once, so that the
+ * builders access the columns by index instead of string-keyed lookups for
+ * every cell of every line.
+ */
+public final class MappingPlan {
+
+    public static final int NO_PK_SLOT = -1;
+
+    private final String[] names;
+    // The mapped keys of columns
+    private final String[] keys;
+    // Whether the column is retained by selected/ignored fields
+    private final boolean[] retained;
+    // Whether the column is nullable and the null values should be checked
+    private final boolean[] nullChecked;
+    private final Set<Object> nullValues;
+    // Whether the value should be mapped, the value becomes a string if so
+    private final boolean valueMapped;
+    private final Map<String, Object>[] valueTables;
+    private final boolean[] idFields;
+    // The id fields which are not used as properties
+    private final boolean[] idOnlyFields;
+    // The index of primary keys of the column, or NO_PK_SLOT
+    private final int[] pkSlots;
+
+    @SuppressWarnings("unchecked")
+    public MappingPlan(String[] names, ElementMapping mapping,
+                       SchemaLabel schemaLabel, Predicate<String> isIdField) {
+        int size = names.length;
+        this.names = names;
+        this.keys = new String[size];
+        this.retained = new boolean[size];
+        this.nullChecked = new boolean[size];
+        this.nullValues = mapping.nullValues();
+        this.valueMapped = !mapping.mappingValues().isEmpty();
+        this.valueTables = new Map[size];
+        this.idFields = new boolean[size];
+        this.idOnlyFields = new boolean[size];
+        this.pkSlots = new int[size];
+
+        Set<String> selectedFields = mapping.selectedFields();
+        Set<String> ignoredFields = mapping.ignoredFields();
+        Set<String> nullableKeys = schemaLabel.nullableKeys();
+        boolean checkNull = !nullableKeys.isEmpty() &&
+                            !this.nullValues.isEmpty();
+        Set<String> properties = schemaLabel.properties();
+        List<String> primaryKeys = null;
+        if (schemaLabel instanceof VertexLabel) {
+            primaryKeys = ((VertexLabel) schemaLabel).primaryKeys();
+        }
+        for (int i = 0; i < size; i++) {
+            String name = names[i];
+            String key = mapping.mappingField(name);
+            this.keys[i] = key;
+            this.retained[i] = (selectedFields.isEmpty() ||
+                                selectedFields.contains(name)) &&
+                               (ignoredFields.isEmpty() ||
+                                !ignoredFields.contains(name));
+            this.nullChecked[i] = checkNull && nullableKeys.contains(key);
+            this.valueTables[i] = mapping.mappingValues().get(name);
+            this.idFields[i] = isIdField.test(name);
+            this.idOnlyFields[i] = this.idFields[i] &&
+                                   !properties.contains(name) &&
+                                   !properties.contains(key);
+            int slot = primaryKeys == null ? -1 : primaryKeys.indexOf(key);
+            this.pkSlots[i] = slot >= 0 ? slot : NO_PK_SLOT;
+        }
+    }
+
+    public boolean matches(String[] names) {
+        return this.names == names || Arrays.equals(this.names, names);
+    }
+
+    public int size() {
+        return this.names.length;
+    }
+
+    public String name(int index) {
+        return this.names[index];
+    }
+
+    public String key(int index) {
+        return this.keys[index];
+    }
+
+    /**
+     * Retain only the key-value pairs needed by the current vertex or edge,
+     * the selected fields are retained and the ignored fields are removed,
+     * as well as the null values of nullable keys
+     */
+    public boolean retain(int index, Object value) {
+        if (!this.retained[index]) {
+            return false;
+        }
+        return !this.nullChecked[index] || !this.nullValues.contains(value);
+    }
+
+    /**
+     * Map the column value by the value mapping of the field, the value is
+     * kept as string if it isn't mapped
+     */
+    public Object mappingValue(int index, Object value) {
+        if (!this.valueMapped) {
+            return value;
+        }
+        String strValue = String.valueOf(value);
+        Map<String, Object> table = this.valueTables[index];
+        if (table != null) {
+            Object mappedValue = table.get(strValue);
+            if (mappedValue != null) {
+                return mappedValue;
+            }
+        }
+        return strValue;
+    }
+
+    public boolean isIdField(int index) {
+        return this.idFields[index];
+    }
+
+    public boolean isIdOnlyField(int index) {
+        return this.idOnlyFields[index];
+    }
+
+    public int pkSlot(int index) {
+        return this.pkSlots[index];
+    }
+}
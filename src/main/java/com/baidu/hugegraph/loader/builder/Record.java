@@ -19,11 +19,18 @@
 
 package com.baidu.hugegraph.loader.builder;
 
+import com.baidu.hugegraph.loader.reader.line.EncodedLine;
+import com.baidu.hugegraph.loader.reader.line.Line;
 import com.baidu.hugegraph.structure.GraphElement;
 
 public class Record {
 
-    private final String rawLine;
+    /*
+     * The raw line, the bytes to decode it or the values to join it, the raw
+     * line is only used to write failure log, so don't build it for every
+     * record in advance
+     */
+    private final Object rawLine;
     private final GraphElement element;
 
     public Record(String rawLine, GraphElement element) {
@@ -31,7 +38,27 @@ public class Record {
         this.element = element;
     }
 
+    public Record(Line line, GraphElement element) {
+        this.rawLine = line.rawSource();
+        this.element = element;
+    }
+
     public String rawLine() {
+        if (this.rawLine instanceof Object[]) {
+            return Line.join((Object[]) this.rawLine);
+        }
+        if (this.rawLine instanceof EncodedLine) {
+            return this.rawLine.toString();
+        }
+        return (String) this.rawLine;
+    }
+
+    /**
+     * The raw line, the bytes to decode it or the values to join it, which
+     * is kept until the record inserted, it's used to estimate the memory
+     * of the record
+     */
+    public Object rawSource() {
         return this.rawLine;
     }
 
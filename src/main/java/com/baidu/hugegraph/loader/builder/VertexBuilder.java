@@ -71,7 +71,7 @@ public class VertexBuilder extends ElementBuilder<Vertex> {
 
     @Override
     protected boolean isIdField(String fieldName) {
-        return fieldName.equals(this.mapping.idField());
+        return this.mapping.isIdField(fieldName);
     }
 
     private void checkIdField() {
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.builder;
+
+import java.util.Date;
+
+import com.baidu.hugegraph.loader.constant.Constants;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.LongEncoding;
+
+/**
+ * Encode the id of primary key vertex like "1:marko!29" in one pass, the
+ * ':' and '!' in primary values are escaped and the length of UTF-8 bytes
+ * is counted meanwhile, so the id needn't be encoded again to check the
+ * length. The buffer is reused, so it's not thread safe.
+ */
+public final class VertexIdEncoder {
+
+    private static final char ESCAPE = '`';
+    private static final char LABEL_DELIMITER = ':';
+    private static final char VALUE_DELIMITER = '!';
+
+    private final StringBuilder buffer;
+    // The length of UTF-8 bytes, or -1 if there is malformed surrogate
+    private int bytes;
+    private char pendingHighSurrogate;
+
+    public VertexIdEncoder() {
+        this.buffer = new StringBuilder(Constants.VERTEX_ID_LIMIT);
+        this.bytes = 0;
+        this.pendingHighSurrogate = 0;
+    }
+
+    public String encode(long labelId, Object primaryValue) {
+        this.begin(labelId);
+        this.append(LABEL_DELIMITER);
+        this.appendValue(primaryValue);
+        return this.finish();
+    }
+
+    public String encode(long labelId, Object[] primaryValues) {
+        this.begin(labelId);
+        for (int i = 0; i < primaryValues.length; i++) {
+            this.append(i == 0 ? LABEL_DELIMITER : VALUE_DELIMITER);
+            this.appendValue(primaryValues[i]);
+        }
+        return this.finish();
+    }
+
+    /**
+     * Check the length of UTF-8 bytes of the customized string id
+     */
+    public static void checkLength(String id) {
+        int bytes = 0;
+        for (int i = 0; i < id.length() && bytes >= 0; i++) {
+            char c = id.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < id.length() &&
+                Character.isLowSurrogate(id.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes = -1;
+            } else {
+                bytes += utf8Length(c);
+            }
+        }
+        checkLength(id, bytes);
+    }
+
+    private static void checkLength(String id, int bytes) {
+        E.checkArgument(bytes >= 0 && bytes <= Constants.VERTEX_ID_LIMIT,
+                        "The vertex id length exceeds limit %s : '%s'",
+                        Constants.VERTEX_ID_LIMIT, id);
+    }
+
+    private void begin(long labelId) {
+        this.buffer.setLength(0);
+        this.buffer.append(labelId);
+        // The label id is always ascii digits
+        this.bytes = this.buffer.length();
+        this.pendingHighSurrogate = 0;
+    }
+
+    private String finish() {
+        if (this.pendingHighSurrogate != 0) {
+            this.bytes = -1;
+        }
+        String id = this.buffer.toString();
+        checkLength(id, this.bytes);
+        return id;
+    }
+
+    private void appendValue(Object value) {
+        String pkValue;
+        if (value instanceof Number || value instanceof Date) {
+            pkValue = LongEncoding.encodeNumber(value);
+        } else {
+            pkValue = String.valueOf(value);
+        }
+        for (int i = 0; i < pkValue.length(); i++) {
+            char c = pkValue.charAt(i);
+            if (c == LABEL_DELIMITER || c == VALUE_DELIMITER) {
+                this.append(ESCAPE);
+            }
+            this.append(c);
+        }
+    }
+
+    private void append(char c) {
+        this.buffer.append(c);
+        if (this.bytes < 0) {
+            return;
+        }
+        if (this.pendingHighSurrogate != 0) {
+            this.pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                this.bytes += 4;
+            } else {
+                this.bytes = -1;
+            }
+        } else if (Character.isHighSurrogate(c)) {
+            this.pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            this.bytes = -1;
+        } else {
+            this.bytes += utf8Length(c);
+        }
+    }
+
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        } else if (c < 0x800) {
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+}
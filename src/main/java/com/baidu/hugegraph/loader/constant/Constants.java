@@ -46,6 +46,7 @@ public final class Constants {
     public static final String UNDERLINE_STR = "_";
     public static final String COMMA_STR = ",";
     public static final String TAB_STR = "\t";
+    public static final String LINE_BREAK_STR = "\n";
     public static final String NULL_STR = "NULL";
     public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
     public static final String TIMESTAMP = "timestamp";
@@ -59,7 +60,11 @@ public final class Constants {
     public static final String DEDUP_SUFFIX = ".dedup";
     public static final String LOAD_PROGRESS = "load-progress";
 
-    public static final String PARSE_WORKER = "parse-worker-%s";
+    public static final String STRUCT_WORKER = "struct-worker-%d";
+    public static final String SPLIT_WORKER = "split-worker-%d";
+    public static final String READ_AHEAD_WORKER = "read-ahead-worker-%d";
+    public static final String PREFETCH_WORKER = "prefetch-worker-%d";
+    public static final String PARSE_WORKER = "parse-worker-%d";
     public static final String BATCH_WORKER = "batch-worker-%d";
     public static final String SINGLE_WORKER = "single-worker-%d";
     public static final long BATCH_PRINT_FREQ = 10_000_000L;
@@ -74,6 +79,4 @@ public final class Constants {
 
     public static final int NO_LIMIT = -1;
     public static final int VERTEX_ID_LIMIT = 128;
-    public static final String[] SEARCH_LIST = new String[]{":", "!"};
-    public static final String[] TARGET_LIST = new String[]{"`:", "`!"};
 }
@@ -33,6 +33,7 @@ import com.baidu.hugegraph.loader.failure.FailLogger;
 import com.baidu.hugegraph.loader.mapping.InputStruct;
 import com.baidu.hugegraph.loader.metrics.LoadSummary;
 import com.baidu.hugegraph.loader.progress.LoadProgress;
+import com.baidu.hugegraph.loader.task.BatchSizeController;
 import com.baidu.hugegraph.loader.util.DateUtil;
 import com.baidu.hugegraph.loader.util.HugeClientHolder;
 import com.baidu.hugegraph.structure.constant.GraphMode;
@@ -58,6 +59,7 @@ public final class LoadContext {
 
     private final HugeClient client;
     private final SchemaCache schemaCache;
+    private final BatchSizeController batchSizeController;
 
     public LoadContext(LoadOptions options) {
         this.timestamp = DateUtil.now("yyyyMMdd-HHmmss");
@@ -71,6 +73,7 @@ public final class LoadContext {
         this.loggers = new ConcurrentHashMap<>();
         this.client = HugeClientHolder.create(options);
         this.schemaCache = new SchemaCache(this.client);
+        this.batchSizeController = new BatchSizeController(options);
     }
 
     public String timestamp() {
@@ -128,6 +131,10 @@ public final class LoadContext {
         return this.schemaCache;
     }
 
+    public BatchSizeController batchSizeController() {
+        return this.batchSizeController;
+    }
+
     public void updateSchemaCache() {
         assert this.client != null;
         this.schemaCache.updateAll();
@@ -26,6 +26,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
 import com.baidu.hugegraph.loader.constant.Constants;
+import com.baidu.hugegraph.loader.constant.ExecutorType;
+import com.baidu.hugegraph.loader.constant.QueuePolicy;
 import com.baidu.hugegraph.loader.util.LoadUtil;
 import com.baidu.hugegraph.util.E;
 import com.baidu.hugegraph.util.Log;
@@ -110,16 +112,166 @@ public final class LoadOptions {
                              "or parsing errors will cause load task stop")
     public boolean failureMode = false;
 
+    @Parameter(names = {"--struct-threads"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The number of input structs to load " +
+                             "concurrently, all of them share the same " +
+                             "parse and insert threads")
+    public int structThreads = 1;
+
+    @Parameter(names = {"--split-size"}, arity = 1,
+               description = "The bytes of each split when reading a large " +
+                             "uncompressed local CSV/TEXT file by byte " +
+                             "ranges concurrently, the CSV file is scanned " +
+                             "once to split at record boundaries, " +
+                             "<= 0 means don't split")
+    public long splitSize = 0L;
+
+    @Parameter(names = {"--split-threads"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The number of threads to read the splits or " +
+                             "files of an input concurrently when " +
+                             "split-size > 0, the files aren't split if " +
+                             "it's 1")
+    public int splitThreads = CPUS;
+
+    @Parameter(names = {"--mmap-read"}, arity = 1,
+               description = "Whether to read the uncompressed local files " +
+                             "by memory mapping, the text and csv lines " +
+                             "are split on raw bytes and only the fields " +
+                             "used by mappings are decoded, only " +
+                             "supported by UTF-8/ASCII/ISO-8859-1")
+    public boolean mmapRead = false;
+
+    @Parameter(names = {"--read-ahead"}, arity = 1,
+               description = "Whether to decompress the compressed files " +
+                             "in a separate thread ahead of reading lines, " +
+                             "it's helpful for the slow formats like bz2 " +
+                             "and xz, the blocks of bz2 files are " +
+                             "decompressed in parallel")
+    public boolean readAhead = false;
+
+    @Parameter(names = {"--read-ahead-threads"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The number of threads shared by the files of " +
+                             "an input to decompress ahead when " +
+                             "read-ahead is true")
+    public int readAheadThreads = CPUS;
+
+    @Parameter(names = {"--prefetch-readables"}, arity = 1,
+               description = "The number of next files to prepare in " +
+                             "background when reading the files of an " +
+                             "input one by one, which resolves the load " +
+                             "progress, opens the stream and reads the " +
+                             "first bytes ahead, <= 0 means don't prefetch")
+    public int prefetchReadables = 0;
+
+    @Parameter(names = {"--parse-threads"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The number of threads to parse lines into " +
+                             "vertices and edges")
+    public int parseThreads = CPUS;
+
     @Parameter(names = {"--batch-insert-threads"}, arity = 1,
                validateWith = {PositiveValidator.class},
                description = "The number of threads to execute batch insert")
     public int batchInsertThreads = CPUS;
 
+    @Parameter(names = {"--auto-insert-threads"}, arity = 1,
+               description = "Whether to tune the number of batch insert " +
+                             "threads at runtime according to the insert " +
+                             "throughput and latency, start from " +
+                             "batch-insert-threads")
+    public boolean autoInsertThreads = false;
+
+    @Parameter(names = {"--max-batch-insert-threads"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The max number of batch insert threads when " +
+                             "auto-insert-threads is true, it's better not " +
+                             "to exceed max-conn")
+    public int maxBatchInsertThreads = CPUS * 4;
+
     @Parameter(names = {"--single-insert-threads"}, arity = 1,
                validateWith = {PositiveValidator.class},
                description = "The number of threads to execute single insert")
     public int singleInsertThreads = 8;
 
+    @Parameter(names = {"--parse-queue-size"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The max number of batches waiting to be parsed")
+    public int parseQueueSize = CPUS * 2;
+
+    @Parameter(names = {"--insert-queue-size"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The max number of batches waiting to be " +
+                             "inserted in batch mode")
+    public int insertQueueSize = CPUS;
+
+    @Parameter(names = {"--queue-policy"}, arity = 1,
+               description = "The policy when the queue of a load stage " +
+                             "is full, BLOCK means waiting until the queue " +
+                             "has free space, BACKOFF means retrying with " +
+                             "exponential back-off sleeping")
+    public QueuePolicy queuePolicy = QueuePolicy.BLOCK;
+
+    @Parameter(names = {"--executor"}, arity = 1,
+               description = "The threads type to run insert tasks, " +
+                             "PLATFORM or VIRTUAL, the VIRTUAL requires " +
+                             "Java 21+ and allows much more insert threads, " +
+                             "it falls back to PLATFORM if unsupported, " +
+                             "please also enlarge max-conn accordingly")
+    public ExecutorType executor = ExecutorType.PLATFORM;
+
+    @Parameter(names = {"--timer-retry"}, arity = 1,
+               description = "Whether to retry the failed batches by timer, " +
+                             "the batches waiting for retry won't occupy " +
+                             "the insert threads, but each request still " +
+                             "occupies an insert thread until responded " +
+                             "unless it's sent by async-insert")
+    public boolean timerRetry = false;
+
+    @Parameter(names = {"--coalesce-batches"}, arity = 1,
+               description = "Whether to coalesce the records of each " +
+                             "label across read batches into full batches, " +
+                             "it reduces the undersized batches when most " +
+                             "lines are filtered by the mapping")
+    public boolean coalesceBatches = false;
+
+    @Parameter(names = {"--batch-linger"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The max time in ms that the coalesced records " +
+                             "can be held before sent out as a batch")
+    public int batchLinger = 500;
+
+    @Parameter(names = {"--memory-budget"}, arity = 1,
+               description = "The max estimated memory in MB of the " +
+                             "records parsed but not inserted, the readers " +
+                             "and parsers will be blocked if it's used up, " +
+                             "0 means no limit")
+    public int memoryBudget = 0;
+
+    @Parameter(names = {"--pre-serialize"}, arity = 1,
+               description = "Whether to serialize the batches into " +
+                             "request body in parse threads and send them " +
+                             "directly, the batches with update strategies " +
+                             "or uuid values are still sent by client, " +
+                             "only supported by http protocol, the idle " +
+                             "connections kept alive are limited by the " +
+                             "JVM property http.maxConnections(default 5) " +
+                             "instead of max-conn")
+    public boolean preSerialize = false;
+
+    @Parameter(names = {"--async-insert"}, arity = 1,
+               description = "Whether to send the pre-serialized batches " +
+                             "asynchronously over the non-blocking " +
+                             "connections of an event loop, the requests " +
+                             "in flight don't occupy the insert threads, " +
+                             "the connections are limited by " +
+                             "max-conn-per-route, it implies pre-serialize " +
+                             "and timer-retry, only supported by http " +
+                             "protocol")
+    public boolean asyncInsert = false;
+
     @Parameter(names = {"--max-conn"}, arity = 1,
                description = "Max number of HTTP connections to server")
     public int maxConnections = CPUS * 4;
@@ -133,6 +285,36 @@ public final class LoadOptions {
                description = "The number of lines in each submit")
     public int batchSize = 500;
 
+    @Parameter(names = {"--adaptive-batch-size"}, arity = 1,
+               description = "Whether to adjust the batch size of each " +
+                             "vertex/edge label according to the insert " +
+                             "latency and errors, start from batch-size")
+    public boolean adaptiveBatchSize = false;
+
+    @Parameter(names = {"--min-batch-size"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The min batch size when adaptive-batch-size " +
+                             "is true, the min_batch_size and max_batch_" +
+                             "size of a vertex/edge mapping override the " +
+                             "limits for its label")
+    public int minBatchSize = 50;
+
+    @Parameter(names = {"--max-batch-size"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The max batch size when adaptive-batch-size " +
+                             "is true, the server's batch.max_vertices_" +
+                             "per_batch and batch.max_edges_per_batch " +
+                             "should be raised accordingly, or the max " +
+                             "is lowered to them once a batch is rejected")
+    public int maxBatchSize = 2000;
+
+    @Parameter(names = {"--batch-latency-target"}, arity = 1,
+               validateWith = {PositiveValidator.class},
+               description = "The target latency(ms) of a batch insert " +
+                             "request when adaptive-batch-size is true, " +
+                             "the batch size is decreased once exceeded")
+    public int batchLatencyTarget = 1000;
+
     @Parameter(names = {"--shutdown-timeout"}, arity = 1,
                validateWith = {PositiveValidator.class},
                description = "The timeout of awaitTermination in seconds")
@@ -245,6 +427,11 @@ public final class LoadOptions {
         E.checkArgument(!(options.incrementalMode && options.failureMode),
                         "The option --incremental-mode and --failure-mode " +
                         "can't be true at same time");
+        // Check option --min-batch-size and --max-batch-size
+        E.checkArgument(options.minBatchSize <= options.maxBatchSize,
+                        "The option --min-batch-size must be <= " +
+                        "--max-batch-size, but got %s > %s",
+                        options.minBatchSize, options.maxBatchSize);
         if (options.failureMode) {
             LOG.info("The failure-mode will scan the entire error file");
             options.maxReadErrors = Constants.NO_LIMIT;
@@ -61,7 +61,7 @@ public final class FailWriter {
         }
     }
 
-    public void write(ReadException e) {
+    public synchronized void write(ReadException e) {
         try {
             this.writeLine("#### READ ERROR: " + e.getMessage());
             this.writeLine(e.line());
@@ -71,7 +71,7 @@ public final class FailWriter {
         }
     }
 
-    public void write(ParseException e) {
+    public synchronized void write(ParseException e) {
         try {
             this.writeLine("#### PARSE ERROR: " + e.getMessage());
             this.writeLine(e.line());
@@ -81,7 +81,7 @@ public final class FailWriter {
         }
     }
 
-    public void write(InsertException e) {
+    public synchronized void write(InsertException e) {
         try {
             this.writeLine("#### INSERT ERROR: " + e.getMessage());
             this.writeLine(e.line());
@@ -53,6 +53,12 @@ public class EdgeMapping extends ElementMapping {
         return ElemType.EDGE;
     }
 
+    @Override
+    public boolean isIdField(String field) {
+        return this.sourceFields.contains(field) ||
+               this.targetFields.contains(field);
+    }
+
     @Override
     public void check() throws IllegalArgumentException {
         super.check();
@@ -32,6 +32,7 @@ import com.baidu.hugegraph.loader.constant.ElemType;
 import com.baidu.hugegraph.loader.source.InputSource;
 import com.baidu.hugegraph.structure.graph.UpdateStrategy;
 import com.baidu.hugegraph.util.E;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.google.common.collect.ImmutableSet;
@@ -55,6 +56,13 @@ public abstract class ElementMapping implements Checkable {
     private Set<Object> nullValues;
     @JsonProperty("update_strategies")
     private Map<String, UpdateStrategy> updateStrategies;
+    // The limits of adaptive batch size of the label, 0 means not set
+    @JsonProperty("min_batch_size")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int minBatchSize;
+    @JsonProperty("max_batch_size")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int maxBatchSize;
 
     public ElementMapping() {
         this.skip = false;
@@ -64,10 +72,14 @@ public abstract class ElementMapping implements Checkable {
         this.ignoredFields = new HashSet<>();
         this.nullValues = ImmutableSet.of(Constants.EMPTY_STR);
         this.updateStrategies = new HashMap<>();
+        this.minBatchSize = 0;
+        this.maxBatchSize = 0;
     }
 
     public abstract ElemType type();
 
+    public abstract boolean isIdField(String field);
+
     @Override
     public void check() throws IllegalArgumentException {
         E.checkArgument(this.label != null && !this.label.isEmpty(),
@@ -87,6 +99,15 @@ public abstract class ElementMapping implements Checkable {
                                 "The value in value_mapping can't be null");
             });
         });
+        E.checkArgument(this.minBatchSize >= 0 && this.maxBatchSize >= 0,
+                        "The min_batch_size(%s) and max_batch_size(%s) " +
+                        "can't be negative", this.minBatchSize,
+                        this.maxBatchSize);
+        E.checkArgument(this.maxBatchSize == 0 ||
+                        this.minBatchSize <= this.maxBatchSize,
+                        "The min_batch_size(%s) can't be greater than " +
+                        "max_batch_size(%s)", this.minBatchSize,
+                        this.maxBatchSize);
     }
 
     public void checkFieldsValid(InputSource source) {
@@ -118,6 +139,22 @@ public abstract class ElementMapping implements Checkable {
         }
     }
 
+    /**
+     * Whether the values of the field may be used to build the elements,
+     * which are the id fields and the fields retained by selected/ignored
+     */
+    public boolean usedField(String field) {
+        if (this.skip) {
+            return false;
+        }
+        if (this.isIdField(field)) {
+            return true;
+        }
+        return (this.selectedFields.isEmpty() ||
+                this.selectedFields.contains(field)) &&
+               !this.ignoredFields.contains(field);
+    }
+
     public String label() {
         return this.label;
     }
@@ -204,4 +241,20 @@ public abstract class ElementMapping implements Checkable {
     public void updateStrategies(Map<String, UpdateStrategy> updateStrategies) {
         this.updateStrategies = updateStrategies;
     }
+
+    public int minBatchSize() {
+        return this.minBatchSize;
+    }
+
+    public void minBatchSize(int minBatchSize) {
+        this.minBatchSize = minBatchSize;
+    }
+
+    public int maxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    public void maxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
 }
@@ -43,6 +43,11 @@ public class VertexMapping extends ElementMapping {
         return ElemType.VERTEX;
     }
 
+    @Override
+    public boolean isIdField(String field) {
+        return field.equals(this.idField);
+    }
+
     @Override
     public void check() throws IllegalArgumentException {
         super.check();
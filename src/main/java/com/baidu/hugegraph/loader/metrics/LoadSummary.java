@@ -45,6 +45,8 @@ public final class LoadSummary {
     private final RangesTimer loadRangesTimer;
     // Every input struct has a metric
     private final Map<String, LoadMetrics> inputMetricsMap;
+    // Every pipeline stage has a metric
+    private final Map<String, StageMetrics> stageMetricsMap;
 
     public LoadSummary() {
         this.vertexLoaded = new LongAdder();
@@ -57,6 +59,7 @@ public final class LoadSummary {
         this.edgeRangesTimer = new RangesTimer(Constants.TIME_RANGE_CAPACITY);
         this.loadRangesTimer = new RangesTimer(Constants.TIME_RANGE_CAPACITY);
         this.inputMetricsMap = InsertionOrderUtil.newMap();
+        this.stageMetricsMap = InsertionOrderUtil.newMap();
     }
 
     public void initMetrics(LoadMapping mapping) {
@@ -73,6 +76,17 @@ public final class LoadSummary {
         return this.inputMetricsMap.get(struct.id());
     }
 
+    public synchronized StageMetrics stageMetrics(String name, int threads,
+                                                  int capacity) {
+        return this.stageMetricsMap.computeIfAbsent(name, k -> {
+            return new StageMetrics(name, threads, capacity);
+        });
+    }
+
+    public Map<String, StageMetrics> stageMetricsMap() {
+        return this.stageMetricsMap;
+    }
+
     public long vertexLoaded() {
         return this.vertexLoaded.longValue();
     }
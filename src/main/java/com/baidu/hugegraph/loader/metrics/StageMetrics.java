@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class StageMetrics {
+
+    private final String name;
+    private volatile int threads;
+    private final int capacity;
+    private final LongAdder submitted;
+    // The sum of queue depth sampled when each task submitted
+    private final LongAdder depthSum;
+    private final LongAccumulator maxDepth;
+    // The nanoseconds producers were blocked by a full queue
+    private final LongAdder blockedTime;
+
+    public StageMetrics(String name, int threads, int capacity) {
+        this.name = name;
+        this.threads = threads;
+        this.capacity = capacity;
+        this.submitted = new LongAdder();
+        this.depthSum = new LongAdder();
+        this.maxDepth = new LongAccumulator(Long::max, 0L);
+        this.blockedTime = new LongAdder();
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public int threads() {
+        return this.threads;
+    }
+
+    public void threads(int threads) {
+        this.threads = threads;
+    }
+
+    public int capacity() {
+        return this.capacity;
+    }
+
+    public void enqueued(int depth, long blockedNanos) {
+        this.submitted.increment();
+        this.depthSum.add(depth);
+        this.maxDepth.accumulate(depth);
+        this.blockedTime.add(blockedNanos);
+    }
+
+    public long submitted() {
+        return this.submitted.longValue();
+    }
+
+    public long maxDepth() {
+        return this.maxDepth.longValue();
+    }
+
+    public long avgDepth() {
+        long submitted = this.submitted();
+        if (submitted == 0L) {
+            return 0L;
+        }
+        return this.depthSum.longValue() / submitted;
+    }
+
+    /**
+     * Return the blocked time in milliseconds
+     */
+    public long blockedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.blockedTime.longValue());
+    }
+}
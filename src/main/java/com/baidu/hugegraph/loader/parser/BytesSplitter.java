@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.parser;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Split a line on its raw bytes like TextLineParser or CsvTokenizer, and
+ * decode only the cells needed, the others are left null. The bytes of the
+ * delimiter must never appear in other chars, which is true for the ascii
+ * delimiters and the charsets compatible with ascii, as well as for any
+ * delimiter in UTF-8.
+ */
+public final class BytesSplitter {
+
+    private static final byte QUOTE = (byte) CsvTokenizer.QUOTE;
+    private static final int INIT_CELLS = 16;
+
+    private final byte[] delimiter;
+    // Whether to split as csv, the delimiter is a single byte if so
+    private final boolean csv;
+    // Used to unescape the csv cells which contain quotes
+    private byte[] cell;
+    private String[] cells;
+
+    public BytesSplitter(byte[] delimiter, boolean csv) {
+        assert delimiter.length > 0 && (!csv || delimiter.length == 1);
+        this.delimiter = delimiter;
+        this.csv = csv;
+        this.cell = new byte[INIT_CELLS];
+        this.cells = new String[INIT_CELLS];
+    }
+
+    /**
+     * Split the line and decode the cells whose index is less than the
+     * length of decoded only if it's true, the cells beyond are all decoded
+     */
+    public String[] split(byte[] bytes, int length, Charset charset,
+                          boolean[] decoded) {
+        int count = this.csv ?
+                    this.splitCsv(bytes, length, charset, decoded) :
+                    this.splitText(bytes, length, charset, decoded);
+        return Arrays.copyOf(this.cells, count);
+    }
+
+    /**
+     * Whether the csv record isn't ended in the line, since a quoted cell
+     * contains line breaks
+     */
+    public static boolean inQuote(byte[] bytes, int length) {
+        boolean inQuote = false;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == QUOTE) {
+                inQuote = !inQuote;
+            }
+        }
+        return inQuote;
+    }
+
+    private int splitText(byte[] bytes, int length, Charset charset,
+                          boolean[] decoded) {
+        byte first = this.delimiter[0];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= length - this.delimiter.length; i++) {
+            if (bytes[i] != first || !this.delimiterAt(bytes, i)) {
+                continue;
+            }
+            count = this.addCell(count, bytes, start, i, charset, decoded);
+            start = i + this.delimiter.length;
+            i = start - 1;
+        }
+        return this.addCell(count, bytes, start, length, charset, decoded);
+    }
+
+    private boolean delimiterAt(byte[] bytes, int index) {
+        for (int i = 1; i < this.delimiter.length; i++) {
+            if (bytes[index + i] != this.delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int splitCsv(byte[] bytes, int length, Charset charset,
+                         boolean[] decoded) {
+        byte separator = this.delimiter[0];
+        int count = 0;
+        int start = 0;
+        boolean quoted = false;
+        // The length of unescaped cell, -1 if the cell contains no quotes
+        int escaped = -1;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b == QUOTE) {
+                if (escaped < 0) {
+                    escaped = this.appendCell(0, bytes, start, i);
+                }
+                if (quoted && i + 1 < length && bytes[i + 1] == QUOTE) {
+                    escaped = this.appendCell(escaped, bytes, i, i + 1);
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (b == separator && !quoted) {
+                count = this.addCsvCell(count, bytes, start, i, escaped,
+                                        charset, decoded);
+                start = i + 1;
+                escaped = -1;
+            } else if (escaped >= 0) {
+                escaped = this.appendCell(escaped, bytes, i, i + 1);
+            }
+        }
+        return this.addCsvCell(count, bytes, start, length, escaped,
+                               charset, decoded);
+    }
+
+    private int appendCell(int size, byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (size + length > this.cell.length) {
+            int capacity = Math.max(this.cell.length << 1, size + length);
+            this.cell = Arrays.copyOf(this.cell, capacity);
+        }
+        System.arraycopy(bytes, start, this.cell, size, length);
+        return size + length;
+    }
+
+    private int addCsvCell(int count, byte[] bytes, int start, int end,
+                           int escaped, Charset charset, boolean[] decoded) {
+        if (escaped < 0) {
+            return this.addCell(count, bytes, start, end, charset, decoded);
+        }
+        return this.addCell(count, this.cell, 0, escaped, charset, decoded);
+    }
+
+    private int addCell(int count, byte[] bytes, int start, int end,
+                        Charset charset, boolean[] decoded) {
+        if (count == this.cells.length) {
+            this.cells = Arrays.copyOf(this.cells, count << 1);
+        }
+        if (count >= decoded.length || decoded[count]) {
+            this.cells[count] = new String(bytes, start, end - start, charset);
+        } else {
+            this.cells[count] = null;
+        }
+        return count + 1;
+    }
+}
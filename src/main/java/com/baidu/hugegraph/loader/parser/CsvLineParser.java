@@ -19,30 +19,25 @@
 
 package com.baidu.hugegraph.loader.parser;
 
-import java.io.IOException;
-import java.util.NoSuchElementException;
-
-import org.simpleflatmapper.csv.CsvParser;
-
 import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.loader.exception.ReadException;
 
 public class CsvLineParser extends TextLineParser {
 
-    private final CsvParser.DSL dsl;
+    private final CsvTokenizer tokenizer;
 
     public CsvLineParser() {
         super(Constants.COMMA_STR);
         char separator = this.delimiter().charAt(0);
-        this.dsl = CsvParser.separator(separator);
+        this.tokenizer = new CsvTokenizer(separator);
     }
 
     @Override
     public String[] split(String line) {
-        try {
-            return this.dsl.reader(line).iterator().next();
-        } catch (IOException | NoSuchElementException e) {
-            throw new ReadException(line, "Parse line '%s' error", e, line);
+        if (line.isEmpty()) {
+            throw new ReadException(line, "Parse line '%s' error, " +
+                                    "it's empty", line);
         }
+        return this.tokenizer.split(line);
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.parser;
+
+import java.util.Arrays;
+
+/**
+ * Split a csv record into cells following RFC 4180, the cell buffers are
+ * reused between records, so it's not thread safe. Like the former parser,
+ * a quote toggles the quoting state wherever it appears, and two quotes in
+ * a quoted cell stand for a literal quote.
+ */
+public final class CsvTokenizer {
+
+    public static final char QUOTE = '"';
+
+    private static final int INIT_CELLS = 16;
+
+    private final char separator;
+    // Used to unescape the cells which contain quotes
+    private final StringBuilder cell;
+    private String[] cells;
+
+    public CsvTokenizer(char separator) {
+        this.separator = separator;
+        this.cell = new StringBuilder();
+        this.cells = new String[INIT_CELLS];
+    }
+
+    public String[] split(String record) {
+        int count = 0;
+        int length = record.length();
+        int start = 0;
+        boolean quoted = false;
+        // Whether the current cell contains quotes and must be unescaped
+        boolean escaped = false;
+        for (int i = 0; i < length; i++) {
+            char c = record.charAt(i);
+            if (c == QUOTE) {
+                if (!escaped) {
+                    this.cell.setLength(0);
+                    this.cell.append(record, start, i);
+                    escaped = true;
+                }
+                if (quoted && i + 1 < length && record.charAt(i + 1) == QUOTE) {
+                    this.cell.append(QUOTE);
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == this.separator && !quoted) {
+                count = this.addCell(count, record, start, i, escaped);
+                start = i + 1;
+                escaped = false;
+            } else if (escaped) {
+                this.cell.append(c);
+            }
+        }
+        count = this.addCell(count, record, start, length, escaped);
+        return Arrays.copyOf(this.cells, count);
+    }
+
+    /**
+     * Whether a record is still in quoting after the text, the inQuote is
+     * the state before it, used to join the lines of a multi-line record
+     */
+    public static boolean inQuote(String text, boolean inQuote) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (text.charAt(i) == QUOTE) {
+                inQuote = !inQuote;
+            }
+        }
+        return inQuote;
+    }
+
+    private int addCell(int count, String record, int start, int end,
+                        boolean escaped) {
+        if (count == this.cells.length) {
+            this.cells = Arrays.copyOf(this.cells, count << 1);
+        }
+        if (escaped) {
+            this.cells[count] = this.cell.toString();
+        } else {
+            this.cells[count] = record.substring(start, end);
+        }
+        return count + 1;
+    }
+}
@@ -19,25 +19,48 @@
 
 package com.baidu.hugegraph.loader.parser;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.baidu.hugegraph.loader.exception.ReadException;
 import com.baidu.hugegraph.loader.reader.line.Line;
-import com.baidu.hugegraph.loader.util.JsonUtil;
-import com.baidu.hugegraph.rest.SerializeException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
+/**
+ * Decode a json object into a line by streaming, the values are filled into
+ * the slots of the keys order learned from the previous lines, and the
+ * names array is shared by the lines with the same keys order. The values
+ * are decoded as the same types as deserializing to a map by jackson.
+ * It's not thread safe.
+ */
 public class JsonLineParser implements LineParser {
 
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static final String[] EMPTY_NAMES = new String[0];
+
+    // The keys order of last line
+    private String[] names;
+
+    public JsonLineParser() {
+        this.names = EMPTY_NAMES;
+    }
+
     @Override
     public Line parse(String[] header, String rawLine) {
-        Map<String, Object> keyValues;
-        try {
-            keyValues = JsonUtil.convertMap(rawLine, String.class,
-                                            Object.class);
-            String[] names = names(keyValues);
-            Object[] values = values(keyValues, names);
-            return new Line(rawLine, names, values);
-        } catch (SerializeException e) {
+        try (JsonParser parser = FACTORY.createParser(rawLine)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ReadException(rawLine, "The line '%s' isn't " +
+                                        "a json object", rawLine);
+            }
+            return this.parseObject(parser, rawLine);
+        } catch (IOException e) {
             throw new ReadException(rawLine, "Deserialize line '%s' error",
                                     e, rawLine);
         }
@@ -48,16 +71,92 @@ public class JsonLineParser implements LineParser {
         throw new UnsupportedOperationException("JsonLineParser.split()");
     }
 
-    private static String[] names(Map<String, Object> keyValues) {
-        return keyValues.keySet().toArray(new String[]{});
+    private Line parseObject(JsonParser parser, String rawLine)
+                             throws IOException {
+        String[] names = this.names;
+        Object[] values = new Object[names.length];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (size == names.length || !name.equals(names[size])) {
+                // The keys order changed, collect the rest into a map
+                return this.parseObject(parser, rawLine, names, values, size);
+            }
+            parser.nextToken();
+            values[size++] = parseValue(parser);
+        }
+        checkObjectEnd(token, rawLine);
+        if (size < names.length) {
+            names = Arrays.copyOf(names, size);
+            values = Arrays.copyOf(values, size);
+            this.names = names;
+        }
+        return new Line(rawLine, names, values);
     }
 
-    private static Object[] values(Map<String, Object> keyValues,
-                                   String[] names) {
-        Object[] values = new Object[names.length];
-        for (int i = 0; i < names.length; i++) {
-            values[i] = keyValues.get(names[i]);
+    private Line parseObject(JsonParser parser, String rawLine,
+                             String[] names, Object[] values, int size)
+                             throws IOException {
+        Map<String, Object> keyValues = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            keyValues.put(names[i], values[i]);
+        }
+        JsonToken token = JsonToken.FIELD_NAME;
+        while (token == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            // The later value overrides the duplicate key like a map
+            keyValues.put(name, parseValue(parser));
+            token = parser.nextToken();
+        }
+        checkObjectEnd(token, rawLine);
+        names = keyValues.keySet().toArray(new String[0]);
+        values = keyValues.values().toArray(new Object[0]);
+        this.names = names;
+        return new Line(rawLine, names, values);
+    }
+
+    private static Object parseValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                // Integer, Long or BigInteger as the value fits
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(parseValue(parser));
+                }
+                return list;
+            case START_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(name, parseValue(parser));
+                }
+                return map;
+            default:
+                throw new IOException(String.format(
+                          "Unexpected json token '%s'",
+                          parser.currentToken()));
+        }
+    }
+
+    private static void checkObjectEnd(JsonToken token, String rawLine) {
+        if (token != JsonToken.END_OBJECT) {
+            throw new ReadException(rawLine, "The line '%s' isn't " +
+                                    "a complete json object", rawLine);
         }
-        return values;
     }
 }
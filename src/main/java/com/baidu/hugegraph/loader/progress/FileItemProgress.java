@@ -20,6 +20,7 @@
 package com.baidu.hugegraph.loader.progress;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class FileItemProgress extends InputItemProgress {
@@ -30,25 +31,57 @@ public class FileItemProgress extends InputItemProgress {
     private final long timestamp;
     @JsonProperty("checksum")
     private final String checkSum;
+    // The byte range [start, end) of a file split, both are 0 if not split
+    @JsonProperty("split_start")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private final long splitStart;
+    @JsonProperty("split_end")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private final long splitEnd;
+
+    public FileItemProgress(String name, long timestamp, String checkSum,
+                            long offset) {
+        this(name, timestamp, checkSum, offset, 0L, 0L);
+    }
 
     @JsonCreator
     public FileItemProgress(@JsonProperty("name") String name,
                             @JsonProperty("last_modified") long timestamp,
                             @JsonProperty("checksum") String checkSum,
-                            @JsonProperty("offset") long offset) {
+                            @JsonProperty("offset") long offset,
+                            @JsonProperty("split_start") long splitStart,
+                            @JsonProperty("split_end") long splitEnd) {
         super(offset);
         this.name = name;
         this.timestamp = timestamp;
         this.checkSum = checkSum;
+        this.splitStart = splitStart;
+        this.splitEnd = splitEnd;
     }
 
     public String name() {
         return this.name;
     }
 
+    public long splitStart() {
+        return this.splitStart;
+    }
+
+    public long splitEnd() {
+        return this.splitEnd;
+    }
+
+    public boolean splitted() {
+        return this.splitEnd > 0L;
+    }
+
     @Override
     public String toString() {
-        return this.name;
+        if (!this.splitted()) {
+            return this.name;
+        }
+        return String.format("%s[%s, %s)", this.name,
+                             this.splitStart, this.splitEnd);
     }
 
     @Override
@@ -59,13 +92,17 @@ public class FileItemProgress extends InputItemProgress {
         FileItemProgress other = (FileItemProgress) object;
         return this.name.equals(other.name) &&
                this.timestamp == other.timestamp &&
-               this.checkSum.equals(other.checkSum);
+               this.checkSum.equals(other.checkSum) &&
+               this.splitStart == other.splitStart &&
+               this.splitEnd == other.splitEnd;
     }
 
     @Override
     public int hashCode() {
         return this.name.hashCode() ^
                Long.hashCode(this.timestamp) ^
-               this.checkSum.hashCode();
+               this.checkSum.hashCode() ^
+               Long.hashCode(this.splitStart) ^
+               Long.hashCode(this.splitEnd);
     }
 }
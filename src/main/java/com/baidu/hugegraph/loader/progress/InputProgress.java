@@ -35,18 +35,29 @@ public final class InputProgress {
     private final Set<InputItemProgress> loadedItems;
     @JsonProperty("loading_item")
     private InputItemProgress loadingItem;
+    // The items being read concurrently, like the splits of a large file
+    @JsonProperty("loading_splits")
+    private final Set<InputItemProgress> loadingSplits;
 
     private final transient Set<InputItemProgress> loadingItems;
 
+    public InputProgress(SourceType type, Set<InputItemProgress> loadedItems,
+                         InputItemProgress loadingItem) {
+        this(type, loadedItems, loadingItem, InsertionOrderUtil.newSet());
+    }
+
     @JsonCreator
     public InputProgress(@JsonProperty("type") SourceType type,
                          @JsonProperty("loaded_items")
                          Set<InputItemProgress> loadedItems,
                          @JsonProperty("loading_item")
-                         InputItemProgress loadingItem) {
+                         InputItemProgress loadingItem,
+                         @JsonProperty("loading_splits")
+                         Set<InputItemProgress> loadingSplits) {
         this.type = type;
         this.loadedItems = loadedItems;
         this.loadingItem = loadingItem;
+        this.loadingSplits = loadingSplits;
         this.loadingItems = InsertionOrderUtil.newSet();
     }
 
@@ -54,6 +65,7 @@ public final class InputProgress {
         this.type = struct.input().type();
         this.loadedItems = InsertionOrderUtil.newSet();
         this.loadingItem = null;
+        this.loadingSplits = InsertionOrderUtil.newSet();
         this.loadingItems = InsertionOrderUtil.newSet();
     }
 
@@ -65,6 +77,10 @@ public final class InputProgress {
         return this.loadingItem;
     }
 
+    public Set<InputItemProgress> loadingSplits() {
+        return this.loadingSplits;
+    }
+
     public InputItemProgress matchLoadedItem(InputItemProgress inputItem) {
         for (InputItemProgress item : this.loadedItems) {
             if (item.equals(inputItem)) {
@@ -78,6 +94,11 @@ public final class InputProgress {
         if (this.loadingItem != null && this.loadingItem.equals(inputItem)) {
             return this.loadingItem;
         }
+        for (InputItemProgress item : this.loadingSplits) {
+            if (item.equals(inputItem)) {
+                return item;
+            }
+        }
         return null;
     }
 
@@ -92,6 +113,19 @@ public final class InputProgress {
         this.loadingItem = inputItemProgress;
     }
 
+    public void addLoadingSplit(InputItemProgress inputItemProgress) {
+        this.loadingSplits.add(inputItemProgress);
+    }
+
+    /**
+     * The split has been read fully, it will be marked as loaded next time
+     */
+    public void finishLoadingSplit(InputItemProgress inputItemProgress) {
+        if (this.loadingSplits.remove(inputItemProgress)) {
+            this.loadingItems.add(inputItemProgress);
+        }
+    }
+
     public long loadingOffset() {
         return this.loadingItem == null ? 0L : this.loadingItem.offset();
     }
@@ -105,6 +139,10 @@ public final class InputProgress {
             this.loadedItems.add(this.loadingItem);
             this.loadingItem = null;
         }
+        if (markAll && !this.loadingSplits.isEmpty()) {
+            this.loadedItems.addAll(this.loadingSplits);
+            this.loadingSplits.clear();
+        }
     }
 
     public void confirmOffset() {
@@ -114,5 +152,8 @@ public final class InputProgress {
         if (this.loadingItem != null) {
             this.loadingItem.confirmOffset();
         }
+        for (InputItemProgress item : this.loadingSplits) {
+            item.confirmOffset();
+        }
     }
 }
@@ -44,7 +44,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 /**
  * LoadProgress was used to record progress of loading, in order to
  * continue loading when the last work was dropped out halfway.
- * The LoadProgress will only be operated by a single thread.
+ * The LoadProgress may be operated by multiple struct loading threads,
+ * but every InputProgress is only operated by the thread of its struct.
  */
 public final class LoadProgress  {
 
@@ -65,7 +66,7 @@ public final class LoadProgress  {
         return this.vertexLoaded;
     }
 
-    public void plusVertexLoaded(long count) {
+    public synchronized void plusVertexLoaded(long count) {
         this.vertexLoaded += count;
     }
 
@@ -73,7 +74,7 @@ public final class LoadProgress  {
         return this.edgeLoaded;
     }
 
-    public void plusEdgeLoaded(long count) {
+    public synchronized void plusEdgeLoaded(long count) {
         this.edgeLoaded += count;
     }
 
@@ -81,7 +82,7 @@ public final class LoadProgress  {
         return this.inputProgress;
     }
 
-    public long totalInputReaded() {
+    public synchronized long totalInputReaded() {
         long count = 0L;
         for (InputProgress inputProgress : this.inputProgress.values()) {
             Set<InputItemProgress> itemProgresses = inputProgress.loadedItems();
@@ -91,27 +92,30 @@ public final class LoadProgress  {
             if (inputProgress.loadingItem() != null) {
                 count += inputProgress.loadingItem().offset();
             }
+            for (InputItemProgress split : inputProgress.loadingSplits()) {
+                count += split.offset();
+            }
         }
         return count;
     }
 
-    public InputProgress addStruct(InputStruct struct) {
+    public synchronized InputProgress addStruct(InputStruct struct) {
         E.checkNotNull(struct, "mapping mapping");
         this.inputProgress.put(struct.id(), new InputProgress(struct));
         return this.inputProgress.get(struct.id());
     }
 
-    public InputProgress get(String id) {
+    public synchronized InputProgress get(String id) {
         return this.inputProgress.get(id);
     }
 
-    public void markLoaded(InputStruct struct, boolean markAll) {
+    public synchronized void markLoaded(InputStruct struct, boolean markAll) {
         InputProgress progress = this.inputProgress.get(struct.id());
         E.checkArgumentNotNull(progress, "Invalid mapping '%s'", struct);
         progress.markLoaded(markAll);
     }
 
-    public void write(LoadContext context) throws IOException {
+    public synchronized void write(LoadContext context) throws IOException {
         String fileName = format(context.options(), context.timestamp());
         File file = FileUtils.getFile(fileName);
         String json = JsonUtil.toJson(this);
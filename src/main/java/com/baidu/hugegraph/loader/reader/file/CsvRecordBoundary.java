@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.baidu.hugegraph.loader.parser.CsvTokenizer;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * Find the csv record boundaries to split a file at. A line break in a
+ * quoted cell isn't a record boundary, and whether a position is quoted
+ * depends on all the quotes before it, so the file is scanned once from
+ * the beginning. Like CsvTokenizer, a quote toggles the quoting state
+ * wherever it appears. The charset must be ASCII compatible, so that the
+ * quote and line break bytes can't be a part of other chars.
+ */
+public final class CsvRecordBoundary {
+
+    private static final int BUF_SIZE = 1024 * 1024;
+    private static final byte LF = '\n';
+    private static final byte QUOTE = (byte) CsvTokenizer.QUOTE;
+
+    /**
+     * Return the record start at or after each of the ascending positions,
+     * which follows a line break out of quotes, or the file length if no
+     * record starts there
+     */
+    public static long[] align(File file, long[] positions)
+                               throws IOException {
+        long[] starts = new long[positions.length];
+        byte[] buffer = new byte[BUF_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            // The position of buffer[0]
+            long base = 0L;
+            int count = 0;
+            int index = 0;
+            boolean quoted = false;
+            // Whether the byte before base + index is an unquoted line break
+            boolean recordStart = true;
+            for (int i = 0; i < positions.length; i++) {
+                E.checkArgument(i == 0 || positions[i] >= positions[i - 1],
+                                "The positions must be ascending");
+                while (count != -1) {
+                    if (base + index >= positions[i] && recordStart) {
+                        break;
+                    }
+                    if (index == count) {
+                        base += count;
+                        index = 0;
+                        count = in.read(buffer);
+                        continue;
+                    }
+                    byte b = buffer[index++];
+                    if (b == QUOTE) {
+                        quoted = !quoted;
+                    }
+                    recordStart = b == LF && !quoted;
+                }
+                starts[i] = count == -1 ? base : base + index;
+            }
+        }
+        return starts;
+    }
+}
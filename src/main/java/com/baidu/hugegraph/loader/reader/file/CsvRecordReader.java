@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.baidu.hugegraph.loader.constant.Constants;
+import com.baidu.hugegraph.loader.exception.ReadException;
+import com.baidu.hugegraph.loader.parser.CsvTokenizer;
+
+/**
+ * Read csv records rather than lines, the following lines are joined if a
+ * quoted cell contains line breaks, so that a record is counted as one line
+ * by both fetching and skipping offset.
+ *
+ * A stray quote in an unquoted cell would join all the following lines,
+ * so the joining gives up when the record exceeds MAX_RECORD_CHARS, then
+ * the first line fails alone and the others are read again as lines.
+ */
+public class CsvRecordReader implements LineReader {
+
+    public static final int MAX_RECORD_CHARS = 1024 * 1024;
+
+    private final LineReader reader;
+    private final StringBuilder record;
+    // The lines read by a record given up, which will be read again
+    private final Deque<String> pendingLines;
+
+    public CsvRecordReader(LineReader reader) {
+        this.reader = reader;
+        this.record = new StringBuilder();
+        this.pendingLines = new ArrayDeque<>();
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        String first = this.nextLine();
+        if (first == null || !CsvTokenizer.inQuote(first, false)) {
+            return first;
+        }
+        return this.readRecord(first);
+    }
+
+    /**
+     * Read the record starting with the line read outside, which is still
+     * in quoting, by joining the following lines
+     */
+    public String readRecord(String first) throws IOException {
+        this.record.setLength(0);
+        this.record.append(first);
+        List<String> lines = new ArrayList<>();
+        boolean inQuote = true;
+        String line;
+        while (inQuote && (line = this.nextLine()) != null) {
+            lines.add(line);
+            if (this.record.length() + line.length() > MAX_RECORD_CHARS) {
+                for (int i = lines.size() - 1; i >= 0; i--) {
+                    this.pendingLines.addFirst(lines.get(i));
+                }
+                throw new ReadException(first, "Parse line '%s' error, " +
+                                        "the quote isn't closed in %s " +
+                                        "chars", first, MAX_RECORD_CHARS);
+            }
+            // The line breaks in quoted cells are kept as '\n'
+            this.record.append(Constants.LINE_BREAK_STR).append(line);
+            inQuote = CsvTokenizer.inQuote(line, true);
+        }
+        // Unclosed quote till the end of file is left to the tokenizer
+        return this.record.toString();
+    }
+
+    /**
+     * Whether there are lines read by a record given up, which must be read
+     * by readLine() before the lines of the wrapped reader
+     */
+    public boolean hasPendingLines() {
+        return !this.pendingLines.isEmpty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.pendingLines.clear();
+        this.reader.close();
+    }
+
+    private String nextLine() throws IOException {
+        if (!this.pendingLines.isEmpty()) {
+            return this.pendingLines.pollFirst();
+        }
+        return this.reader.readLine();
+    }
+}
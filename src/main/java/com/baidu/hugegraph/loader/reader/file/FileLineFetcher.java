@@ -22,12 +22,16 @@ package com.baidu.hugegraph.loader.reader.file;
 import static com.baidu.hugegraph.util.Bytes.MB;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.compress.compressors.CompressorInputStream;
@@ -40,12 +44,17 @@ import org.apache.hadoop.io.compress.SnappyCodec;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.slf4j.Logger;
 
+import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.exception.ReadException;
+import com.baidu.hugegraph.loader.parser.BytesSplitter;
 import com.baidu.hugegraph.loader.parser.CsvLineParser;
+import com.baidu.hugegraph.loader.parser.CsvTokenizer;
 import com.baidu.hugegraph.loader.parser.JsonLineParser;
 import com.baidu.hugegraph.loader.parser.LineParser;
 import com.baidu.hugegraph.loader.parser.TextLineParser;
 import com.baidu.hugegraph.loader.reader.Readable;
+import com.baidu.hugegraph.loader.reader.line.EncodedLine;
 import com.baidu.hugegraph.loader.reader.line.Line;
 import com.baidu.hugegraph.loader.reader.line.LineFetcher;
 import com.baidu.hugegraph.loader.source.file.Compression;
@@ -62,16 +71,54 @@ public class FileLineFetcher extends LineFetcher {
     private static final Logger LOG = Log.logger(FileLineFetcher.class);
 
     private static final long BUF_SIZE = 4 * MB;
+    private static final long READ_AHEAD_BUF_SIZE = 1 * MB;
 
     private static final int FIRST_LINE_OFFSET = 1;
 
-    private BufferedReader reader;
+    private LineReader reader;
     private final LineParser parser;
+    // Whether to read the uncompressed local files by memory mapping
+    private final boolean mappedRead;
+    /*
+     * The pool shared by the files of a reader to decompress the compressed
+     * files ahead, null if decompress them in the reader thread
+     */
+    private final ExecutorService readAheadPool;
+    private final int readAheadThreads;
+    // Whether the values of a field are used, all are used if null
+    private Predicate<String> usedField;
+    // Used to split the lines on bytes, null if the file isn't mapped
+    private MappedLineReader mappedReader;
+    private BytesSplitter splitter;
+    // Whether to decode the cell of each column in header
+    private boolean[] decodedCells;
 
     public FileLineFetcher(FileSource source) {
+        this(source, false, null, 0);
+    }
+
+    public FileLineFetcher(FileSource source, boolean mappedRead,
+                           ExecutorService readAheadPool,
+                           int readAheadThreads) {
         super(source);
         this.reader = null;
         this.parser = createLineParser(source);
+        this.mappedRead = mappedRead;
+        this.readAheadPool = readAheadPool;
+        this.readAheadThreads = readAheadThreads;
+        this.usedField = null;
+        this.mappedReader = null;
+        this.splitter = null;
+        this.decodedCells = null;
+    }
+
+    /**
+     * Set the fields used by the mappings, the cells of other fields are
+     * left null rather than decoded when splitting a mapped file on bytes
+     */
+    public void usedFields(Predicate<String> usedField) {
+        this.usedField = usedField;
+        this.decodedCells = null;
     }
 
     @Override
@@ -87,6 +134,7 @@ public class FileLineFetcher extends LineFetcher {
     @Override
     public void resetReader() {
         this.reader = null;
+        this.mappedReader = null;
     }
 
     @Override
@@ -126,10 +174,27 @@ public class FileLineFetcher extends LineFetcher {
 
     @Override
     public void openReader(Readable readable) {
+        if (this.canMapFile(readable)) {
+            File file = ((LocalFileReader.LocalFile) readable).file();
+            Charset charset = Charset.forName(this.source().charset());
+            try {
+                MappedLineReader reader = new MappedLineReader(file, charset);
+                this.reader = this.recordReader(reader);
+                this.mappedReader = this.canSplitBytes() ? reader : null;
+            } catch (IOException e) {
+                throw new LoadException("Failed to map file '%s'",
+                                        e, readable);
+            }
+            // Mark as fresh
+            this.resetStatus();
+            return;
+        }
+        this.mappedReader = null;
         InputStream stream = null;
         try {
             stream = readable.open();
-            this.reader = createBufferedReader(stream, this.source());
+            BufferedReader reader = this.createBufferedReader(stream);
+            this.reader = this.recordReader(new BufferedLineReader(reader));
         } catch (IOException e) {
             throw new LoadException("Failed to open stream for '%s'",
                                     e, readable);
@@ -159,12 +224,32 @@ public class FileLineFetcher extends LineFetcher {
     public Line fetch() throws IOException {
         while (true) {
             // Read next line from current file
-            String rawLine = this.reader.readLine();
-            if (rawLine == null) {
-                return null;
+            String rawLine;
+            if (this.canFetchBytes()) {
+                int length = this.mappedReader.readLineBytes();
+                if (length < 0) {
+                    return null;
+                }
+                this.increaseOffset();
+                Line line = this.splitBytes(length);
+                if (line != null) {
+                    return line;
+                }
+                rawLine = this.decodeRecord(length);
+            } else {
+                try {
+                    rawLine = this.reader.readLine();
+                } catch (ReadException e) {
+                    // The broken record is still counted as a line
+                    this.increaseOffset();
+                    throw e;
+                }
+                if (rawLine == null) {
+                    return null;
+                }
+                this.increaseOffset();
             }
 
-            this.increaseOffset();
             if (this.needSkipLine(rawLine) || this.checkMatchHeader(rawLine)) {
                 continue;
             }
@@ -199,7 +284,11 @@ public class FileLineFetcher extends LineFetcher {
 
         try {
             for (long i = 0L; i < offset; i++) {
-                this.reader.readLine();
+                try {
+                    this.reader.readLine();
+                } catch (ReadException ignored) {
+                    // The broken record has been counted as a line
+                }
             }
         } catch (IOException e) {
             throw new LoadException("Failed to skip the first %s lines " +
@@ -214,6 +303,118 @@ public class FileLineFetcher extends LineFetcher {
         super.resetOffset();
     }
 
+    /**
+     * Read the csv and json file by records, since a record may span
+     * multiple lines
+     */
+    private LineReader recordReader(LineReader reader) {
+        switch (this.source().format()) {
+            case CSV:
+                return new CsvRecordReader(reader);
+            case JSON:
+                return new JsonRecordReader(reader);
+            default:
+                return reader;
+        }
+    }
+
+    /**
+     * The lines can be split on bytes if they're split by a delimiter which
+     * can be encoded, and the lines to skip are found by the default regex
+     */
+    private boolean canSplitBytes() {
+        FileSource source = this.source();
+        if (source.format() != FileFormat.CSV &&
+            source.format() != FileFormat.TEXT) {
+            return false;
+        }
+        if (!Constants.SKIPPED_LINE_REGEX.equals(
+             source.skippedLine().regex())) {
+            return false;
+        }
+        if (this.splitter == null) {
+            Charset charset = Charset.forName(source.charset());
+            String delimiter = ((TextLineParser) this.parser).delimiter();
+            if (!charset.newEncoder().canEncode(delimiter)) {
+                return false;
+            }
+            this.splitter = new BytesSplitter(delimiter.getBytes(charset),
+                                              source.format() ==
+                                              FileFormat.CSV);
+        }
+        return true;
+    }
+
+    private boolean canFetchBytes() {
+        if (this.mappedReader == null || this.source().header() == null) {
+            return false;
+        }
+        // The lines read ahead by a given up record are read as strings
+        return !(this.reader instanceof CsvRecordReader) ||
+               !((CsvRecordReader) this.reader).hasPendingLines();
+    }
+
+    /**
+     * Split the line read on bytes and decode the cells used only, return
+     * null if it should be decoded and parsed as a string, like the first
+     * line to match header, the lines may be skipped, the csv record across
+     * lines and the line mismatched with header
+     */
+    private Line splitBytes(int length) {
+        byte[] bytes = this.mappedReader.lineBytes();
+        if (this.offset() == FIRST_LINE_OFFSET || length == 0 ||
+            bytes[0] == '#' || bytes[0] == '/') {
+            return null;
+        }
+        if (this.source().format() == FileFormat.CSV &&
+            BytesSplitter.inQuote(bytes, length)) {
+            return null;
+        }
+        String[] header = this.source().header();
+        Charset charset = this.mappedReader.lineCharset();
+        String[] columns = this.splitter.split(bytes, length, charset,
+                                               this.decodedCells(header));
+        if (columns.length != header.length) {
+            return null;
+        }
+        EncodedLine rawLine = new EncodedLine(Arrays.copyOf(bytes, length),
+                                              charset);
+        return new Line(rawLine, header, columns);
+    }
+
+    private String decodeRecord(int length) throws IOException {
+        String rawLine = new String(this.mappedReader.lineBytes(), 0, length,
+                                    this.mappedReader.lineCharset());
+        if (this.source().format() == FileFormat.CSV &&
+            CsvTokenizer.inQuote(rawLine, false)) {
+            // The broken record has been counted as a line if failed
+            rawLine = ((CsvRecordReader) this.reader).readRecord(rawLine);
+        }
+        return rawLine;
+    }
+
+    private boolean[] decodedCells(String[] header) {
+        if (this.decodedCells == null) {
+            boolean[] decodedCells = new boolean[header.length];
+            for (int i = 0; i < header.length; i++) {
+                decodedCells[i] = this.usedField == null ||
+                                  this.usedField.test(header[i]);
+            }
+            this.decodedCells = decodedCells;
+        }
+        return this.decodedCells;
+    }
+
+    boolean canMapFile(Readable readable) {
+        if (!this.mappedRead ||
+            !(readable instanceof LocalFileReader.LocalFile) ||
+            this.source().compression() != Compression.NONE) {
+            return false;
+        }
+        Charset charset = Charset.forName(this.source().charset());
+        return MappedLineReader.supported(charset);
+    }
+
     private boolean needSkipLine(String line) {
         return this.source().skippedLine().matches(line);
     }
@@ -232,12 +433,12 @@ public class FileLineFetcher extends LineFetcher {
         return Arrays.equals(this.source().header(), columns);
     }
 
-    private static BufferedReader createBufferedReader(InputStream stream,
-                                                       FileSource source)
-                                                       throws Exception {
+    private BufferedReader createBufferedReader(InputStream stream)
+                                                throws Exception {
         E.checkNotNull(stream, "stream");
+        FileSource source = this.source();
         try {
-            Reader csr = createCompressReader(stream, source);
+            Reader csr = this.createCompressReader(stream);
             return new BufferedReader(csr, (int) BUF_SIZE);
         } catch (IOException e) {
             try {
@@ -249,9 +450,9 @@ public class FileLineFetcher extends LineFetcher {
         }
     }
 
-    private static Reader createCompressReader(InputStream stream,
-                                               FileSource source)
-                                               throws Exception {
+    private Reader createCompressReader(InputStream stream)
+                                        throws Exception {
+        FileSource source = this.source();
         Compression compression = source.compression();
         String charset = source.charset();
         switch (compression) {
@@ -263,9 +464,17 @@ public class FileLineFetcher extends LineFetcher {
                                          SnappyCodec.class, config);
                 CompressionInputStream sis = codec.createInputStream(stream,
                                              codec.createDecompressor());
-                return new InputStreamReader(sis, charset);
-            case GZIP:
+                return new InputStreamReader(this.readAhead(sis), charset);
             case BZ2:
+                if (this.readAheadPool != null) {
+                    // Decompress the blocks in parallel rather than ahead
+                    InputStream bis = new ParallelBZip2InputStream(
+                                      stream, this.readAheadPool,
+                                      this.readAheadThreads);
+                    return new InputStreamReader(bis, charset);
+                }
+                // Fall through to decompress in the reader thread
+            case GZIP:
             case XZ:
             case LZMA:
             case SNAPPY_FRAMED:
@@ -276,13 +485,21 @@ public class FileLineFetcher extends LineFetcher {
                 CompressorStreamFactory factory = new CompressorStreamFactory();
                 CompressorInputStream cis = factory.createCompressorInputStream(
                                             compression.string(), stream);
-                return new InputStreamReader(cis, charset);
+                return new InputStreamReader(this.readAhead(cis), charset);
             default:
                 throw new LoadException("Unsupported compression format '%s'",
                                         compression);
         }
     }
 
+    private InputStream readAhead(InputStream stream) {
+        if (this.readAheadPool == null) {
+            return stream;
+        }
+        return new ReadAheadInputStream(stream, (int) READ_AHEAD_BUF_SIZE,
+                                        this.readAheadPool);
+    }
+
     private static LineParser createLineParser(FileSource source) {
         FileFormat format = source.format();
         switch (format) {
@@ -298,4 +515,23 @@ public class FileLineFetcher extends LineFetcher {
                           format, source));
         }
     }
+
+    private static final class BufferedLineReader implements LineReader {
+
+        private final BufferedReader reader;
+
+        public BufferedLineReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            return this.reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+    }
 }
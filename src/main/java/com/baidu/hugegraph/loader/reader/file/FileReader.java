@@ -20,22 +20,33 @@
 package com.baidu.hugegraph.loader.reader.file;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 
+import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.loader.exception.InitException;
 import com.baidu.hugegraph.loader.exception.LoadException;
 import com.baidu.hugegraph.loader.executor.LoadContext;
+import com.baidu.hugegraph.loader.executor.LoadOptions;
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
 import com.baidu.hugegraph.loader.mapping.InputStruct;
 import com.baidu.hugegraph.loader.progress.InputItemProgress;
 import com.baidu.hugegraph.loader.reader.AbstractReader;
 import com.baidu.hugegraph.loader.reader.Readable;
+import com.baidu.hugegraph.loader.reader.file.ParallelLineFetcher.FetchedLine;
+import com.baidu.hugegraph.loader.reader.file.ParallelLineFetcher.Unit;
+import com.baidu.hugegraph.loader.reader.file.ReadablePrefetcher.Prefetched;
 import com.baidu.hugegraph.loader.reader.line.Line;
+import com.baidu.hugegraph.loader.source.file.Compression;
 import com.baidu.hugegraph.loader.source.file.FileSource;
+import com.baidu.hugegraph.util.ExecutorUtil;
 import com.baidu.hugegraph.util.Log;
 
 public abstract class FileReader extends AbstractReader {
@@ -44,16 +55,30 @@ public abstract class FileReader extends AbstractReader {
 
     private final FileSource source;
 
+    private LoadOptions options;
     private Iterator<Readable> readables;
     private Readable readable;
     private FileLineFetcher fetcher;
+    // Used to read the readables concurrently, null if read one by one
+    private ParallelLineFetcher parallelFetcher;
+    // Used to prepare the next readables in background, null if disabled
+    private ReadablePrefetcher prefetcher;
+    // Shared by the files to decompress ahead, null if disabled
+    private ExecutorService readAheadPool;
+    // Whether the values of a field are used by the mappings
+    private Predicate<String> usedField;
     private Line nextLine;
 
     public FileReader(FileSource source) {
         this.source = source;
+        this.options = null;
         this.readables = null;
         this.readable = null;
         this.fetcher = null;
+        this.parallelFetcher = null;
+        this.prefetcher = null;
+        this.readAheadPool = null;
+        this.usedField = null;
         this.nextLine = null;
     }
 
@@ -61,6 +86,14 @@ public abstract class FileReader extends AbstractReader {
         return this.source;
     }
 
+    protected LoadOptions options() {
+        return this.options;
+    }
+
+    protected ExecutorService readAheadPool() {
+        return this.readAheadPool;
+    }
+
     protected abstract List<Readable> scanReadables() throws IOException;
 
     protected abstract FileLineFetcher createLineFetcher();
@@ -68,7 +101,13 @@ public abstract class FileReader extends AbstractReader {
     @Override
     public void init(LoadContext context, InputStruct struct)
                      throws InitException {
+        this.options = context.options();
         this.progress(context, struct);
+        List<ElementMapping> mappings = new ArrayList<>(struct.vertices());
+        mappings.addAll(struct.edges());
+        this.usedField = field -> {
+            return mappings.stream().anyMatch(m -> m.usedField(field));
+        };
 
         List<Readable> readableList;
         try {
@@ -81,8 +120,58 @@ public abstract class FileReader extends AbstractReader {
         }
 
         this.readables = readableList.iterator();
-        this.fetcher = this.createLineFetcher();
+        if (this.options.readAhead) {
+            this.readAheadPool = ExecutorUtil.newFixedThreadPool(
+                                 this.options.readAheadThreads,
+                                 Constants.READ_AHEAD_WORKER);
+        }
+        this.fetcher = this.newLineFetcher();
         this.fetcher.readHeaderIfNeeded(readableList);
+
+        if (this.options.splitSize > 0L && this.options.splitThreads > 1 &&
+            readableList.size() > 1) {
+            this.parallelFetcher = this.createParallelFetcher(readableList);
+        } else if (this.options.prefetchReadables > 0) {
+            this.prefetcher = new ReadablePrefetcher(
+                                  this.readables, this.oldProgress,
+                                  this::streamed,
+                                  this.options.prefetchReadables);
+        }
+    }
+
+    private ParallelLineFetcher createParallelFetcher(List<Readable> list) {
+        List<Unit> units = new ArrayList<>(list.size());
+        for (Readable readable : list) {
+            InputItemProgress input = readable.inputItemProgress();
+            InputItemProgress loaded = this.oldProgress.matchLoadedItem(input);
+            // The readable has been loaded before and it is not changed
+            if (loaded != null) {
+                this.newProgress.addLoadedItem(loaded);
+                continue;
+            }
+            InputItemProgress loading = this.oldProgress
+                                            .matchLoadingItem(input);
+            if (loading != null) {
+                // The readable has been loaded half before, skip the offset
+                this.newProgress.addLoadingSplit(loading);
+                units.add(new Unit(readable, loading, loading.offset()));
+            } else {
+                this.newProgress.addLoadingSplit(input);
+                units.add(new Unit(readable, input, 0L));
+            }
+        }
+        int threads = this.options.splitThreads;
+        int capacity = threads * this.options.batchSize;
+        LOG.info("Read {} readables of '{}' with {} threads",
+                 units.size(), this.source, threads);
+        return new ParallelLineFetcher(this::newLineFetcher, units,
+                                       threads, capacity);
+    }
+
+    private FileLineFetcher newLineFetcher() {
+        FileLineFetcher fetcher = this.createLineFetcher();
+        fetcher.usedFields(this.usedField);
+        return fetcher;
     }
 
     @Override
@@ -96,7 +185,11 @@ public abstract class FileReader extends AbstractReader {
             return true;
         }
         try {
-            this.nextLine = this.readNextLine();
+            if (this.parallelFetcher != null) {
+                this.nextLine = this.readNextParallelLine();
+            } else {
+                this.nextLine = this.readNextLine();
+            }
         } catch (IOException e) {
             throw new LoadException("Error while reading the next line", e);
         }
@@ -115,15 +208,23 @@ public abstract class FileReader extends AbstractReader {
 
     @Override
     public void close() {
-        if (this.readable == null) {
-            return;
+        if (this.parallelFetcher != null) {
+            this.parallelFetcher.close();
         }
-        LOG.debug("Ready to close '{}'", this.readable);
-        try {
-            this.fetcher.closeReader();
-        } catch (IOException e) {
-            LOG.warn("Failed to close reader for {} with exception {}",
-                     this.source, e);
+        if (this.prefetcher != null) {
+            this.prefetcher.close();
+        }
+        if (this.readable != null) {
+            LOG.debug("Ready to close '{}'", this.readable);
+            try {
+                this.fetcher.closeReader();
+            } catch (IOException e) {
+                LOG.warn("Failed to close reader for {} with exception {}",
+                         this.source, e);
+            }
+        }
+        if (this.readAheadPool != null) {
+            this.readAheadPool.shutdownNow();
         }
     }
 
@@ -149,6 +250,29 @@ public abstract class FileReader extends AbstractReader {
         return line;
     }
 
+    private Line readNextParallelLine() {
+        FetchedLine fetched;
+        while ((fetched = this.parallelFetcher.take()) != null) {
+            /*
+             * Don't update the offset by the error line, which may be
+             * reported before the unit is read, and the unit ended by an
+             * error isn't finished
+             */
+            if (fetched.error() != null) {
+                throw fetched.error();
+            }
+            // Update loading progress of the readable the line belongs to
+            InputItemProgress progress = fetched.progress();
+            progress.offset(fetched.offset());
+            if (fetched.end()) {
+                this.newProgress.finishLoadingSplit(progress);
+                continue;
+            }
+            return fetched.line();
+        }
+        return null;
+    }
+
     private boolean openNextReadable() {
         while (this.moveToNextReadable()) {
             LoadStatus status = this.checkLastLoadStatus(this.readable);
@@ -158,13 +282,22 @@ public abstract class FileReader extends AbstractReader {
              * If the file has not been loaded, load it
              */
             if (status == LoadStatus.LOADED) {
+                this.releaseReadable();
                 continue;
             }
 
             LOG.debug("Ready to open '{}'", this.readable);
-            this.fetcher.openReader(this.readable);
+            try {
+                this.fetcher.openReader(this.openingReadable());
+            } finally {
+                this.releaseReadable();
+            }
             if (status == LoadStatus.LOADED_HALF) {
-                long offset = this.oldProgress.loadingOffset();
+                /*
+                 * The matched item may be a split saved by the parallel
+                 * reading rather than the single loading item of last time
+                 */
+                long offset = this.newProgress.loadingItem().offset();
                 this.fetcher.skipOffset(this.readable, offset);
             }
             return true;
@@ -173,6 +306,13 @@ public abstract class FileReader extends AbstractReader {
     }
 
     private boolean moveToNextReadable() {
+        if (this.prefetcher != null) {
+            Prefetched prefetched = this.prefetcher.next();
+            if (prefetched != null) {
+                this.readable = prefetched;
+            }
+            return prefetched != null;
+        }
         boolean hasNext = this.readables.hasNext();
         if (hasNext) {
             this.readable = this.readables.next();
@@ -180,6 +320,35 @@ public abstract class FileReader extends AbstractReader {
         return hasNext;
     }
 
+    /**
+     * Return the readable to open, which may hold the stream opened ahead
+     */
+    private Readable openingReadable() {
+        if (this.readable instanceof Prefetched) {
+            return ((Prefetched) this.readable).readable();
+        }
+        return this.readable;
+    }
+
+    private void releaseReadable() {
+        if (this.readable instanceof Prefetched) {
+            ((Prefetched) this.readable).release();
+        }
+    }
+
+    /**
+     * Whether the readable is read by stream, the orc/parquet files and the
+     * files read by memory mapping are not
+     */
+    private boolean streamed(Readable readable) {
+        Compression compression = this.source.compression();
+        if (compression == Compression.ORC ||
+            compression == Compression.PARQUET) {
+            return false;
+        }
+        return !this.fetcher.canMapFile(readable);
+    }
+
     private LoadStatus checkLastLoadStatus(Readable readable) {
         // NOTE: calculate check sum is a bit time consuming
         InputItemProgress input = readable.inputItemProgress();
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import java.io.IOException;
+
+import com.baidu.hugegraph.loader.constant.Constants;
+
+/**
+ * Read json records rather than lines. A file is read as json lines if its
+ * first record is an object in one line, otherwise as a json document, like
+ * an array of objects or objects spanning multiple lines, whose records are
+ * split by the brackets out of strings. The line breaks in a record of the
+ * document are replaced by blanks, so that it can be written to the failure
+ * file as one line.
+ */
+public class JsonRecordReader implements LineReader {
+
+    private final LineReader reader;
+    private final StringBuilder record;
+    // Null until the first record is read
+    private Boolean document;
+    // The line being split and the position to split from
+    private String line;
+    private int position;
+
+    public JsonRecordReader(LineReader reader) {
+        this.reader = reader;
+        this.record = new StringBuilder();
+        this.document = null;
+        this.line = null;
+        this.position = 0;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (this.document == null) {
+            String line = this.reader.readLine();
+            if (line == null || line.trim().isEmpty()) {
+                return line;
+            }
+            this.document = !isObjectLine(line);
+            if (!this.document) {
+                return line;
+            }
+            this.line = line;
+            this.position = 0;
+        }
+        if (!this.document) {
+            return this.reader.readLine();
+        }
+        return this.readRecord();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    private String readRecord() throws IOException {
+        this.record.setLength(0);
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            if (this.line == null || this.position >= this.line.length()) {
+                if (this.line == null && this.position < 0) {
+                    // Reached the end of file
+                    return null;
+                }
+                this.line = this.reader.readLine();
+                this.position = 0;
+                if (this.line == null) {
+                    this.position = -1;
+                    // Return the incomplete record to report it's invalid
+                    return this.record.length() > 0 ?
+                           this.record.toString() : null;
+                }
+                if (this.record.length() > 0) {
+                    this.record.append(Constants.BLANK_STR);
+                }
+                continue;
+            }
+            String line = this.line;
+            int start = this.position;
+            if (depth == 0) {
+                // Skip the blanks and separators between records
+                start = skipSeparators(line, start);
+                if (start == line.length()) {
+                    this.position = start;
+                    continue;
+                }
+                if (line.charAt(start) != '{') {
+                    // Take the rest as an invalid or skipped record
+                    this.position = line.length();
+                    return line.substring(start);
+                }
+            }
+            int end = start;
+            for (; end < line.length(); end++) {
+                char c = line.charAt(end);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (isBracket(c)) {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (--depth == 0) {
+                        end++;
+                        break;
+                    }
+                }
+            }
+            this.record.append(line, start, end);
+            this.position = end;
+            if (depth == 0) {
+                return this.record.toString();
+            }
+        }
+    }
+
+    private static boolean isObjectLine(String line) {
+        int start = skipBlanks(line, 0);
+        if (start == line.length() || line.charAt(start) != '{') {
+            return false;
+        }
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = start; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (isBracket(c)) {
+                depth++;
+            } else if ((c == '}' || c == ']') && --depth == 0) {
+                return skipBlanks(line, i + 1) == line.length();
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBracket(char c) {
+        return c == '{' || c == '[';
+    }
+
+    private static int skipBlanks(String line, int start) {
+        while (start < line.length() &&
+               Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipSeparators(String line, int start) {
+        while (start < line.length()) {
+            char c = line.charAt(start);
+            if (!Character.isWhitespace(c) && c != ',' &&
+                c != '[' && c != ']') {
+                break;
+            }
+            start++;
+        }
+        return start;
+    }
+}
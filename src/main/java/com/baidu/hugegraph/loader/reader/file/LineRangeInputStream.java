@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.baidu.hugegraph.util.E;
+
+/**
+ * Read the lines which start in the byte range [start, end) of a file.
+ * The partial line at the beginning belongs to the previous range and is
+ * skipped, the line across the end is read fully, so that every line is
+ * read by exactly one range.
+ */
+public final class LineRangeInputStream extends InputStream {
+
+    private static final int BUF_SIZE = 64 * 1024;
+    private static final byte LF = '\n';
+
+    private final InputStream in;
+    private final long end;
+    // The position of the next byte to be read
+    private long position;
+    private boolean finished;
+
+    public LineRangeInputStream(File file, long start, long end)
+                                throws IOException {
+        E.checkArgument(start >= 0L && start < end,
+                        "Invalid byte range [%s, %s) of file '%s'",
+                        start, end, file);
+        FileInputStream stream = new FileInputStream(file);
+        this.in = new BufferedInputStream(stream, BUF_SIZE);
+        this.end = end;
+        this.position = 0L;
+        this.finished = false;
+        try {
+            this.seekLineStart(start);
+        } catch (IOException e) {
+            this.in.close();
+            throw e;
+        }
+    }
+
+    private void seekLineStart(long start) throws IOException {
+        if (start == 0L) {
+            return;
+        }
+        // Check whether the previous byte is a line break
+        this.skipFully(start - 1L);
+        int b;
+        while ((b = this.in.read()) != -1) {
+            this.position++;
+            if (b == LF) {
+                break;
+            }
+        }
+        // No line starts in this range
+        if (b == -1 || this.position >= this.end) {
+            this.finished = true;
+        }
+    }
+
+    private void skipFully(long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0L) {
+            long skipped = this.in.skip(remaining);
+            if (skipped <= 0L) {
+                throw new EOFException("Reached the end of file while " +
+                                       "skipping to the split start");
+            }
+            remaining -= skipped;
+        }
+        this.position += bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.finished) {
+            return -1;
+        }
+        int b = this.in.read();
+        if (b == -1) {
+            this.finished = true;
+            return -1;
+        }
+        this.position++;
+        if (this.position >= this.end && b == LF) {
+            this.finished = true;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (this.finished) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (this.position >= this.end) {
+            // Just finish the line across the end of range byte by byte
+            int b = this.read();
+            if (b == -1) {
+                return -1;
+            }
+            bytes[offset] = (byte) b;
+            return 1;
+        }
+
+        int limit = (int) Math.min(length, this.end - this.position);
+        int count = this.in.read(bytes, offset, limit);
+        if (count == -1) {
+            this.finished = true;
+            return -1;
+        }
+        this.position += count;
+        if (this.position >= this.end && bytes[offset + count - 1] == LF) {
+            this.finished = true;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+}
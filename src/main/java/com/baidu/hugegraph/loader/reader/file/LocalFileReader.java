@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,6 +36,7 @@ import com.baidu.hugegraph.loader.progress.InputItemProgress;
 import com.baidu.hugegraph.loader.reader.Readable;
 import com.baidu.hugegraph.loader.source.file.Compression;
 import com.baidu.hugegraph.loader.source.file.FileFilter;
+import com.baidu.hugegraph.loader.source.file.FileFormat;
 import com.baidu.hugegraph.loader.source.file.FileSource;
 
 public class LocalFileReader extends FileReader {
@@ -56,7 +58,7 @@ public class LocalFileReader extends FileReader {
                           "Please check file name and extensions, ensure " +
                           "that at least one file is available for reading");
             }
-            files.add(new LocalFile(file));
+            this.addReadables(files, new LocalFile(file));
         } else {
             assert file.isDirectory();
             File[] subFiles = file.listFiles();
@@ -66,13 +68,76 @@ public class LocalFileReader extends FileReader {
             }
             for (File subFile : subFiles) {
                 if (filter.reserved(subFile.getName())) {
-                    files.add(new LocalFile(subFile));
+                    this.addReadables(files, new LocalFile(subFile));
                 }
             }
         }
         return files;
     }
 
+    /**
+     * Split a large file into newline-aligned byte ranges if needed, every
+     * split will be read by a separate fetcher. Don't split if the splits
+     * can't be read concurrently, then the file could be memory mapped.
+     */
+    private void addReadables(List<Readable> readables, LocalFile file) {
+        long splitSize = this.options().splitSize;
+        long length = file.file().length();
+        if (splitSize <= 0L || this.options().splitThreads <= 1 ||
+            length < 2 * splitSize || !this.splittable()) {
+            readables.add(file);
+            return;
+        }
+        int count = (int) (length / splitSize);
+        long size = length / count;
+        long[] bounds = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            bounds[i] = i * size;
+        }
+        bounds[count] = length;
+        if (this.source().format() == FileFormat.CSV) {
+            /*
+             * The quoted values may contain line breaks, split the csv
+             * file at record boundaries rather than the raw line breaks
+             */
+            try {
+                bounds = CsvRecordBoundary.align(file.file(), bounds);
+            } catch (IOException e) {
+                throw new LoadException("Failed to split csv file '%s'",
+                                        e, file);
+            }
+        }
+        List<Readable> splits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (bounds[i] < bounds[i + 1]) {
+                splits.add(new LocalFileSplit(file, bounds[i],
+                                              bounds[i + 1]));
+            }
+        }
+        if (splits.size() > 1) {
+            readables.addAll(splits);
+        } else {
+            readables.add(file);
+        }
+    }
+
+    /**
+     * Only the uncompressed CSV/TEXT file with an ASCII compatible charset
+     * could be split by byte ranges
+     */
+    private boolean splittable() {
+        FileSource source = this.source();
+        if (source.compression() != Compression.NONE) {
+            return false;
+        }
+        if (source.format() != FileFormat.CSV &&
+            source.format() != FileFormat.TEXT) {
+            return false;
+        }
+        String charset = Charset.forName(source.charset()).name();
+        return !charset.startsWith("UTF-16") && !charset.startsWith("UTF-32");
+    }
+
     @Override
     protected FileLineFetcher createLineFetcher() {
         if (Compression.ORC == this.source().compression()) {
@@ -80,7 +145,10 @@ public class LocalFileReader extends FileReader {
         } else if (Compression.PARQUET == this.source().compression()) {
             return new ParquetFileLineFetcher(this.source());
         } else {
-            return new FileLineFetcher(this.source());
+            return new FileLineFetcher(this.source(),
+                                       this.options().mmapRead,
+                                       this.readAheadPool(),
+                                       this.options().readAheadThreads);
         }
     }
 
@@ -95,12 +163,15 @@ public class LocalFileReader extends FileReader {
         }
     }
 
-    private static class LocalFile implements Readable {
+    static class LocalFile implements Readable {
 
         private final File file;
+        // Calculate check sum only once for all the splits of the file
+        private String checkSum;
 
         public LocalFile(File file) {
             this.file = file;
+            this.checkSum = null;
         }
 
         public File file() {
@@ -126,14 +197,21 @@ public class LocalFileReader extends FileReader {
         public InputItemProgress inputItemProgress() {
             String name = this.file.getName();
             long timestamp = this.file.lastModified();
-            String checkSum;
+            return new FileItemProgress(name, timestamp, this.checkSum(), 0L);
+        }
+
+        public String checkSum() {
+            if (this.checkSum != null) {
+                return this.checkSum;
+            }
             try {
-                checkSum = String.valueOf(FileUtils.checksumCRC32(this.file));
+                long checkSum = FileUtils.checksumCRC32(this.file);
+                this.checkSum = String.valueOf(checkSum);
             } catch (IOException e) {
                 throw new LoadException("Failed to calculate checksum for " +
                                         "local file '%s'", e, this.file);
             }
-            return new FileItemProgress(name, timestamp, checkSum, 0L);
+            return this.checkSum;
         }
 
         @Override
@@ -141,4 +219,47 @@ public class LocalFileReader extends FileReader {
             return "FILE: " + this.file;
         }
     }
+
+    private static class LocalFileSplit implements Readable {
+
+        private final LocalFile file;
+        private final long start;
+        private final long end;
+
+        public LocalFileSplit(LocalFile file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String name() {
+            return this.file.name();
+        }
+
+        @Override
+        public Path path() {
+            return this.file.path();
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return new LineRangeInputStream(this.file.file(),
+                                            this.start, this.end);
+        }
+
+        @Override
+        public InputItemProgress inputItemProgress() {
+            File file = this.file.file();
+            return new FileItemProgress(file.getName(), file.lastModified(),
+                                        this.file.checkSum(), 0L,
+                                        this.start, this.end);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[%s, %s)", this.file, this.start,
+                                 this.end);
+        }
+    }
 }
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.util.Log;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Read the lines of a local file by mapping it into memory window by
+ * window, the line breaks are found on the raw bytes and the lines of
+ * only ascii bytes are copied into strings without charset decoding.
+ * The lines can also be read as bytes, so that the fetcher splits them
+ * on bytes and decodes only the cells used by mappings. It's only used
+ * for the charsets compatible with ascii, in which the bytes of ascii
+ * chars never appear in multi-byte chars.
+ *
+ * The window read over is unmapped explicitly instead of waiting for GC,
+ * so that a long run over many files doesn't hold their address space.
+ */
+public final class MappedLineReader implements LineReader {
+
+    private static final Logger LOG = Log.logger(MappedLineReader.class);
+
+    private static final long WINDOW_SIZE = 64L * 1024L * 1024L;
+    private static final int INIT_LINE_SIZE = 1024;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private static final ImmutableSet<Charset> SUPPORTED_CHARSETS =
+            ImmutableSet.of(StandardCharsets.UTF_8, StandardCharsets.US_ASCII,
+                            StandardCharsets.ISO_8859_1);
+
+    private static final Unmapper UNMAPPER = Unmapper.create();
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final Charset charset;
+    // The position of next window in file
+    private long nextWindow;
+    private MappedByteBuffer window;
+    // The bytes of line across windows are accumulated here
+    private byte[] line;
+    // Whether the line read has only ascii bytes
+    private boolean ascii;
+    // Skip the '\n' if it follows the '\r' ending last line
+    private boolean skipLF;
+
+    public MappedLineReader(File file, Charset charset) throws IOException {
+        this(file, charset, WINDOW_SIZE);
+    }
+
+    public MappedLineReader(File file, Charset charset, long windowSize)
+                            throws IOException {
+        this.channel = FileChannel.open(file.toPath(),
+                                        StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.windowSize = windowSize;
+        this.charset = charset;
+        this.nextWindow = 0L;
+        this.window = null;
+        this.line = new byte[INIT_LINE_SIZE];
+        this.ascii = true;
+        this.skipLF = false;
+    }
+
+    public static boolean supported(Charset charset) {
+        return SUPPORTED_CHARSETS.contains(charset);
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        int length = this.readLineBytes();
+        if (length < 0) {
+            return null;
+        }
+        return new String(this.line, 0, length, this.lineCharset());
+    }
+
+    /**
+     * Read the next line into the line buffer without decoding it, return
+     * the length of line or -1 if reached the end of file
+     */
+    public int readLineBytes() throws IOException {
+        int length = 0;
+        boolean ascii = true;
+        boolean read = false;
+        while (true) {
+            if ((this.window == null || !this.window.hasRemaining()) &&
+                !this.mapNextWindow()) {
+                // Reached the end of file
+                this.ascii = ascii;
+                return read ? length : -1;
+            }
+            MappedByteBuffer window = this.window;
+            int start = window.position();
+            int limit = window.limit();
+            if (this.skipLF) {
+                this.skipLF = false;
+                if (window.get(start) == LF) {
+                    window.position(++start);
+                    continue;
+                }
+            }
+            read = true;
+            int end = start;
+            byte b = 0;
+            for (; end < limit; end++) {
+                b = window.get(end);
+                if (b == LF || b == CR) {
+                    break;
+                }
+                if (b < 0) {
+                    ascii = false;
+                }
+            }
+            int count = end - start;
+            if (length + count > this.line.length) {
+                int capacity = Math.max(this.line.length << 1, length + count);
+                this.line = Arrays.copyOf(this.line, capacity);
+            }
+            window.get(this.line, length, count);
+            length += count;
+            if (end < limit) {
+                // Skip the line terminator
+                window.position(end + 1);
+                this.skipLF = b == CR;
+                this.ascii = ascii;
+                return length;
+            }
+        }
+    }
+
+    /**
+     * The buffer of the line read by readLineBytes(), which is reused by
+     * the next line
+     */
+    public byte[] lineBytes() {
+        return this.line;
+    }
+
+    /**
+     * The charset to decode the line read, the ascii bytes are the same in
+     * ISO-8859-1, so the ascii lines are just copied without decoding
+     */
+    public Charset lineCharset() {
+        return this.ascii ? StandardCharsets.ISO_8859_1 : this.charset;
+    }
+
+    private boolean mapNextWindow() throws IOException {
+        this.unmapWindow();
+        if (this.nextWindow >= this.size) {
+            return false;
+        }
+        long length = Math.min(this.windowSize, this.size - this.nextWindow);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                                       this.nextWindow, length);
+        this.nextWindow += length;
+        return true;
+    }
+
+    private void unmapWindow() {
+        MappedByteBuffer window = this.window;
+        // Don't access the unmapped window anymore
+        this.window = null;
+        if (window != null) {
+            UNMAPPER.unmap(window);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.unmapWindow();
+        this.channel.close();
+    }
+
+    /**
+     * Release the mapped buffer by the JDK internal cleaner, which is found
+     * by reflection since it differs between Java 8 and Java 9+, the buffer
+     * is left to GC if no cleaner is accessible
+     */
+    private static final class Unmapper {
+
+        // The sun.misc.Unsafe on Java 9+, null on Java 8
+        private final Object unsafe;
+        private final Method cleanerMethod;
+        private final Method cleanMethod;
+
+        private Unmapper(Object unsafe, Method cleanerMethod,
+                         Method cleanMethod) {
+            this.unsafe = unsafe;
+            this.cleanerMethod = cleanerMethod;
+            this.cleanMethod = cleanMethod;
+        }
+
+        public static Unmapper create() {
+            try {
+                Class<?> clazz = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = clazz.getMethod("invokeCleaner",
+                                                       ByteBuffer.class);
+                Field field = clazz.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Unmapper(field.get(null), invokeCleaner, null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.debug("The Unsafe.invokeCleaner() isn't accessible", e);
+            }
+            try {
+                Class<?> buffer = Class.forName("sun.nio.ch.DirectBuffer");
+                Class<?> cleaner = Class.forName("sun.misc.Cleaner");
+                return new Unmapper(null, buffer.getMethod("cleaner"),
+                                    cleaner.getMethod("clean"));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.debug("The DirectBuffer.cleaner() isn't accessible", e);
+            }
+            return new Unmapper(null, null, null);
+        }
+
+        public void unmap(MappedByteBuffer buffer) {
+            if (this.cleanerMethod == null) {
+                return;
+            }
+            try {
+                if (this.unsafe != null) {
+                    this.cleanerMethod.invoke(this.unsafe, buffer);
+                } else {
+                    Object cleaner = this.cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        this.cleanMethod.invoke(cleaner);
+                    }
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.debug("Failed to unmap the buffer, leave it to GC", e);
+            }
+        }
+    }
+}
@@ -23,7 +23,6 @@ import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.io.orc.OrcFile;
@@ -33,7 +32,6 @@ import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.slf4j.Logger;
 
-import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.loader.exception.LoadException;
 import com.baidu.hugegraph.loader.reader.Readable;
 import com.baidu.hugegraph.loader.reader.line.Line;
@@ -128,14 +126,12 @@ public class OrcFileLineFetcher extends FileLineFetcher {
         Object[] values = this.inspector.getStructFieldsDataAsList(this.row)
                                         .stream().map(Object::toString)
                                         .toArray();
-        String rawLine = StringUtils.join(values, Constants.COMMA_STR);
-
         this.increaseOffset();
         /*
          * NOTE: orc file actually corresponds to a table structure,
          * doesn't need to skip line or match header
          */
-        return new Line(rawLine, this.source().header(), values);
+        return new Line(this.source().header(), values);
     }
 
     @Override
@@ -0,0 +1,495 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Decompress a bzip2 stream with its blocks decompressed in parallel, like
+ * pbzip2 and lbzip2 do. Each block starts with the 48 bits magic
+ * 0x314159265359 and the stream ends with the magic 0x177245385090, they
+ * aren't byte aligned, so the compressed bits are scanned for the magics
+ * in the reader thread. Each block is re-wrapped as a standalone stream of
+ * only one block, whose combined crc is just the block crc, and is
+ * decompressed by the shared pool, the decompressed blocks are read in order.
+ *
+ * The block magic may also occur in the compressed bits by chance, the block
+ * split at such a position fails to decompress, then it's decompressed again
+ * joined with the next ones. Like the sequential reader, only the first one
+ * of the concatenated streams is read.
+ */
+public final class ParallelBZip2InputStream extends InputStream {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_MAGIC = 0x177245385090L;
+    private static final int MAGIC_BITS = 48;
+    private static final long MAGIC_MASK = (1L << MAGIC_BITS) - 1L;
+    private static final int CRC_BITS = 32;
+    // The header is "BZh" and the block size level from '1' to '9'
+    private static final byte[] HEADER = {'B', 'Z', 'h'};
+    private static final int HEADER_BYTES = HEADER.length + 1;
+    private static final int READ_SIZE = 64 * 1024;
+    // The max number of next blocks joined with a failed block
+    private static final int MAX_JOINS = 2;
+
+    private final InputStream stream;
+    private final ExecutorService pool;
+    // The max number of blocks decompressing ahead
+    private final int parallelism;
+    private final Deque<Block> blocks;
+    private byte level;
+
+    // The compressed bytes of current block and the bytes not scanned yet
+    private byte[] window;
+    // The position of window[0] in the compressed stream
+    private long windowBase;
+    private int windowLength;
+    // The position of the next byte to scan
+    private long scanned;
+    // The last 64 bits scanned
+    private long bits;
+    // The bit position to find the next magic from
+    private long searchFrom;
+    // The bit position of current block, -1 if not in a block
+    private long blockStart;
+    private boolean ended;
+    private boolean exhausted;
+
+    private byte[] chunk;
+    private int position;
+    private IOException error;
+    private boolean closed;
+
+    public ParallelBZip2InputStream(InputStream stream, ExecutorService pool,
+                                    int parallelism) throws IOException {
+        this.stream = stream;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.blocks = new ArrayDeque<>();
+        this.window = new byte[READ_SIZE];
+        this.windowBase = 0L;
+        this.windowLength = 0;
+        this.scanned = 0L;
+        this.bits = 0L;
+        this.blockStart = -1L;
+        this.ended = false;
+        this.exhausted = false;
+        this.chunk = null;
+        this.position = 0;
+        this.error = null;
+        this.closed = false;
+        this.readHeader();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.ensureChunk()) {
+            return -1;
+        }
+        return this.chunk[this.position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!this.ensureChunk()) {
+            return -1;
+        }
+        int size = Math.min(length, this.chunk.length - this.position);
+        System.arraycopy(this.chunk, this.position, bytes, offset, size);
+        this.position += size;
+        return size;
+    }
+
+    @Override
+    public int available() {
+        if (this.chunk == null) {
+            return 0;
+        }
+        return this.chunk.length - this.position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        // The decompressing blocks don't touch the wrapped stream
+        for (Block block : this.blocks) {
+            block.future.cancel(false);
+        }
+        this.blocks.clear();
+        this.stream.close();
+    }
+
+    private void readHeader() throws IOException {
+        while (this.windowLength < HEADER_BYTES && this.fill()) {
+            // Read until the header is filled
+        }
+        byte level = this.windowLength < HEADER_BYTES ? 0 :
+                     this.window[HEADER.length];
+        for (int i = 0; i < HEADER.length; i++) {
+            if (this.windowLength <= i || this.window[i] != HEADER[i]) {
+                level = 0;
+            }
+        }
+        if (level < '1' || level > '9') {
+            throw new IOException("Stream is not in the BZip2 format");
+        }
+        this.level = level;
+        this.scanned = HEADER_BYTES;
+        this.searchFrom = HEADER_BYTES * 8L;
+    }
+
+    /**
+     * Make sure there are bytes to read in current chunk, return false if
+     * reached the end of stream
+     */
+    private boolean ensureChunk() throws IOException {
+        if (this.closed) {
+            throw new IOException("The bzip2 stream has been closed");
+        }
+        // Keep failing rather than returning the next blocks after an error
+        if (this.error != null) {
+            throw this.error;
+        }
+        while (this.chunk == null || this.position == this.chunk.length) {
+            this.submitBlocks();
+            Block block = this.blocks.poll();
+            if (block == null) {
+                return false;
+            }
+            try {
+                this.chunk = this.decompressed(block);
+            } catch (IOException e) {
+                this.error = e;
+                throw e;
+            }
+            this.position = 0;
+        }
+        return true;
+    }
+
+    private void submitBlocks() throws IOException {
+        while (!this.exhausted && this.blocks.size() <= this.parallelism) {
+            Segment segment = this.scanSegment();
+            if (segment != null) {
+                List<Segment> segments = ImmutableList.of(segment);
+                byte level = this.level;
+                Future<byte[]> future = this.pool.submit(() -> {
+                    return decompress(segments, level);
+                });
+                this.blocks.add(new Block(segment, future));
+                continue;
+            }
+            this.exhausted = true;
+            if (!this.ended) {
+                CompletableFuture<byte[]> future = new CompletableFuture<>();
+                future.completeExceptionally(new IOException(
+                       "Unexpected end of the bzip2 stream"));
+                this.blocks.add(new Block(null, future));
+            }
+        }
+    }
+
+    private byte[] decompressed(Block block) throws IOException {
+        try {
+            return block.result();
+        } catch (IOException e) {
+            if (block.segment == null) {
+                throw e;
+            }
+            /*
+             * The block may be split at a block magic occurred in the
+             * compressed bits by chance, try to join it with the next blocks
+             */
+            List<Segment> segments = new ArrayList<>();
+            segments.add(block.segment);
+            for (int i = 0; i < MAX_JOINS; i++) {
+                this.submitBlocks();
+                Block next = this.blocks.peek();
+                if (next == null || next.segment == null) {
+                    break;
+                }
+                this.blocks.poll();
+                next.future.cancel(false);
+                segments.add(next.segment);
+                try {
+                    return decompress(segments, this.level);
+                } catch (IOException ignored) {
+                    // Try to join one more block
+                }
+            }
+            throw new IOException(String.format(
+                      "Failed to decompress the bzip2 block at bit %s",
+                      block.segment.start), e);
+        }
+    }
+
+    /**
+     * Scan the compressed bits for the next magic, return the block ended
+     * by it, or null if there are no more blocks
+     */
+    private Segment scanSegment() throws IOException {
+        while (!this.ended) {
+            if (this.scanned == this.windowBase + this.windowLength &&
+                !this.fill()) {
+                if (this.blockStart < 0L) {
+                    return null;
+                }
+                // The last block is truncated, let it fail to decompress
+                Segment segment = this.cut(this.scanned * 8L);
+                this.blockStart = -1L;
+                return segment;
+            }
+            int index = (int) (this.scanned++ - this.windowBase);
+            this.bits = (this.bits << 8) | (this.window[index] & 0xff);
+            long end = this.scanned * 8L;
+            // Check the magic ending at each bit of the byte in order
+            for (int shift = 7; shift >= 0; shift--) {
+                long start = end - shift - MAGIC_BITS;
+                if (start < this.searchFrom) {
+                    continue;
+                }
+                long magic = (this.bits >>> shift) & MAGIC_MASK;
+                if (magic != BLOCK_MAGIC && magic != END_MAGIC) {
+                    continue;
+                }
+                Segment segment = null;
+                if (this.blockStart >= 0L) {
+                    segment = this.cut(start);
+                }
+                if (magic == BLOCK_MAGIC) {
+                    this.blockStart = start;
+                    this.searchFrom = start + MAGIC_BITS;
+                } else {
+                    this.blockStart = -1L;
+                    this.ended = true;
+                }
+                if (segment != null) {
+                    return segment;
+                }
+                break;
+            }
+        }
+        return null;
+    }
+
+    private Segment cut(long end) {
+        long firstByte = this.blockStart >>> 3;
+        int from = (int) (firstByte - this.windowBase);
+        int to = (int) (((end + 7L) >>> 3) - this.windowBase);
+        byte[] bytes = Arrays.copyOfRange(this.window, from, to);
+        return new Segment(bytes, (int) (this.blockStart & 7L),
+                           this.blockStart, end);
+    }
+
+    private boolean fill() throws IOException {
+        if (this.windowLength + READ_SIZE > this.window.length) {
+            // Drop the bytes before current block, keep a magic at most
+            long keep = this.blockStart >= 0L ? this.blockStart >>> 3 :
+                        Math.max(this.windowBase, this.scanned - 8L);
+            int drop = (int) (keep - this.windowBase);
+            System.arraycopy(this.window, drop, this.window, 0,
+                             this.windowLength - drop);
+            this.windowBase = keep;
+            this.windowLength -= drop;
+        }
+        if (this.windowLength + READ_SIZE > this.window.length) {
+            int size = Math.max(this.window.length * 2,
+                                this.windowLength + READ_SIZE);
+            this.window = Arrays.copyOf(this.window, size);
+        }
+        int read = this.stream.read(this.window, this.windowLength, READ_SIZE);
+        if (read < 0) {
+            return false;
+        }
+        this.windowLength += read;
+        return true;
+    }
+
+    private static byte[] decompress(List<Segment> segments, byte level)
+                                     throws IOException {
+        long length = 0L;
+        for (Segment segment : segments) {
+            length += segment.length();
+        }
+        length += MAGIC_BITS + CRC_BITS;
+        BitWriter writer = new BitWriter(HEADER_BYTES +
+                                         (int) ((length + 7L) >>> 3));
+        for (byte b : HEADER) {
+            writer.write(b, 8);
+        }
+        writer.write(level, 8);
+        for (Segment segment : segments) {
+            writer.copy(segment.bytes, segment.offset, segment.length());
+        }
+        /*
+         * The combined crc of a stream is the crc of its only block, which
+         * follows the block magic
+         */
+        Segment first = segments.get(0);
+        long crc = 0L;
+        for (int i = 0; i < CRC_BITS; i += 8) {
+            long bit = first.offset + MAGIC_BITS + i;
+            crc = (crc << 8) | readByte(first.bytes, bit);
+        }
+        writer.write(END_MAGIC, MAGIC_BITS);
+        writer.write(crc, CRC_BITS);
+
+        InputStream stream = new ByteArrayInputStream(writer.finish());
+        try (InputStream bzip2 = new BZip2CompressorInputStream(stream)) {
+            return IOUtils.toByteArray(bzip2);
+        } catch (RuntimeException e) {
+            // Corrupted data may cause unchecked errors while decoding
+            throw new IOException("Failed to decompress the bzip2 block", e);
+        }
+    }
+
+    /**
+     * Read 8 bits from the bit position, the bits out of bytes are 0
+     */
+    private static int readByte(byte[] bytes, long bit) {
+        int index = (int) (bit >>> 3);
+        int shift = (int) (bit & 7L);
+        int high = index < bytes.length ? bytes[index] & 0xff : 0;
+        if (shift == 0) {
+            return high;
+        }
+        int low = index + 1 < bytes.length ? bytes[index + 1] & 0xff : 0;
+        return ((high << 8 | low) >>> (8 - shift)) & 0xff;
+    }
+
+    private static final class Segment {
+
+        // The bytes containing the bits of block from the offset bit
+        private final byte[] bytes;
+        private final int offset;
+        // The bit positions of the block in the compressed stream
+        private final long start;
+        private final long end;
+
+        public Segment(byte[] bytes, int offset, long start, long end) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.start = start;
+            this.end = end;
+        }
+
+        public long length() {
+            return this.end - this.start;
+        }
+    }
+
+    private static final class Block {
+
+        // The segment is null if the block is an error
+        private final Segment segment;
+        private final Future<byte[]> future;
+
+        public Block(Segment segment, Future<byte[]> future) {
+            this.segment = segment;
+            this.future = future;
+        }
+
+        public byte[] result() throws IOException {
+            try {
+                return this.future.get();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while waiting " +
+                                                 "for bzip2 block");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to decompress the bzip2 block",
+                                      cause);
+            }
+        }
+    }
+
+    private static final class BitWriter {
+
+        private final byte[] bytes;
+        private int index;
+        // The pending bits are the lowest count bits
+        private long pending;
+        private int count;
+
+        public BitWriter(int size) {
+            this.bytes = new byte[size];
+            this.index = 0;
+            this.pending = 0L;
+            this.count = 0;
+        }
+
+        public void write(long value, int size) {
+            assert size <= MAGIC_BITS;
+            this.pending = (this.pending << size) |
+                           (value & ((1L << size) - 1L));
+            this.count += size;
+            while (this.count >= 8) {
+                this.count -= 8;
+                this.bytes[this.index++] = (byte) (this.pending >>> this.count);
+            }
+        }
+
+        public void copy(byte[] source, int offset, long length) {
+            long bit = offset;
+            long end = offset + length;
+            for (; end - bit >= 8L; bit += 8L) {
+                this.write(readByte(source, bit), 8);
+            }
+            int rest = (int) (end - bit);
+            if (rest > 0) {
+                this.write(readByte(source, bit) >>> (8 - rest), rest);
+            }
+        }
+
+        public byte[] finish() {
+            if (this.count > 0) {
+                this.write(0L, 8 - this.count);
+            }
+            assert this.index == this.bytes.length;
+            return this.bytes;
+        }
+    }
+}
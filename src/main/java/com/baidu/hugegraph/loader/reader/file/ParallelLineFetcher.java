@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import static com.baidu.hugegraph.loader.constant.Constants.SPLIT_WORKER;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.exception.ReadException;
+import com.baidu.hugegraph.loader.progress.InputItemProgress;
+import com.baidu.hugegraph.loader.reader.Readable;
+import com.baidu.hugegraph.loader.reader.line.Line;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * Read multiple readables(like the splits of a large file) concurrently,
+ * every reading thread owns a FileLineFetcher, the fetched lines are put
+ * into a bounded queue and consumed by the single reader thread.
+ */
+public final class ParallelLineFetcher {
+
+    private static final Logger LOG = Log.logger(ParallelLineFetcher.class);
+
+    private final Supplier<FileLineFetcher> fetcherFactory;
+    private final Queue<Unit> units;
+    private final BlockingQueue<FetchedLine> lines;
+    private final ExecutorService service;
+    // The number of units not finished, only accessed by consumer
+    private int remaining;
+    private volatile boolean closed;
+
+    public ParallelLineFetcher(Supplier<FileLineFetcher> fetcherFactory,
+                               List<Unit> units, int threads, int capacity) {
+        this.fetcherFactory = fetcherFactory;
+        this.units = new ConcurrentLinkedQueue<>(units);
+        this.lines = new ArrayBlockingQueue<>(capacity);
+        this.remaining = units.size();
+        this.closed = false;
+        int workers = Math.max(1, Math.min(threads, units.size()));
+        this.service = ExecutorUtil.newFixedThreadPool(workers, SPLIT_WORKER);
+        for (int i = 0; i < workers; i++) {
+            this.service.execute(this::work);
+        }
+    }
+
+    /**
+     * Take next fetched line, return null if all units are read fully
+     */
+    public FetchedLine take() {
+        if (this.remaining == 0) {
+            return null;
+        }
+        FetchedLine fetched;
+        try {
+            fetched = this.lines.take();
+        } catch (InterruptedException e) {
+            throw new LoadException("Interrupted while taking fetched line",
+                                    e);
+        }
+        if (fetched.end()) {
+            this.remaining--;
+        }
+        return fetched;
+    }
+
+    public void close() {
+        this.closed = true;
+        // Interrupt the workers blocked by the full queue
+        this.service.shutdownNow();
+    }
+
+    private void work() {
+        FileLineFetcher fetcher = this.fetcherFactory.get();
+        Unit unit;
+        while (!this.closed && (unit = this.units.poll()) != null) {
+            try {
+                this.fetch(fetcher, unit);
+            } catch (InterruptedException e) {
+                LOG.debug("Interrupted while fetching '{}'", unit.readable);
+                break;
+            } catch (Throwable e) {
+                LOG.error("Failed to fetch lines from '{}'",
+                          unit.readable, e);
+                RuntimeException error = new LoadException(
+                                         "Failed to fetch lines from '%s'",
+                                         e, unit.readable);
+                /*
+                 * The error also ends the unit, so that the consumer won't
+                 * wait for it, then go on fetching the remaining units
+                 */
+                try {
+                    this.lines.put(new FetchedLine(unit.progress, null, error,
+                                                   fetcher.offset(), true));
+                } catch (InterruptedException ignored) {
+                    LOG.debug("Interrupted while putting fetch error");
+                    break;
+                }
+            }
+        }
+    }
+
+    private void fetch(FileLineFetcher fetcher, Unit unit) throws Exception {
+        fetcher.openReader(unit.readable);
+        try {
+            fetcher.skipOffset(unit.readable, unit.skipOffset);
+            while (!this.closed) {
+                Line line = null;
+                ReadException error = null;
+                try {
+                    line = fetcher.fetch();
+                    if (line == null) {
+                        break;
+                    }
+                } catch (ReadException e) {
+                    error = e;
+                }
+                this.lines.put(new FetchedLine(unit.progress, line, error,
+                                               fetcher.offset(), false));
+            }
+            this.lines.put(new FetchedLine(unit.progress, null, null,
+                                           fetcher.offset(), true));
+        } finally {
+            fetcher.closeReader();
+        }
+    }
+
+    public static final class Unit {
+
+        private final Readable readable;
+        private final InputItemProgress progress;
+        // The number of lines to skip, which has been loaded last time
+        private final long skipOffset;
+
+        public Unit(Readable readable, InputItemProgress progress,
+                    long skipOffset) {
+            this.readable = readable;
+            this.progress = progress;
+            this.skipOffset = skipOffset;
+        }
+    }
+
+    public static final class FetchedLine {
+
+        private final InputItemProgress progress;
+        private final Line line;
+        private final RuntimeException error;
+        // The offset of unit after fetched this line
+        private final long offset;
+        private final boolean end;
+
+        public FetchedLine(InputItemProgress progress, Line line,
+                           RuntimeException error, long offset, boolean end) {
+            this.progress = progress;
+            this.line = line;
+            this.error = error;
+            this.offset = offset;
+            this.end = end;
+        }
+
+        public InputItemProgress progress() {
+            return this.progress;
+        }
+
+        public Line line() {
+            return this.line;
+        }
+
+        public RuntimeException error() {
+            return this.error;
+        }
+
+        public long offset() {
+            return this.offset;
+        }
+
+        public boolean end() {
+            return this.end;
+        }
+    }
+}
@@ -22,7 +22,6 @@ package com.baidu.hugegraph.loader.reader.file;
 import java.io.IOException;
 import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.column.page.PageReadStore;
@@ -37,7 +36,6 @@ import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.Type;
 import org.slf4j.Logger;
 
-import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.loader.exception.LoadException;
 import com.baidu.hugegraph.loader.reader.Readable;
 import com.baidu.hugegraph.loader.reader.line.Line;
@@ -134,15 +132,13 @@ public class ParquetFileLineFetcher extends FileLineFetcher {
         for (int fieldIndex = 0; fieldIndex < fieldSize; fieldIndex++) {
             values[fieldIndex] = ParquetUtil.convertObject(group, fieldIndex);
         }
-        String rawLine = StringUtils.join(values, Constants.COMMA_STR);
-
         this.currRowOffset++;
         this.increaseOffset();
         /*
          * NOTE: parquet file actually corresponds to a table structure,
          * doesn't need to skip line or match header
          */
-        return new Line(rawLine, this.source().header(), values);
+        return new Line(this.source().header(), values);
     }
 
     @Override
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * Read the wrapped stream(like a decompressing stream) ahead in the pool
+ * shared by the streams of a reader with double buffers, so that the
+ * decompression is overlapped with splitting and parsing lines in the reader
+ * thread. A task fills the free buffers and ends when none is free rather
+ * than waiting for them, so it never holds a pool thread idle.
+ */
+public final class ReadAheadInputStream extends InputStream {
+
+    private static final Logger LOG = Log.logger(ReadAheadInputStream.class);
+
+    private static final int BUFFERS = 2;
+    private static final long CLOSE_TIMEOUT = 1000L;
+
+    private final InputStream stream;
+    // The buffers free to fill and the buffers filled to read
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final ExecutorService pool;
+    private Chunk chunk;
+    private int position;
+    // Whether a task is filling the buffers and its thread, guarded by this
+    private boolean filling;
+    private Thread filler;
+    private volatile boolean finished;
+    private volatile boolean closed;
+
+    public ReadAheadInputStream(InputStream stream, int bufferSize,
+                                ExecutorService pool) {
+        this.stream = stream;
+        this.freeBuffers = new ArrayBlockingQueue<>(BUFFERS);
+        // One more slot for the chunk of end or error, so never blocked
+        this.filledChunks = new ArrayBlockingQueue<>(BUFFERS + 1);
+        for (int i = 0; i < BUFFERS; i++) {
+            this.freeBuffers.add(new byte[bufferSize]);
+        }
+        this.chunk = null;
+        this.position = 0;
+        this.filling = false;
+        this.filler = null;
+        this.finished = false;
+        this.closed = false;
+        this.pool = pool;
+        this.scheduleFill();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.ensureChunk()) {
+            return -1;
+        }
+        return this.chunk.buffer[this.position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!this.ensureChunk()) {
+            return -1;
+        }
+        int size = Math.min(length, this.chunk.length - this.position);
+        System.arraycopy(this.chunk.buffer, this.position,
+                         bytes, offset, size);
+        this.position += size;
+        return size;
+    }
+
+    @Override
+    public int available() {
+        if (this.chunk == null || this.chunk.buffer == null) {
+            return 0;
+        }
+        return this.chunk.length - this.position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        // Wait the filling task stopped, interrupt it if blocked by reading
+        try {
+            synchronized (this) {
+                if (this.filler != null) {
+                    this.filler.interrupt();
+                }
+                long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+                long remaining = CLOSE_TIMEOUT;
+                while (this.filling && remaining > 0L) {
+                    this.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                if (this.filling) {
+                    LOG.warn("The read ahead task isn't stopped in {}ms",
+                             CLOSE_TIMEOUT);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting read ahead task stopped");
+            Thread.currentThread().interrupt();
+        } finally {
+            this.stream.close();
+        }
+    }
+
+    /**
+     * Make sure there are bytes to read in current chunk, return false if
+     * reached the end of stream
+     */
+    private boolean ensureChunk() throws IOException {
+        if (this.closed) {
+            throw new IOException("The read ahead stream has been closed");
+        }
+        if (this.chunk != null && this.position < this.chunk.length) {
+            return true;
+        }
+        if (this.chunk != null) {
+            // Keep failing rather than returning EOF after an error
+            checkError(this.chunk);
+            if (this.chunk.buffer == null) {
+                // Reached the end of stream
+                return false;
+            }
+            // Give back the buffer read fully to fill again
+            this.freeBuffers.add(this.chunk.buffer);
+            this.scheduleFill();
+        }
+        try {
+            this.chunk = this.filledChunks.take();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting " +
+                                             "for read ahead buffer");
+        }
+        this.position = 0;
+        checkError(this.chunk);
+        return this.chunk.buffer != null;
+    }
+
+    private static void checkError(Chunk chunk) throws IOException {
+        if (chunk.error != null) {
+            throw new IOException("Failed to read ahead the stream",
+                                  chunk.error);
+        }
+    }
+
+    private void scheduleFill() {
+        synchronized (this) {
+            if (this.filling || this.finished || this.closed ||
+                this.freeBuffers.isEmpty()) {
+                return;
+            }
+            this.filling = true;
+        }
+        this.pool.execute(this::fill);
+    }
+
+    private void fill() {
+        synchronized (this) {
+            this.filler = Thread.currentThread();
+        }
+        try {
+            this.fillFreeBuffers();
+        } catch (Throwable e) {
+            this.finished = true;
+            if (!this.closed) {
+                // Report the error to the reader thread
+                this.filledChunks.add(new Chunk(null, 0, e));
+            }
+        } finally {
+            synchronized (this) {
+                this.filling = false;
+                this.filler = null;
+                // Don't leave the interrupt of close to the next task
+                Thread.interrupted();
+                this.notifyAll();
+            }
+        }
+        // The reader thread may give back a buffer before filling set false
+        this.scheduleFill();
+    }
+
+    private void fillFreeBuffers() throws IOException {
+        byte[] buffer;
+        while (!this.closed && (buffer = this.freeBuffers.poll()) != null) {
+            int length = 0;
+            int read = 0;
+            while (length < buffer.length &&
+                   (read = this.stream.read(buffer, length,
+                                            buffer.length - length)) >= 0) {
+                length += read;
+            }
+            if (length > 0) {
+                this.filledChunks.add(new Chunk(buffer, length, null));
+            }
+            if (read < 0) {
+                this.finished = true;
+                this.filledChunks.add(new Chunk(null, 0, null));
+                return;
+            }
+        }
+    }
+
+    private static final class Chunk {
+
+        // The buffer is null if reached the end or failed
+        private final byte[] buffer;
+        private final int length;
+        private final Throwable error;
+
+        public Chunk(byte[] buffer, int length, Throwable error) {
+            this.buffer = buffer;
+            this.length = length;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.file;
+
+import static com.baidu.hugegraph.loader.constant.Constants.PREFETCH_WORKER;
+import static com.baidu.hugegraph.util.Bytes.MB;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.progress.InputItemProgress;
+import com.baidu.hugegraph.loader.progress.InputProgress;
+import com.baidu.hugegraph.loader.reader.Readable;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * Prepare the next readables in background while the current one is being
+ * read, it calculates the input progress(like checksum) of the readable,
+ * then opens the stream and reads the first bytes if it needs to be loaded.
+ * The errors are thrown when the prepared readable is used, so that they
+ * are handled by the reader thread like before.
+ */
+public final class ReadablePrefetcher {
+
+    private static final Logger LOG = Log.logger(ReadablePrefetcher.class);
+
+    private static final int HEAD_SIZE = (int) MB;
+    private static final long CLOSE_TIMEOUT = 1000L;
+
+    private final Iterator<Readable> readables;
+    private final InputProgress oldProgress;
+    // Whether the readable is read by stream, otherwise just resolve input
+    private final Predicate<Readable> streamed;
+    private final int depth;
+    private final Deque<Future<Prefetched>> prefetching;
+    private final ExecutorService service;
+
+    public ReadablePrefetcher(Iterator<Readable> readables,
+                              InputProgress oldProgress,
+                              Predicate<Readable> streamed, int depth) {
+        this.readables = readables;
+        this.oldProgress = oldProgress;
+        this.streamed = streamed;
+        this.depth = depth;
+        this.prefetching = new ArrayDeque<>(depth);
+        this.service = ExecutorUtil.newFixedThreadPool(1, PREFETCH_WORKER);
+        this.prefetchMore();
+    }
+
+    /**
+     * Take the next prefetched readable, return null if there is no more
+     */
+    public Prefetched next() {
+        Future<Prefetched> future = this.prefetching.pollFirst();
+        if (future == null) {
+            return null;
+        }
+        this.prefetchMore();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new LoadException("Interrupted while prefetching readable",
+                                    e);
+        } catch (ExecutionException e) {
+            throw new LoadException("Failed to prefetch readable",
+                                    e.getCause());
+        }
+    }
+
+    public void close() {
+        this.service.shutdownNow();
+        try {
+            this.service.awaitTermination(CLOSE_TIMEOUT,
+                                          TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting prefetch thread stopped");
+            Thread.currentThread().interrupt();
+        }
+        // Close the streams opened ahead but not used
+        for (Future<Prefetched> future : this.prefetching) {
+            if (!future.isDone() || future.isCancelled()) {
+                continue;
+            }
+            try {
+                future.get().release();
+            } catch (InterruptedException | ExecutionException ignored) {
+                LOG.debug("Ignore the failed prefetching while closing");
+            }
+        }
+        this.prefetching.clear();
+    }
+
+    private void prefetchMore() {
+        while (this.prefetching.size() < this.depth &&
+               this.readables.hasNext()) {
+            Readable readable = this.readables.next();
+            this.prefetching.addLast(this.service.submit(
+                                     () -> this.prefetch(readable)));
+        }
+    }
+
+    private Prefetched prefetch(Readable readable) {
+        Prefetched prefetched = new Prefetched(readable);
+        try {
+            // NOTE: calculate check sum is a bit time consuming
+            prefetched.input = readable.inputItemProgress();
+        } catch (RuntimeException e) {
+            prefetched.inputError = e;
+            return prefetched;
+        }
+        // The readable has been loaded fully will be skipped
+        if (this.oldProgress.matchLoadedItem(prefetched.input) != null ||
+            !this.streamed.test(readable)) {
+            return prefetched;
+        }
+        InputStream stream = null;
+        try {
+            stream = readable.open();
+            byte[] head = new byte[HEAD_SIZE];
+            int length = IOUtils.read(stream, head);
+            InputStream headStream = new ByteArrayInputStream(head, 0,
+                                                              length);
+            prefetched.stream = new SequenceInputStream(headStream, stream);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stream);
+            prefetched.openError = e;
+        }
+        prefetched.opened = true;
+        LOG.debug("Prefetched '{}'", readable);
+        return prefetched;
+    }
+
+    /**
+     * The readable with its input progress resolved and maybe the stream
+     * opened ahead, the stream is only used by the first opening
+     */
+    public static final class Prefetched implements Readable {
+
+        private final Readable readable;
+        private InputItemProgress input;
+        private RuntimeException inputError;
+        private boolean opened;
+        private InputStream stream;
+        private IOException openError;
+
+        private Prefetched(Readable readable) {
+            this.readable = readable;
+            this.input = null;
+            this.inputError = null;
+            this.opened = false;
+            this.stream = null;
+            this.openError = null;
+        }
+
+        /**
+         * Return the original readable if the stream isn't opened ahead,
+         * like the file read by memory mapping
+         */
+        public Readable readable() {
+            return this.opened ? this : this.readable;
+        }
+
+        @Override
+        public String name() {
+            return this.readable.name();
+        }
+
+        @Override
+        public Path path() {
+            return this.readable.path();
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            if (!this.opened) {
+                return this.readable.open();
+            }
+            this.opened = false;
+            if (this.openError != null) {
+                throw this.openError;
+            }
+            InputStream stream = this.stream;
+            this.stream = null;
+            return stream;
+        }
+
+        @Override
+        public InputItemProgress inputItemProgress() {
+            if (this.inputError != null) {
+                throw this.inputError;
+            }
+            return this.input;
+        }
+
+        /**
+         * Close the stream opened ahead if it's not used
+         */
+        public void release() {
+            if (this.stream != null) {
+                IOUtils.closeQuietly(this.stream);
+                this.stream = null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.readable.toString();
+        }
+    }
+}
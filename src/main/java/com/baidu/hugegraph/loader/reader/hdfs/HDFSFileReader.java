@@ -131,7 +131,9 @@ public class HDFSFileReader extends FileReader {
         } else if (Compression.PARQUET == this.source().compression()) {
             return new ParquetFileLineFetcher(this.source(), this.conf);
         } else {
-            return new FileLineFetcher(this.source());
+            return new FileLineFetcher(this.source(), false,
+                                       this.readAheadPool(),
+                                       this.options().readAheadThreads);
         }
     }
 
@@ -28,7 +28,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
 import com.baidu.hugegraph.loader.constant.Constants;
@@ -135,8 +134,7 @@ public class RowFetcher {
                     }
                     values[i - 1] = value;
                 }
-                String rawLine = StringUtils.join(values, Constants.COMMA_STR);
-                Line line = new Line(rawLine, this.columns, values);
+                Line line = new Line(this.columns, values);
                 batch.add(line);
             }
         } catch (SQLException e) {
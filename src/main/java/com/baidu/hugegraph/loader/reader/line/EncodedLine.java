@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.reader.line;
+
+import java.nio.charset.Charset;
+
+/**
+ * The raw bytes of a line read without decoding, they're decoded only when
+ * the raw line is really needed, like writing the failure log
+ */
+public final class EncodedLine {
+
+    private final byte[] bytes;
+    private final Charset charset;
+
+    public EncodedLine(byte[] bytes, Charset charset) {
+        this.bytes = bytes;
+        this.charset = charset;
+    }
+
+    public int length() {
+        return this.bytes.length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.bytes, this.charset);
+    }
+}
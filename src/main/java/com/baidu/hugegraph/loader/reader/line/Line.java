@@ -23,12 +23,20 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
+
+import com.baidu.hugegraph.loader.constant.Constants;
 import com.baidu.hugegraph.util.E;
 import com.google.common.collect.Sets;
 
 public final class Line {
 
+    // It's joined by the rawValues lazily if null
     private String rawLine;
+    // The original values to join the raw line, null if rawLine is given
+    private final Object[] rawValues;
+    // The bytes to decode the raw line, null if rawLine is given
+    private final EncodedLine encodedLine;
     private String[] names;
     private Object[] values;
 
@@ -39,14 +47,70 @@ public final class Line {
         E.checkArgument(names.length == values.length,
                         "The length of names %s should be same as values %s");
         this.rawLine = rawLine;
+        this.rawValues = null;
+        this.encodedLine = null;
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * Create a line read without decoding, the raw line is decoded only when
+     * it's really needed
+     */
+    public Line(EncodedLine encodedLine, String[] names, Object[] values) {
+        E.checkArgumentNotNull(encodedLine, "The encodedLine can't be null");
+        E.checkArgumentNotNull(names, "The names can't be null");
+        E.checkArgumentNotNull(values, "The values can't be null");
+        E.checkArgument(names.length == values.length,
+                        "The length of names %s should be same as values %s");
+        this.rawLine = null;
+        this.rawValues = null;
+        this.encodedLine = encodedLine;
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * Create a line without raw line for the sources like JDBC and parquet,
+     * the raw line is joined by the values only when it's really needed
+     */
+    public Line(String[] names, Object[] values) {
+        E.checkArgumentNotNull(names, "The names can't be null");
+        E.checkArgumentNotNull(values, "The values can't be null");
+        E.checkArgument(names.length == values.length,
+                        "The length of names %s should be same as values %s");
+        this.rawLine = null;
+        this.rawValues = values;
+        this.encodedLine = null;
         this.names = names;
         this.values = values;
     }
 
     public String rawLine() {
+        if (this.rawLine == null) {
+            this.rawLine = this.encodedLine != null ?
+                           this.encodedLine.toString() :
+                           join(this.rawValues);
+        }
         return this.rawLine;
     }
 
+    /**
+     * Return the raw line if exists, otherwise the bytes to decode it or the
+     * values to join it, so that the holder can keep a compact reference of
+     * source
+     */
+    public Object rawSource() {
+        if (this.rawLine != null) {
+            return this.rawLine;
+        }
+        return this.encodedLine != null ? this.encodedLine : this.rawValues;
+    }
+
+    public static String join(Object[] values) {
+        return StringUtils.join(values, Constants.COMMA_STR);
+    }
+
     public void rawLine(String rawLine) {
         this.rawLine = rawLine;
     }
@@ -83,6 +147,6 @@ public final class Line {
 
     @Override
     public String toString() {
-        return this.rawLine;
+        return this.rawLine();
     }
 }
@@ -27,6 +27,7 @@ import com.baidu.hugegraph.loader.progress.InputProgress;
 import com.baidu.hugegraph.loader.progress.FileItemProgress;
 import com.baidu.hugegraph.loader.source.SourceType;
 import com.baidu.hugegraph.loader.util.JsonUtil;
+import com.baidu.hugegraph.util.InsertionOrderUtil;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
@@ -39,6 +40,7 @@ public class InputProgressDeser extends JsonDeserializer<InputProgress> {
     private static final String FIELD_TYPE = "type";
     private static final String FIELD_LOADED_ITEMS = "loaded_items";
     private static final String FIELD_LOADING_ITEM = "loading_item";
+    private static final String FIELD_LOADING_SPLITS = "loading_splits";
 
     @Override
     public InputProgress deserialize(JsonParser parser,
@@ -58,8 +60,11 @@ public class InputProgressDeser extends JsonDeserializer<InputProgress> {
         JsonNode loadingItemNode = getNode(node, FIELD_LOADING_ITEM,
                                            JsonNodeType.OBJECT,
                                            JsonNodeType.NULL);
+        // The loading splits is optional for compatibility
+        JsonNode loadingSplitsNode = node.get(FIELD_LOADING_SPLITS);
         Set<InputItemProgress> loadedItems;
         InputItemProgress loadingItem;
+        Set<InputItemProgress> loadingSplits;
         switch (sourceType) {
             case FILE:
             case HDFS:
@@ -68,13 +73,20 @@ public class InputProgressDeser extends JsonDeserializer<InputProgress> {
                                                   FileItemProgress.class);
                 loadingItem = JsonUtil.convert(loadingItemNode,
                                                FileItemProgress.class);
+                loadingSplits = InsertionOrderUtil.newSet();
+                if (loadingSplitsNode != null && loadingSplitsNode.isArray()) {
+                    loadingSplits.addAll(JsonUtil.convertSet(
+                                         loadingSplitsNode,
+                                         FileItemProgress.class));
+                }
                 break;
             case JDBC:
             default:
                 throw new AssertionError(String.format(
                           "Unsupported input source '%s'", type));
         }
-        return new InputProgress(sourceType, loadedItems, loadingItem);
+        return new InputProgress(sourceType, loadedItems, loadingItem,
+                                 loadingSplits);
     }
 
     private static JsonNode getNode(JsonNode node, String name,
@@ -22,6 +22,7 @@ package com.baidu.hugegraph.loader.task;
 import static com.baidu.hugegraph.loader.constant.Constants.BATCH_PRINT_FREQ;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -32,6 +33,7 @@ import com.baidu.hugegraph.loader.executor.LoadContext;
 import com.baidu.hugegraph.loader.executor.LoadOptions;
 import com.baidu.hugegraph.loader.mapping.ElementMapping;
 import com.baidu.hugegraph.loader.mapping.InputStruct;
+import com.baidu.hugegraph.loader.task.WireEncoder.WireBatch;
 import com.baidu.hugegraph.loader.util.Printer;
 import com.baidu.hugegraph.rest.ClientException;
 import com.baidu.hugegraph.util.Log;
@@ -40,9 +42,34 @@ public class BatchInsertTask extends InsertTask {
 
     private static final Logger LOG = Log.logger(TaskManager.class);
 
+    private volatile long latency;
+    // The pre-serialized batch and its sender, null if not encoded
+    private WireSender sender;
+    private WireBatch wire;
+
     public BatchInsertTask(LoadContext context, InputStruct struct,
                            ElementMapping mapping, List<Record> batch) {
         super(context, struct, mapping, batch);
+        this.latency = 0L;
+        this.sender = null;
+        this.wire = null;
+    }
+
+    /**
+     * Send the pre-serialized batch by the sender instead of HugeClient
+     */
+    public void wire(WireSender sender, WireBatch wire) {
+        this.sender = sender;
+        this.wire = wire;
+    }
+
+    /**
+     * Release the pre-serialized batch after the task finished
+     */
+    public void release() {
+        if (this.wire != null) {
+            this.wire.release();
+        }
     }
 
     @Override
@@ -50,56 +77,130 @@ public class BatchInsertTask extends InsertTask {
         int retryCount = 0;
         do {
             try {
-                if (this.mapping.updateStrategies().isEmpty()) {
-                    this.insertBatch(this.batch, this.options().checkVertex);
-                } else {
-                    this.updateBatch(this.batch, this.options().checkVertex);
-                }
+                this.insertOnce();
                 break;
-            } catch (ClientException e) {
-                LOG.debug("client exception: {}", e.getMessage());
-                Throwable cause = e.getCause();
-                if (cause != null && cause.getMessage() != null) {
-                    if (StringUtils.containsAny(cause.getMessage(),
-                                                UNACCEPTABLE_MESSAGES)) {
-                        throw e;
-                    }
-                }
-                retryCount = this.waitThenRetry(retryCount, e);
-            } catch (ServerException e) {
-                String message = e.getMessage();
-                LOG.error("server exception: {}", message);
-                if (UNACCEPTABLE_EXCEPTIONS.contains(e.exception())) {
-                    throw e;
+            } catch (ClientException | ServerException e) {
+                retryCount = this.nextRetry(retryCount, e);
+                if (retryCount > 0) {
+                    this.waitRetry(retryCount);
                 }
-                if (StringUtils.containsAny(message, UNACCEPTABLE_MESSAGES)) {
-                    throw e;
-                }
-                retryCount = this.waitThenRetry(retryCount, e);
             }
         } while (retryCount > 0 && retryCount <= this.options().retryTimes);
 
-        // TODO：need to write to error log when when insertBatch fails
-        int count = this.batch.size();
-        // This metrics just for current element mapping
-        this.plusLoadSuccess(count);
-        Printer.printProgress(this.context, this.type(),
-                              BATCH_PRINT_FREQ, count);
+        this.finish();
+    }
+
+    /**
+     * Do one attempt to insert the batch, the exception will be thrown out
+     * if failed, then the caller decides whether to retry by nextRetry()
+     */
+    public void insertOnce() {
+        BatchSizeController controller = this.context.batchSizeController();
+        long start = System.currentTimeMillis();
+        if (this.wire != null) {
+            // The failure is classified by nextRetry() like HugeClient's
+            this.sender.send(this.type(), this.wire);
+        } else if (this.mapping.updateStrategies().isEmpty()) {
+            this.insertBatch(this.batch, this.options().checkVertex);
+        } else {
+            this.updateBatch(this.batch, this.options().checkVertex);
+        }
+        this.latency = System.currentTimeMillis() - start;
+        controller.onSuccess(this.mapping, this.batch.size(), this.latency);
+    }
+
+    /**
+     * Whether the attempts can be done by insertOnceAsync()
+     */
+    public boolean async() {
+        return this.wire != null && this.sender.async();
+    }
+
+    /**
+     * Do one attempt like insertOnce() without blocking, the future is
+     * completed exceptionally by the exception insertOnce() would throw
+     */
+    public CompletableFuture<Void> insertOnceAsync() {
+        BatchSizeController controller = this.context.batchSizeController();
+        long start = System.currentTimeMillis();
+        return this.sender.sendAsync(this.type(), this.wire).thenRun(() -> {
+            this.latency = System.currentTimeMillis() - start;
+            controller.onSuccess(this.mapping, this.batch.size(),
+                                 this.latency);
+        });
     }
 
-    private int waitThenRetry(int retryCount, RuntimeException e) {
+    /**
+     * Return the retry count of next attempt, 0 means no retry and ignore
+     * the failure, throw the exception if it's unacceptable or retried
+     * too many times
+     */
+    public int nextRetry(int retryCount, RuntimeException e) {
+        if (e instanceof ClientException) {
+            LOG.debug("client exception: {}", e.getMessage());
+            Throwable cause = e.getCause();
+            if (cause != null && cause.getMessage() != null) {
+                if (StringUtils.containsAny(cause.getMessage(),
+                                            UNACCEPTABLE_MESSAGES)) {
+                    throw e;
+                }
+            }
+        } else if (e instanceof ServerException) {
+            String message = e.getMessage();
+            LOG.error("server exception: {}", message);
+            // Let the subsequent batches within the limit of server
+            this.context.batchSizeController().onRejected(this.mapping,
+                                                          message);
+            String exception = ((ServerException) e).exception();
+            if (UNACCEPTABLE_EXCEPTIONS.contains(exception)) {
+                throw e;
+            }
+            if (StringUtils.containsAny(message, UNACCEPTABLE_MESSAGES)) {
+                throw e;
+            }
+        } else {
+            throw e;
+        }
+        // Maybe timeout, let the subsequent batches smaller
+        this.context.batchSizeController().onFailure(this.mapping);
+
         LoadOptions options = this.options();
         if (options.retryTimes <= 0) {
             return retryCount;
         }
-
         if (++retryCount > options.retryTimes) {
             LOG.error("Batch insert has been retried more than {} times",
                       options.retryTimes);
             throw e;
         }
+        return retryCount;
+    }
+
+    /**
+     * The interval in seconds before the specified retry
+     */
+    public long retryInterval(int retryCount) {
+        return (1L << retryCount) * this.options().retryInterval;
+    }
+
+    /**
+     * The latency in milliseconds of the last succeeded attempt
+     */
+    public long latency() {
+        return this.latency;
+    }
+
+    public void finish() {
+        // TODO：need to write to error log when when insertBatch fails
+        int count = this.batch.size();
+        // This metrics just for current element mapping
+        this.plusLoadSuccess(count);
+        Printer.printProgress(this.context, this.type(),
+                              BATCH_PRINT_FREQ, count);
+    }
 
-        long interval = (1L << retryCount) * options.retryInterval;
+    private void waitRetry(int retryCount) {
+        long interval = this.retryInterval(retryCount);
         LOG.debug("Batch insert will sleep {} seconds then do the {}th retry",
                   interval, retryCount);
         try {
@@ -107,6 +208,5 @@ public class BatchInsertTask extends InsertTask {
         } catch (InterruptedException ignored) {
             // That's fine, just continue.
         }
-        return retryCount;
     }
 }
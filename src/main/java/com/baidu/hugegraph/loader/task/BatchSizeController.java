@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.constant.ElemType;
+import com.baidu.hugegraph.loader.executor.LoadOptions;
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
+import com.baidu.hugegraph.loader.mapping.InputStruct;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * Adjust the batch size of each vertex/edge label in AIMD way: increase it
+ * additively while the batch insert latency is under the target, decrease
+ * it multiplicatively once the latency exceeds the target, and cut it by
+ * half on timeout or server error.
+ *
+ * The batch size of a label is bounded by the min_batch_size and
+ * max_batch_size of its mapping, or by --min-batch-size and
+ * --max-batch-size if not set. The limits are taken from the first mapping
+ * of the label, and the max is lowered to the per-batch limit of server
+ * once a batch is rejected by it.
+ */
+public final class BatchSizeController {
+
+    private static final Logger LOG = Log.logger(BatchSizeController.class);
+
+    private static final double SLOW_DECREASE_FACTOR = 0.75;
+    private static final double ERROR_DECREASE_FACTOR = 0.5;
+    private static final int INCREASE_STEP_DIVISOR = 10;
+
+    // The message of server when a batch exceeds batch.max_*_per_batch
+    private static final Pattern SERVER_LIMIT = Pattern.compile(
+            "Too many (vertices|edges) for one time post, " +
+            "the maximum number is '(\\d+)'");
+
+    private final boolean adaptive;
+    private final int batchSize;
+    private final int min;
+    private final int max;
+    private final long latencyTarget;
+    // The key is vertex/edge label with type prefix
+    private final Map<String, LabelBatchSize> batchSizes;
+
+    public BatchSizeController(LoadOptions options) {
+        this.adaptive = options.adaptiveBatchSize;
+        this.batchSize = options.batchSize;
+        this.min = options.minBatchSize;
+        this.max = options.maxBatchSize;
+        this.latencyTarget = options.batchLatencyTarget;
+        this.batchSizes = new ConcurrentHashMap<>();
+    }
+
+    public boolean adaptive() {
+        return this.adaptive;
+    }
+
+    /**
+     * The upper limit of the batch size of the mapping's label
+     */
+    public int maxBatchSize(ElementMapping mapping) {
+        if (!this.adaptive) {
+            return this.batchSize;
+        }
+        return this.current(mapping).max;
+    }
+
+    /**
+     * The upper limit of the batch size of all labels of the struct
+     */
+    public int maxBatchSize(InputStruct struct) {
+        int max = this.adaptive ? 1 : this.batchSize;
+        for (ElementMapping mapping : struct.vertices()) {
+            max = Math.max(max, this.maxBatchSize(mapping));
+        }
+        for (ElementMapping mapping : struct.edges()) {
+            max = Math.max(max, this.maxBatchSize(mapping));
+        }
+        return max;
+    }
+
+    public int batchSize(ElementMapping mapping) {
+        if (!this.adaptive) {
+            return this.batchSize;
+        }
+        return this.current(mapping).size.get();
+    }
+
+    public int batchSize(ElemType type, String label) {
+        if (!this.adaptive) {
+            return this.batchSize;
+        }
+        LabelBatchSize batchSize = this.batchSizes.get(key(type, label));
+        if (batchSize == null) {
+            return Math.min(Math.max(this.batchSize, this.min), this.max);
+        }
+        return batchSize.size.get();
+    }
+
+    /**
+     * Called after a batch inserted successfully, the latency is the time
+     * of the request in milliseconds
+     */
+    public void onSuccess(ElementMapping mapping, int count, long latency) {
+        if (!this.adaptive) {
+            return;
+        }
+        LabelBatchSize batchSize = this.current(mapping);
+        if (latency > this.latencyTarget) {
+            int size = batchSize.update(s -> (int) (s * SLOW_DECREASE_FACTOR));
+            LOG.debug("Decrease batch size of {} to {} since latency {}ms " +
+                      "exceeds target", mapping, size, latency);
+        } else if (count >= batchSize.size.get()) {
+            // Only the full batch is meaningful to increase the batch size
+            int size = batchSize.update(s -> s + batchSize.step);
+            LOG.debug("Increase batch size of {} to {}", mapping, size);
+        }
+    }
+
+    /**
+     * Called when a batch insert failed due to timeout or server error
+     */
+    public void onFailure(ElementMapping mapping) {
+        if (!this.adaptive) {
+            return;
+        }
+        LabelBatchSize batchSize = this.current(mapping);
+        int size = batchSize.update(s -> (int) (s * ERROR_DECREASE_FACTOR));
+        LOG.info("Decrease batch size of {} to {} due to insert error",
+                 mapping, size);
+    }
+
+    /**
+     * Called when a batch insert is rejected by server, lower the max batch
+     * size of the label if the batch exceeds the per-batch limit of server
+     */
+    public void onRejected(ElementMapping mapping, String message) {
+        if (!this.adaptive || message == null) {
+            return;
+        }
+        Matcher matcher = SERVER_LIMIT.matcher(message);
+        if (!matcher.find()) {
+            return;
+        }
+        int limit = Integer.parseInt(matcher.group(2));
+        LabelBatchSize batchSize = this.current(mapping);
+        if (limit < batchSize.max) {
+            batchSize.max = Math.max(1, limit);
+            int size = batchSize.update(s -> s);
+            LOG.warn("Lower max batch size of {} to {} as the limit of " +
+                     "server, current batch size is {}",
+                     mapping, batchSize.max, size);
+        }
+    }
+
+    private LabelBatchSize current(ElementMapping mapping) {
+        String key = key(mapping.type(), mapping.label());
+        return this.batchSizes.computeIfAbsent(key, k -> {
+            int min = mapping.minBatchSize() > 0 ?
+                      mapping.minBatchSize() : this.min;
+            int max = mapping.maxBatchSize() > 0 ?
+                      mapping.maxBatchSize() : this.max;
+            return new LabelBatchSize(this.batchSize, min, max);
+        });
+    }
+
+    private static String key(ElemType type, String label) {
+        return type.string() + "-" + label;
+    }
+
+    private static final class LabelBatchSize {
+
+        private final AtomicInteger size;
+        private final int min;
+        private final int step;
+        // May be lowered by the limit of server
+        private volatile int max;
+
+        public LabelBatchSize(int initial, int min, int max) {
+            this.min = min;
+            this.max = max;
+            this.size = new AtomicInteger(this.bound(initial));
+            this.step = Math.max(1, this.size.get() / INCREASE_STEP_DIVISOR);
+        }
+
+        public int update(IntUnaryOperator function) {
+            return this.size.updateAndGet(s -> {
+                return this.bound(function.applyAsInt(s));
+            });
+        }
+
+        private int bound(int size) {
+            return Math.min(Math.max(size, this.min), this.max);
+        }
+    }
+}
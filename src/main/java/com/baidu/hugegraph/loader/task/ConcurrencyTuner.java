@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.metrics.LoadSummary;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Tune the concurrency of a stage by hill climbing: keep moving towards the
+ * same direction while the throughput improves, turn back when it drops,
+ * hold when it stops improving, and back off when the latency rises.
+ */
+public final class ConcurrencyTuner {
+
+    private static final Logger LOG = Log.logger(ConcurrencyTuner.class);
+
+    private static final String TUNER_WORKER = "concurrency-tuner-%d";
+    // In seconds
+    private static final long TUNE_INTERVAL = 5L;
+    private static final double CHANGE_RATIO = 0.05;
+    private static final double LATENCY_RISE_RATIO = 2.0;
+    // The weight of the latest latency when the baseline moves up to it
+    private static final double BASELINE_DECAY = 0.2;
+
+    private final StageExecutor stage;
+    private final LoadSummary summary;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder latencySum;
+    private final LongAdder latencyElements;
+
+    // Only accessed by the scheduler thread
+    private long lastLoaded;
+    private double lastThroughput;
+    // The latency per element to judge whether the latency rises
+    private double baseLatency;
+    private int direction;
+
+    public ConcurrencyTuner(StageExecutor stage, LoadSummary summary) {
+        this.stage = stage;
+        this.summary = summary;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                         new ThreadFactoryBuilder().setNameFormat(TUNER_WORKER)
+                                                   .setDaemon(true)
+                                                   .build());
+        this.latencySum = new LongAdder();
+        this.latencyElements = new LongAdder();
+        this.lastLoaded = 0L;
+        this.lastThroughput = 0.0D;
+        this.baseLatency = 0.0D;
+        this.direction = 1;
+    }
+
+    public void start() {
+        LOG.info("Start tuning the concurrency of stage '{}' in [1, {}]",
+                 this.stage.name(), this.stage.maxThreads());
+        this.scheduler.scheduleAtFixedRate(this::tuneQuietly, TUNE_INTERVAL,
+                                           TUNE_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Record the latency in milliseconds of a finished task which inserted
+     * the count of elements, the latency is measured per element since the
+     * batch size may change at runtime
+     */
+    public void record(long latency, int count) {
+        if (count <= 0) {
+            return;
+        }
+        this.latencySum.add(latency);
+        this.latencyElements.add(count);
+    }
+
+    private void tuneQuietly() {
+        try {
+            this.tune();
+        } catch (Throwable e) {
+            // The scheduled task will be cancelled if throw exception
+            LOG.warn("Failed to tune the concurrency of stage '{}'",
+                     this.stage.name(), e);
+        }
+    }
+
+    /**
+     * Adjust the concurrency by the throughput and latency measured since
+     * last time, it's called by the scheduler periodically
+     */
+    public void tune() {
+        long loaded = this.summary.vertexLoaded() + this.summary.edgeLoaded();
+        long delta = loaded - this.lastLoaded;
+        this.lastLoaded = loaded;
+        long elements = this.latencyElements.sumThenReset();
+        long sum = this.latencySum.sumThenReset();
+        if (elements == 0L) {
+            // The stage is idle, nothing to measure
+            return;
+        }
+
+        double throughput = (double) delta / TUNE_INTERVAL;
+        double latency = (double) sum / elements;
+        boolean latencyRise = this.baseLatency > 0.0D &&
+                              latency > this.baseLatency * LATENCY_RISE_RATIO;
+        this.updateBaseLatency(latency);
+
+        int current = this.stage.concurrency();
+        int next;
+        if (latencyRise) {
+            // The server may be overloaded, back off
+            this.direction = -1;
+            next = current - 1;
+        } else if (throughput > this.lastThroughput * (1 + CHANGE_RATIO)) {
+            next = current + this.direction;
+        } else if (throughput < this.lastThroughput * (1 - CHANGE_RATIO)) {
+            this.direction = -this.direction;
+            next = current + this.direction;
+        } else {
+            // The throughput stops improving, hold on
+            next = current;
+        }
+        this.lastThroughput = throughput;
+
+        if (next != current) {
+            next = this.stage.resize(next);
+            LOG.info("Resize concurrency of stage '{}' from {} to {}, " +
+                     "throughput: {}/s, average latency: {}ms/element",
+                     this.stage.name(), current, next,
+                     (long) throughput, latency);
+        }
+    }
+
+    /**
+     * Follow the lower latency immediately and move up to the higher one
+     * slowly, so that a lasting rise becomes the new baseline instead of
+     * backing off forever
+     */
+    private void updateBaseLatency(double latency) {
+        if (this.baseLatency == 0.0D || latency < this.baseLatency) {
+            this.baseLatency = latency;
+        } else {
+            this.baseLatency += (latency - this.baseLatency) * BASELINE_DECAY;
+        }
+    }
+}
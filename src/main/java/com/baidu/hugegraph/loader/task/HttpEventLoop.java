@@ -0,0 +1,660 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * A minimal HTTP/1.1 client which sends the requests over non-blocking
+ * connections in a single event loop thread, so many requests can be in
+ * flight without a thread blocked for each of them. The requests are queued
+ * until a connection is free, at most maxConnections connections are opened
+ * and kept alive to be reused. Only the plain http is supported.
+ */
+public final class HttpEventLoop implements Closeable {
+
+    private static final Logger LOG = Log.logger(HttpEventLoop.class);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_SIZE = 64 * 1024;
+    // The max interval in milliseconds to check the timeout
+    private static final long SELECT_INTERVAL = 100L;
+    private static final String CLOSED = "The http event loop is closed";
+
+    private final InetSocketAddress address;
+    private final String host;
+    private final int maxConnections;
+    // In nanoseconds, 0 means no timeout
+    private final long timeout;
+    private final Selector selector;
+    private final Queue<Exchange> submitted;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // Only accessed by the event loop thread
+    private final Deque<Exchange> waiting;
+    private final Deque<Connection> idle;
+    private final Set<Connection> connections;
+    private final byte[] readBuffer;
+
+    public HttpEventLoop(String host, int port, int maxConnections,
+                         int timeout, String name) throws IOException {
+        E.checkArgument(maxConnections > 0,
+                        "The max connections must be > 0, but got %s",
+                        maxConnections);
+        E.checkArgument(timeout >= 0,
+                        "The timeout must be >= 0, but got %s", timeout);
+        this.address = new InetSocketAddress(host, port);
+        if (this.address.isUnresolved()) {
+            throw new UnknownHostException(host);
+        }
+        this.host = host + ":" + port;
+        this.maxConnections = maxConnections;
+        this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.selector = Selector.open();
+        this.submitted = new ConcurrentLinkedQueue<>();
+        this.closed = false;
+        this.waiting = new ArrayDeque<>();
+        this.idle = new ArrayDeque<>();
+        this.connections = new HashSet<>();
+        this.readBuffer = new byte[BUFFER_SIZE];
+        this.thread = new Thread(this::loop, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Post the body to the target like "/path?query", the future is
+     * completed in the event loop thread with the response of any status,
+     * or completed exceptionally by IOException if failed to request or
+     * timeout, so don't block in the dependent actions of the future
+     */
+    public CompletableFuture<Response> post(String target,
+                                            Map<String, String> headers,
+                                            ByteBuffer body) {
+        StringBuilder head = new StringBuilder();
+        head.append("POST ").append(target).append(" HTTP/1.1\r\n")
+            .append("Host: ").append(this.host).append("\r\n")
+            .append("Content-Length: ").append(body.remaining())
+            .append("\r\n");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            head.append(header.getKey()).append(": ")
+                .append(header.getValue()).append("\r\n");
+        }
+        head.append("\r\n");
+        byte[] bytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        Exchange exchange = new Exchange(ByteBuffer.wrap(bytes), body);
+        if (this.closed) {
+            exchange.fail(new IOException(CLOSED));
+            return exchange.future;
+        }
+        this.submitted.add(exchange);
+        this.selector.wakeup();
+        if (this.closed) {
+            // The event loop may exit before the exchange is queued
+            this.failSubmitted();
+        }
+        return exchange.future;
+    }
+
+    /**
+     * Close the connections and fail the requests not responded
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.selector.wakeup();
+        if (Thread.currentThread() == this.thread) {
+            return;
+        }
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        try {
+            while (!this.closed) {
+                this.selector.select(SELECT_INTERVAL);
+                Set<SelectionKey> keys = this.selector.selectedKeys();
+                Iterator<SelectionKey> iter = keys.iterator();
+                while (iter.hasNext()) {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    ((Connection) key.attachment()).handle(key);
+                }
+                Exchange exchange;
+                while ((exchange = this.submitted.poll()) != null) {
+                    this.waiting.add(exchange);
+                }
+                this.dispatch();
+                this.checkTimeout();
+            }
+        } catch (Throwable e) {
+            LOG.error("The http event loop exited unexpectedly", e);
+        } finally {
+            this.closed = true;
+            IOException error = new IOException(CLOSED);
+            for (Connection conn : new ArrayList<>(this.connections)) {
+                conn.close(error);
+            }
+            for (Exchange exchange : this.waiting) {
+                exchange.fail(error);
+            }
+            this.waiting.clear();
+            this.failSubmitted();
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close the selector", e);
+            }
+        }
+    }
+
+    private void failSubmitted() {
+        Exchange exchange;
+        while ((exchange = this.submitted.poll()) != null) {
+            exchange.fail(new IOException(CLOSED));
+        }
+    }
+
+    private void dispatch() {
+        while (!this.waiting.isEmpty()) {
+            Connection conn = this.idle.pollFirst();
+            if (conn == null &&
+                this.connections.size() >= this.maxConnections) {
+                // Wait for a connection to be free
+                return;
+            }
+            Exchange exchange = this.waiting.poll();
+            if (conn == null) {
+                try {
+                    conn = new Connection();
+                } catch (IOException e) {
+                    exchange.fail(e);
+                    continue;
+                }
+            }
+            conn.start(exchange);
+        }
+    }
+
+    private void checkTimeout() {
+        if (this.timeout == 0L) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Connection conn : new ArrayList<>(this.connections)) {
+            conn.checkTimeout(now);
+        }
+    }
+
+    /**
+     * The response of a request, the body is decoded as UTF-8
+     */
+    public static final class Response {
+
+        private final int status;
+        private final String body;
+
+        public Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public int status() {
+            return this.status;
+        }
+
+        public String body() {
+            return this.body;
+        }
+    }
+
+    private static final class Exchange {
+
+        private final ByteBuffer head;
+        private final ByteBuffer body;
+        private final CompletableFuture<Response> future;
+        // The deadline in nanoseconds since assigned to a connection
+        private long deadline;
+        // Whether it's resent after the reused connection is closed
+        private boolean resent;
+
+        public Exchange(ByteBuffer head, ByteBuffer body) {
+            this.head = head;
+            this.body = body;
+            this.future = new CompletableFuture<>();
+            this.deadline = 0L;
+            this.resent = false;
+        }
+
+        public void fail(Throwable e) {
+            this.future.completeExceptionally(e);
+        }
+    }
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final ResponseParser parser;
+        private SelectionKey key;
+        private boolean connected;
+        // Whether any response has been received by this connection
+        private boolean reused;
+        private Exchange exchange;
+        private ByteBuffer[] outgoing;
+
+        public Connection() throws IOException {
+            this.channel = SocketChannel.open();
+            this.parser = new ResponseParser();
+            try {
+                this.channel.configureBlocking(false);
+                this.channel.setOption(StandardSocketOptions.TCP_NODELAY,
+                                       true);
+                this.connected = this.channel.connect(
+                                 HttpEventLoop.this.address);
+                int ops = this.connected ? 0 : SelectionKey.OP_CONNECT;
+                this.key = this.channel.register(HttpEventLoop.this.selector,
+                                                 ops, this);
+            } catch (IOException e) {
+                this.channel.close();
+                throw e;
+            }
+            this.reused = false;
+            HttpEventLoop.this.connections.add(this);
+        }
+
+        public void start(Exchange exchange) {
+            this.exchange = exchange;
+            exchange.deadline = System.nanoTime() + HttpEventLoop.this.timeout;
+            // Send from the beginning even if it's resent
+            this.outgoing = new ByteBuffer[]{exchange.head.duplicate(),
+                                             exchange.body.duplicate()};
+            this.parser.reset();
+            if (this.connected) {
+                this.key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        public void handle(SelectionKey key) {
+            try {
+                if (!key.isValid()) {
+                    return;
+                }
+                if (key.isConnectable()) {
+                    this.onConnect();
+                } else if (key.isWritable()) {
+                    this.onWrite();
+                } else if (key.isReadable()) {
+                    this.onRead();
+                }
+            } catch (IOException e) {
+                this.failed(e);
+            }
+        }
+
+        private void onConnect() throws IOException {
+            if (this.channel.finishConnect()) {
+                this.connected = true;
+                this.key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void onWrite() throws IOException {
+            this.channel.write(this.outgoing);
+            if (!this.outgoing[0].hasRemaining() &&
+                !this.outgoing[1].hasRemaining()) {
+                this.outgoing = null;
+                this.key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void onRead() throws IOException {
+            byte[] buffer = HttpEventLoop.this.readBuffer;
+            int read = this.channel.read(ByteBuffer.wrap(buffer));
+            if (this.exchange == null) {
+                // The idle connection is closed by server
+                this.close(null);
+                return;
+            }
+            if (read < 0) {
+                if (this.parser.finish()) {
+                    this.completed();
+                    return;
+                }
+                throw new EOFException("The connection is closed before " +
+                                       "the response completed");
+            }
+            if (this.parser.parse(buffer, 0, read)) {
+                this.completed();
+            }
+        }
+
+        private void completed() {
+            Exchange exchange = this.exchange;
+            this.exchange = null;
+            this.reused = true;
+            Response response = this.parser.response();
+            if (this.parser.keepAlive()) {
+                // Watch the idle connection to find it closed by server
+                this.key.interestOps(SelectionKey.OP_READ);
+                HttpEventLoop.this.idle.addFirst(this);
+            } else {
+                this.close(null);
+            }
+            exchange.future.complete(response);
+        }
+
+        private void failed(IOException e) {
+            Exchange exchange = this.exchange;
+            this.exchange = null;
+            this.close(null);
+            if (exchange == null) {
+                return;
+            }
+            if (this.reused && !this.parser.received() && !exchange.resent) {
+                /*
+                 * The server may close the idle connection while reusing
+                 * it, resend once by another connection like HttpClient
+                 */
+                LOG.debug("Resend the request since the reused connection " +
+                          "is closed", e);
+                exchange.resent = true;
+                HttpEventLoop.this.waiting.addFirst(exchange);
+                return;
+            }
+            exchange.fail(e);
+        }
+
+        public void checkTimeout(long now) {
+            if (this.exchange != null && now - this.exchange.deadline > 0) {
+                long millis = TimeUnit.NANOSECONDS.toMillis(
+                              HttpEventLoop.this.timeout);
+                this.close(new SocketTimeoutException(String.format(
+                           "Timeout waiting for the response in %s ms",
+                           millis)));
+            }
+        }
+
+        public void close(IOException error) {
+            this.key.cancel();
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                LOG.debug("Failed to close the connection", e);
+            }
+            HttpEventLoop.this.connections.remove(this);
+            HttpEventLoop.this.idle.remove(this);
+            if (this.exchange != null && error != null) {
+                this.exchange.fail(error);
+            }
+            this.exchange = null;
+        }
+    }
+
+    /**
+     * Parse the response incrementally, the body may be delimited by
+     * Content-Length, chunked or the end of connection
+     */
+    private static final class ResponseParser {
+
+        private final ByteArrayOutputStream line;
+        private final ByteArrayOutputStream body;
+        private State state;
+        private int status;
+        // The remaining bytes of body or chunk, -1 if unknown
+        private long remaining;
+        private boolean chunked;
+        private boolean keepAlive;
+        private boolean received;
+
+        public ResponseParser() {
+            this.line = new ByteArrayOutputStream();
+            this.body = new ByteArrayOutputStream();
+            this.reset();
+        }
+
+        public void reset() {
+            this.line.reset();
+            this.body.reset();
+            this.state = State.STATUS_LINE;
+            this.status = 0;
+            this.remaining = -1L;
+            this.chunked = false;
+            this.keepAlive = true;
+            this.received = false;
+        }
+
+        public boolean received() {
+            return this.received;
+        }
+
+        public boolean keepAlive() {
+            return this.keepAlive;
+        }
+
+        public Response response() {
+            assert this.state == State.DONE;
+            return new Response(this.status, new String(
+                                this.body.toByteArray(),
+                                StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Parse the received bytes, return true if the response completed
+         */
+        public boolean parse(byte[] bytes, int offset, int length)
+                             throws IOException {
+            if (length > 0) {
+                this.received = true;
+            }
+            int end = offset + length;
+            int index = offset;
+            while (index < end && this.state != State.DONE) {
+                if (this.state == State.BODY ||
+                    this.state == State.CHUNK_DATA) {
+                    int count = (int) Math.min(this.remaining, end - index);
+                    this.body.write(bytes, index, count);
+                    index += count;
+                    this.remaining -= count;
+                    if (this.remaining == 0L) {
+                        this.state = this.state == State.BODY ?
+                                     State.DONE : State.CHUNK_END;
+                    }
+                } else if (this.state == State.UNTIL_CLOSE) {
+                    this.body.write(bytes, index, end - index);
+                    index = end;
+                } else {
+                    byte b = bytes[index++];
+                    if (b != '\n') {
+                        if (this.line.size() >= MAX_LINE_SIZE) {
+                            throw new IOException("The response line is " +
+                                                  "too long");
+                        }
+                        this.line.write(b);
+                        continue;
+                    }
+                    String text = new String(this.line.toByteArray(),
+                                             StandardCharsets.ISO_8859_1);
+                    this.line.reset();
+                    if (text.endsWith("\r")) {
+                        text = text.substring(0, text.length() - 1);
+                    }
+                    this.onLine(text);
+                }
+            }
+            return this.state == State.DONE;
+        }
+
+        /**
+         * Called when the connection is closed, return true if the response
+         * completed by the end of connection
+         */
+        public boolean finish() {
+            if (this.state == State.UNTIL_CLOSE) {
+                this.state = State.DONE;
+                return true;
+            }
+            return false;
+        }
+
+        private void onLine(String text) throws IOException {
+            switch (this.state) {
+                case STATUS_LINE:
+                    // Like "HTTP/1.1 200 OK"
+                    String[] parts = text.split(" ", 3);
+                    if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                        throw new IOException("Invalid response status " +
+                                              "line: " + text);
+                    }
+                    this.status = (int) parseNumber(parts[1], 10);
+                    this.keepAlive = !"HTTP/1.0".equals(parts[0]);
+                    this.state = State.HEADERS;
+                    break;
+                case HEADERS:
+                    if (text.isEmpty()) {
+                        this.endHeaders();
+                    } else {
+                        this.onHeader(text);
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    // The chunk extensions are ignored
+                    int semicolon = text.indexOf(';');
+                    String size = semicolon < 0 ? text :
+                                  text.substring(0, semicolon);
+                    this.remaining = parseNumber(size.trim(), 16);
+                    this.state = this.remaining == 0L ?
+                                 State.TRAILERS : State.CHUNK_DATA;
+                    break;
+                case CHUNK_END:
+                    if (!text.isEmpty()) {
+                        throw new IOException("Invalid end of chunk: " +
+                                              text);
+                    }
+                    this.state = State.CHUNK_SIZE;
+                    break;
+                case TRAILERS:
+                    if (text.isEmpty()) {
+                        this.state = State.DONE;
+                    }
+                    break;
+                default:
+                    throw new AssertionError(String.format(
+                              "Unexpected line in state %s", this.state));
+            }
+        }
+
+        private void onHeader(String text) throws IOException {
+            int colon = text.indexOf(':');
+            if (colon <= 0) {
+                throw new IOException("Invalid response header: " + text);
+            }
+            String name = text.substring(0, colon).trim();
+            String value = text.substring(colon + 1).trim();
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                this.remaining = parseNumber(value, 10);
+            } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+                this.chunked = value.toLowerCase().contains("chunked");
+            } else if ("Connection".equalsIgnoreCase(name)) {
+                if ("close".equalsIgnoreCase(value)) {
+                    this.keepAlive = false;
+                } else if ("keep-alive".equalsIgnoreCase(value)) {
+                    this.keepAlive = true;
+                }
+            }
+        }
+
+        private void endHeaders() {
+            if (this.status / 100 == 1) {
+                // Skip the interim response like 100 Continue
+                this.state = State.STATUS_LINE;
+                this.remaining = -1L;
+                this.chunked = false;
+            } else if (this.status == 204 || this.status == 304) {
+                this.state = State.DONE;
+            } else if (this.chunked) {
+                this.state = State.CHUNK_SIZE;
+            } else if (this.remaining >= 0L) {
+                this.state = this.remaining == 0L ? State.DONE : State.BODY;
+            } else {
+                this.state = State.UNTIL_CLOSE;
+                this.keepAlive = false;
+            }
+        }
+
+        private static long parseNumber(String text, int radix)
+                                        throws IOException {
+            try {
+                long number = Long.parseLong(text, radix);
+                if (number < 0L) {
+                    throw new NumberFormatException();
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid number in response: " + text);
+            }
+        }
+    }
+
+    private enum State {
+
+        STATUS_LINE,
+        HEADERS,
+        BODY,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_END,
+        TRAILERS,
+        UNTIL_CLOSE,
+        DONE
+    }
+}
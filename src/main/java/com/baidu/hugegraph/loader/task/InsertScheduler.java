@@ -0,0 +1,393 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.baidu.hugegraph.loader.constant.ElemType;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * The bounded task queue of insert stages which schedules the tasks by
+ * priority classes instead of FIFO: the retries run ahead of new batches,
+ * and the vertex batches run ahead of edge batches, so that edges rarely
+ * arrive before their vertices. In the same priority class, the groups
+ * (input structs) are served in round robin to get a fair share.
+ *
+ * The retries are not limited by the capacity, because they have been
+ * accepted once and are bounded by the submitter.
+ */
+public final class InsertScheduler extends AbstractQueue<Runnable>
+                                   implements BlockingQueue<Runnable> {
+
+    // The group of the tasks without group
+    private static final Object NO_GROUP = new Object();
+
+    private final int capacity;
+    private final List<PriorityClass> classes;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    // Guarded by lock
+    private int size;
+
+    public InsertScheduler(int capacity) {
+        E.checkArgument(capacity > 0,
+                        "The capacity must be > 0, but got %s", capacity);
+        this.capacity = capacity;
+        this.classes = new ArrayList<>();
+        for (int i = 0; i < Priority.values().length; i++) {
+            this.classes.add(new PriorityClass());
+        }
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.notFull = this.lock.newCondition();
+        this.size = 0;
+    }
+
+    public static Runnable ranked(Priority priority, Object group,
+                                  Runnable task) {
+        return new RankedTask(priority, group, task);
+    }
+
+    public static Priority priority(ElemType type) {
+        return type.isVertex() ? Priority.VERTEX : Priority.EDGE;
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        E.checkNotNull(task, "task");
+        this.lock.lock();
+        try {
+            if (!this.acceptable(task)) {
+                return false;
+            }
+            this.enqueue(task);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit)
+                         throws InterruptedException {
+        E.checkNotNull(task, "task");
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (!this.acceptable(task)) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = this.notFull.awaitNanos(nanos);
+            }
+            this.enqueue(task);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        E.checkNotNull(task, "task");
+        this.lock.lockInterruptibly();
+        try {
+            while (!this.acceptable(task)) {
+                this.notFull.await();
+            }
+            this.enqueue(task);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        this.lock.lock();
+        try {
+            return this.size == 0 ? null : this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+                         throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.size == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            while (this.size == 0) {
+                this.notEmpty.await();
+            }
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        this.lock.lock();
+        try {
+            for (PriorityClass clazz : this.classes) {
+                Runnable task = clazz.peek();
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        this.lock.lock();
+        try {
+            return Math.max(this.capacity - this.size, 0);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return this.drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        E.checkNotNull(c, "collection");
+        E.checkArgument(c != this, "Can't drain to itself");
+        this.lock.lock();
+        try {
+            int count = 0;
+            while (this.size > 0 && count < maxElements) {
+                c.add(this.dequeue());
+                count++;
+            }
+            return count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Return a snapshot of the tasks in scheduling order of the classes,
+     * the iterator doesn't support remove
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        this.lock.lock();
+        try {
+            List<Runnable> tasks = new ArrayList<>(this.size);
+            for (PriorityClass clazz : this.classes) {
+                clazz.copyTo(tasks);
+            }
+            return Collections.unmodifiableList(tasks).iterator();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean acceptable(Runnable task) {
+        return this.size < this.capacity ||
+               priorityOf(task) == Priority.RETRY;
+    }
+
+    private void enqueue(Runnable task) {
+        this.classes.get(priorityOf(task).ordinal()).add(groupOf(task), task);
+        this.size++;
+        this.notEmpty.signal();
+    }
+
+    private Runnable dequeue() {
+        assert this.size > 0;
+        for (PriorityClass clazz : this.classes) {
+            Runnable task = clazz.poll();
+            if (task != null) {
+                this.size--;
+                this.notFull.signal();
+                return task;
+            }
+        }
+        throw new AssertionError("The size is inconsistent with tasks");
+    }
+
+    private static Priority priorityOf(Runnable task) {
+        Priority priority = null;
+        if (task instanceof Ranked) {
+            priority = ((Ranked) task).priority();
+        }
+        // The unranked tasks are scheduled last
+        return priority != null ? priority : Priority.EDGE;
+    }
+
+    private static Object groupOf(Runnable task) {
+        Object group = null;
+        if (task instanceof Ranked) {
+            group = ((Ranked) task).group();
+        }
+        return group != null ? group : NO_GROUP;
+    }
+
+    public enum Priority {
+
+        // The batches failed and waiting for retry
+        RETRY,
+
+        VERTEX,
+
+        EDGE
+    }
+
+    /**
+     * The task which could be scheduled by priority and group
+     */
+    public interface Ranked {
+
+        Priority priority();
+
+        Object group();
+    }
+
+    private static final class RankedTask implements Runnable, Ranked {
+
+        private final Priority priority;
+        private final Object group;
+        private final Runnable task;
+
+        public RankedTask(Priority priority, Object group, Runnable task) {
+            this.priority = priority;
+            this.group = group;
+            this.task = task;
+        }
+
+        @Override
+        public Priority priority() {
+            return this.priority;
+        }
+
+        @Override
+        public Object group() {
+            return this.group;
+        }
+
+        @Override
+        public void run() {
+            this.task.run();
+        }
+    }
+
+    /**
+     * The tasks of a priority class, every group owns a FIFO queue and the
+     * groups having tasks take turns to be served
+     */
+    private static final class PriorityClass {
+
+        private final Map<Object, Deque<Runnable>> groups;
+        private final Deque<Object> turns;
+
+        public PriorityClass() {
+            this.groups = new HashMap<>();
+            this.turns = new ArrayDeque<>();
+        }
+
+        public void add(Object group, Runnable task) {
+            Deque<Runnable> tasks = this.groups.get(group);
+            if (tasks == null) {
+                tasks = new ArrayDeque<>();
+                this.groups.put(group, tasks);
+                this.turns.addLast(group);
+            }
+            tasks.addLast(task);
+        }
+
+        public Runnable poll() {
+            Object group = this.turns.pollFirst();
+            if (group == null) {
+                return null;
+            }
+            Deque<Runnable> tasks = this.groups.get(group);
+            Runnable task = tasks.pollFirst();
+            if (tasks.isEmpty()) {
+                this.groups.remove(group);
+            } else {
+                // Let the other groups go first next time
+                this.turns.addLast(group);
+            }
+            return task;
+        }
+
+        public Runnable peek() {
+            Object group = this.turns.peekFirst();
+            return group == null ? null : this.groups.get(group).peekFirst();
+        }
+
+        public void copyTo(List<Runnable> tasks) {
+            for (Object group : this.turns) {
+                tasks.addAll(this.groups.get(group));
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.baidu.hugegraph.loader.builder.Record;
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.reader.line.EncodedLine;
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * Limit the estimated bytes of the records in flight (parsed but not
+ * inserted yet), the parsers are blocked when the budget is used up and
+ * resume after the inserted batches release their bytes.
+ *
+ * The size of a record is a rough estimation of the object layout on a
+ * 64-bit JVM, it's only used to bound the memory instead of accounting.
+ */
+public final class MemoryBudget {
+
+    // The shallow size of a record and the element it holds
+    private static final long RECORD_SIZE = 16L + 48L;
+    private static final long MAP_ENTRY_SIZE = 32L;
+    private static final long STRING_SIZE = 40L;
+    private static final long BOXED_SIZE = 16L;
+    private static final long OBJECT_SIZE = 32L;
+    private static final long REF_SIZE = 8L;
+
+    private final long limit;
+    // Guarded by this
+    private long used;
+    private long peak;
+
+    public MemoryBudget(long limit) {
+        E.checkArgument(limit > 0L,
+                        "The memory budget must be > 0, but got %s", limit);
+        this.limit = limit;
+        this.used = 0L;
+        this.peak = 0L;
+    }
+
+    /**
+     * Acquire the bytes and block until there is enough budget. A request
+     * larger than the whole budget is allowed if nothing in flight, so that
+     * a huge batch never blocks forever.
+     */
+    public synchronized void acquire(long bytes) {
+        while (this.used > 0L && this.used + bytes > this.limit) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                throw new LoadException("Interrupted while waiting for " +
+                                        "memory budget", e);
+            }
+        }
+        this.used += bytes;
+        this.peak = Math.max(this.peak, this.used);
+    }
+
+    public synchronized void release(long bytes) {
+        this.used -= bytes;
+        assert this.used >= 0L : this.used;
+        this.notifyAll();
+    }
+
+    /**
+     * Block until the budget is not used up
+     */
+    public synchronized void await() {
+        while (this.used >= this.limit) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                throw new LoadException("Interrupted while waiting for " +
+                                        "memory budget", e);
+            }
+        }
+    }
+
+    public long limit() {
+        return this.limit;
+    }
+
+    public synchronized long used() {
+        return this.used;
+    }
+
+    public synchronized long peak() {
+        return this.peak;
+    }
+
+    public static long estimate(List<Record> batch) {
+        long size = STRING_SIZE + REF_SIZE * batch.size();
+        for (Record record : batch) {
+            size += elementSize(record.element());
+            /*
+             * The raw line or values kept for failure log, it's usually the
+             * largest part of a record, the values shared by the records
+             * parsed from the same line may be counted more than once
+             */
+            size += sizeOf(record.rawSource());
+        }
+        return size;
+    }
+
+    private static long elementSize(GraphElement element) {
+        long size = RECORD_SIZE + sizeOf(element.label());
+        if (element instanceof Vertex) {
+            size += sizeOf(((Vertex) element).id());
+        } else if (element instanceof Edge) {
+            size += sizeOf(((Edge) element).sourceId());
+            size += sizeOf(((Edge) element).targetId());
+        }
+        Map<String, Object> properties = element.properties();
+        if (properties != null) {
+            // The hash table of map
+            size += OBJECT_SIZE + REF_SIZE * 2 * properties.size();
+            for (Map.Entry<String, Object> e : properties.entrySet()) {
+                size += MAP_ENTRY_SIZE + sizeOf(e.getValue());
+                // The keys are usually shared with the schema
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOf(Object value) {
+        if (value == null) {
+            return 0L;
+        } else if (value instanceof String) {
+            return STRING_SIZE + 2L * ((String) value).length();
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return BOXED_SIZE + REF_SIZE;
+        } else if (value instanceof Date) {
+            return OBJECT_SIZE;
+        } else if (value instanceof EncodedLine) {
+            return OBJECT_SIZE * 2 + ((EncodedLine) value).length();
+        } else if (value instanceof Object[]) {
+            Object[] values = (Object[]) value;
+            long size = OBJECT_SIZE + REF_SIZE * values.length;
+            for (Object v : values) {
+                size += sizeOf(v);
+            }
+            return size;
+        } else if (value instanceof Collection) {
+            Collection<?> values = (Collection<?>) value;
+            long size = OBJECT_SIZE + REF_SIZE * values.size();
+            for (Object v : values) {
+                size += sizeOf(v);
+            }
+            return size;
+        }
+        return OBJECT_SIZE;
+    }
+}
@@ -47,18 +47,23 @@ public final class ParseTaskBuilder {
 
     private final LoadContext context;
     private final InputStruct struct;
-    private final List<ElementBuilder> builders;
+    private final List<ElementMapping> mappings;
+    /*
+     * The ElementBuilder is not thread safe(like the id encoder it holds),
+     * so every parse worker owns a group of builders, the i-th builder is
+     * corresponding to the i-th element mapping
+     */
+    private final ThreadLocal<List<ElementBuilder>> builders;
 
     public ParseTaskBuilder(LoadContext context, InputStruct struct) {
         this.context = context;
         this.struct = struct;
-        this.builders = new ArrayList<>();
-        for (VertexMapping mapping : struct.vertices()) {
-            this.builders.add(new VertexBuilder(this.context, struct, mapping));
-        }
-        for (EdgeMapping mapping : struct.edges()) {
-            this.builders.add(new EdgeBuilder(this.context, struct, mapping));
-        }
+        this.mappings = new ArrayList<>();
+        this.mappings.addAll(struct.vertices());
+        this.mappings.addAll(struct.edges());
+        this.builders = ThreadLocal.withInitial(this::createBuilders);
+        // Create builders for current thread to check mappings in advance
+        this.builders.get();
     }
 
     public InputStruct struct() {
@@ -66,22 +71,42 @@ public final class ParseTaskBuilder {
     }
 
     public List<ParseTask> build(List<Line> lines) {
-        List<ParseTask> tasks = new ArrayList<>(this.builders.size());
-        for (ElementBuilder builder : this.builders) {
-            if (builder.mapping().skip()) {
+        List<ParseTask> tasks = new ArrayList<>(this.mappings.size());
+        for (int i = 0; i < this.mappings.size(); i++) {
+            if (this.mappings.get(i).skip()) {
                 continue;
             }
             // Iterate mappings(vertex/edge label) one by one
-            tasks.add(this.buildTask(builder, lines));
+            tasks.add(this.buildTask(i, lines));
         }
         return tasks;
     }
 
-    private ParseTask buildTask(ElementBuilder builder, List<Line> lines) {
+    private List<ElementBuilder> createBuilders() {
+        List<ElementBuilder> builders = new ArrayList<>(this.mappings.size());
+        for (ElementMapping mapping : this.mappings) {
+            if (mapping.type().isVertex()) {
+                builders.add(new VertexBuilder(this.context, this.struct,
+                                               (VertexMapping) mapping));
+            } else {
+                builders.add(new EdgeBuilder(this.context, this.struct,
+                                             (EdgeMapping) mapping));
+            }
+        }
+        return builders;
+    }
+
+    private ParseTask buildTask(int index, List<Line> lines) {
         final LoadMetrics metrics = this.context.summary().metrics(this.struct);
-        final int batchSize = this.context.options().batchSize;
-        final ElementMapping mapping = builder.mapping();
+        final ElementMapping mapping = this.mappings.get(index);
+        // The batch size may be adjusted adaptively for each label
+        final BatchSizeController controller = this.context
+                                                   .batchSizeController();
+        final int maxBatchSize = controller.maxBatchSize(mapping);
+        final int batchSize = controller.batchSize(mapping);
         return new ParseTask(mapping, () -> {
+            // Use the builder owned by current parse worker
+            ElementBuilder builder = this.builders.get().get(index);
             List<List<Record>> batches = new ArrayList<>();
             // One batch record
             List<Record> records = new ArrayList<>(batchSize);
@@ -92,19 +117,20 @@ public final class ParseTaskBuilder {
                     @SuppressWarnings("unchecked")
                     List<GraphElement> elements = builder.build(line.names(),
                                                                 line.values());
-                    E.checkState(elements.size() <= batchSize,
+                    E.checkState(elements.size() <= maxBatchSize,
                                  "The number of columns in a line cannot " +
                                  "exceed the size of a batch, but got %s > %s",
-                                 elements.size(), batchSize);
+                                 elements.size(), maxBatchSize);
                     // Prevent batch size from exceeding limit
-                    if (records.size() + elements.size() > batchSize) {
+                    if (!records.isEmpty() &&
+                        records.size() + elements.size() > batchSize) {
                         LOG.debug("Create a new batch for {}", mapping);
                         // Add current batch and create a new batch
                         batches.add(records);
                         records = new ArrayList<>(batchSize);
                     }
                     for (GraphElement element : elements) {
-                        records.add(new Record(line.rawLine(), element));
+                        records.add(new Record(line, element));
                         count++;
                     }
                 } catch (IllegalArgumentException e) {
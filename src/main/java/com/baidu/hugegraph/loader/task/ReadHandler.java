@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.constant.Constants;
+import com.baidu.hugegraph.loader.exception.ReadException;
+import com.baidu.hugegraph.loader.executor.LoadContext;
+import com.baidu.hugegraph.loader.executor.LoadOptions;
+import com.baidu.hugegraph.loader.mapping.InputStruct;
+import com.baidu.hugegraph.loader.metrics.LoadMetrics;
+import com.baidu.hugegraph.loader.reader.InputReader;
+import com.baidu.hugegraph.loader.reader.line.Line;
+import com.baidu.hugegraph.loader.task.ParseTaskBuilder.ParseTask;
+import com.baidu.hugegraph.loader.util.LoadUtil;
+import com.baidu.hugegraph.loader.util.Printer;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * The read stage of the load pipeline, it reads lines of an input struct
+ * into batches and submits them to the parse stage without waiting. The
+ * offset is confirmed only when all the batches read before are parsed and
+ * none of their records is held by the accumulator.
+ */
+public final class ReadHandler {
+
+    private static final Logger LOG = Log.logger(ReadHandler.class);
+
+    private final LoadContext context;
+    private final TaskManager manager;
+    private final InputStruct struct;
+    // The parse futures of batches which have been read but not confirmed
+    private final Deque<CompletableFuture<Void>> parsing;
+    // Coalesce records across read batches, null if not enabled
+    private final RecordAccumulator accumulator;
+
+    public ReadHandler(LoadContext context, TaskManager manager,
+                       InputStruct struct) {
+        this.context = context;
+        this.manager = manager;
+        this.struct = struct;
+        this.parsing = new ArrayDeque<>();
+        if (context.options().coalesceBatches) {
+            this.accumulator = new RecordAccumulator(context, manager, struct);
+        } else {
+            this.accumulator = null;
+        }
+    }
+
+    public void load(InputReader reader) {
+        try {
+            this.doLoad(reader);
+        } finally {
+            if (this.accumulator != null) {
+                this.accumulator.close();
+            }
+        }
+    }
+
+    private void doLoad(InputReader reader) {
+        LOG.info("Start parsing '{}'", this.struct);
+        LoadMetrics metrics = this.context.summary().metrics(this.struct);
+        metrics.startInFlight();
+
+        ParseTaskBuilder taskBuilder = new ParseTaskBuilder(this.context,
+                                                            this.struct);
+        // Read enough lines for the largest batch of adaptive batch size
+        final int batchSize = this.context.batchSizeController()
+                                          .maxBatchSize(this.struct);
+        /*
+         * Force to wait the parsing batches and confirm offset at least once
+         * after such number of batches read, to avoid losing too much
+         * progress if the loader exits abnormally
+         */
+        final int confirmInterval = 2 * this.context.options().parseQueueSize;
+        int unconfirmed = 0;
+        List<Line> lines = new ArrayList<>(batchSize);
+        for (boolean finished = false; !finished;) {
+            if (this.context.stopped()) {
+                break;
+            }
+            try {
+                // Read next line from data source
+                if (reader.hasNext()) {
+                    lines.add(reader.next());
+                    metrics.increaseReadSuccess();
+                } else {
+                    finished = true;
+                }
+            } catch (ReadException e) {
+                metrics.increaseReadFailure();
+                this.handleReadFailure(e);
+            }
+            // If readed max allowed lines, stop loading
+            boolean reachedMaxReadLines = this.reachedMaxReadLines();
+            if (reachedMaxReadLines) {
+                finished = true;
+            }
+            if (lines.size() >= batchSize || finished) {
+                // Stop reading more lines if the memory budget is used up
+                this.manager.awaitMemory();
+                this.submitParse(taskBuilder.build(lines));
+                lines = new ArrayList<>(batchSize);
+                unconfirmed++;
+
+                if (finished || unconfirmed >= confirmInterval) {
+                    this.waitParsed(true);
+                    this.flushHeld();
+                } else {
+                    this.waitParsed(false);
+                }
+                if (this.parsing.isEmpty() && this.noneHeld()) {
+                    // Confirm offset to avoid lost records
+                    reader.confirmOffset();
+                    this.context.newProgress().markLoaded(this.struct,
+                                                          finished);
+                    unconfirmed = 0;
+                }
+
+                this.handleParseFailure();
+                if (reachedMaxReadLines) {
+                    LOG.warn("Read lines exceed limit, stopped loading tasks");
+                    this.context.stopLoading();
+                }
+            }
+        }
+        // Wait the parse tasks submitted before stopped
+        this.waitParsed(true);
+        this.flushHeld();
+
+        metrics.stopInFlight();
+        LOG.info("Finish parsing '{}'", this.struct);
+    }
+
+    private void submitParse(List<ParseTask> tasks) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            futures[i] = this.manager.submitParse(this.struct, tasks.get(i),
+                                                  this.accumulator);
+        }
+        this.parsing.addLast(CompletableFuture.allOf(futures));
+    }
+
+    /**
+     * Remove the parsed batches in read order, if waitAll is false, just
+     * remove the batches have been parsed without blocking
+     */
+    private void waitParsed(boolean waitAll) {
+        while (!this.parsing.isEmpty()) {
+            CompletableFuture<Void> future = this.parsing.peekFirst();
+            if (!waitAll && !future.isDone()) {
+                break;
+            }
+            this.parsing.removeFirst();
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                throw LoadUtil.targetRuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private void flushHeld() {
+        if (this.accumulator != null) {
+            this.accumulator.flush(true);
+        }
+    }
+
+    private boolean noneHeld() {
+        return this.accumulator == null || this.accumulator.isEmpty();
+    }
+
+    private void handleReadFailure(ReadException e) {
+        LOG.error("Read {} error", this.struct, e);
+        this.context.occuredError();
+        LoadOptions options = this.context.options();
+        if (options.testMode) {
+            throw e;
+        }
+        // Write to current mapping's read failure log
+        this.context.failureLogger(this.struct).write(e);
+
+        long failures = this.context.summary().totalReadFailures();
+        if (options.maxReadErrors != Constants.NO_LIMIT &&
+            failures >= options.maxReadErrors) {
+            Printer.printError("More than %s read error, stop reading and " +
+                               "waiting all parse/insert tasks stopped",
+                               options.maxReadErrors);
+            this.context.stopLoading();
+        }
+    }
+
+    private void handleParseFailure() {
+        LoadOptions options = this.context.options();
+        long failures = this.context.summary().totalParseFailures();
+        if (options.maxParseErrors != Constants.NO_LIMIT &&
+            failures >= options.maxParseErrors) {
+            if (this.context.stopped()) {
+                return;
+            }
+            synchronized (this.context) {
+                if (!this.context.stopped()) {
+                    Printer.printError("More than %s parse error, stop " +
+                                       "parsing and waiting all insert tasks " +
+                                       "stopped", options.maxParseErrors);
+                    this.context.stopLoading();
+                }
+            }
+        }
+    }
+
+    private boolean reachedMaxReadLines() {
+        final long maxReadLines = this.context.options().maxReadLines;
+        if (maxReadLines == -1L) {
+            return false;
+        }
+        return this.context.summary().totalReadLines() >= maxReadLines;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.builder.Record;
+import com.baidu.hugegraph.loader.executor.LoadContext;
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
+import com.baidu.hugegraph.loader.mapping.InputStruct;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Coalesce the records of an input struct across read batches for every
+ * element mapping, so that a mapping filtering most lines still sends full
+ * batches. The held records are submitted when a batch is full, when they
+ * have been held longer than the linger time, or when flushed explicitly at
+ * the end of input. The caller must not confirm the offset of the lines
+ * whose records are still held, see isEmpty().
+ */
+public final class RecordAccumulator {
+
+    private static final Logger LOG = Log.logger(RecordAccumulator.class);
+
+    private static final String LINGER_WORKER = "batch-linger-%d";
+
+    private final InputStruct struct;
+    private final ToIntFunction<ElementMapping> batchSizes;
+    private final BatchSubmitter submitter;
+    // In milliseconds
+    private final long linger;
+    // The buffers are created in advance, so the map is read only
+    private final Map<ElementMapping, Buffer> buffers;
+    // The number of flushed batches which are not submitted yet
+    private final AtomicInteger flushing;
+    private final ScheduledExecutorService scheduler;
+
+    public RecordAccumulator(LoadContext context, TaskManager manager,
+                             InputStruct struct) {
+        this(struct, context.options().batchLinger,
+             context.batchSizeController()::batchSize,
+             (mapping, batch) -> manager.submitBatch(struct, mapping, batch));
+    }
+
+    public RecordAccumulator(InputStruct struct, long linger,
+                             ToIntFunction<ElementMapping> batchSizes,
+                             BatchSubmitter submitter) {
+        this.struct = struct;
+        this.batchSizes = batchSizes;
+        this.submitter = submitter;
+        this.linger = linger;
+        this.buffers = new IdentityHashMap<>();
+        for (ElementMapping mapping : struct.vertices()) {
+            this.buffers.put(mapping, new Buffer());
+        }
+        for (ElementMapping mapping : struct.edges()) {
+            this.buffers.put(mapping, new Buffer());
+        }
+        this.flushing = new AtomicInteger(0);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                         new ThreadFactoryBuilder().setNameFormat(LINGER_WORKER)
+                                                   .setDaemon(true)
+                                                   .build());
+        long interval = Math.max(this.linger / 2, 1L);
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, interval,
+                                              interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append the records parsed from a read batch, the full batches will be
+     * submitted to insert immediately
+     */
+    public void append(ElementMapping mapping, List<Record> records) {
+        Buffer buffer = this.buffers.get(mapping);
+        assert buffer != null : mapping;
+        int batchSize = this.batchSizes.applyAsInt(mapping);
+        List<List<Record>> batches = new ArrayList<>();
+        synchronized (buffer) {
+            if (buffer.records.isEmpty() && records.size() >= batchSize) {
+                // Submit the full batch directly without copying
+                batches.add(records);
+            } else {
+                for (Record record : records) {
+                    buffer.add(record);
+                    if (buffer.records.size() >= batchSize) {
+                        batches.add(buffer.take());
+                    }
+                }
+            }
+        }
+        for (List<Record> batch : batches) {
+            this.submitter.submit(mapping, batch);
+        }
+    }
+
+    /**
+     * Submit the held records, if force is false, only submit the records
+     * which have been held longer than the linger time
+     */
+    public void flush(boolean force) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<ElementMapping, Buffer> e : this.buffers.entrySet()) {
+            Buffer buffer = e.getValue();
+            List<Record> batch = null;
+            synchronized (buffer) {
+                if (!buffer.records.isEmpty() &&
+                    (force || now - buffer.firstTime >= this.linger)) {
+                    batch = buffer.take();
+                    this.flushing.incrementAndGet();
+                }
+            }
+            if (batch != null) {
+                LOG.debug("Flush {} held records of {}", batch.size(),
+                          e.getKey());
+                try {
+                    this.submitter.submit(e.getKey(), batch);
+                } finally {
+                    this.flushing.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether none of the records is held, including the ones flushed by
+     * the linger thread but not submitted yet
+     */
+    public boolean isEmpty() {
+        for (Buffer buffer : this.buffers.values()) {
+            synchronized (buffer) {
+                if (!buffer.records.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        // Check it after the buffers, a batch is counted with the lock of
+        // the buffer taken from
+        return this.flushing.get() == 0;
+    }
+
+    public void close() {
+        this.scheduler.shutdownNow();
+    }
+
+    private void flushQuietly() {
+        try {
+            this.flush(false);
+        } catch (Throwable e) {
+            // The scheduled task will be cancelled if throw exception
+            LOG.warn("Failed to flush the held records of '{}'",
+                     this.struct, e);
+        }
+    }
+
+    /**
+     * Submit a batch of the mapping to insert
+     */
+    @FunctionalInterface
+    public interface BatchSubmitter {
+
+        void submit(ElementMapping mapping, List<Record> batch);
+    }
+
+    private static class Buffer {
+
+        private List<Record> records = new ArrayList<>();
+        // The time when the first held record was added
+        private long firstTime = 0L;
+
+        private void add(Record record) {
+            if (this.records.isEmpty()) {
+                this.firstTime = System.currentTimeMillis();
+            }
+            this.records.add(record);
+        }
+
+        private List<Record> take() {
+            List<Record> records = this.records;
+            this.records = new ArrayList<>(records.size());
+            return records;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.constant.ExecutorType;
+import com.baidu.hugegraph.loader.constant.QueuePolicy;
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.metrics.StageMetrics;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * A stage of the load pipeline, the tasks submitted are buffered in a
+ * bounded queue (a ring buffer by default) and consumed by a fixed number
+ * of worker threads. When the queue is full, the producer is blocked or
+ * backed off according to the queue policy.
+ *
+ * With virtual threads, a thread is started for each submitted task instead
+ * of the fixed workers, and the running tasks are limited by the permits of
+ * a semaphore which is sized by the concurrency.
+ */
+public final class StageExecutor {
+
+    private static final Logger LOG = Log.logger(StageExecutor.class);
+
+    // In milliseconds
+    private static final long POLL_TIMEOUT = 100L;
+    private static final long MIN_BACKOFF = 1L;
+    private static final long MAX_BACKOFF = 64L;
+
+    private final String name;
+    private final QueuePolicy policy;
+    private final BlockingQueue<Runnable> queue;
+    private final ExecutorService workers;
+    // Whether start a virtual thread for each task rather than fixed workers
+    private final boolean threadPerTask;
+    // The permits to run tasks, only used by the virtual threads
+    private final ResizableSemaphore permits;
+    private final StageMetrics metrics;
+    // The number of tasks submitted but not finished
+    private final AtomicInteger pending;
+    private final int maxThreads;
+    private final Lock resizeLock;
+    private final Condition resized;
+    // The number of workers allowed to run tasks, the others are suspended
+    private volatile int concurrency;
+    private volatile boolean closed;
+
+    public StageExecutor(String name, String workerFormat, QueuePolicy policy,
+                         StageMetrics metrics) {
+        this(name, workerFormat, policy, metrics, metrics.threads(),
+             ExecutorType.PLATFORM,
+             new ArrayBlockingQueue<>(metrics.capacity()));
+    }
+
+    public StageExecutor(String name, String workerFormat, QueuePolicy policy,
+                         StageMetrics metrics, int maxThreads,
+                         ExecutorType executorType,
+                         BlockingQueue<Runnable> queue) {
+        E.checkArgument(metrics.threads() > 0,
+                        "The threads of stage '%s' must be > 0, but got %s",
+                        name, metrics.threads());
+        E.checkArgument(maxThreads >= metrics.threads(),
+                        "The max threads of stage '%s' must be >= %s, " +
+                        "but got %s", name, metrics.threads(), maxThreads);
+        E.checkArgument(metrics.capacity() > 0,
+                        "The queue capacity of stage '%s' must be > 0, " +
+                        "but got %s", name, metrics.capacity());
+        this.name = name;
+        this.policy = policy;
+        this.queue = queue;
+        ExecutorService virtualWorkers = null;
+        if (executorType.isVirtual()) {
+            virtualWorkers = newVirtualWorkers(workerFormat);
+            if (virtualWorkers == null) {
+                LOG.warn("The virtual threads are not supported by current " +
+                         "JVM (require Java 21+), use platform threads " +
+                         "instead");
+            }
+        }
+        this.threadPerTask = virtualWorkers != null;
+        this.metrics = metrics;
+        this.pending = new AtomicInteger(0);
+        this.maxThreads = maxThreads;
+        this.resizeLock = new ReentrantLock();
+        this.resized = this.resizeLock.newCondition();
+        this.concurrency = metrics.threads();
+        this.closed = false;
+        if (this.threadPerTask) {
+            this.workers = virtualWorkers;
+            this.permits = new ResizableSemaphore(this.concurrency);
+        } else {
+            this.workers = ExecutorUtil.newFixedThreadPool(maxThreads,
+                                                           workerFormat);
+            this.permits = null;
+            for (int i = 0; i < maxThreads; i++) {
+                final int index = i;
+                this.workers.execute(() -> this.work(index));
+            }
+        }
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Create the executor which starts a virtual thread for each task by
+     * reflection to keep compatible with Java 8, return null if virtual
+     * thread is not supported
+     */
+    private static ExecutorService newVirtualWorkers(String format) {
+        String prefix = format.replace("%d", "");
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> clazz = Class.forName("java.lang.Thread$Builder");
+            builder = clazz.getMethod("name", String.class, long.class)
+                           .invoke(builder, prefix, 0L);
+            Object factory = clazz.getMethod("factory").invoke(builder);
+            Method method = Executors.class.getMethod(
+                            "newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            LOG.debug("Failed to create virtual thread executor", e);
+            return null;
+        }
+    }
+
+    public int concurrency() {
+        return this.concurrency;
+    }
+
+    public int maxThreads() {
+        return this.maxThreads;
+    }
+
+    /**
+     * Change the number of workers running tasks at runtime, the value will
+     * be limited in [1, maxThreads]
+     */
+    public int resize(int concurrency) {
+        concurrency = Math.max(1, Math.min(concurrency, this.maxThreads));
+        this.resizeLock.lock();
+        try {
+            int delta = concurrency - this.concurrency;
+            this.concurrency = concurrency;
+            if (this.permits != null) {
+                this.permits.resize(delta);
+            }
+            // Wake up the suspended workers
+            this.resized.signalAll();
+        } finally {
+            this.resizeLock.unlock();
+        }
+        this.metrics.threads(concurrency);
+        return concurrency;
+    }
+
+    public CompletableFuture<Void> submit(Runnable task) {
+        E.checkState(!this.closed, "The stage '%s' has been closed",
+                     this.name);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Runnable job = new Job(task, future);
+
+        this.pending.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            this.enqueue(job);
+        } catch (InterruptedException e) {
+            this.finish();
+            throw new LoadException("Interrupted while submitting task " +
+                                    "to stage '%s'", e, this.name);
+        }
+        this.metrics.enqueued(this.queue.size(), System.nanoTime() - start);
+        if (this.threadPerTask) {
+            // Each thread runs one of the queued jobs by the queue order
+            this.workers.execute(this::runQueued);
+        }
+        return future;
+    }
+
+    private void enqueue(Runnable job) throws InterruptedException {
+        if (this.policy.isBlock()) {
+            this.queue.put(job);
+            return;
+        }
+        long backoff = MIN_BACKOFF;
+        while (!this.queue.offer(job)) {
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff << 1, MAX_BACKOFF);
+        }
+    }
+
+    private void work(int index) {
+        while (true) {
+            if (index >= this.concurrency) {
+                if (this.closed) {
+                    break;
+                }
+                try {
+                    this.suspend(index);
+                } catch (InterruptedException e) {
+                    LOG.debug("The worker of stage '{}' is interrupted",
+                              this.name);
+                    break;
+                }
+                continue;
+            }
+            Runnable job;
+            try {
+                job = this.queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                LOG.debug("The worker of stage '{}' is interrupted",
+                          this.name);
+                break;
+            }
+            if (job != null) {
+                job.run();
+            } else if (this.closed) {
+                break;
+            }
+        }
+    }
+
+    private void runQueued() {
+        try {
+            this.permits.acquire();
+        } catch (InterruptedException e) {
+            LOG.debug("The worker of stage '{}' is interrupted", this.name);
+            return;
+        }
+        try {
+            Runnable job = this.queue.poll();
+            if (job != null) {
+                job.run();
+            }
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    private void suspend(int index) throws InterruptedException {
+        this.resizeLock.lock();
+        try {
+            if (index >= this.concurrency) {
+                this.resized.await(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            this.resizeLock.unlock();
+        }
+    }
+
+    private void finish() {
+        if (this.pending.decrementAndGet() == 0) {
+            synchronized (this.pending) {
+                this.pending.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The submitted task with its future, it keeps the rank of the task for
+     * the prioritized queue
+     */
+    private final class Job implements Runnable, InsertScheduler.Ranked {
+
+        private final Runnable task;
+        private final CompletableFuture<Void> future;
+
+        public Job(Runnable task, CompletableFuture<Void> future) {
+            this.task = task;
+            this.future = future;
+        }
+
+        @Override
+        public InsertScheduler.Priority priority() {
+            if (this.task instanceof InsertScheduler.Ranked) {
+                return ((InsertScheduler.Ranked) this.task).priority();
+            }
+            return null;
+        }
+
+        @Override
+        public Object group() {
+            if (this.task instanceof InsertScheduler.Ranked) {
+                return ((InsertScheduler.Ranked) this.task).group();
+            }
+            return null;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.task.run();
+                this.future.complete(null);
+            } catch (Throwable e) {
+                this.future.completeExceptionally(e);
+            } finally {
+                StageExecutor.this.finish();
+            }
+        }
+    }
+
+    /**
+     * The semaphore whose permits can be reduced when the concurrency
+     * decreases, the running tasks keep their permits until finished
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = -4532457108932185730L;
+
+        public ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        public void resize(int delta) {
+            if (delta > 0) {
+                this.release(delta);
+            } else if (delta < 0) {
+                this.reducePermits(-delta);
+            }
+        }
+    }
+
+    /**
+     * Wait until all the submitted tasks finished
+     */
+    public void waitIdle() throws InterruptedException {
+        synchronized (this.pending) {
+            while (this.pending.get() > 0) {
+                this.pending.wait(POLL_TIMEOUT);
+            }
+        }
+    }
+
+    public void shutdown(long timeout) {
+        this.closed = true;
+        try {
+            this.workers.shutdown();
+            this.workers.awaitTermination(timeout, TimeUnit.SECONDS);
+            LOG.info("The {} stage executor shutdown", this.name);
+        } catch (InterruptedException e) {
+            LOG.error("The {} tasks are interrupted", this.name);
+        } finally {
+            if (!this.workers.isTerminated()) {
+                LOG.error("The unfinished {} tasks will be cancelled",
+                          this.name);
+            }
+            this.workers.shutdownNow();
+        }
+    }
+}
@@ -17,29 +17,41 @@
  * under the License.
  */
 
+
 package com.baidu.hugegraph.loader.task;
 
 import static com.baidu.hugegraph.loader.constant.Constants.BATCH_WORKER;
+import static com.baidu.hugegraph.loader.constant.Constants.PARSE_WORKER;
 import static com.baidu.hugegraph.loader.constant.Constants.SINGLE_WORKER;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 
 import com.baidu.hugegraph.loader.builder.Record;
-import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.constant.ExecutorType;
 import com.baidu.hugegraph.loader.executor.LoadContext;
 import com.baidu.hugegraph.loader.executor.LoadOptions;
 import com.baidu.hugegraph.loader.mapping.ElementMapping;
 import com.baidu.hugegraph.loader.mapping.InputStruct;
 import com.baidu.hugegraph.loader.metrics.LoadSummary;
-import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.loader.metrics.StageMetrics;
+import com.baidu.hugegraph.loader.task.InsertScheduler.Priority;
+import com.baidu.hugegraph.loader.task.ParseTaskBuilder.ParseTask;
+import com.baidu.hugegraph.loader.task.WireEncoder.WireBatch;
+import com.baidu.hugegraph.util.Bytes;
 import com.baidu.hugegraph.util.Log;
 
+/**
+ * Manage the parse and insert stages of the load pipeline:
+ * ReadHandler -> parse stage -> batch insert stage -> single insert stage,
+ * every stage has its own worker threads and bounded queue, so a slow stage
+ * will make the previous stages back pressured instead of causing OOM.
+ */
 public final class TaskManager {
 
     private static final Logger LOG = Log.logger(TaskManager.class);
@@ -47,39 +59,109 @@ public final class TaskManager {
     private final LoadContext context;
     private final LoadOptions options;
 
-    private final Semaphore batchSemaphore;
-    private final Semaphore singleSemaphore;
-    private final ExecutorService batchService;
-    private final ExecutorService singleService;
+    private final StageExecutor parseStage;
+    private final StageExecutor batchStage;
+    private final StageExecutor singleStage;
+    // Tune the batch insert concurrency, null if not enabled
+    private final ConcurrencyTuner batchTuner;
+    // Retry the failed batches by timer, null if not enabled
+    private final TimerRetryEngine retryEngine;
+    // Limit the bytes of records in flight, null if not enabled
+    private final MemoryBudget memoryBudget;
+    // Pre-serialize batches in parse workers, null if not enabled
+    private final WireEncoder wireEncoder;
+    private final WireSender wireSender;
 
     public TaskManager(LoadContext context) {
         this.context = context;
         this.options = context.options();
-        // Try to make all batch threads running and don't wait for producer
-        this.batchSemaphore = new Semaphore(this.batchSemaphoreNum());
+        this.parseStage = this.newStage("parse", PARSE_WORKER,
+                                        this.options.parseThreads,
+                                        this.options.parseQueueSize);
+        int batchThreads = this.options.batchInsertThreads;
+        int maxBatchThreads = batchThreads;
+        if (this.options.autoInsertThreads) {
+            maxBatchThreads = Math.max(batchThreads,
+                                       this.options.maxBatchInsertThreads);
+        }
+        // The insert tasks are mostly blocked by http requests
+        ExecutorType insertExecutor = this.options.executor;
+        this.batchStage = this.newStage("batch-insert", BATCH_WORKER,
+                                        batchThreads, maxBatchThreads,
+                                        this.options.insertQueueSize,
+                                        insertExecutor, true);
         /*
          * Let batch threads go forward as far as possible and don't wait for
          * single thread pool
          */
-        this.singleSemaphore = new Semaphore(this.singleSemaphoreNum());
-        /*
-         * In principle, unbounded synchronization queue(which may lead to OOM)
-         * should not be used, but there the task manager uses semaphores to
-         * limit the number of tasks added. When there are no idle threads in
-         * the thread pool, the producer will be blocked, so OOM will not occur.
-         */
-        this.batchService = ExecutorUtil.newFixedThreadPool(
-                            this.options.batchInsertThreads, BATCH_WORKER);
-        this.singleService = ExecutorUtil.newFixedThreadPool(
-                             this.options.singleInsertThreads, SINGLE_WORKER);
+        int singleThreads = this.options.singleInsertThreads;
+        this.singleStage = this.newStage("single-insert", SINGLE_WORKER,
+                                         singleThreads, singleThreads,
+                                         2 * singleThreads, insertExecutor,
+                                         true);
+        if (this.options.autoInsertThreads) {
+            this.batchTuner = new ConcurrencyTuner(this.batchStage,
+                                                   context.summary());
+            this.batchTuner.start();
+        } else {
+            this.batchTuner = null;
+        }
+        if (this.options.timerRetry || this.options.asyncInsert) {
+            // Allow more batches waiting for retry without holding workers
+            int maxPending = 2 * (maxBatchThreads +
+                                  this.options.insertQueueSize);
+            this.retryEngine = new TimerRetryEngine(this.batchStage,
+                                                    maxPending,
+                                                    batchThreads);
+        } else {
+            this.retryEngine = null;
+        }
+        if (this.options.memoryBudget > 0) {
+            long limit = this.options.memoryBudget * Bytes.MB;
+            this.memoryBudget = new MemoryBudget(limit);
+        } else {
+            this.memoryBudget = null;
+        }
+        boolean preSerialize = this.options.preSerialize ||
+                               this.options.asyncInsert;
+        if (preSerialize && WireSender.supported(this.options)) {
+            this.wireEncoder = new WireEncoder(maxBatchThreads +
+                                               this.options.insertQueueSize);
+            this.wireSender = new WireSender(this.options);
+        } else {
+            if (preSerialize) {
+                LOG.warn("The pre-serialized batches are not supported " +
+                         "with https protocol, ignore it");
+            }
+            this.wireEncoder = null;
+            this.wireSender = null;
+        }
     }
 
-    private int batchSemaphoreNum() {
-        return 1 + this.options.batchInsertThreads;
+    private StageExecutor newStage(String name, String workerFormat,
+                                   int threads, int capacity) {
+        return this.newStage(name, workerFormat, threads, threads, capacity,
+                             ExecutorType.PLATFORM, false);
     }
 
-    private int singleSemaphoreNum() {
-        return 2 * this.options.singleInsertThreads;
+    /**
+     * The prioritized stage schedules tasks by InsertScheduler instead of
+     * FIFO order
+     */
+    private StageExecutor newStage(String name, String workerFormat,
+                                   int threads, int maxThreads, int capacity,
+                                   ExecutorType executorType,
+                                   boolean prioritized) {
+        LoadSummary summary = this.context.summary();
+        StageMetrics metrics = summary.stageMetrics(name, threads, capacity);
+        BlockingQueue<Runnable> queue;
+        if (prioritized) {
+            queue = new InsertScheduler(capacity);
+        } else {
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+        return new StageExecutor(name, workerFormat, this.options.queuePolicy,
+                                 metrics, maxThreads, executorType, queue);
     }
 
     public void waitFinished() {
@@ -88,106 +170,200 @@ public final class TaskManager {
 
     public void waitFinished(String tasksName) {
         LOG.info("Waiting for the {} to finish", tasksName);
-        try {
-            // Wait batch mode task stopped
-            this.batchSemaphore.acquire(this.batchSemaphoreNum());
-        } catch (InterruptedException e) {
-            LOG.error("Interrupted while waiting batch-mode tasks");
-        } finally {
-            this.batchSemaphore.release(this.batchSemaphoreNum());
+        // The parse tasks will submit batch tasks, wait them in order
+        this.waitIdle(this.parseStage);
+        if (this.retryEngine != null) {
+            // The retries of batches are waiting outside of stage
+            try {
+                this.retryEngine.waitIdle();
+            } catch (InterruptedException e) {
+                LOG.error("Interrupted while waiting batches to retry");
+            }
         }
+        // The failed batch tasks will submit single tasks
+        this.waitIdle(this.batchStage);
+        this.waitIdle(this.singleStage);
+        LOG.info("All the {} finished", tasksName);
+    }
 
+    private void waitIdle(StageExecutor stage) {
         try {
-            // Wait single mode task stopped
-            this.singleSemaphore.acquire(this.singleSemaphoreNum());
+            stage.waitIdle();
         } catch (InterruptedException e) {
-            LOG.error("Interrupted while waiting single-mode tasks");
-        } finally {
-            this.singleSemaphore.release(this.singleSemaphoreNum());
+            LOG.error("Interrupted while waiting {} tasks", stage.name());
         }
-        LOG.info("All the {} finished", tasksName);
     }
 
     public void shutdown() {
+        if (this.batchTuner != null) {
+            this.batchTuner.shutdown();
+        }
+        if (this.retryEngine != null) {
+            this.retryEngine.shutdown();
+        }
+        if (this.memoryBudget != null) {
+            LOG.info("The peak memory of records in flight is {} bytes " +
+                     "(budget {} bytes)", this.memoryBudget.peak(),
+                     this.memoryBudget.limit());
+        }
         long timeout = this.options.shutdownTimeout;
-        try {
-            this.batchService.shutdown();
-            this.batchService.awaitTermination(timeout, TimeUnit.SECONDS);
-            LOG.info("The batch-mode tasks service executor shutdown");
-        } catch (InterruptedException e) {
-            LOG.error("The batch-mode tasks are interrupted");
-        } finally {
-            if (!this.batchService.isTerminated()) {
-                LOG.error("The unfinished batch-mode tasks will be cancelled");
-            }
-            this.batchService.shutdownNow();
+        this.parseStage.shutdown(timeout);
+        this.batchStage.shutdown(timeout);
+        this.singleStage.shutdown(timeout);
+        if (this.wireSender != null) {
+            this.wireSender.close();
         }
+    }
 
-        try {
-            this.singleService.shutdown();
-            this.singleService.awaitTermination(timeout, TimeUnit.SECONDS);
-            LOG.info("The single-mode tasks service executor shutdown");
-        } catch (InterruptedException e) {
-            LOG.error("The single-mode tasks are interrupted");
-        } finally {
-            if (!this.singleService.isTerminated()) {
-                LOG.error("The unfinished single-mode tasks will be cancelled");
+    /**
+     * Submit the parse task, the parsed batches are appended to the
+     * accumulator if it's not null, otherwise submitted to insert directly
+     */
+    public CompletableFuture<Void> submitParse(InputStruct struct,
+                                              ParseTask task,
+                                              RecordAccumulator accumulator) {
+        ElementMapping mapping = task.mapping();
+        return this.parseStage.submit(() -> {
+            long start = System.currentTimeMillis();
+            List<List<Record>> batches = task.get();
+            long end = System.currentTimeMillis();
+            this.context.summary().addTimeRange(mapping.type(), start, end);
+
+            if (this.options.dryRun || CollectionUtils.isEmpty(batches)) {
+                return;
             }
-            this.singleService.shutdownNow();
-        }
+            for (List<Record> batch : batches) {
+                if (accumulator != null) {
+                    accumulator.append(mapping, batch);
+                } else {
+                    this.submitBatch(struct, mapping, batch);
+                }
+            }
+        });
     }
 
     public void submitBatch(InputStruct struct, ElementMapping mapping,
                             List<Record> batch) {
+        // Block the parser if the records in flight use up the budget
+        long bytes = this.acquireMemory(batch);
         long start = System.currentTimeMillis();
-        try {
-            this.batchSemaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new LoadException("Interrupted while waiting to submit %s " +
-                                    "batch in batch mode", e, mapping.type());
-        }
         LoadSummary summary = this.context.summary();
         summary.metrics(struct).plusFlighting(batch.size());
 
-        InsertTask task = new BatchInsertTask(this.context, struct,
-                                              mapping, batch);
-        CompletableFuture.runAsync(task, this.batchService).whenComplete(
-            (r, e) -> {
-                if (e != null) {
+        if (this.retryEngine != null) {
+            this.submitTimerRetry(struct, mapping, batch, bytes);
+            return;
+        }
+        BatchInsertTask task = this.newBatchTask(struct, mapping, batch);
+        Runnable job = () -> {
+            try {
+                long begin = System.currentTimeMillis();
+                task.run();
+                if (this.batchTuner != null) {
+                    this.batchTuner.record(System.currentTimeMillis() - begin,
+                                           batch.size());
+                }
+                this.finishBatch(struct, batch, bytes);
+            } catch (Throwable e) {
+                LOG.warn("Batch insert {} error, try single insert",
+                         mapping.type(), e);
+                // The time of single insert is counted separately
+                this.submitInSingle(struct, mapping, batch, bytes);
+            } finally {
+                task.release();
+                long end = System.currentTimeMillis();
+                summary.addTimeRange(mapping.type(), start, end);
+            }
+        };
+        // The vertices are inserted ahead of edges to avoid missing vertex
+        Priority priority = InsertScheduler.priority(mapping.type());
+        this.batchStage.submit(InsertScheduler.ranked(priority, struct, job));
+    }
+
+    private void submitTimerRetry(InputStruct struct, ElementMapping mapping,
+                                  List<Record> batch, long bytes) {
+        long start = System.currentTimeMillis();
+        LoadSummary summary = this.context.summary();
+
+        BatchInsertTask task = this.newBatchTask(struct, mapping, batch);
+        this.retryEngine.submit(task, (t, e) -> {
+            try {
+                if (e == null) {
+                    if (this.batchTuner != null) {
+                        this.batchTuner.record(t.latency(), batch.size());
+                    }
+                    this.finishBatch(struct, batch, bytes);
+                } else {
                     LOG.warn("Batch insert {} error, try single insert",
                              mapping.type(), e);
-                    // The time of single insert is counted separately
-                    this.submitInSingle(struct, mapping, batch);
-                } else {
-                    summary.metrics(struct).minusFlighting(batch.size());
+                    this.submitInSingle(struct, mapping, batch, bytes);
                 }
-
-                this.batchSemaphore.release();
+            } finally {
+                t.release();
                 long end = System.currentTimeMillis();
-                this.context.summary().addTimeRange(mapping.type(), start, end);
-            });
+                summary.addTimeRange(mapping.type(), start, end);
+            }
+        });
+    }
+
+    private BatchInsertTask newBatchTask(InputStruct struct,
+                                         ElementMapping mapping,
+                                         List<Record> batch) {
+        BatchInsertTask task = new BatchInsertTask(this.context, struct,
+                                                   mapping, batch);
+        if (this.wireEncoder != null) {
+            // Serialize in the parse worker instead of insert worker
+            WireBatch wire = this.wireEncoder.encode(mapping, batch);
+            if (wire != null) {
+                task.wire(this.wireSender, wire);
+            }
+        }
+        return task;
     }
 
     private void submitInSingle(InputStruct struct, ElementMapping mapping,
-                                List<Record> batch) {
+                                List<Record> batch, long bytes) {
         long start = System.currentTimeMillis();
-        try {
-            this.singleSemaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new LoadException("Interrupted while waiting to submit %s " +
-                                    "batch in single mode", e, mapping.type());
-        }
         LoadSummary summary = this.context.summary();
 
         InsertTask task = new SingleInsertTask(this.context, struct,
                                                mapping, batch);
-        CompletableFuture.runAsync(task, this.singleService).whenComplete(
-            (r, e) -> {
-                summary.metrics(struct).minusFlighting(batch.size());
-                this.singleSemaphore.release();
-
+        Runnable job = () -> {
+            try {
+                task.run();
+            } finally {
+                this.finishBatch(struct, batch, bytes);
                 long end = System.currentTimeMillis();
-                this.context.summary().addTimeRange(mapping.type(), start, end);
-            });
+                summary.addTimeRange(mapping.type(), start, end);
+            }
+        };
+        Priority priority = InsertScheduler.priority(mapping.type());
+        this.singleStage.submit(InsertScheduler.ranked(priority, struct, job));
+    }
+
+    /**
+     * Block the reader until the records in flight don't use up the budget
+     */
+    public void awaitMemory() {
+        if (this.memoryBudget != null) {
+            this.memoryBudget.await();
+        }
+    }
+
+    private long acquireMemory(List<Record> batch) {
+        if (this.memoryBudget == null) {
+            return 0L;
+        }
+        long bytes = MemoryBudget.estimate(batch);
+        this.memoryBudget.acquire(bytes);
+        return bytes;
+    }
+
+    private void finishBatch(InputStruct struct, List<Record> batch,
+                             long bytes) {
+        this.context.summary().metrics(struct).minusFlighting(batch.size());
+        if (this.memoryBudget != null) {
+            this.memoryBudget.release(bytes);
+        }
     }
 }
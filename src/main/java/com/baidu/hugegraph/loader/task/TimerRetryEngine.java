@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.task.InsertScheduler.Priority;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Retry the failed batches by timer: the failed attempt is scheduled again
+ * by a timer after the retry interval instead of sleeping, so a batch
+ * waiting for retry never occupies an insert worker.
+ *
+ * The attempt of a pre-serialized batch is sent asynchronously if the async
+ * insert is enabled, it doesn't occupy any thread until responded, and the
+ * result is handled by the callback workers instead of the event loop.
+ * Other attempts are dispatched to the insert stage and block an insert
+ * worker until responded since HugeClient is synchronous.
+ *
+ * The future returned by submit() is completed when the batch is inserted
+ * or failed finally.
+ */
+public final class TimerRetryEngine {
+
+    private static final Logger LOG = Log.logger(TimerRetryEngine.class);
+
+    private static final String RETRY_WORKER = "insert-retry-timer-%d";
+    private static final String CALLBACK_WORKER = "insert-callback-%d";
+
+    private final StageExecutor stage;
+    private final ScheduledExecutorService timer;
+    // Handle the results of async attempts, which may block
+    private final ExecutorService callbacks;
+    // The max number of batches in flight, including the waiting retries
+    private final int maxPending;
+    private final Object lock;
+    // Guarded by lock
+    private int pending;
+
+    public TimerRetryEngine(StageExecutor stage, int maxPending,
+                            int callbackThreads) {
+        E.checkArgument(maxPending > 0,
+                        "The max pending batches must be > 0, but got %s",
+                        maxPending);
+        E.checkArgument(callbackThreads > 0,
+                        "The callback threads must be > 0, but got %s",
+                        callbackThreads);
+        this.stage = stage;
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                     new ThreadFactoryBuilder().setNameFormat(RETRY_WORKER)
+                                               .setDaemon(true)
+                                               .build());
+        // The threads are created on demand
+        this.callbacks = ExecutorUtil.newFixedThreadPool(callbackThreads,
+                                                         CALLBACK_WORKER);
+        this.maxPending = maxPending;
+        this.lock = new Object();
+        this.pending = 0;
+    }
+
+    /**
+     * Submit the batch and block only if too many batches in flight, the
+     * callback is called exactly once after the batch finished
+     */
+    public CompletableFuture<Void> submit(BatchInsertTask task,
+                                          Callback callback) {
+        this.acquire();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> result = future.whenComplete((r, e) -> {
+            try {
+                callback.finished(task, e);
+            } finally {
+                this.release();
+            }
+        });
+        this.attempt(task, 0, future);
+        return result;
+    }
+
+    private void attempt(BatchInsertTask task, int retryCount,
+                         CompletableFuture<Void> future) {
+        if (task.async()) {
+            this.attemptAsync(task, retryCount, future);
+            return;
+        }
+        CompletableFuture<Void> attempt;
+        try {
+            // The retries run ahead of the new batches
+            Priority priority = retryCount > 0 ? Priority.RETRY :
+                                InsertScheduler.priority(task.type());
+            Runnable job = () -> this.runAttempt(task, retryCount, future);
+            attempt = this.stage.submit(InsertScheduler.ranked(priority,
+                                                               task.struct,
+                                                               job));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        // Complete by unexpected errors which are not caught by attempt
+        attempt.whenComplete((r, e) -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    private void attemptAsync(BatchInsertTask task, int retryCount,
+                              CompletableFuture<Void> future) {
+        CompletableFuture<Void> attempt;
+        try {
+            attempt = task.insertOnceAsync();
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        // Don't handle the result in the event loop thread
+        attempt.whenComplete((r, e) -> {
+            Throwable cause = e instanceof CompletionException &&
+                              e.getCause() != null ? e.getCause() : e;
+            try {
+                this.callbacks.execute(() -> {
+                    try {
+                        this.attempted(task, retryCount, future, cause);
+                    } catch (Throwable unexpected) {
+                        future.completeExceptionally(unexpected);
+                    }
+                });
+            } catch (RejectedExecutionException rejected) {
+                future.completeExceptionally(new LoadException(
+                          "Failed to handle the result of batch insert",
+                          rejected));
+            }
+        });
+    }
+
+    private void runAttempt(BatchInsertTask task, int retryCount,
+                            CompletableFuture<Void> future) {
+        RuntimeException error = null;
+        try {
+            task.insertOnce();
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        this.attempted(task, retryCount, future, error);
+    }
+
+    private void attempted(BatchInsertTask task, int retryCount,
+                           CompletableFuture<Void> future, Throwable error) {
+        if (error instanceof RuntimeException) {
+            int nextRetry;
+            try {
+                nextRetry = task.nextRetry(retryCount,
+                                           (RuntimeException) error);
+            } catch (RuntimeException fatal) {
+                future.completeExceptionally(fatal);
+                return;
+            }
+            if (nextRetry > 0) {
+                this.scheduleRetry(task, nextRetry, future);
+                return;
+            }
+        } else if (error != null) {
+            future.completeExceptionally(error);
+            return;
+        }
+        task.finish();
+        future.complete(null);
+    }
+
+    private void scheduleRetry(BatchInsertTask task, int retryCount,
+                               CompletableFuture<Void> future) {
+        long interval = task.retryInterval(retryCount);
+        LOG.debug("Batch insert will do the {}th retry after {} seconds",
+                  retryCount, interval);
+        try {
+            this.timer.schedule(() -> this.attempt(task, retryCount, future),
+                                interval, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new LoadException(
+                      "Failed to schedule the retry of batch insert", e));
+        }
+    }
+
+    private void acquire() {
+        synchronized (this.lock) {
+            while (this.pending >= this.maxPending) {
+                try {
+                    this.lock.wait();
+                } catch (InterruptedException e) {
+                    throw new LoadException("Interrupted while waiting " +
+                                            "for pending batches", e);
+                }
+            }
+            this.pending++;
+        }
+    }
+
+    private void release() {
+        synchronized (this.lock) {
+            this.pending--;
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until all the submitted batches finished, include retries
+     */
+    public void waitIdle() throws InterruptedException {
+        synchronized (this.lock) {
+            while (this.pending > 0) {
+                this.lock.wait();
+            }
+        }
+    }
+
+    public void shutdown() {
+        this.timer.shutdownNow();
+        this.callbacks.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface Callback {
+
+        /**
+         * Called when the batch inserted or failed finally, the error is
+         * null if succeeded
+         */
+        void finished(BatchInsertTask task, Throwable error);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.loader.builder.Record;
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.util.Log;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Serialize a batch of vertices or edges into the request body of the batch
+ * insert REST API in the parse worker, with the streaming generator instead
+ * of the object mapper, and keep the bytes in pooled buffers until the batch
+ * is sent by WireSender.
+ *
+ * The batches which can't be expressed exactly are not encoded and will be
+ * inserted by the HugeClient as usual: the batches with update strategies,
+ * the UUID ids and the property values of other types.
+ */
+public final class WireEncoder {
+
+    private static final Logger LOG = Log.logger(WireEncoder.class);
+
+    // The buffers larger than it are not returned to pool
+    private static final int MAX_POOLED_BUFFER = 4 * 1024 * 1024;
+    private static final int INIT_BUFFER_SIZE = 64 * 1024;
+
+    private final JsonFactory factory;
+    private final BlockingQueue<WireBuffer> pool;
+
+    public WireEncoder(int poolSize) {
+        this.factory = new JsonFactory();
+        this.pool = new ArrayBlockingQueue<>(Math.max(poolSize, 1));
+    }
+
+    /**
+     * Encode the batch, return null if it can't be encoded
+     */
+    public WireBatch encode(ElementMapping mapping, List<Record> batch) {
+        if (!mapping.updateStrategies().isEmpty()) {
+            return null;
+        }
+        WireBuffer buffer = this.pool.poll();
+        if (buffer == null) {
+            buffer = new WireBuffer();
+        }
+        boolean encoded = false;
+        try (JsonGenerator generator = this.factory.createGenerator(
+                                       buffer, JsonEncoding.UTF8)) {
+            encoded = writeBatch(generator, batch);
+        } catch (IOException e) {
+            LOG.debug("Failed to encode batch of {}", mapping, e);
+        }
+        if (!encoded) {
+            this.release(buffer);
+            return null;
+        }
+        return new WireBatch(this, buffer);
+    }
+
+    private void release(WireBuffer buffer) {
+        if (buffer.capacity() > MAX_POOLED_BUFFER) {
+            return;
+        }
+        buffer.reset();
+        // Just drop it if the pool is full
+        this.pool.offer(buffer);
+    }
+
+    private static boolean writeBatch(JsonGenerator generator,
+                                      List<Record> batch) throws IOException {
+        generator.writeStartArray();
+        for (Record record : batch) {
+            GraphElement element = record.element();
+            generator.writeStartObject();
+            generator.writeStringField("label", element.label());
+            if (element instanceof Vertex) {
+                Object id = ((Vertex) element).id();
+                // The id of primary key vertex is generated by server
+                if (id != null && !writeField(generator, "id", id)) {
+                    return false;
+                }
+            } else {
+                Edge edge = (Edge) element;
+                if (!writeField(generator, "outV", edge.sourceId())) {
+                    return false;
+                }
+                generator.writeStringField("outVLabel", edge.sourceLabel());
+                if (!writeField(generator, "inV", edge.targetId())) {
+                    return false;
+                }
+                generator.writeStringField("inVLabel", edge.targetLabel());
+            }
+            generator.writeObjectFieldStart("properties");
+            for (Map.Entry<String, Object> e :
+                 element.properties().entrySet()) {
+                if (!writeField(generator, e.getKey(), e.getValue())) {
+                    return false;
+                }
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        return true;
+    }
+
+    private static boolean writeField(JsonGenerator generator, String name,
+                                      Object value) throws IOException {
+        generator.writeFieldName(name);
+        return writeValue(generator, value);
+    }
+
+    /**
+     * Write the value as the client serializes it, return false if the type
+     * is not supported
+     */
+    private static boolean writeValue(JsonGenerator generator, Object value)
+                                      throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Short ||
+                   value instanceof Byte) {
+            generator.writeNumber(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            generator.writeNumber((BigInteger) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Date) {
+            // The date is serialized as timestamp
+            generator.writeNumber(((Date) value).getTime());
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object elem : (Collection<?>) value) {
+                if (!writeValue(generator, elem)) {
+                    return false;
+                }
+            }
+            generator.writeEndArray();
+        } else {
+            // Like UUID which is serialized specially by the client
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The serialized request body of a batch, it must be released after the
+     * batch is inserted or given up
+     */
+    public static final class WireBatch {
+
+        private final WireEncoder encoder;
+        private WireBuffer buffer;
+
+        private WireBatch(WireEncoder encoder, WireBuffer buffer) {
+            this.encoder = encoder;
+            this.buffer = buffer;
+        }
+
+        public synchronized int size() {
+            return this.buffer == null ? 0 : this.buffer.size();
+        }
+
+        public synchronized void writeTo(OutputStream out) throws IOException {
+            if (this.buffer == null) {
+                throw new IOException("The wire batch has been released");
+            }
+            this.buffer.writeTo(out);
+        }
+
+        /**
+         * Wrap the serialized bytes without copy, it's only valid until the
+         * batch is released
+         */
+        public synchronized ByteBuffer wrap() throws IOException {
+            if (this.buffer == null) {
+                throw new IOException("The wire batch has been released");
+            }
+            return this.buffer.wrap();
+        }
+
+        public synchronized void release() {
+            if (this.buffer != null) {
+                this.encoder.release(this.buffer);
+                this.buffer = null;
+            }
+        }
+    }
+
+    private static final class WireBuffer extends ByteArrayOutputStream {
+
+        public WireBuffer() {
+            super(INIT_BUFFER_SIZE);
+        }
+
+        public int capacity() {
+            return this.buf.length;
+        }
+
+        public ByteBuffer wrap() {
+            return ByteBuffer.wrap(this.buf, 0, this.count);
+        }
+    }
+}
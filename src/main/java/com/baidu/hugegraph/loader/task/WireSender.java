@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.exception.ServerException;
+import com.baidu.hugegraph.loader.constant.Constants;
+import com.baidu.hugegraph.loader.constant.ElemType;
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.executor.LoadOptions;
+import com.baidu.hugegraph.loader.task.HttpEventLoop.Response;
+import com.baidu.hugegraph.loader.task.WireEncoder.WireBatch;
+import com.baidu.hugegraph.loader.util.JsonUtil;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Send the pre-serialized batches to the batch insert REST API directly.
+ * The batches are sent synchronously by send(), or asynchronously by
+ * sendAsync() over the non-blocking connections of an event loop if the
+ * async insert is enabled.
+ *
+ * NOTE: the max-conn options don't apply to send(), the connections in use
+ * are bounded by the insert threads and kept alive by the JDK, which keeps
+ * at most 5 idle connections for each destination by default, the extra
+ * ones are closed after each request, so please pass
+ * "-Dhttp.maxConnections=<n>" to the JVM to keep more connections alive if
+ * the insert threads are more than that. The event loop of sendAsync()
+ * opens at most max-conn-per-route connections instead.
+ */
+public final class WireSender {
+
+    private static final Logger LOG = Log.logger(WireSender.class);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final String EVENT_LOOP = "insert-event-loop";
+
+    private final String vertexPath;
+    private final String edgePath;
+    private final String vertexUrl;
+    private final String edgeUrl;
+    private final Map<String, String> headers;
+    // In milliseconds
+    private final int timeout;
+    // Send the batches asynchronously, null if not enabled
+    private final HttpEventLoop eventLoop;
+
+    public WireSender(LoadOptions options) {
+        String address = options.host + ":" + options.port;
+        if (!options.host.startsWith(Constants.HTTP_PREFIX)) {
+            address = Constants.HTTP_PREFIX + address;
+        }
+        String graphPath = String.format("/graphs/%s/graph", options.graph);
+        this.vertexPath = graphPath + "/vertices/batch";
+        this.edgePath = graphPath + "/edges/batch?check_vertex=" +
+                        options.checkVertex;
+        this.vertexUrl = address + this.vertexPath;
+        this.edgeUrl = address + this.edgePath;
+        ImmutableMap.Builder<String, String> headers = ImmutableMap.builder();
+        headers.put("Content-Type", "application/json");
+        headers.put("Accept", "application/json");
+        if (options.token != null) {
+            String username = options.username != null ?
+                              options.username : options.graph;
+            String auth = username + ":" + options.token;
+            byte[] bytes = auth.getBytes(StandardCharsets.UTF_8);
+            headers.put("Authorization", "Basic " +
+                        Base64.getEncoder().encodeToString(bytes));
+        }
+        this.headers = headers.build();
+        this.timeout = options.timeout * 1000;
+        if (options.asyncInsert) {
+            this.eventLoop = newEventLoop(address, this.timeout,
+                                          options.maxConnectionsPerRoute);
+        } else {
+            this.eventLoop = null;
+        }
+    }
+
+    private static HttpEventLoop newEventLoop(String address, int timeout,
+                                              int maxConnections) {
+        try {
+            URL url = new URL(address);
+            return new HttpEventLoop(url.getHost(), url.getPort(),
+                                     maxConnections, timeout, EVENT_LOOP);
+        } catch (IOException e) {
+            throw new LoadException("Failed to start the event loop " +
+                                    "to %s", e, address);
+        }
+    }
+
+    /**
+     * Only the http protocol is supported, the https needs the trust store
+     * configured for HugeClient
+     */
+    public static boolean supported(LoadOptions options) {
+        return !LoadOptions.HTTPS_SCHEMA.equals(options.protocol) &&
+               !options.host.startsWith(Constants.HTTPS_PREFIX);
+    }
+
+    /**
+     * Send the batch, throw ServerException if the server responded with
+     * an error, or ClientException if failed to request(like timeout), then
+     * the caller decides whether to retry by the exception as HugeClient
+     */
+    public void send(ElemType type, WireBatch batch) {
+        String url = type.isVertex() ? this.vertexUrl : this.edgeUrl;
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setConnectTimeout(this.timeout);
+            conn.setReadTimeout(this.timeout);
+            conn.setFixedLengthStreamingMode(batch.size());
+            for (Map.Entry<String, String> header : this.headers.entrySet()) {
+                conn.setRequestProperty(header.getKey(), header.getValue());
+            }
+            try (OutputStream out = conn.getOutputStream()) {
+                batch.writeTo(out);
+            }
+            int status = conn.getResponseCode();
+            if (status >= 200 && status < 300) {
+                // Consume the response to reuse the connection
+                drain(conn.getInputStream());
+                return;
+            }
+            String body = read(conn.getErrorStream());
+            LOG.debug("Failed to send the {} batch, status {}: {}",
+                      type, status, body);
+            throw WireServerException.fromBody(status, body);
+        } catch (IOException e) {
+            if (conn != null) {
+                conn.disconnect();
+            }
+            throw new ClientException(String.format(
+                      "Failed to send the %s batch to %s", type, url), e);
+        }
+    }
+
+    /**
+     * Whether the batches can be sent by sendAsync()
+     */
+    public boolean async() {
+        return this.eventLoop != null;
+    }
+
+    /**
+     * Send the batch without blocking, the future is completed
+     * exceptionally in the same way as send() throws, and it's completed
+     * in the event loop thread, so don't block in the dependent actions
+     */
+    public CompletableFuture<Void> sendAsync(ElemType type, WireBatch batch) {
+        E.checkState(this.eventLoop != null,
+                     "The async insert is not enabled");
+        String url = type.isVertex() ? this.vertexUrl : this.edgeUrl;
+        String path = type.isVertex() ? this.vertexPath : this.edgePath;
+        CompletableFuture<Response> future;
+        try {
+            future = this.eventLoop.post(path, this.headers, batch.wrap());
+        } catch (IOException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        return future.handle((response, e) -> {
+            if (e != null) {
+                if (e instanceof CompletionException && e.getCause() != null) {
+                    e = e.getCause();
+                }
+                throw new ClientException(String.format(
+                          "Failed to send the %s batch to %s", type, url), e);
+            }
+            int status = response.status();
+            if (status >= 200 && status < 300) {
+                return null;
+            }
+            LOG.debug("Failed to send the {} batch, status {}: {}",
+                      type, status, response.body());
+            throw WireServerException.fromBody(status, response.body());
+        });
+    }
+
+    public void close() {
+        if (this.eventLoop != null) {
+            this.eventLoop.close();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (stream.read(buffer) >= 0) {
+                // Discard the response body
+            }
+        }
+    }
+
+    /**
+     * The server exception parsed from the error response, the exception
+     * class is kept to classify the error like HugeClient
+     */
+    private static final class WireServerException extends ServerException {
+
+        private static final long serialVersionUID = 3867312905723180764L;
+
+        private final String exception;
+
+        public WireServerException(String message, String exception) {
+            super(message);
+            this.exception = exception;
+        }
+
+        @Override
+        public String exception() {
+            return this.exception;
+        }
+
+        public static WireServerException fromBody(int status, String body) {
+            String exception = null;
+            String message = body;
+            if (body.startsWith("{")) {
+                try {
+                    Map<?, ?> json = JsonUtil.fromJson(body, Map.class);
+                    exception = (String) json.get("exception");
+                    if (json.get("message") != null) {
+                        message = (String) json.get("message");
+                    }
+                } catch (RuntimeException e) {
+                    LOG.debug("Failed to parse the error response", e);
+                }
+            }
+            if (message.isEmpty()) {
+                message = "Unexpected response status " + status;
+            }
+            return new WireServerException(message, exception);
+        }
+    }
+}
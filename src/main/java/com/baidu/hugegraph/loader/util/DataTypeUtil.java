@@ -58,23 +58,40 @@ public final class DataTypeUtil {
 
     public static Object convert(Object value, PropertyKey propertyKey,
                                  InputSource source) {
-        E.checkArgumentNotNull(value,
-                               "The value to be converted can't be null");
+        return converter(propertyKey, source).convert(value);
+    }
 
+    /**
+     * Resolve the cardinality, data type and date format of the property key
+     * once, the returned converter can be reused for all values of the key
+     */
+    public static Converter converter(PropertyKey propertyKey,
+                                      InputSource source) {
         String key = propertyKey.name();
         DataType dataType = propertyKey.dataType();
         Cardinality cardinality = propertyKey.cardinality();
+        Converter converter = singleConverter(key, dataType, source);
         switch (cardinality) {
             case SINGLE:
-                return parseSingleValue(key, value, dataType, source);
+                break;
             case SET:
             case LIST:
-                return parseMultiValues(key, value, dataType,
-                                        cardinality, source);
+                Converter elemConverter = converter;
+                converter = value -> {
+                    return parseMultiValues(key, value, dataType, cardinality,
+                                            source, elemConverter);
+                };
+                break;
             default:
                 throw new AssertionError(String.format(
                           "Unsupported cardinality: '%s'", cardinality));
         }
+        Converter valueConverter = converter;
+        return value -> {
+            E.checkArgumentNotNull(value,
+                                   "The value to be converted can't be null");
+            return valueConverter.convert(value);
+        };
     }
 
     @SuppressWarnings("unchecked")
@@ -94,8 +111,11 @@ public final class DataTypeUtil {
         if (rawValue instanceof Number) {
             return ((Number) rawValue).longValue();
         } else if (rawValue instanceof String) {
-            // trim() is a little time consuming
-            return parseLong(((String) rawValue).trim());
+            // Parse in the trimmed range, trim() is a little time consuming
+            String value = (String) rawValue;
+            int start = NumberUtil.trimStart(value, 0, value.length());
+            int end = NumberUtil.trimEnd(value, start, value.length());
+            return NumberUtil.parseLong(value, start, end);
         }
         throw new IllegalArgumentException(String.format(
                   "The value(key='%s') must can be casted to Long, " +
@@ -124,33 +144,65 @@ public final class DataTypeUtil {
                   key, rawValue, rawValue.getClass()));
     }
 
-    private static Object parseSingleValue(String key, Object rawValue,
-                                           DataType dataType,
-                                           InputSource source) {
-        // Trim space if raw value is string
-        Object value = rawValue;
-        if (rawValue instanceof String) {
-            value = ((String) rawValue).trim();
-        }
+    private static Converter singleConverter(String key, DataType dataType,
+                                             InputSource source) {
         if (dataType.isNumber()) {
-            return parseNumber(key, value, dataType);
+            NumberParser parser = numberParser(dataType);
+            Class<?> clazz = dataType.clazz();
+            return rawValue -> {
+                if (clazz.isInstance(rawValue)) {
+                    return rawValue;
+                }
+                // Parse the string in the trimmed range without copying
+                String value = rawValue.toString();
+                int start = NumberUtil.trimStart(value, 0, value.length());
+                int end = NumberUtil.trimEnd(value, start, value.length());
+                try {
+                    return parser.parse(value, start, end);
+                } catch (NumberFormatException e) {
+                    Object trimmed = trim(rawValue);
+                    throw new IllegalArgumentException(String.format(
+                              "Failed to convert value(key=%s) '%s'(%s) " +
+                              "to Number", key, trimmed, trimmed.getClass()),
+                              e);
+                }
+            };
         } else if (dataType.isBoolean()) {
-            return parseBoolean(key, value);
+            return rawValue -> parseBoolean(key, trim(rawValue));
         } else if (dataType.isDate()) {
-            E.checkState(source instanceof FileSource,
-                         "Only accept FileSource when convert String value " +
-                         "to Date, but got '%s'", source.getClass().getName());
+            if (!(source instanceof FileSource)) {
+                return rawValue -> {
+                    throw new IllegalStateException(String.format(
+                              "Only accept FileSource when convert String " +
+                              "value to Date, but got '%s'",
+                              source.getClass().getName()));
+                };
+            }
             String dateFormat = ((FileSource) source).dateFormat();
             String timeZone = ((FileSource) source).timeZone();
-            return parseDate(key, value, dateFormat, timeZone);
+            // The timestamp values don't need a date parser
+            DateParser parser = Constants.TIMESTAMP.equals(dateFormat) ?
+                                null : DateUtil.parser(dateFormat, timeZone);
+            return rawValue -> parseDate(key, trim(rawValue), parser);
         } else if (dataType.isUUID()) {
-            return parseUUID(key, value);
+            return rawValue -> parseUUID(key, trim(rawValue));
+        }
+        return rawValue -> {
+            Object value = trim(rawValue);
+            E.checkArgument(checkDataType(key, value, dataType),
+                            "The value(key='%s') '%s'(%s) is not match with " +
+                            "data type %s and can't convert to it",
+                            key, value, value.getClass(), dataType);
+            return value;
+        };
+    }
+
+    private static Object trim(Object rawValue) {
+        // Trim space if raw value is string
+        if (rawValue instanceof String) {
+            return ((String) rawValue).trim();
         }
-        E.checkArgument(checkDataType(key, value, dataType),
-                        "The value(key='%s') '%s'(%s) is not match with " +
-                        "data type %s and can't convert to it",
-                        key, value, value.getClass(), dataType);
-        return value;
+        return rawValue;
     }
 
     /**
@@ -161,7 +213,8 @@ public final class DataTypeUtil {
     private static Object parseMultiValues(String key, Object values,
                                            DataType dataType,
                                            Cardinality cardinality,
-                                           InputSource source) {
+                                           InputSource source,
+                                           Converter elemConverter) {
         // JSON file should not parse again
         if (values instanceof Collection &&
             checkCollectionDataType(key, (Collection<?>) values, dataType)) {
@@ -176,9 +229,9 @@ public final class DataTypeUtil {
         Collection<Object> results = cardinality == Cardinality.LIST ?
                                      InsertionOrderUtil.newList() :
                                      InsertionOrderUtil.newSet();
-        valueColl.forEach(value -> {
-            results.add(parseSingleValue(key, value, dataType, source));
-        });
+        for (Object value : valueColl) {
+            results.add(elemConverter.convert(value));
+        }
         E.checkArgument(checkCollectionDataType(key, results, dataType),
                         "Not all collection elems %s match with data type %s",
                         results, dataType);
@@ -216,23 +269,8 @@ public final class DataTypeUtil {
             return (Number) value;
         }
         try {
-            switch (dataType) {
-                case BYTE:
-                    return Byte.valueOf(value.toString());
-                case INT:
-                    return Integer.valueOf(value.toString());
-                case LONG:
-                    return parseLong(value.toString());
-                case FLOAT:
-                    return Float.valueOf(value.toString());
-                case DOUBLE:
-                    return Double.valueOf(value.toString());
-                default:
-                    throw new AssertionError(String.format(
-                              "Number type only contains Byte, Integer, " +
-                              "Long, Float, Double, but got %s",
-                              dataType.clazz()));
-            }
+            String strValue = value.toString();
+            return numberParser(dataType).parse(strValue, 0, strValue.length());
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException(String.format(
                       "Failed to convert value(key=%s) '%s'(%s) to Number",
@@ -240,23 +278,35 @@ public final class DataTypeUtil {
         }
     }
 
-    private static long parseLong(String rawValue) {
-        if (rawValue.startsWith("-")) {
-            return Long.parseLong(rawValue);
-        } else {
-            return Long.parseUnsignedLong(rawValue);
+    private static NumberParser numberParser(DataType dataType) {
+        switch (dataType) {
+            case BYTE:
+                return NumberUtil::parseByte;
+            case INT:
+                return NumberUtil::parseInt;
+            case LONG:
+                return NumberUtil::parseLong;
+            case FLOAT:
+                return NumberUtil::parseFloat;
+            case DOUBLE:
+                return NumberUtil::parseDouble;
+            default:
+                throw new AssertionError(String.format(
+                          "Number type only contains Byte, Integer, " +
+                          "Long, Float, Double, but got %s",
+                          dataType.clazz()));
         }
     }
 
     private static Date parseDate(String key, Object value,
-                                  String dateFormat, String timeZone) {
+                                  DateParser parser) {
         if (value instanceof Date) {
             return (Date) value;
         }
         if (value instanceof Number) {
             return new Date(((Number) value).longValue());
         } else if (value instanceof String) {
-            if (Constants.TIMESTAMP.equals(dateFormat)) {
+            if (parser == null) {
                 try {
                     long timestamp = Long.parseLong((String) value);
                     return new Date(timestamp);
@@ -265,7 +315,7 @@ public final class DataTypeUtil {
                               "Invalid timestamp value '%s'", value));
                 }
             } else {
-                return DateUtil.parse((String) value, dateFormat, timeZone);
+                return parser.parse((String) value);
             }
         }
         throw new IllegalArgumentException(String.format(
@@ -334,4 +384,23 @@ public final class DataTypeUtil {
         }
         return true;
     }
+
+    /**
+     * The converter of a property key, which converts the raw value to the
+     * value of the data type and cardinality of the property key
+     */
+    @FunctionalInterface
+    public interface Converter {
+
+        Object convert(Object rawValue);
+    }
+
+    /**
+     * Parse the number in range [start, end) of the char sequence
+     */
+    @FunctionalInterface
+    private interface NumberParser {
+
+        Number parse(CharSequence value, int start, int end);
+    }
 }
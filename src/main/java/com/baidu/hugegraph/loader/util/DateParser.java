@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The immutable parser of a (date format, time zone) pair, which can be
+ * shared by threads. The common layouts are parsed by hand, the other
+ * compatible patterns are parsed by DateTimeFormatter, and the values they
+ * can't parse exactly fall back to SimpleDateFormat to keep its lenient
+ * behavior. The recently parsed values are memorized per thread, since the
+ * same dates are often repeated (like daily partitions).
+ */
+public final class DateParser {
+
+    private static final int MEMO_CAPACITY = 256;
+    // The java.time uses proleptic gregorian calendar but Date doesn't
+    private static final int MIN_GREGORIAN_YEAR = 1583;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private final String dateFormat;
+    private final String timeZone;
+    private final ZoneId zone;
+    // The offset of zone if it's fixed, otherwise null
+    private final ZoneOffset fixedOffset;
+    private final Layout layout;
+    // The formatter of compatible pattern, otherwise null
+    private final DateTimeFormatter formatter;
+    private final boolean hasTime;
+    private final ThreadLocal<Map<String, Long>> memo;
+
+    public DateParser(String dateFormat, String timeZone) {
+        this.dateFormat = dateFormat;
+        this.timeZone = timeZone;
+        // Resolve the zone in the same way as SimpleDateFormat
+        this.zone = TimeZone.getTimeZone(timeZone).toZoneId();
+        ZoneRules rules = this.zone.getRules();
+        this.fixedOffset = rules.isFixedOffset() ?
+                           rules.getOffset(Instant.EPOCH) : null;
+        this.layout = Layout.of(dateFormat);
+        this.formatter = compatibleFormatter(dateFormat);
+        this.hasTime = dateFormat.matches(".*[HmsS].*");
+        this.memo = ThreadLocal.withInitial(() -> {
+            return new LinkedHashMap<String, Long>(16, 0.75F, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                          Map.Entry<String, Long> eldest) {
+                    return this.size() > MEMO_CAPACITY;
+                }
+            };
+        });
+    }
+
+    public String dateFormat() {
+        return this.dateFormat;
+    }
+
+    public String timeZone() {
+        return this.timeZone;
+    }
+
+    public Date parse(String source) {
+        Map<String, Long> memo = this.memo.get();
+        Long time = memo.get(source);
+        if (time == null) {
+            time = this.parseTime(source);
+            memo.put(source, time);
+        }
+        // Date is mutable, so create a new one every time
+        return new Date(time);
+    }
+
+    private long parseTime(String source) {
+        long time = INVALID;
+        if (this.layout != null) {
+            time = this.layout.parse(this, source);
+        }
+        if (time == INVALID && this.formatter != null) {
+            time = this.parseByFormatter(source);
+        }
+        if (time == INVALID) {
+            Date date = DateUtil.parseByDateFormat(source, this.dateFormat,
+                                                   this.timeZone);
+            time = date.getTime();
+        }
+        return time;
+    }
+
+    private long parseByFormatter(String source) {
+        TemporalAccessor temporal;
+        try {
+            temporal = this.formatter.parse(source);
+        } catch (DateTimeParseException e) {
+            return INVALID;
+        }
+        LocalDate date = temporal.query(TemporalQueries.localDate());
+        LocalTime time = temporal.query(TemporalQueries.localTime());
+        if (date == null || (time == null && this.hasTime)) {
+            return INVALID;
+        }
+        if (time == null) {
+            time = LocalTime.MIDNIGHT;
+        }
+        if (date.getYear() < MIN_GREGORIAN_YEAR) {
+            return INVALID;
+        }
+        return this.toEpochMilli(LocalDateTime.of(date, time));
+    }
+
+    private long toEpochMilli(LocalDateTime dateTime) {
+        if (this.fixedOffset != null) {
+            return dateTime.toInstant(this.fixedOffset).toEpochMilli();
+        }
+        // Prefer the standard time in overlaps like GregorianCalendar
+        return ZonedDateTime.ofLocal(dateTime, this.zone, null)
+                            .withLaterOffsetAtOverlap()
+                            .toInstant().toEpochMilli();
+    }
+
+    /**
+     * The DateTimeFormatter is used only if the letters of pattern are
+     * interpreted in the same way as SimpleDateFormat, return null if not
+     */
+    private static DateTimeFormatter compatibleFormatter(String pattern) {
+        for (int i = 0; i < pattern.length();) {
+            char c = pattern.charAt(i);
+            int end = i;
+            while (end < pattern.length() && pattern.charAt(end) == c) {
+                end++;
+            }
+            int count = end - i;
+            i = end;
+            if (!Character.isLetter(c)) {
+                if (c == '\'') {
+                    return null;
+                }
+                continue;
+            }
+            switch (c) {
+                case 'y':
+                    // The 2-digit year is resolved differently
+                    if (count != 4) {
+                        return null;
+                    }
+                    break;
+                case 'S':
+                    // The 'S' means milliseconds rather than fraction
+                    if (count != 3) {
+                        return null;
+                    }
+                    break;
+                case 'M':
+                case 'd':
+                case 'H':
+                case 'm':
+                case 's':
+                    if (count > 2) {
+                        return null;
+                    }
+                    break;
+                default:
+                    return null;
+            }
+        }
+        try {
+            return new DateTimeFormatterBuilder()
+                       .appendPattern(pattern)
+                       .parseDefaulting(ChronoField.ERA, 1L)
+                       .toFormatter()
+                       .withResolverStyle(ResolverStyle.STRICT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The common layouts parsed by hand
+     */
+    private enum Layout {
+
+        DATE("yyyy-MM-dd"),
+
+        DATE_TIME("yyyy-MM-dd HH:mm:ss");
+
+        private final String pattern;
+
+        Layout(String pattern) {
+            this.pattern = pattern;
+        }
+
+        public static Layout of(String pattern) {
+            for (Layout layout : Layout.values()) {
+                if (layout.pattern.equals(pattern)) {
+                    return layout;
+                }
+            }
+            return null;
+        }
+
+        public long parse(DateParser parser, String source) {
+            if (source.length() != this.pattern.length()) {
+                return INVALID;
+            }
+            int year = digits(source, 0, 4);
+            int month = digits(source, 5, 7);
+            int day = digits(source, 8, 10);
+            if (source.charAt(4) != '-' || source.charAt(7) != '-' ||
+                year < MIN_GREGORIAN_YEAR || month < 1 || month > 12 ||
+                day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+                return INVALID;
+            }
+            int hour = 0;
+            int minute = 0;
+            int second = 0;
+            if (this == DATE_TIME) {
+                hour = digits(source, 11, 13);
+                minute = digits(source, 14, 16);
+                second = digits(source, 17, 19);
+                if (source.charAt(10) != ' ' || source.charAt(13) != ':' ||
+                    source.charAt(16) != ':' || hour < 0 || hour > 23 ||
+                    minute < 0 || minute > 59 || second < 0 || second > 59) {
+                    return INVALID;
+                }
+            }
+            return parser.toEpochMilli(LocalDateTime.of(year, month, day,
+                                                        hour, minute, second));
+        }
+
+        /**
+         * Parse the digits in [from, to), return -1 if any isn't digit
+         */
+        private static int digits(String source, int from, int to) {
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = source.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+    }
+}
@@ -31,12 +31,35 @@ public final class DateUtil {
 
     private static final Map<String, SafeDateFormat> DATE_FORMATS =
                                                      new ConcurrentHashMap<>();
+    private static final Map<String, DateParser> DATE_PARSERS =
+                                                 new ConcurrentHashMap<>();
 
     public static Date parse(String source, String df) {
         return parse(source, df, Constants.TIME_ZONE);
     }
 
     public static Date parse(String source, String df, String timeZone) {
+        return parser(df, timeZone).parse(source);
+    }
+
+    /**
+     * Get the cached parser of the date format with specified timezone
+     */
+    public static DateParser parser(String df, String timeZone) {
+        // The time zone id doesn't contain '|'
+        String key = timeZone + "|" + df;
+        DateParser parser = DATE_PARSERS.get(key);
+        if (parser == null) {
+            parser = new DateParser(df, timeZone);
+            DateParser previous = DATE_PARSERS.putIfAbsent(key, parser);
+            if (previous != null) {
+                parser = previous;
+            }
+        }
+        return parser;
+    }
+
+    static Date parseByDateFormat(String source, String df, String timeZone) {
         SafeDateFormat dateFormat = getDateFormat(df);
         // parse date with specified timezone
         dateFormat.setTimeZone(timeZone);
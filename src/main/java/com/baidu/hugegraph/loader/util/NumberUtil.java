@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.util;
+
+/**
+ * Parse numbers from the range of a char sequence without trimming or
+ * copying it. The plain ascii numbers are parsed in place, the others
+ * (like overflowed, unicode digits, hex or "NaN") fall back to the parsers
+ * of JDK, so the results and the errors are the same as JDK.
+ */
+public final class NumberUtil {
+
+    // The max long value which can be multiplied by 10 without overflow
+    private static final long MAX_LONG_DIV10 = Long.MAX_VALUE / 10L;
+    // The max mantissa represented exactly by double/float
+    private static final long MAX_DOUBLE_MANTISSA = 1L << 53;
+    private static final long MAX_FLOAT_MANTISSA = 1L << 24;
+    private static final double[] DOUBLE_POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POWERS = {
+            1e0F, 1e1F, 1e2F, 1e3F, 1e4F, 1e5F, 1e6F, 1e7F, 1e8F, 1e9F, 1e10F
+    };
+    // The max significant digits of mantissa accumulated without overflow
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * Return the start of the range without the leading whitespaces, the
+     * same as String.trim()
+     */
+    public static int trimStart(CharSequence cs, int start, int end) {
+        while (start < end && cs.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Return the end of the range without the trailing whitespaces, the
+     * same as String.trim()
+     */
+    public static int trimEnd(CharSequence cs, int start, int end) {
+        while (end > start && cs.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Parse the long value like Long.parseLong(), but the value not
+     * starting with '-' is parsed as unsigned long
+     */
+    public static long parseLong(CharSequence cs, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            char c = cs.charAt(i);
+            if (c == '-') {
+                negative = true;
+                i++;
+            } else if (c == '+') {
+                i++;
+            }
+        }
+        if (i == end) {
+            return parseLongByJdk(cs, start, end, negative);
+        }
+        // Accumulate negatively to cover Long.MIN_VALUE
+        long value = 0L;
+        for (; i < end; i++) {
+            int digit = cs.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value < -MAX_LONG_DIV10) {
+                return parseLongByJdk(cs, start, end, negative);
+            }
+            value = value * 10L - digit;
+            if (value > 0L) {
+                // Overflowed
+                return parseLongByJdk(cs, start, end, negative);
+            }
+        }
+        if (negative) {
+            return value;
+        }
+        if (value == Long.MIN_VALUE) {
+            return parseLongByJdk(cs, start, end, false);
+        }
+        return -value;
+    }
+
+    public static int parseInt(CharSequence cs, int start, int end) {
+        long value = parseSmallLong(cs, start, end);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Integer.parseInt(substring(cs, start, end));
+        }
+        return (int) value;
+    }
+
+    public static byte parseByte(CharSequence cs, int start, int end) {
+        long value = parseSmallLong(cs, start, end);
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            return Byte.parseByte(substring(cs, start, end));
+        }
+        return (byte) value;
+    }
+
+    public static double parseDouble(CharSequence cs, int start, int end) {
+        double value = parseDecimal(cs, start, end, false);
+        if (Double.isNaN(value)) {
+            return Double.parseDouble(substring(cs, start, end));
+        }
+        return value;
+    }
+
+    public static float parseFloat(CharSequence cs, int start, int end) {
+        double value = parseDecimal(cs, start, end, true);
+        if (Double.isNaN(value)) {
+            return Float.parseFloat(substring(cs, start, end));
+        }
+        return (float) value;
+    }
+
+    /**
+     * Parse the value which is expected in int range, the out of range
+     * value is returned as is and should be checked by the caller
+     */
+    private static long parseSmallLong(CharSequence cs, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            char c = cs.charAt(i);
+            if (c == '-') {
+                negative = true;
+                i++;
+            } else if (c == '+') {
+                i++;
+            }
+        }
+        // More than 10 digits may be out of int range
+        if (i == end || end - i > 10) {
+            return Long.MAX_VALUE;
+        }
+        long value = 0L;
+        for (; i < end; i++) {
+            int digit = cs.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MAX_VALUE;
+            }
+            value = value * 10L + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static long parseLongByJdk(CharSequence cs, int start, int end,
+                                       boolean negative) {
+        String value = substring(cs, start, end);
+        if (negative) {
+            return Long.parseLong(value);
+        } else {
+            return Long.parseUnsignedLong(value);
+        }
+    }
+
+    private static String substring(CharSequence cs, int start, int end) {
+        return cs.subSequence(start, end).toString();
+    }
+
+    /**
+     * Parse the plain decimal like "-12.34e5" which can be computed exactly
+     * by a multiplication or division of mantissa and power of ten, return
+     * NaN if not
+     */
+    private static double parseDecimal(CharSequence cs, int start, int end,
+                                       boolean isFloat) {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            char c = cs.charAt(i);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                i++;
+            }
+        }
+        long mantissa = 0L;
+        int digits = 0;
+        int fractions = 0;
+        boolean point = false;
+        boolean hasDigit = false;
+        for (; i < end; i++) {
+            char c = cs.charAt(i);
+            if (c >= '0' && c <= '9') {
+                // Count the significant digits, to avoid overflow
+                if (mantissa != 0L || c != '0') {
+                    if (++digits > MAX_DIGITS) {
+                        return Double.NaN;
+                    }
+                }
+                mantissa = mantissa * 10L + (c - '0');
+                hasDigit = true;
+                if (point) {
+                    fractions++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!hasDigit) {
+            return Double.NaN;
+        }
+        int exponent = 0;
+        if (i < end) {
+            char c = cs.charAt(i++);
+            if (c != 'e' && c != 'E') {
+                return Double.NaN;
+            }
+            boolean negativeExp = false;
+            if (i < end) {
+                c = cs.charAt(i);
+                if (c == '-' || c == '+') {
+                    negativeExp = c == '-';
+                    i++;
+                }
+            }
+            if (i == end || end - i > 3) {
+                return Double.NaN;
+            }
+            for (; i < end; i++) {
+                int digit = cs.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return Double.NaN;
+                }
+                exponent = exponent * 10 + digit;
+            }
+            if (negativeExp) {
+                exponent = -exponent;
+            }
+        }
+        exponent -= fractions;
+
+        double value;
+        if (isFloat) {
+            if (mantissa > MAX_FLOAT_MANTISSA ||
+                Math.abs(exponent) >= FLOAT_POWERS.length) {
+                return Double.NaN;
+            }
+            // The result is rounded correctly since both operands are exact
+            float floatValue = mantissa;
+            if (exponent >= 0) {
+                floatValue *= FLOAT_POWERS[exponent];
+            } else {
+                floatValue /= FLOAT_POWERS[-exponent];
+            }
+            value = floatValue;
+        } else {
+            if (mantissa > MAX_DOUBLE_MANTISSA ||
+                Math.abs(exponent) >= DOUBLE_POWERS.length) {
+                return Double.NaN;
+            }
+            // The result is rounded correctly since both operands are exact
+            value = mantissa;
+            if (exponent >= 0) {
+                value *= DOUBLE_POWERS[exponent];
+            } else {
+                value /= DOUBLE_POWERS[-exponent];
+            }
+        }
+        return negative ? -value : value;
+    }
+}
@@ -19,6 +19,8 @@
 
 package com.baidu.hugegraph.loader.util;
 
+import java.util.Set;
+
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
@@ -28,6 +30,8 @@ import com.baidu.hugegraph.loader.executor.LoadOptions;
 import com.baidu.hugegraph.loader.metrics.LoadReport;
 import com.baidu.hugegraph.loader.metrics.LoadSummary;
 import com.baidu.hugegraph.loader.progress.LoadProgress;
+import com.baidu.hugegraph.loader.task.BatchSizeController;
+import com.baidu.hugegraph.util.InsertionOrderUtil;
 import com.baidu.hugegraph.util.Log;
 import com.baidu.hugegraph.util.TimeUtil;
 
@@ -90,12 +94,28 @@ public final class Printer {
                 log("insert failure", labelMetrics.insertFailure());
             });
         });
+        log(EMPTY_LINE);
+        log("stage metrics");
+        summary.stageMetricsMap().forEach((name, metrics) -> {
+            log(String.format("stage '%s'", name));
+            log("threads", metrics.threads());
+            log("queue capacity", metrics.capacity());
+            log("tasks submitted", metrics.submitted());
+            log("max queue depth", metrics.maxDepth());
+            log("avg queue depth", metrics.avgDepth());
+            log("producer blocked time",
+                TimeUtil.readableTime(metrics.blockedTime()));
+        });
 
         // Print and log total vertices/edges metrics
         printAndLog(DIVIDE_LINE);
         printCountReport(LoadReport.collect(summary));
         printAndLog(DIVIDE_LINE);
         printMeterReport(summary);
+        if (context.batchSizeController().adaptive()) {
+            printAndLog(DIVIDE_LINE);
+            printBatchSizeReport(context);
+        }
     }
 
     private static void printCountReport(LoadReport report) {
@@ -130,6 +150,27 @@ public final class Printer {
         printAndLog("edge load rate(edges/s)", summary.loadRate(ElemType.EDGE));
     }
 
+    private static void printBatchSizeReport(LoadContext context) {
+        // The same label may be loaded from multiple input structs
+        Set<String> vertexLabels = InsertionOrderUtil.newSet();
+        Set<String> edgeLabels = InsertionOrderUtil.newSet();
+        context.summary().inputMetricsMap().values().forEach(metrics -> {
+            vertexLabels.addAll(metrics.vertexMetrics().keySet());
+            edgeLabels.addAll(metrics.edgeMetrics().keySet());
+        });
+
+        BatchSizeController controller = context.batchSizeController();
+        printAndLog("batch size metrics");
+        for (String label : vertexLabels) {
+            printAndLog(String.format("vertex '%s'", label),
+                        controller.batchSize(ElemType.VERTEX, label));
+        }
+        for (String label : edgeLabels) {
+            printAndLog(String.format("edge '%s'", label),
+                        controller.batchSize(ElemType.EDGE, label));
+        }
+    }
+
     public static void printError(String message, Object... args) {
         String formatMsg = String.format(message, args);
         LOG.error(formatMsg);
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.executor.LoadOptions;
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
+import com.baidu.hugegraph.loader.mapping.InputStruct;
+import com.baidu.hugegraph.loader.mapping.VertexMapping;
+import com.baidu.hugegraph.loader.task.BatchSizeController;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class BatchSizeControllerTest {
+
+    @Test
+    public void testNotAdaptive() {
+        LoadOptions options = options(100, 50, 200);
+        options.adaptiveBatchSize = false;
+        BatchSizeController controller = new BatchSizeController(options);
+        ElementMapping person = mapping("person");
+
+        controller.onSuccess(person, 100, 10L);
+        Assert.assertEquals(100, controller.batchSize(person));
+        controller.onFailure(person);
+        Assert.assertEquals(100, controller.batchSize(person));
+        Assert.assertEquals(100, controller.maxBatchSize(person));
+    }
+
+    @Test
+    public void testIncreaseOnlyOnFullBatch() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(100, 50, 200));
+        ElementMapping person = mapping("person");
+        Assert.assertEquals(100, controller.batchSize(person));
+
+        // Not a full batch, keep the batch size
+        controller.onSuccess(person, 60, 10L);
+        Assert.assertEquals(100, controller.batchSize(person));
+
+        // Full batch under the target, increase by a tenth of initial
+        controller.onSuccess(person, 100, 10L);
+        Assert.assertEquals(110, controller.batchSize(person));
+        controller.onSuccess(person, 110, 1000L);
+        Assert.assertEquals(120, controller.batchSize(person));
+    }
+
+    @Test
+    public void testDecreaseOverLatencyTarget() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(100, 50, 200));
+        ElementMapping person = mapping("person");
+
+        controller.onSuccess(person, 100, 1001L);
+        Assert.assertEquals(75, controller.batchSize(person));
+        // Decrease even if the batch is not full
+        controller.onSuccess(person, 10, 2000L);
+        Assert.assertEquals(56, controller.batchSize(person));
+    }
+
+    @Test
+    public void testDecreaseOnFailure() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(160, 50, 200));
+        ElementMapping person = mapping("person");
+
+        controller.onFailure(person);
+        Assert.assertEquals(80, controller.batchSize(person));
+    }
+
+    @Test
+    public void testBoundedByMinAndMax() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(100, 50, 200));
+        ElementMapping person = mapping("person");
+        Assert.assertEquals(200, controller.maxBatchSize(person));
+
+        for (int i = 0; i < 20; i++) {
+            controller.onSuccess(person, controller.batchSize(person), 1L);
+        }
+        Assert.assertEquals(200, controller.batchSize(person));
+
+        for (int i = 0; i < 5; i++) {
+            controller.onFailure(person);
+        }
+        Assert.assertEquals(50, controller.batchSize(person));
+
+        controller.onSuccess(person, 50, 5000L);
+        Assert.assertEquals(50, controller.batchSize(person));
+    }
+
+    @Test
+    public void testInitialBatchSizeBounded() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(500, 50, 200));
+        Assert.assertEquals(200, controller.batchSize(mapping("person")));
+
+        controller = new BatchSizeController(options(10, 50, 200));
+        Assert.assertEquals(50, controller.batchSize(mapping("person")));
+    }
+
+    @Test
+    public void testAdjustEachLabelSeparately() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(100, 50, 200));
+        ElementMapping person = mapping("person");
+        ElementMapping software = mapping("software");
+
+        controller.onFailure(person);
+        controller.onSuccess(software, 100, 10L);
+        Assert.assertEquals(50, controller.batchSize(person));
+        Assert.assertEquals(110, controller.batchSize(software));
+    }
+
+    @Test
+    public void testDefaultMaxAllowsIncrease() {
+        LoadOptions options = new LoadOptions();
+        options.adaptiveBatchSize = true;
+        BatchSizeController controller = new BatchSizeController(options);
+        ElementMapping person = mapping("person");
+        Assert.assertEquals(options.batchSize, controller.batchSize(person));
+
+        controller.onSuccess(person, options.batchSize, 1L);
+        Assert.assertTrue(controller.batchSize(person) > options.batchSize);
+    }
+
+    @Test
+    public void testLimitsOfMapping() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(100, 50, 200));
+        ElementMapping person = mapping("person");
+        person.minBatchSize(80);
+        person.maxBatchSize(120);
+        ElementMapping software = mapping("software");
+        software.maxBatchSize(1000);
+
+        Assert.assertEquals(120, controller.maxBatchSize(person));
+        Assert.assertEquals(1000, controller.maxBatchSize(software));
+        for (int i = 0; i < 20; i++) {
+            controller.onSuccess(person, controller.batchSize(person), 1L);
+            controller.onSuccess(software, controller.batchSize(software),
+                                 1L);
+        }
+        Assert.assertEquals(120, controller.batchSize(person));
+        Assert.assertEquals(300, controller.batchSize(software));
+
+        controller.onFailure(person);
+        Assert.assertEquals(80, controller.batchSize(person));
+        // The struct reads enough lines for the largest batch
+        InputStruct struct = new InputStruct(null, null);
+        struct.add(person);
+        struct.add(software);
+        Assert.assertEquals(1000, controller.maxBatchSize(struct));
+    }
+
+    @Test
+    public void testLowerMaxByServerLimit() {
+        BatchSizeController controller = new BatchSizeController(
+                                         options(100, 50, 200));
+        ElementMapping person = mapping("person");
+        for (int i = 0; i < 10; i++) {
+            controller.onSuccess(person, controller.batchSize(person), 1L);
+        }
+        Assert.assertEquals(200, controller.batchSize(person));
+
+        controller.onRejected(person, "The vertex id is too long");
+        Assert.assertEquals(200, controller.maxBatchSize(person));
+        controller.onRejected(person, "Too many vertices for one time " +
+                                      "post, the maximum number is '150'");
+        Assert.assertEquals(150, controller.maxBatchSize(person));
+        Assert.assertEquals(150, controller.batchSize(person));
+        controller.onSuccess(person, 150, 1L);
+        Assert.assertEquals(150, controller.batchSize(person));
+    }
+
+    private static LoadOptions options(int batchSize, int min, int max) {
+        LoadOptions options = new LoadOptions();
+        options.adaptiveBatchSize = true;
+        options.batchSize = batchSize;
+        options.minBatchSize = min;
+        options.maxBatchSize = max;
+        options.batchLatencyTarget = 1000;
+        return options;
+    }
+
+    private static ElementMapping mapping(String label) {
+        VertexMapping mapping = new VertexMapping("id", false);
+        mapping.label(label);
+        return mapping;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.parser.BytesSplitter;
+import com.baidu.hugegraph.loader.parser.CsvTokenizer;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class BytesSplitterTest {
+
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+    private static final String CHINESE = "\u4e2d\u6587";
+    private static final boolean[] ALL = new boolean[0];
+
+    @Test
+    public void testSplitText() {
+        BytesSplitter splitter = new BytesSplitter(bytes("\t"), false);
+        Assert.assertArrayEquals(new String[]{"1", "marko", "29"},
+                                 split(splitter, "1\tmarko\t29", ALL));
+        // The empty cells are kept
+        Assert.assertArrayEquals(new String[]{"", "1", "", ""},
+                                 split(splitter, "\t1\t\t", ALL));
+        Assert.assertArrayEquals(new String[]{""},
+                                 split(splitter, "", ALL));
+        Assert.assertArrayEquals(new String[]{"1", CHINESE},
+                                 split(splitter, "1\t" + CHINESE, ALL));
+    }
+
+    @Test
+    public void testSplitTextWithMultiBytesDelimiter() {
+        BytesSplitter splitter = new BytesSplitter(bytes("||"), false);
+        Assert.assertArrayEquals(new String[]{"1", "|marko", "", "29|"},
+                                 split(splitter, "1|||marko||||29|", ALL));
+
+        splitter = new BytesSplitter(bytes(CHINESE), false);
+        Assert.assertArrayEquals(new String[]{"1", "marko", ""},
+                                 split(splitter, "1" + CHINESE + "marko" +
+                                                 CHINESE, ALL));
+    }
+
+    @Test
+    public void testSplitOnlyDecodeUsedCells() {
+        BytesSplitter splitter = new BytesSplitter(bytes(","), true);
+        boolean[] decoded = {true, false, true};
+        Assert.assertArrayEquals(new String[]{"1", null, "29"},
+                                 split(splitter, "1,\"mar,ko\",29", decoded));
+        // The cells beyond the decoded flags are all decoded
+        Assert.assertArrayEquals(new String[]{"1", null, "29", "", "x"},
+                                 split(splitter, "1,marko,29,,x", decoded));
+
+        splitter = new BytesSplitter(bytes("\t"), false);
+        Assert.assertArrayEquals(new String[]{"1", null, "29"},
+                                 split(splitter, "1\tmarko\t29", decoded));
+    }
+
+    @Test
+    public void testSplitCsv() {
+        BytesSplitter splitter = new BytesSplitter(bytes(","), true);
+        Assert.assertArrayEquals(new String[]{"1", "mar,ko", "2\"9", ""},
+                                 split(splitter, "1,\"mar,ko\",\"2\"\"9\",",
+                                       ALL));
+        // The quotes out of quoted cells are just removed
+        Assert.assertArrayEquals(new String[]{"ab", CHINESE + ",x"},
+                                 split(splitter, "a\"\"b,\"" + CHINESE +
+                                                 ",x\"", ALL));
+    }
+
+    @Test
+    public void testSplitCsvSameAsTokenizer() {
+        BytesSplitter splitter = new BytesSplitter(bytes(","), true);
+        CsvTokenizer tokenizer = new CsvTokenizer(',');
+        char[] chars = {'a', 'b', ',', '"', ' ', '\u4e2d', '\n'};
+        Random random = new Random(1L);
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder record = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                record.append(chars[random.nextInt(chars.length)]);
+            }
+            String text = record.toString();
+            Assert.assertArrayEquals(tokenizer.split(text),
+                                     split(splitter, text, ALL));
+        }
+    }
+
+    @Test
+    public void testInQuote() {
+        byte[] bytes = bytes("1,\"mar\"\"ko,29");
+        Assert.assertTrue(BytesSplitter.inQuote(bytes, bytes.length));
+        Assert.assertFalse(BytesSplitter.inQuote(bytes, 7));
+        Assert.assertFalse(BytesSplitter.inQuote(bytes, 0));
+    }
+
+    private static String[] split(BytesSplitter splitter, String line,
+                                  boolean[] decoded) {
+        // The bytes after the length are ignored
+        byte[] bytes = Arrays.copyOf(bytes(line), line.length() * 3 + 8);
+        Arrays.fill(bytes, bytes(line).length, bytes.length, (byte) ',');
+        return splitter.split(bytes, bytes(line).length, UTF8, decoded);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(UTF8);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.constant.ElemType;
+import com.baidu.hugegraph.loader.constant.ExecutorType;
+import com.baidu.hugegraph.loader.constant.QueuePolicy;
+import com.baidu.hugegraph.loader.metrics.LoadSummary;
+import com.baidu.hugegraph.loader.metrics.StageMetrics;
+import com.baidu.hugegraph.loader.task.ConcurrencyTuner;
+import com.baidu.hugegraph.loader.task.StageExecutor;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class ConcurrencyTunerTest {
+
+    private LoadSummary summary;
+    private StageExecutor stage;
+    private ConcurrencyTuner tuner;
+
+    @Before
+    public void setup() {
+        this.summary = new LoadSummary();
+        StageMetrics metrics = new StageMetrics("batch-insert", 4, 10);
+        this.stage = new StageExecutor("batch-insert", "tuner-test-%d",
+                                       QueuePolicy.BLOCK, metrics, 8,
+                                       ExecutorType.PLATFORM,
+                                       new ArrayBlockingQueue<>(10));
+        this.tuner = new ConcurrencyTuner(this.stage, this.summary);
+    }
+
+    @After
+    public void teardown() {
+        this.tuner.shutdown();
+        this.stage.shutdown(1L);
+    }
+
+    @Test
+    public void testClimbAndTurn() {
+        // The throughput improves, keep climbing
+        this.interval(1000, 10L, 100);
+        Assert.assertEquals(5, this.stage.concurrency());
+        this.interval(1200, 12L, 120);
+        Assert.assertEquals(6, this.stage.concurrency());
+
+        // The throughput drops, turn back
+        this.interval(1000, 10L, 100);
+        Assert.assertEquals(5, this.stage.concurrency());
+
+        // The throughput stops improving, hold on
+        this.interval(1000, 10L, 100);
+        Assert.assertEquals(5, this.stage.concurrency());
+
+        // The throughput improves again, keep the turned direction
+        this.interval(1300, 13L, 130);
+        Assert.assertEquals(4, this.stage.concurrency());
+    }
+
+    @Test
+    public void testBackOffOnLatencyRise() {
+        this.interval(1000, 10L, 100);
+        Assert.assertEquals(5, this.stage.concurrency());
+
+        // The latency per element is 3 times of the baseline
+        this.interval(1000, 30L, 100);
+        Assert.assertEquals(4, this.stage.concurrency());
+        this.interval(1000, 30L, 100);
+        Assert.assertEquals(3, this.stage.concurrency());
+
+        // The baseline moves up to the lasting latency, stop backing off
+        for (int i = 0; i < 10; i++) {
+            this.interval(1000, 30L, 100);
+        }
+        Assert.assertEquals(3, this.stage.concurrency());
+    }
+
+    @Test
+    public void testNotBackOffOnBatchSizeGrowth() {
+        this.interval(1000, 10L, 50);
+        Assert.assertEquals(5, this.stage.concurrency());
+
+        // Larger batches take longer but cost less per element
+        for (int i = 0; i < 10; i++) {
+            this.interval(1000, 60L, 500);
+        }
+        Assert.assertEquals(5, this.stage.concurrency());
+    }
+
+    @Test
+    public void testIdle() {
+        this.tuner.tune();
+        Assert.assertEquals(4, this.stage.concurrency());
+    }
+
+    private void interval(int loaded, long latency, int count) {
+        this.summary.plusLoaded(ElemType.VERTEX, loaded);
+        this.tuner.record(latency, count);
+        this.tuner.tune();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.parser.CsvTokenizer;
+import com.baidu.hugegraph.loader.reader.file.CsvRecordBoundary;
+import com.baidu.hugegraph.loader.reader.file.LineRangeInputStream;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class CsvRecordBoundaryTest {
+
+    private File file;
+
+    @Before
+    public void init() throws IOException {
+        this.file = File.createTempFile("csv-boundary", ".csv");
+    }
+
+    @After
+    public void clear() {
+        FileUtils.deleteQuietly(this.file);
+    }
+
+    @Test
+    public void testAlignWithoutQuotes() throws IOException {
+        // Records start at 0, 11, 22
+        this.write("1,marko,29\n2,vadas,27\n3,josh,32");
+        long[] starts = CsvRecordBoundary.align(this.file,
+                                                new long[]{0L, 1L, 11L,
+                                                           12L, 30L});
+        Assert.assertArrayEquals(new long[]{0L, 11L, 11L, 22L, 31L},
+                                 starts);
+    }
+
+    @Test
+    public void testAlignWithQuotedLineBreaks() throws IOException {
+        // Records start at 0, 18, 34, the line breaks at 6 and 26 are quoted
+        this.write("1,\"mar\nko\",\"2\"\"9\"\n" +
+                   "2,\"va\r\ndas\",27\r\n" +
+                   "3,josh,32\n");
+        long[] starts = CsvRecordBoundary.align(this.file,
+                                                new long[]{3L, 7L, 8L, 20L,
+                                                           36L, 45L});
+        Assert.assertArrayEquals(new long[]{18L, 18L, 18L, 34L, 44L, 44L},
+                                 starts);
+    }
+
+    @Test
+    public void testAlignWithUnclosedQuote() throws IOException {
+        this.write("1,marko,29\n2,\"vadas,27\n3,josh,32\n4,peter,35\n");
+        long[] starts = CsvRecordBoundary.align(this.file,
+                                                new long[]{5L, 15L});
+        Assert.assertArrayEquals(new long[]{11L, 44L}, starts);
+    }
+
+    @Test
+    public void testSplitsReadEveryRecordOnce() throws IOException {
+        String content = "id,name\n" +
+                         "1,\"a\nb\"\n" +
+                         "2,\"c\"\"\nd\"\n" +
+                         "3,e\n" +
+                         "4,\"\n\n\"\n";
+        this.write(content);
+        long length = this.file.length();
+        for (long size = 1L; size <= length; size++) {
+            List<Long> points = new ArrayList<>();
+            for (long point = 0L; point < length; point += size) {
+                points.add(point);
+            }
+            points.add(length);
+            long[] bounds = new long[points.size()];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = points.get(i);
+            }
+            bounds = CsvRecordBoundary.align(this.file, bounds);
+
+            for (long bound : bounds) {
+                // Every split starts with a record out of quotes
+                String before = content.substring(0, (int) bound);
+                Assert.assertTrue(bound == 0L || bound == length ||
+                                  before.endsWith("\n"));
+                Assert.assertFalse(CsvTokenizer.inQuote(before, false));
+            }
+
+            StringBuilder read = new StringBuilder();
+            for (int i = 0; i < bounds.length - 1; i++) {
+                if (bounds[i] == bounds[i + 1]) {
+                    continue;
+                }
+                read.append(this.read(bounds[i], bounds[i + 1]));
+            }
+            Assert.assertEquals(content, read.toString());
+        }
+    }
+
+    private void write(String content) throws IOException {
+        FileUtils.write(this.file, content, StandardCharsets.UTF_8);
+    }
+
+    private String read(long start, long end) throws IOException {
+        try (LineRangeInputStream in = new LineRangeInputStream(this.file,
+                                                                start, end)) {
+            byte[] bytes = new byte[(int) this.file.length()];
+            int count = 0;
+            int read;
+            while ((read = in.read(bytes, count, bytes.length - count)) > 0) {
+                count += read;
+            }
+            return new String(bytes, 0, count, StandardCharsets.UTF_8);
+        }
+    }
+}
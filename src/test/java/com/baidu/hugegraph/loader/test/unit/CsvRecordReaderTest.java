@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.exception.ReadException;
+import com.baidu.hugegraph.loader.reader.file.CsvRecordReader;
+import com.baidu.hugegraph.loader.reader.file.LineReader;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class CsvRecordReaderTest {
+
+    @Test
+    public void testReadLines() throws IOException {
+        String content = "1,marko,29\n" +
+                         "2,\"vadas\",27\r\n" +
+                         "\n" +
+                         "3,josh,32";
+        Assert.assertEquals(ImmutableList.of("1,marko,29",
+                                             "2,\"vadas\",27",
+                                             "",
+                                             "3,josh,32"),
+                            readAll(content));
+    }
+
+    @Test
+    public void testReadQuotedLineBreaks() throws IOException {
+        String content = "1,\"mar\r\nko\",29\n" +
+                         "2,\"va\n\"\"das\n\",27\n" +
+                         "3,josh,32";
+        // The line breaks in quoted cells are kept as '\n'
+        Assert.assertEquals(ImmutableList.of("1,\"mar\nko\",29",
+                                             "2,\"va\n\"\"das\n\",27",
+                                             "3,josh,32"),
+                            readAll(content));
+    }
+
+    @Test
+    public void testReadUnclosedQuoteTillEnd() throws IOException {
+        String content = "1,marko,29\n" +
+                         "2,\"vadas,27\n" +
+                         "3,josh,32";
+        Assert.assertEquals(ImmutableList.of("1,marko,29",
+                                             "2,\"vadas,27\n3,josh,32"),
+                            readAll(content));
+    }
+
+    @Test
+    public void testReadStrayQuoteOverMaxChars() throws IOException {
+        String filler = StringUtils.repeat('x', 1000);
+        int lines = CsvRecordReader.MAX_RECORD_CHARS / filler.length() + 10;
+        StringBuilder content = new StringBuilder();
+        content.append("1,mar\"ko,29\n");
+        for (int i = 0; i < lines; i++) {
+            content.append(filler).append('\n');
+        }
+        content.append("3,josh,32\n");
+
+        LineReader reader = newReader(content.toString());
+        // Only the line with the stray quote fails
+        Assert.assertThrows(ReadException.class, reader::readLine, e -> {
+            Assert.assertEquals("1,mar\"ko,29",
+                                ((ReadException) e).line());
+        });
+        // The lines joined before giving up are read again one by one
+        for (int i = 0; i < lines; i++) {
+            Assert.assertEquals(filler, reader.readLine());
+        }
+        Assert.assertEquals("3,josh,32", reader.readLine());
+        Assert.assertNull(reader.readLine());
+    }
+
+    private static List<String> readAll(String content) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (LineReader reader = newReader(content)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static LineReader newReader(String content) {
+        BufferedReader reader = new BufferedReader(new StringReader(content));
+        return new CsvRecordReader(new LineReader() {
+            @Override
+            public String readLine() throws IOException {
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.parser.CsvTokenizer;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class CsvTokenizerTest {
+
+    @Test
+    public void testSplit() {
+        CsvTokenizer tokenizer = new CsvTokenizer(',');
+        Assert.assertArrayEquals(new String[]{"marko", "29", "Beijing"},
+                                 tokenizer.split("marko,29,Beijing"));
+        Assert.assertArrayEquals(new String[]{"", "29", ""},
+                                 tokenizer.split(",29,"));
+        Assert.assertArrayEquals(new String[]{""}, tokenizer.split(""));
+        // The cells array grows for long records
+        String[] cells = tokenizer.split("1,2,3,4,5,6,7,8,9,10,11,12,13,14," +
+                                         "15,16,17,18,19,20");
+        Assert.assertEquals(20, cells.length);
+        Assert.assertEquals("20", cells[19]);
+    }
+
+    @Test
+    public void testSplitQuoted() {
+        CsvTokenizer tokenizer = new CsvTokenizer(',');
+        Assert.assertArrayEquals(new String[]{"marko", "Beijing,China"},
+                                 tokenizer.split("marko,\"Beijing,China\""));
+        Assert.assertArrayEquals(new String[]{"say \"hi\"", ""},
+                                 tokenizer.split("\"say \"\"hi\"\"\",\"\""));
+        Assert.assertArrayEquals(new String[]{"line1\nline2", "x"},
+                                 tokenizer.split("\"line1\nline2\",x"));
+        // Unclosed quote takes the rest of the record
+        Assert.assertArrayEquals(new String[]{"a", "b,c"},
+                                 tokenizer.split("a,\"b,c"));
+    }
+
+    @Test
+    public void testInQuote() {
+        Assert.assertFalse(CsvTokenizer.inQuote("a,\"b\",c", false));
+        Assert.assertTrue(CsvTokenizer.inQuote("a,\"b", false));
+        Assert.assertFalse(CsvTokenizer.inQuote("c\",d", true));
+        Assert.assertTrue(CsvTokenizer.inQuote("say \"\"hi\"\"", true));
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.constant.Constants;
+import com.baidu.hugegraph.loader.source.file.FileFormat;
+import com.baidu.hugegraph.loader.source.file.FileSource;
+import com.baidu.hugegraph.loader.source.file.ListFormat;
+import com.baidu.hugegraph.loader.util.DataTypeUtil;
+import com.baidu.hugegraph.loader.util.DataTypeUtil.Converter;
+import com.baidu.hugegraph.loader.util.JsonUtil;
+import com.baidu.hugegraph.structure.constant.Cardinality;
+import com.baidu.hugegraph.structure.constant.DataType;
+import com.baidu.hugegraph.structure.schema.PropertyKey;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class DataTypeUtilTest {
+
+    private static final Object[] NUMBERS = new Object[]{
+            "0", "1", " 12 ", "\t-12\n", "+12", "-0", "00012", "-",
+            "+", "", " ", "abc", "1_000", "0x10", " 12",
+            "\u0661\u0662", "127", "128", "-128", "-129", "255", "32767",
+            "2147483647", "2147483648", "-2147483648", "-2147483649",
+            "9223372036854775807", "9223372036854775808",
+            "-9223372036854775808", "-9223372036854775809",
+            "18446744073709551615", "18446744073709551616",
+            "1.0", "1.5", "-1.5e3", "1.5E-3", ".5", "5.", "0.1", "1e10",
+            "123456789.123456789", "9007199254740993", "16777217",
+            "3.4028235e38", "3.5e38", "1.4e-45", "1e-46", "1e308", "1e309",
+            "4.9e-324", "NaN", "-Infinity", "1.5f", "2d",
+            (byte) 1, (short) 2, 12, -12L, 1.5F, 1.5D
+    };
+
+    @Test
+    public void testConvertNumbersAsBefore() {
+        FileSource source = source(Constants.DATE_FORMAT, Constants.TIME_ZONE);
+        DataType[] dataTypes = new DataType[]{
+                DataType.BYTE, DataType.INT, DataType.LONG,
+                DataType.FLOAT, DataType.DOUBLE
+        };
+        for (DataType dataType : dataTypes) {
+            PropertyKey key = propertyKey(dataType, Cardinality.SINGLE);
+            // The converter is resolved once and reused for all values
+            Converter converter = DataTypeUtil.converter(key, source);
+            for (Object value : NUMBERS) {
+                Object expected;
+                try {
+                    expected = parseNumberAsBefore(dataType, value);
+                } catch (NumberFormatException e) {
+                    expected = null;
+                }
+                String message = String.format("Convert '%s'(%s) to %s",
+                                               value, value.getClass(),
+                                               dataType);
+                Assert.assertEquals(message, expected,
+                                    convertOrNull(converter, value));
+                Assert.assertEquals(message, expected,
+                                    convertOrNull(key, source, value));
+            }
+        }
+    }
+
+    @Test
+    public void testConvertNumberRanges() {
+        FileSource source = source(Constants.DATE_FORMAT, Constants.TIME_ZONE);
+        PropertyKey key = propertyKey(DataType.BYTE, Cardinality.SINGLE);
+        Assert.assertEquals((byte) 127, DataTypeUtil.convert("127", key,
+                                                             source));
+        Assert.assertEquals((byte) -128, DataTypeUtil.convert("-128", key,
+                                                              source));
+        assertConvertFailed(key, source, "128");
+        assertConvertFailed(key, source, "-129");
+
+        key = propertyKey(DataType.INT, Cardinality.SINGLE);
+        Assert.assertEquals(Integer.MAX_VALUE,
+                            DataTypeUtil.convert("2147483647", key, source));
+        Assert.assertEquals(Integer.MIN_VALUE,
+                            DataTypeUtil.convert("-2147483648", key, source));
+        assertConvertFailed(key, source, "2147483648");
+        assertConvertFailed(key, source, "-2147483649");
+        assertConvertFailed(key, source, 1.5D);
+
+        key = propertyKey(DataType.FLOAT, Cardinality.SINGLE);
+        Assert.assertEquals(Float.MAX_VALUE,
+                            DataTypeUtil.convert("3.4028235e38", key,
+                                                 source));
+        Assert.assertEquals(Float.POSITIVE_INFINITY,
+                            DataTypeUtil.convert("3.5e38", key, source));
+        Assert.assertEquals(0.0F, DataTypeUtil.convert("1e-46", key, source));
+
+        key = propertyKey(DataType.DOUBLE, Cardinality.SINGLE);
+        Assert.assertEquals(Double.MIN_VALUE,
+                            DataTypeUtil.convert("4.9e-324", key, source));
+        Assert.assertEquals(Double.POSITIVE_INFINITY,
+                            DataTypeUtil.convert("1e309", key, source));
+    }
+
+    @Test
+    public void testConvertUnsignedLong() {
+        FileSource source = source(Constants.DATE_FORMAT, Constants.TIME_ZONE);
+        PropertyKey key = propertyKey(DataType.LONG, Cardinality.SINGLE);
+        Assert.assertEquals(Long.MAX_VALUE,
+                            DataTypeUtil.convert("9223372036854775807", key,
+                                                 source));
+        // The value not starting with '-' is parsed as unsigned long
+        Assert.assertEquals(Long.MIN_VALUE,
+                            DataTypeUtil.convert("9223372036854775808", key,
+                                                 source));
+        Assert.assertEquals(-1L,
+                            DataTypeUtil.convert("18446744073709551615", key,
+                                                 source));
+        Assert.assertEquals(-1L, DataTypeUtil.convert(" -1 ", key, source));
+        Assert.assertEquals(Long.MIN_VALUE,
+                            DataTypeUtil.convert("-9223372036854775808", key,
+                                                 source));
+        assertConvertFailed(key, source, "18446744073709551616");
+        assertConvertFailed(key, source, "-9223372036854775809");
+    }
+
+    @Test
+    public void testConvertBoolean() {
+        FileSource source = source(Constants.DATE_FORMAT, Constants.TIME_ZONE);
+        PropertyKey key = propertyKey(DataType.BOOLEAN, Cardinality.SINGLE);
+        Assert.assertEquals(true, DataTypeUtil.convert(" TRUE ", key, source));
+        Assert.assertEquals(true, DataTypeUtil.convert("y", key, source));
+        Assert.assertEquals(false, DataTypeUtil.convert("0", key, source));
+        Assert.assertEquals(false, DataTypeUtil.convert("No", key, source));
+        Assert.assertEquals(false, DataTypeUtil.convert(false, key, source));
+        assertConvertFailed(key, source, "maybe");
+        assertConvertFailed(key, source, 1);
+    }
+
+    @Test
+    public void testConvertDateWithFormatAndTimeZone() throws ParseException {
+        String[] timeZones = {"GMT+8", "UTC", "America/Los_Angeles"};
+        String[][] cases = {
+                {"yyyy-MM-dd HH:mm:ss", "2020-01-02 03:04:05",
+                 " 2021-03-14 02:30:00 ", "2020-02-30 10:00:00"},
+                {"yyyy-MM-dd", "2020-02-29", "2019-02-29"},
+                {"yyyyMMdd HH:mm", "20200102 03:04"},
+                {"yyyy/MM/dd HH:mm:ss.SSS", "2020/01/02 03:04:05.123"}
+        };
+        for (String timeZone : timeZones) {
+            for (String[] dates : cases) {
+                String df = dates[0];
+                FileSource source = source(df, timeZone);
+                PropertyKey key = propertyKey(DataType.DATE,
+                                              Cardinality.SINGLE);
+                SimpleDateFormat expected = new SimpleDateFormat(df);
+                expected.setTimeZone(TimeZone.getTimeZone(timeZone));
+                for (int i = 1; i < dates.length; i++) {
+                    Assert.assertEquals(expected.parse(dates[i].trim()),
+                                        DataTypeUtil.convert(dates[i], key,
+                                                             source));
+                }
+                // The numbers and dates are not parsed by format
+                Assert.assertEquals(new Date(1500000000000L),
+                                    DataTypeUtil.convert(1500000000000L, key,
+                                                         source));
+                Date date = new Date(1500000000000L);
+                Assert.assertSame(date, DataTypeUtil.convert(date, key,
+                                                             source));
+            }
+        }
+    }
+
+    @Test
+    public void testConvertTimestamp() {
+        FileSource source = source(Constants.TIMESTAMP, Constants.TIME_ZONE);
+        PropertyKey key = propertyKey(DataType.DATE, Cardinality.SINGLE);
+        Assert.assertEquals(new Date(1500000000000L),
+                            DataTypeUtil.convert(" 1500000000000 ", key,
+                                                 source));
+        Assert.assertEquals(new Date(-1L),
+                            DataTypeUtil.convert("-1", key, source));
+        assertConvertFailed(key, source, "2020-01-02 03:04:05");
+    }
+
+    @Test
+    public void testConvertList() throws ParseException {
+        FileSource source = source("yyyy-MM-dd", "UTC");
+        source.listFormat(new ListFormat("[", "]", ","));
+
+        PropertyKey key = propertyKey(DataType.INT, Cardinality.LIST);
+        Assert.assertEquals(ImmutableList.of(1, 2, 2, 3),
+                            DataTypeUtil.convert("[1, 2,2 ,3]", key, source));
+        // The empty elems are ignored by default
+        Assert.assertEquals(ImmutableList.of(1, 2),
+                            DataTypeUtil.convert("[1,,2,]", key, source));
+        Assert.assertEquals(ImmutableList.of(),
+                            DataTypeUtil.convert("[]", key, source));
+        Assert.assertEquals(ImmutableList.of(),
+                            DataTypeUtil.convert("", key, source));
+        // The collection of parsed values is kept
+        List<Integer> values = ImmutableList.of(3, 1);
+        Assert.assertSame(values, DataTypeUtil.convert(values, key, source));
+        assertConvertFailed(key, source, "[1,x]");
+        assertConvertFailed(key, source, "[1,2147483648]");
+        assertConvertFailed(key, source, "1,2]");
+        assertConvertFailed(key, source, "[1,2");
+
+        key = propertyKey(DataType.LONG, Cardinality.LIST);
+        Assert.assertEquals(ImmutableList.of(-1L, 1L),
+                            DataTypeUtil.convert("[18446744073709551615,1]",
+                                                 key, source));
+
+        key = propertyKey(DataType.TEXT, Cardinality.LIST);
+        Assert.assertEquals(ImmutableList.of("a", "b", "a"),
+                            DataTypeUtil.convert("[a, b ,a]", key, source));
+
+        key = propertyKey(DataType.DATE, Cardinality.LIST);
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Assert.assertEquals(ImmutableList.of(df.parse("2020-01-03"),
+                                             df.parse("2020-01-02")),
+                            DataTypeUtil.convert("[2020-01-03,2020-01-02]",
+                                                 key, source));
+    }
+
+    @Test
+    public void testConvertSet() {
+        FileSource source = source(Constants.DATE_FORMAT, Constants.TIME_ZONE);
+        source.listFormat(new ListFormat("", "", "|"));
+
+        PropertyKey key = propertyKey(DataType.INT, Cardinality.SET);
+        Object result = DataTypeUtil.convert("3|1| 3|2", key, source);
+        Assert.assertTrue(result instanceof Set);
+        Assert.assertEquals(ImmutableSet.of(3, 1, 2), result);
+        // The insertion order is kept
+        Assert.assertEquals(ImmutableList.of(3, 1, 2),
+                            ImmutableList.copyOf((Collection<?>) result));
+
+        key = propertyKey(DataType.BOOLEAN, Cardinality.SET);
+        Assert.assertEquals(ImmutableSet.of(true, false),
+                            DataTypeUtil.convert("yes|1|no", key, source));
+        assertConvertFailed(key, source, "yes|maybe");
+
+        key = propertyKey(DataType.DOUBLE, Cardinality.SET);
+        Assert.assertEquals(ImmutableSet.of(1.5D, 2.0D),
+                            DataTypeUtil.convert("1.5|2|2.0|1.50", key,
+                                                 source));
+    }
+
+    /**
+     * The number parsing of DataTypeUtil.convert() before the converters
+     * are resolved once per property key
+     */
+    private static Object parseNumberAsBefore(DataType dataType,
+                                              Object rawValue) {
+        Object value = rawValue;
+        if (rawValue instanceof String) {
+            value = ((String) rawValue).trim();
+        }
+        if (dataType.clazz().isInstance(value)) {
+            return value;
+        }
+        String strValue = value.toString();
+        switch (dataType) {
+            case BYTE:
+                return Byte.valueOf(strValue);
+            case INT:
+                return Integer.valueOf(strValue);
+            case LONG:
+                if (strValue.startsWith("-")) {
+                    return Long.parseLong(strValue);
+                } else {
+                    return Long.parseUnsignedLong(strValue);
+                }
+            case FLOAT:
+                return Float.valueOf(strValue);
+            case DOUBLE:
+                return Double.valueOf(strValue);
+            default:
+                throw new AssertionError(dataType);
+        }
+    }
+
+    private static Object convertOrNull(Converter converter, Object value) {
+        try {
+            return converter.convert(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Object convertOrNull(PropertyKey key, FileSource source,
+                                        Object value) {
+        try {
+            return DataTypeUtil.convert(value, key, source);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void assertConvertFailed(PropertyKey key,
+                                            FileSource source, Object value) {
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            DataTypeUtil.convert(value, key, source);
+        });
+    }
+
+    private static PropertyKey propertyKey(DataType dataType,
+                                           Cardinality cardinality) {
+        String json = String.format("{\"name\": \"key\", " +
+                                    "\"data_type\": \"%s\", " +
+                                    "\"cardinality\": \"%s\"}",
+                                    dataType, cardinality);
+        return JsonUtil.fromJson(json, PropertyKey.class);
+    }
+
+    private static FileSource source(String dateFormat, String timeZone) {
+        return new FileSource(null, null, FileFormat.CSV, null, dateFormat,
+                              timeZone, null, null, null);
+    }
+}
@@ -19,6 +19,11 @@
 
 package com.baidu.hugegraph.loader.test.unit;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
 import org.junit.Test;
 
 import com.baidu.hugegraph.loader.util.DateUtil;
@@ -72,4 +77,35 @@ public class DateUtilTest {
         // minutes 00-59 only
         Assert.assertFalse(DateUtil.checkTimeZone("GMT+13:60"));
     }
+
+    @Test
+    public void testParse() throws ParseException {
+        String[] timeZones = {"GMT+8", "UTC", "America/Los_Angeles"};
+        String[][] cases = {
+                {"yyyy-MM-dd HH:mm:ss", "2020-01-02 03:04:05",
+                 "2021-03-14 02:30:00", "2021-11-07 01:30:00",
+                 "2020-02-30 10:00:00", "2020-1-2 3:4:5",
+                 "2020-01-02 03:04:05.123", "1500-01-01 00:00:00"},
+                {"yyyy-MM-dd", "2020-02-29", "2019-02-29", "2020-13-01"},
+                {"yyyyMMdd", "20200102", "20201231"},
+                {"yyyy/MM/dd HH:mm:ss.SSS", "2020/01/02 03:04:05.123"},
+                {"yyyy-MM-dd'T'HH:mm:ss", "2020-01-02T03:04:05"},
+                {"yy-MM-dd", "99-01-02"}
+        };
+        for (String timeZone : timeZones) {
+            for (String[] dates : cases) {
+                String df = dates[0];
+                SimpleDateFormat expected = new SimpleDateFormat(df);
+                expected.setTimeZone(TimeZone.getTimeZone(timeZone));
+                for (int i = 1; i < dates.length; i++) {
+                    Date date = expected.parse(dates[i]);
+                    Assert.assertEquals(date,
+                                        DateUtil.parse(dates[i], df, timeZone));
+                    // Parse again to hit the memorized value
+                    Assert.assertEquals(date,
+                                        DateUtil.parse(dates[i], df, timeZone));
+                }
+            }
+        }
+    }
 }
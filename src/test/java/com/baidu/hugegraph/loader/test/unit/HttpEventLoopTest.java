@@ -0,0 +1,359 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.task.HttpEventLoop;
+import com.baidu.hugegraph.loader.task.HttpEventLoop.Response;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpEventLoopTest {
+
+    private static final String HOST = "127.0.0.1";
+    // In milliseconds
+    private static final int TIMEOUT = 10_000;
+    private static final Map<String, String> HEADERS = ImmutableMap.of(
+            "Content-Type", "application/json");
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private List<HttpEventLoop> loops;
+
+    @Before
+    public void init() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(HOST, 0), 0);
+        this.handlers = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.handlers);
+        this.server.start();
+        this.loops = new ArrayList<>();
+    }
+
+    @After
+    public void clear() {
+        for (HttpEventLoop loop : this.loops) {
+            loop.close();
+        }
+        this.server.stop(0);
+        this.handlers.shutdownNow();
+    }
+
+    @Test
+    public void testPostWithContentLength() throws Exception {
+        this.handle(exchange -> {
+            String type = exchange.getRequestHeaders()
+                                  .getFirst("Content-Type");
+            byte[] body = read(exchange.getRequestBody());
+            String echo = exchange.getRequestURI() + " " + type + " " +
+                          new String(body, StandardCharsets.UTF_8);
+            respond(exchange, 201, echo, false);
+        });
+        HttpEventLoop loop = this.newLoop(2, TIMEOUT);
+        Response response = loop.post("/path?check=true", HEADERS,
+                                      body("[1,2,3]")).get();
+        Assert.assertEquals(201, response.status());
+        Assert.assertEquals("/path?check=true application/json [1,2,3]",
+                            response.body());
+    }
+
+    @Test
+    public void testPostWithChunkedResponse() throws Exception {
+        String content = StringUtils.repeat("0123456789", 5000);
+        this.handle(exchange -> {
+            read(exchange.getRequestBody());
+            respond(exchange, 200, content, true);
+        });
+        HttpEventLoop loop = this.newLoop(2, TIMEOUT);
+        Response response = loop.post("/", HEADERS, body("[]")).get();
+        Assert.assertEquals(200, response.status());
+        Assert.assertEquals(content, response.body());
+    }
+
+    @Test
+    public void testPostWithErrorStatus() throws Exception {
+        String error = "{\"exception\": \"class java.lang." +
+                       "IllegalArgumentException\"}";
+        this.handle(exchange -> {
+            read(exchange.getRequestBody());
+            respond(exchange, 400, error, false);
+        });
+        HttpEventLoop loop = this.newLoop(2, TIMEOUT);
+        Response response = loop.post("/", HEADERS, body("[]")).get();
+        Assert.assertEquals(400, response.status());
+        Assert.assertEquals(error, response.body());
+    }
+
+    @Test
+    public void testPostMoreThanConnections() throws Exception {
+        AtomicInteger concurrency = new AtomicInteger();
+        AtomicInteger maxConcurrency = new AtomicInteger();
+        Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+        this.handle(exchange -> {
+            clients.add(exchange.getRemoteAddress());
+            int current = concurrency.incrementAndGet();
+            maxConcurrency.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(20L);
+            } catch (InterruptedException ignored) {
+                // Just respond
+            }
+            concurrency.decrementAndGet();
+            byte[] body = read(exchange.getRequestBody());
+            respond(exchange, 200, new String(body, StandardCharsets.UTF_8),
+                    false);
+        });
+        HttpEventLoop loop = this.newLoop(2, TIMEOUT);
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(loop.post("/", HEADERS, body("[" + i + "]")));
+        }
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("[" + i + "]", futures.get(i).get().body());
+        }
+        // The requests wait for the kept alive connections
+        Assert.assertEquals(2, maxConcurrency.get());
+        Assert.assertEquals(2, clients.size());
+    }
+
+    @Test
+    public void testReuseConnection() throws Exception {
+        Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+        this.handle(exchange -> {
+            clients.add(exchange.getRemoteAddress());
+            read(exchange.getRequestBody());
+            respond(exchange, 200, "ok", false);
+        });
+        HttpEventLoop loop = this.newLoop(4, TIMEOUT);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("ok", loop.post("/", HEADERS, body("[]"))
+                                          .get().body());
+        }
+        Assert.assertEquals(1, clients.size());
+    }
+
+    @Test
+    public void testPostTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        this.handle(exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                // Just respond
+            }
+            respond(exchange, 200, "late", false);
+        });
+        HttpEventLoop loop = this.newLoop(1, 200);
+        try {
+            Throwable e = failure(loop.post("/", HEADERS, body("[]")));
+            Assert.assertTrue(e instanceof SocketTimeoutException);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testPostToClosedPort() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        HttpEventLoop loop = new HttpEventLoop(HOST, port, 1, TIMEOUT,
+                                               "test-loop");
+        this.loops.add(loop);
+        Throwable e = failure(loop.post("/", HEADERS, body("[]")));
+        Assert.assertTrue(e instanceof IOException);
+        // The message is used to find the unacceptable failure
+        Assert.assertTrue(e.getMessage().contains("Connection refused"));
+    }
+
+    @Test
+    public void testResponseUntilClose() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            Thread thread = serve(socket, 1, "HTTP/1.0 200 OK\r\n\r\n" +
+                                             "until close");
+            HttpEventLoop loop = new HttpEventLoop(HOST,
+                                                   socket.getLocalPort(), 1,
+                                                   TIMEOUT, "test-loop");
+            this.loops.add(loop);
+            Response response = loop.post("/", HEADERS, body("[]")).get();
+            Assert.assertEquals(200, response.status());
+            Assert.assertEquals("until close", response.body());
+            thread.join(TIMEOUT);
+        }
+    }
+
+    @Test
+    public void testServerClosesIdleConnection() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            // Close every connection after responded without notice
+            Thread thread = serve(socket, 3, "HTTP/1.1 200 OK\r\n" +
+                                             "Content-Length: 2\r\n\r\nok");
+            HttpEventLoop loop = new HttpEventLoop(HOST,
+                                                   socket.getLocalPort(), 1,
+                                                   TIMEOUT, "test-loop");
+            this.loops.add(loop);
+            for (int i = 0; i < 3; i++) {
+                Response response = loop.post("/", HEADERS, body("[]"))
+                                        .get();
+                Assert.assertEquals("ok", response.body());
+            }
+            thread.join(TIMEOUT);
+            Assert.assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        this.handle(exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                // Just respond
+            }
+            respond(exchange, 200, "late", false);
+        });
+        HttpEventLoop loop = this.newLoop(1, TIMEOUT);
+        try {
+            CompletableFuture<Response> sent = loop.post("/", HEADERS,
+                                                         body("[1]"));
+            CompletableFuture<Response> waiting = loop.post("/", HEADERS,
+                                                            body("[2]"));
+            loop.close();
+            Assert.assertTrue(failure(sent) instanceof IOException);
+            Assert.assertTrue(failure(waiting) instanceof IOException);
+            CompletableFuture<Response> closed = loop.post("/", HEADERS,
+                                                           body("[3]"));
+            Assert.assertTrue(closed.isCompletedExceptionally());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private void handle(HttpHandler handler) {
+        this.server.createContext("/", handler);
+    }
+
+    private HttpEventLoop newLoop(int maxConnections, int timeout)
+                                  throws IOException {
+        int port = this.server.getAddress().getPort();
+        HttpEventLoop loop = new HttpEventLoop(HOST, port, maxConnections,
+                                               timeout, "test-loop");
+        this.loops.add(loop);
+        return loop;
+    }
+
+    private static ByteBuffer body(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Throwable failure(CompletableFuture<Response> future)
+                                     throws Exception {
+        try {
+            future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        Assert.fail("Expect the future completed exceptionally");
+        return null;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status,
+                                String content, boolean chunked)
+                                throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        // The response is chunked if the length is 0
+        exchange.sendResponseHeaders(status, chunked ? 0L : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Accept the connections in order, respond each one request and close
+     */
+    private static Thread serve(ServerSocket socket, int connections,
+                                String response) {
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < connections; i++) {
+                try (Socket client = socket.accept()) {
+                    InputStream in = client.getInputStream();
+                    // Read the request head and the body "[]"
+                    String request = "";
+                    while (!request.endsWith("\r\n\r\n[]")) {
+                        int b = in.read();
+                        if (b < 0) {
+                            break;
+                        }
+                        request += (char) b;
+                    }
+                    OutputStream out = client.getOutputStream();
+                    out.write(response.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.task.InsertScheduler;
+import com.baidu.hugegraph.loader.task.InsertScheduler.Priority;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class InsertSchedulerTest {
+
+    @Test
+    public void testPriority() {
+        List<String> executed = new ArrayList<>();
+        InsertScheduler scheduler = new InsertScheduler(10);
+        scheduler.offer(task(executed, Priority.EDGE, "s1", "e1"));
+        scheduler.offer(task(executed, Priority.VERTEX, "s1", "v1"));
+        scheduler.offer(task(executed, Priority.RETRY, "s1", "r1"));
+        scheduler.offer(task(executed, Priority.EDGE, "s1", "e2"));
+        scheduler.offer(task(executed, Priority.VERTEX, "s1", "v2"));
+
+        runAll(scheduler);
+        Assert.assertEquals(5, executed.size());
+        Assert.assertEquals("r1", executed.get(0));
+        Assert.assertEquals("v1", executed.get(1));
+        Assert.assertEquals("v2", executed.get(2));
+        Assert.assertEquals("e1", executed.get(3));
+        Assert.assertEquals("e2", executed.get(4));
+    }
+
+    @Test
+    public void testFairAcrossGroups() {
+        List<String> executed = new ArrayList<>();
+        InsertScheduler scheduler = new InsertScheduler(10);
+        scheduler.offer(task(executed, Priority.VERTEX, "s1", "a1"));
+        scheduler.offer(task(executed, Priority.VERTEX, "s1", "a2"));
+        scheduler.offer(task(executed, Priority.VERTEX, "s1", "a3"));
+        scheduler.offer(task(executed, Priority.VERTEX, "s2", "b1"));
+        scheduler.offer(task(executed, Priority.VERTEX, "s2", "b2"));
+
+        runAll(scheduler);
+        Assert.assertEquals(5, executed.size());
+        Assert.assertEquals("a1", executed.get(0));
+        Assert.assertEquals("b1", executed.get(1));
+        Assert.assertEquals("a2", executed.get(2));
+        Assert.assertEquals("b2", executed.get(3));
+        Assert.assertEquals("a3", executed.get(4));
+    }
+
+    @Test
+    public void testCapacity() throws InterruptedException {
+        List<String> executed = new ArrayList<>();
+        InsertScheduler scheduler = new InsertScheduler(2);
+        Assert.assertTrue(scheduler.offer(task(executed, Priority.EDGE,
+                                               "s1", "e1")));
+        Assert.assertTrue(scheduler.offer(task(executed, Priority.VERTEX,
+                                               "s1", "v1")));
+        Assert.assertEquals(0, scheduler.remainingCapacity());
+        Assert.assertFalse(scheduler.offer(task(executed, Priority.VERTEX,
+                                                "s1", "v2")));
+        Assert.assertFalse(scheduler.offer(task(executed, Priority.VERTEX,
+                                                "s1", "v2"),
+                                           10L, TimeUnit.MILLISECONDS));
+        // The retries are not limited by capacity
+        Assert.assertTrue(scheduler.offer(task(executed, Priority.RETRY,
+                                               "s1", "r1")));
+        Assert.assertEquals(3, scheduler.size());
+
+        runAll(scheduler);
+        Assert.assertEquals(3, executed.size());
+        Assert.assertEquals("r1", executed.get(0));
+        Assert.assertNull(scheduler.poll(10L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testUnrankedTask() {
+        List<String> executed = new ArrayList<>();
+        InsertScheduler scheduler = new InsertScheduler(10);
+        scheduler.offer(() -> executed.add("x1"));
+        scheduler.offer(task(executed, Priority.VERTEX, "s1", "v1"));
+
+        runAll(scheduler);
+        Assert.assertEquals(2, executed.size());
+        Assert.assertEquals("v1", executed.get(0));
+        Assert.assertEquals("x1", executed.get(1));
+    }
+
+    private static Runnable task(List<String> executed, Priority priority,
+                                 String group, String name) {
+        return InsertScheduler.ranked(priority, group,
+                                      () -> executed.add(name));
+    }
+
+    private static void runAll(InsertScheduler scheduler) {
+        Runnable task;
+        while ((task = scheduler.poll()) != null) {
+            task.run();
+        }
+    }
+}
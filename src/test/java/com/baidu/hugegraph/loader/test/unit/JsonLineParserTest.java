@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.exception.ReadException;
+import com.baidu.hugegraph.loader.parser.JsonLineParser;
+import com.baidu.hugegraph.loader.reader.line.Line;
+import com.baidu.hugegraph.loader.util.JsonUtil;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class JsonLineParserTest {
+
+    @Test
+    public void testParseWithSameKeysOrder() {
+        JsonLineParser parser = new JsonLineParser();
+        Line line1 = parser.parse(null, "{\"id\": 1, \"name\": \"marko\"}");
+        assertLine(line1, names("id", "name"), 1, "marko");
+
+        Line line2 = parser.parse(null, "{\"id\": 2, \"name\": \"vadas\"}");
+        assertLine(line2, names("id", "name"), 2, "vadas");
+        // The names are shared by the lines with the same keys order
+        Assert.assertSame(line1.names(), line2.names());
+        Assert.assertEquals("{\"id\": 2, \"name\": \"vadas\"}",
+                            line2.rawLine());
+    }
+
+    @Test
+    public void testParseWithChangedKeysOrder() {
+        JsonLineParser parser = new JsonLineParser();
+        assertLine(parser.parse(null, "{\"a\": 1, \"b\": 2}"),
+                   names("a", "b"), 1, 2);
+        assertLine(parser.parse(null, "{\"b\": 3, \"a\": 4}"),
+                   names("b", "a"), 3, 4);
+        assertLine(parser.parse(null, "{\"b\": 5, \"c\": 6, \"a\": 7}"),
+                   names("b", "c", "a"), 5, 6, 7);
+        // Missing a key in the middle
+        assertLine(parser.parse(null, "{\"b\": 8, \"a\": 9}"),
+                   names("b", "a"), 8, 9);
+    }
+
+    @Test
+    public void testParseWithShrunkKeys() {
+        JsonLineParser parser = new JsonLineParser();
+        assertLine(parser.parse(null, "{\"a\": 1, \"b\": 2, \"c\": 3}"),
+                   names("a", "b", "c"), 1, 2, 3);
+        assertLine(parser.parse(null, "{\"a\": 4, \"b\": 5}"),
+                   names("a", "b"), 4, 5);
+        assertLine(parser.parse(null, "{\"a\": 6}"), names("a"), 6);
+        assertLine(parser.parse(null, "{}"), names());
+        assertLine(parser.parse(null, "{\"a\": 7, \"b\": 8, \"c\": 9}"),
+                   names("a", "b", "c"), 7, 8, 9);
+    }
+
+    @Test
+    public void testParseWithDuplicateKeys() {
+        JsonLineParser parser = new JsonLineParser();
+        String json = "{\"a\": 1, \"b\": 2, \"a\": 3}";
+        // The later value overrides and the key keeps its first position
+        assertLine(parser.parse(null, json), names("a", "b"), 3, 2);
+        // Parse again with the learned keys order
+        assertLine(parser.parse(null, json), names("a", "b"), 3, 2);
+        assertSameAsMap(new JsonLineParser(), json);
+    }
+
+    @Test
+    public void testParseValueTypes() {
+        String json = "{\"int\": 1, \"negative\": -7, " +
+                      "\"long\": 12345678901, " +
+                      "\"bigint\": 123456789012345678901234567890, " +
+                      "\"float\": 1.5, \"exp\": 1e3, \"negfloat\": -0.25, " +
+                      "\"string\": \"x\\ty\\u0041\", \"true\": true, " +
+                      "\"false\": false, \"null\": null, " +
+                      "\"array\": [1, 2.5, \"x\", [], {}], " +
+                      "\"object\": {\"k\": 1, \"o\": {\"l\": [null]}}}";
+        JsonLineParser parser = new JsonLineParser();
+        Line line = parser.parse(null, json);
+        Object[] values = line.values();
+        Assert.assertEquals(Integer.class, values[0].getClass());
+        Assert.assertEquals(Integer.class, values[1].getClass());
+        Assert.assertEquals(Long.class, values[2].getClass());
+        Assert.assertEquals(BigInteger.class, values[3].getClass());
+        Assert.assertEquals(Double.class, values[4].getClass());
+        Assert.assertEquals(Double.class, values[5].getClass());
+        Assert.assertEquals(Double.class, values[6].getClass());
+        Assert.assertEquals("x\tyA", values[7]);
+
+        assertSameAsMap(new JsonLineParser(), json);
+        // Parse again with the learned keys order
+        assertSameAsMap(parser, json);
+    }
+
+    @Test
+    public void testParseInvalidLine() {
+        JsonLineParser parser = new JsonLineParser();
+        Assert.assertThrows(ReadException.class, () -> {
+            parser.parse(null, "[1, 2]");
+        });
+        Assert.assertThrows(ReadException.class, () -> {
+            parser.parse(null, "{\"id\": 1, \"name\": \"ma");
+        });
+        Assert.assertThrows(ReadException.class, () -> {
+            parser.parse(null, "{\"id\": }");
+        });
+        // The parser still works after the invalid lines
+        assertLine(parser.parse(null, "{\"id\": 1}"), names("id"), 1);
+    }
+
+    private static String[] names(String... names) {
+        return names;
+    }
+
+    private static void assertLine(Line line, String[] names,
+                                   Object... values) {
+        Assert.assertArrayEquals(names, line.names());
+        Assert.assertArrayEquals(values, line.values());
+    }
+
+    /**
+     * The line should be the same as deserialized to a map like before
+     */
+    private static void assertSameAsMap(JsonLineParser parser, String json) {
+        Map<String, Object> map = JsonUtil.convertMap(json, String.class,
+                                                      Object.class);
+        Line line = parser.parse(null, json);
+        Assert.assertEquals(new ArrayList<>(map.keySet()),
+                            Arrays.asList(line.names()));
+        List<Object> values = new ArrayList<>(map.values());
+        Assert.assertEquals(values, Arrays.asList(line.values()));
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                Assert.assertEquals(value.getClass(),
+                                    line.values()[i].getClass());
+            }
+        }
+    }
+}
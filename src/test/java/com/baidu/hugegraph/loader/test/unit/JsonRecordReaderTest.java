@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.reader.file.JsonRecordReader;
+import com.baidu.hugegraph.loader.reader.file.LineReader;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class JsonRecordReaderTest {
+
+    @Test
+    public void testJsonLines() throws IOException {
+        String content = "{\"id\": 1, \"name\": \"marko\"}\n" +
+                         "{\"id\": 2, \"tags\": [\"a\", \"b\"]}\n" +
+                         "\n" +
+                         "{\"id\": 3}";
+        Assert.assertEquals(ImmutableList.of(
+                            "{\"id\": 1, \"name\": \"marko\"}",
+                            "{\"id\": 2, \"tags\": [\"a\", \"b\"]}",
+                            "",
+                            "{\"id\": 3}"),
+                            readAll(content));
+    }
+
+    @Test
+    public void testTopLevelArray() throws IOException {
+        String content = "[\n" +
+                         "  {\"id\": 1},\n" +
+                         "  {\"id\": 2}\n" +
+                         "]";
+        Assert.assertEquals(ImmutableList.of("{\"id\": 1}", "{\"id\": 2}"),
+                            readAll(content));
+
+        content = "[{\"id\": 1}, {\"id\": [2]}]";
+        Assert.assertEquals(ImmutableList.of("{\"id\": 1}", "{\"id\": [2]}"),
+                            readAll(content));
+    }
+
+    @Test
+    public void testMultiLineObjects() throws IOException {
+        String content = "{\n" +
+                         "  \"id\": 1,\n" +
+                         "  \"name\": \"marko\"\n" +
+                         "}\n" +
+                         "{\n" +
+                         "  \"id\": 2\n" +
+                         "}\n";
+        // The line breaks in a record are replaced by blanks
+        Assert.assertEquals(ImmutableList.of(
+                            "{   \"id\": 1,   \"name\": \"marko\" }",
+                            "{   \"id\": 2 }"),
+                            readAll(content));
+    }
+
+    @Test
+    public void testBracketsAndQuotesInStrings() throws IOException {
+        // The value of "b" is a backslash which ends with an escaped '\'
+        String record = "{\"a\": \"x}{]\\\"y\", \"b\": \"\\\\\"}";
+        Assert.assertEquals(ImmutableList.of(record),
+                            readAll("[" + record + "]"));
+        Assert.assertEquals(ImmutableList.of(record, record),
+                            readAll(record + "\n" + record));
+
+        String multiLine = "{\"a\": \"}\",\n\"b\": \"{[\"}";
+        Assert.assertEquals(ImmutableList.of("{\"a\": \"}\", \"b\": \"{[\"}"),
+                            readAll(multiLine));
+    }
+
+    @Test
+    public void testTruncatedLastRecord() throws IOException {
+        String content = "[{\"id\": 1},\n" +
+                         "{\"id\": 2, \"name\": \"ma";
+        // The incomplete record is returned to report it's invalid
+        Assert.assertEquals(ImmutableList.of(
+                            "{\"id\": 1}",
+                            "{\"id\": 2, \"name\": \"ma"),
+                            readAll(content));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        Assert.assertEquals(ImmutableList.of(), readAll(""));
+        Assert.assertEquals(ImmutableList.of(), readAll("[]"));
+        Assert.assertEquals(ImmutableList.of(), readAll("[\n]\n"));
+    }
+
+    private static List<String> readAll(String content) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (JsonRecordReader reader = new JsonRecordReader(
+                                       new StringLineReader(content))) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                records.add(record);
+            }
+            // Keep returning null after reached the end
+            Assert.assertNull(reader.readLine());
+        }
+        return records;
+    }
+
+    private static class StringLineReader implements LineReader {
+
+        private final BufferedReader reader;
+
+        public StringLineReader(String content) {
+            this.reader = new BufferedReader(new StringReader(content));
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            return this.reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.reader.file.LineRangeInputStream;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class LineRangeInputStreamTest {
+
+    private static final String CONTENT = "1,marko,29\n" +
+                                          "2,vadas,27\n" +
+                                          "3,josh,32\r\n" +
+                                          "\n" +
+                                          "4,peter,35\n" +
+                                          "5,a-very-long-name-of-person,20";
+
+    private File file;
+
+    @Before
+    public void init() throws IOException {
+        this.file = File.createTempFile("line-range", ".csv");
+        FileUtils.write(this.file, CONTENT, StandardCharsets.UTF_8);
+    }
+
+    @After
+    public void clear() {
+        FileUtils.deleteQuietly(this.file);
+    }
+
+    @Test
+    public void testReadWholeFile() throws IOException {
+        List<String> lines = this.readLines(0L, this.file.length());
+        Assert.assertEquals(6, lines.size());
+        Assert.assertEquals("1,marko,29", lines.get(0));
+        Assert.assertEquals("", lines.get(3));
+        Assert.assertEquals("5,a-very-long-name-of-person,20", lines.get(5));
+    }
+
+    @Test
+    public void testReadSplitsWithEverySize() throws IOException {
+        List<String> expected = this.readLines(0L, this.file.length());
+        long length = this.file.length();
+        for (long size = 1L; size <= length; size++) {
+            List<String> lines = new ArrayList<>();
+            for (long start = 0L; start < length; start += size) {
+                long end = Math.min(start + size, length);
+                lines.addAll(this.readLines(start, end));
+            }
+            Assert.assertEquals(expected, lines);
+        }
+    }
+
+    @Test
+    public void testReadSplitWithoutLineStart() throws IOException {
+        // The range is inside the last long line
+        long length = this.file.length();
+        List<String> lines = this.readLines(length - 10L, length - 5L);
+        Assert.assertEquals(0, lines.size());
+    }
+
+    @Test
+    public void testInvalidRange() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            new LineRangeInputStream(this.file, 10L, 10L);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            new LineRangeInputStream(this.file, -1L, 10L);
+        });
+    }
+
+    private List<String> readLines(long start, long end) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+             new LineRangeInputStream(this.file, start, end),
+             StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
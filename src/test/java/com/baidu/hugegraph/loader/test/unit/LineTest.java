@@ -21,6 +21,7 @@ package com.baidu.hugegraph.loader.test.unit;
 
 import org.junit.Test;
 
+import com.baidu.hugegraph.loader.builder.Record;
 import com.baidu.hugegraph.loader.reader.line.Line;
 import com.baidu.hugegraph.testutil.Assert;
 
@@ -59,4 +60,20 @@ public class LineTest {
         Assert.assertArrayEquals(new String[]{"id"}, line.names());
         Assert.assertArrayEquals(new Object[]{1}, line.values());
     }
+
+    @Test
+    public void testLazyRawLine() {
+        Line line = new Line(new String[]{"id", "name", "age"},
+                             new Object[]{1, "marko", 27});
+        Assert.assertArrayEquals(new Object[]{1, "marko", 27},
+                                 (Object[]) line.rawSource());
+        // The raw line keeps the original values after retaining
+        line.retainAll(new String[]{"id"});
+        Assert.assertEquals("1,marko,27", line.rawLine());
+        Assert.assertEquals("1,marko,27", line.rawSource());
+
+        Record record = new Record(new Line(new String[]{"id", "name"},
+                                            new Object[]{2, "vadas"}), null);
+        Assert.assertEquals("2,vadas", record.rawLine());
+    }
 }
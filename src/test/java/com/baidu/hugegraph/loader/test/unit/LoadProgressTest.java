@@ -21,6 +21,8 @@ package com.baidu.hugegraph.loader.test.unit;
 
 import org.junit.Test;
 
+import com.baidu.hugegraph.loader.progress.FileItemProgress;
+import com.baidu.hugegraph.loader.progress.InputProgress;
 import com.baidu.hugegraph.loader.progress.LoadProgress;
 import com.baidu.hugegraph.loader.test.functional.LoadTest;
 import com.baidu.hugegraph.loader.util.JsonUtil;
@@ -87,4 +89,48 @@ public class LoadProgressTest extends LoadTest {
         Assert.assertEquals(16, progress.vertexLoaded());
         Assert.assertEquals(12, progress.edgeLoaded());
     }
+
+    @Test
+    public void testLoadingSplits() {
+        String json = "{" +
+                "\"vertex_propgress\": 0," +
+                "\"edge_propgress\": 0," +
+                "\"input_propgress\": {" +
+                "    \"1\":{" +
+                "        \"type\":\"FILE\"," +
+                "        \"loaded_items\":[" +
+                "            {" +
+                "                \"name\":\"edge_knows.csv\"," +
+                "                \"last_modified\":1574346235000," +
+                "                \"checksum\":\"4250397517\"," +
+                "                \"offset\":6," +
+                "                \"split_start\":0," +
+                "                \"split_end\":1024" +
+                "            }" +
+                "        ]," +
+                "        \"loading_item\":null," +
+                "        \"loading_splits\":[" +
+                "            {" +
+                "                \"name\":\"edge_knows.csv\"," +
+                "                \"last_modified\":1574346235000," +
+                "                \"checksum\":\"4250397517\"," +
+                "                \"offset\":3," +
+                "                \"split_start\":1024," +
+                "                \"split_end\":2048" +
+                "            }" +
+                "        ]" +
+                "    }" +
+                "}}";
+        LoadProgress progress = JsonUtil.fromJson(json, LoadProgress.class);
+        Assert.assertEquals(9, progress.totalInputReaded());
+
+        InputProgress inputProgress = progress.get("1");
+        FileItemProgress split = new FileItemProgress("edge_knows.csv",
+                                                      1574346235000L,
+                                                      "4250397517", 0L,
+                                                      1024L, 2048L);
+        Assert.assertNull(inputProgress.matchLoadedItem(split));
+        Assert.assertEquals(3L, inputProgress.matchLoadingItem(split)
+                                             .offset());
+    }
 }
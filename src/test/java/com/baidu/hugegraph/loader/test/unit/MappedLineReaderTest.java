@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.reader.file.MappedLineReader;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class MappedLineReaderTest {
+
+    private static final String CHINESE = "\u4e2d\u6587";
+    private static final long MB = 1024L * 1024L;
+
+    private File file;
+
+    @Before
+    public void init() throws IOException {
+        this.file = File.createTempFile("mapped-line", ".txt");
+    }
+
+    @After
+    public void clear() {
+        FileUtils.deleteQuietly(this.file);
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        this.write("");
+        Assert.assertEquals(ImmutableList.of(), this.readAll(4L));
+        Assert.assertEquals(ImmutableList.of(), this.readAll(MB));
+    }
+
+    @Test
+    public void testNoTrailingLineBreak() throws IOException {
+        this.write("1,marko\n2,vadas");
+        for (long window = 1L; window <= 16L; window++) {
+            Assert.assertEquals(ImmutableList.of("1,marko", "2,vadas"),
+                                this.readAll(window));
+        }
+    }
+
+    @Test
+    public void testLineBreaks() throws IOException {
+        this.write("a\r\rb\r\n\nc\n");
+        for (long window = 1L; window <= 16L; window++) {
+            Assert.assertEquals(ImmutableList.of("a", "", "b", "", "c"),
+                                this.readAll(window));
+        }
+    }
+
+    @Test
+    public void testCRAtWindowEndAndLFAtNextWindow() throws IOException {
+        this.write("abc\r\ndef\r\n");
+        // The '\r' is the last byte of the first window
+        Assert.assertEquals(ImmutableList.of("abc", "def"), this.readAll(4L));
+        // The second '\r' is the last byte of the third window
+        Assert.assertEquals(ImmutableList.of("abc", "def"), this.readAll(3L));
+    }
+
+    @Test
+    public void testLineAcrossWindows() throws IOException {
+        this.write("a-very-long-line-across-windows\nk");
+        Assert.assertEquals(ImmutableList.of(
+                            "a-very-long-line-across-windows", "k"),
+                            this.readAll(4L));
+    }
+
+    @Test
+    public void testMultiBytesAcrossWindows() throws IOException {
+        // The 2nd chinese char occupies the 5th to 7th bytes
+        this.write("a" + CHINESE + "\nb" + CHINESE);
+        for (long window = 1L; window <= 16L; window++) {
+            Assert.assertEquals(ImmutableList.of("a" + CHINESE,
+                                                 "b" + CHINESE),
+                                this.readAll(window));
+        }
+    }
+
+    @Test
+    public void testReadAfterEnd() throws IOException {
+        this.write("a\nb");
+        try (MappedLineReader reader = this.reader(2L)) {
+            Assert.assertEquals("a", reader.readLine());
+            Assert.assertEquals("b", reader.readLine());
+            Assert.assertNull(reader.readLine());
+            Assert.assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void testReadLineBytes() throws IOException {
+        this.write("1,marko\r\n2," + CHINESE + "\n\n3,josh");
+        try (MappedLineReader reader = new MappedLineReader(
+                                       this.file, StandardCharsets.UTF_8)) {
+            Assert.assertEquals("1,marko", this.readBytes(reader));
+            // The ascii lines are decoded as ISO-8859-1
+            Assert.assertEquals(StandardCharsets.ISO_8859_1,
+                                reader.lineCharset());
+            Assert.assertEquals("2," + CHINESE, this.readBytes(reader));
+            Assert.assertEquals(StandardCharsets.UTF_8, reader.lineCharset());
+            Assert.assertEquals("", this.readBytes(reader));
+            Assert.assertEquals("3,josh", reader.readLine());
+            Assert.assertEquals(-1, reader.readLineBytes());
+            Assert.assertNull(reader.readLine());
+        }
+    }
+
+    private String readBytes(MappedLineReader reader) throws IOException {
+        int length = reader.readLineBytes();
+        Assert.assertTrue(length >= 0);
+        return new String(reader.lineBytes(), 0, length,
+                          reader.lineCharset());
+    }
+
+    private void write(String content) throws IOException {
+        FileUtils.write(this.file, content, StandardCharsets.UTF_8);
+    }
+
+    private MappedLineReader reader(long window) throws IOException {
+        Charset charset = StandardCharsets.UTF_8;
+        return new MappedLineReader(this.file, charset, window);
+    }
+
+    private List<String> readAll(long window) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (MappedLineReader reader = this.reader(window)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.builder.Record;
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.task.MemoryBudget;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class MemoryBudgetTest {
+
+    // In milliseconds
+    private static final long TIMEOUT = 10_000L;
+    private static final long SETTLE = 200L;
+
+    @Test
+    public void testInvalidLimit() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            new MemoryBudget(0L);
+        });
+    }
+
+    @Test
+    public void testAcquireAndRelease() {
+        MemoryBudget budget = new MemoryBudget(100L);
+        budget.acquire(40L);
+        budget.acquire(60L);
+        Assert.assertEquals(100L, budget.used());
+        Assert.assertEquals(100L, budget.peak());
+
+        budget.release(40L);
+        Assert.assertEquals(60L, budget.used());
+        budget.release(60L);
+        Assert.assertEquals(0L, budget.used());
+        Assert.assertEquals(100L, budget.peak());
+        Assert.assertEquals(100L, budget.limit());
+    }
+
+    @Test
+    public void testAcquireBlockedTillReleased() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100L);
+        budget.acquire(80L);
+
+        Thread acquirer = new Thread(() -> budget.acquire(30L));
+        acquirer.start();
+        acquirer.join(SETTLE);
+        // Blocked since the budget is not enough
+        Assert.assertTrue(acquirer.isAlive());
+        Assert.assertEquals(80L, budget.used());
+
+        // Still not enough
+        budget.release(5L);
+        acquirer.join(SETTLE);
+        Assert.assertTrue(acquirer.isAlive());
+
+        budget.release(75L);
+        acquirer.join(TIMEOUT);
+        Assert.assertFalse(acquirer.isAlive());
+        Assert.assertEquals(30L, budget.used());
+        Assert.assertEquals(80L, budget.peak());
+    }
+
+    @Test
+    public void testAcquireMoreThanLimit() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100L);
+        // Allowed if nothing in flight, otherwise it blocks forever
+        budget.acquire(500L);
+        Assert.assertEquals(500L, budget.used());
+
+        Thread acquirer = new Thread(() -> budget.acquire(1L));
+        acquirer.start();
+        acquirer.join(SETTLE);
+        Assert.assertTrue(acquirer.isAlive());
+
+        budget.release(500L);
+        acquirer.join(TIMEOUT);
+        Assert.assertFalse(acquirer.isAlive());
+        Assert.assertEquals(1L, budget.used());
+    }
+
+    @Test
+    public void testAwait() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100L);
+        budget.acquire(99L);
+        // Return at once if not used up
+        budget.await();
+
+        budget.acquire(1L);
+        Thread waiter = new Thread(budget::await);
+        waiter.start();
+        waiter.join(SETTLE);
+        Assert.assertTrue(waiter.isAlive());
+
+        budget.release(1L);
+        waiter.join(TIMEOUT);
+        Assert.assertFalse(waiter.isAlive());
+    }
+
+    @Test
+    public void testAcquireInterrupted() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100L);
+        budget.acquire(100L);
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread acquirer = new Thread(() -> {
+            try {
+                budget.acquire(1L);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        acquirer.start();
+        acquirer.join(SETTLE);
+        acquirer.interrupt();
+        acquirer.join(TIMEOUT);
+        Assert.assertFalse(acquirer.isAlive());
+        Assert.assertTrue(error.get() instanceof LoadException);
+        // Nothing acquired by the interrupted one
+        Assert.assertEquals(100L, budget.used());
+    }
+
+    @Test
+    public void testEstimate() {
+        Record marko = record("1,marko,29", "marko", 29);
+        Record vadas = record("2,vadas,27", "vadas", 27);
+        long size = MemoryBudget.estimate(ImmutableList.of(marko));
+        Assert.assertTrue(size > 0L);
+        List<Record> batch = ImmutableList.of(marko, vadas);
+        Assert.assertTrue(MemoryBudget.estimate(batch) > size);
+
+        // The chars of raw line and values are counted
+        String name = StringUtils.repeat('x', 1000);
+        Record longer = record("1," + name + ",29", name, 29);
+        long longerSize = MemoryBudget.estimate(ImmutableList.of(longer));
+        Assert.assertTrue(longerSize - size >= 2L * 2L * 995L);
+    }
+
+    private static Record record(String line, String name, int age) {
+        Vertex vertex = new Vertex("person");
+        vertex.id(line.substring(0, 1));
+        vertex.property("name", name);
+        vertex.property("age", age);
+        return new Record(line, vertex);
+    }
+}
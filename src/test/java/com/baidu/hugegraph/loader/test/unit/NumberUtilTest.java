@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.util.NumberUtil;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class NumberUtilTest {
+
+    @Test
+    public void testParseLong() {
+        Assert.assertEquals(0L, parseLong("0"));
+        Assert.assertEquals(-123L, parseLong("-123"));
+        Assert.assertEquals(123L, parseLong("+123"));
+        Assert.assertEquals(Long.MAX_VALUE, parseLong("9223372036854775807"));
+        Assert.assertEquals(Long.MIN_VALUE, parseLong("-9223372036854775808"));
+        // The value without '-' is parsed as unsigned long
+        Assert.assertEquals(Long.MIN_VALUE, parseLong("9223372036854775808"));
+        Assert.assertEquals(-1L, parseLong("18446744073709551615"));
+        // Parse in the range
+        Assert.assertEquals(456L, NumberUtil.parseLong("123,456,789", 4, 7));
+
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            parseLong("-9223372036854775809");
+        });
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            parseLong("18446744073709551616");
+        });
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            parseLong("");
+        });
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            parseLong("-");
+        });
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            parseLong("12a");
+        });
+    }
+
+    @Test
+    public void testParseIntAndByte() {
+        Assert.assertEquals(Integer.MAX_VALUE,
+                            NumberUtil.parseInt("2147483647", 0, 10));
+        Assert.assertEquals(Integer.MIN_VALUE,
+                            NumberUtil.parseInt("-2147483648", 0, 11));
+        Assert.assertEquals((byte) -128, NumberUtil.parseByte("-128", 0, 4));
+
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            NumberUtil.parseInt("2147483648", 0, 10);
+        });
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            NumberUtil.parseByte("128", 0, 3);
+        });
+    }
+
+    @Test
+    public void testParseDoubleAndFloat() {
+        String[] values = {"0", "-0.0", "0.1", "0.3", "1.", ".5", "1e22",
+                           "1e23", "1.5E-7", "-123.456", "9007199254740993",
+                           "16777217", "3.4028235e38", "NaN", "-Infinity",
+                           "0x1p3", "1d"};
+        for (String value : values) {
+            Assert.assertEquals(Double.parseDouble(value),
+                                NumberUtil.parseDouble(value, 0,
+                                                       value.length()),
+                                0.0D);
+            Assert.assertEquals(Float.parseFloat(value),
+                                NumberUtil.parseFloat(value, 0,
+                                                      value.length()),
+                                0.0F);
+        }
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            NumberUtil.parseDouble("1e", 0, 2);
+        });
+        Assert.assertThrows(NumberFormatException.class, () -> {
+            NumberUtil.parseFloat("1.2.3", 0, 5);
+        });
+    }
+
+    @Test
+    public void testTrim() {
+        String value = "  12 \t";
+        int start = NumberUtil.trimStart(value, 0, value.length());
+        int end = NumberUtil.trimEnd(value, start, value.length());
+        Assert.assertEquals(2, start);
+        Assert.assertEquals(4, end);
+        Assert.assertEquals(12L, NumberUtil.parseLong(value, start, end));
+
+        Assert.assertEquals(3, NumberUtil.trimStart("   ", 0, 3));
+        Assert.assertEquals(3, NumberUtil.trimEnd("   ", 3, 3));
+    }
+
+    private static long parseLong(String value) {
+        return NumberUtil.parseLong(value, 0, value.length());
+    }
+}
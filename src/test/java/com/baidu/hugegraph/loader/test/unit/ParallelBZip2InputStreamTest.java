@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.reader.file.ParallelBZip2InputStream;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class ParallelBZip2InputStreamTest {
+
+    private ExecutorService pool;
+
+    @Before
+    public void init() {
+        this.pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void clear() {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    public void testReadBlocks() throws IOException {
+        // Blocks of 100k bytes at level 1, not aligned by bytes
+        byte[] bytes = lines(2000000);
+        byte[] compressed = compress(bytes, 1);
+        for (int parallelism : new int[]{1, 2, 8}) {
+            Assert.assertArrayEquals(bytes, this.readAll(compressed,
+                                                         parallelism));
+        }
+    }
+
+    @Test
+    public void testReadSingleBlock() throws IOException {
+        byte[] bytes = lines(10000);
+        Assert.assertArrayEquals(bytes, this.readAll(compress(bytes, 9), 4));
+    }
+
+    @Test
+    public void testReadRandomBytes() throws IOException {
+        byte[] bytes = new byte[500000];
+        new Random(1L).nextBytes(bytes);
+        Assert.assertArrayEquals(bytes, this.readAll(compress(bytes, 1), 4));
+    }
+
+    @Test
+    public void testReadEmpty() throws IOException {
+        byte[] compressed = compress(new byte[0], 9);
+        Assert.assertArrayEquals(new byte[0], this.readAll(compressed, 4));
+    }
+
+    @Test
+    public void testReadFirstOfConcatenatedStreams() throws IOException {
+        byte[] first = lines(300000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(compress(first, 1));
+        out.write(compress(lines(1000), 1));
+        Assert.assertArrayEquals(first, this.readAll(out.toByteArray(), 4));
+    }
+
+    @Test
+    public void testReadByteByByte() throws IOException {
+        byte[] bytes = lines(300000);
+        InputStream stream = new ByteArrayInputStream(compress(bytes, 1));
+        try (InputStream in = new ParallelBZip2InputStream(stream,
+                                                           this.pool, 2)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                out.write(b);
+            }
+            Assert.assertArrayEquals(bytes, out.toByteArray());
+            Assert.assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testReadNotBZip2() {
+        byte[] bytes = "BZx9 not bzip2".getBytes();
+        Assert.assertThrows(IOException.class, () -> {
+            this.readAll(bytes, 4);
+        }, e -> {
+            Assert.assertEquals("Stream is not in the BZip2 format",
+                                e.getMessage());
+        });
+        Assert.assertThrows(IOException.class, () -> {
+            this.readAll(new byte[0], 4);
+        });
+    }
+
+    @Test
+    public void testReadTruncated() throws IOException {
+        byte[] bytes = lines(300000);
+        byte[] compressed = compress(bytes, 1);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 20);
+        InputStream stream = new ByteArrayInputStream(truncated);
+        try (InputStream in = new ParallelBZip2InputStream(stream,
+                                                           this.pool, 2)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            Assert.assertThrows(IOException.class, () -> {
+                int read;
+                while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            });
+            // The complete blocks before are read
+            Assert.assertTrue(out.size() > 0);
+            byte[] read = out.toByteArray();
+            Assert.assertArrayEquals(Arrays.copyOf(bytes, read.length),
+                                     read);
+            // Keep failing rather than returning EOF
+            Assert.assertThrows(IOException.class, () -> {
+                in.read();
+            });
+        }
+    }
+
+    @Test
+    public void testReadCorruptedBlock() throws IOException {
+        byte[] compressed = compress(lines(300000), 1);
+        // Flip a bit in the middle of the first block
+        compressed[100] ^= 0x10;
+        Assert.assertThrows(IOException.class, () -> {
+            this.readAll(compressed, 2);
+        });
+    }
+
+    private byte[] readAll(byte[] compressed, int parallelism)
+                           throws IOException {
+        InputStream stream = new ByteArrayInputStream(compressed);
+        try (InputStream in = new ParallelBZip2InputStream(stream, this.pool,
+                                                           parallelism)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static byte[] lines(int size) {
+        Random random = new Random(size);
+        StringBuilder builder = new StringBuilder(size + 32);
+        for (int i = 0; builder.length() < size; i++) {
+            builder.append(i).append(",name-").append(random.nextInt(100000))
+                   .append(',').append(random.nextInt(100)).append('\n');
+        }
+        builder.setLength(size);
+        return builder.toString().getBytes();
+    }
+
+    private static byte[] compress(byte[] bytes, int level)
+                                   throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream bzip2 = new BZip2CompressorOutputStream(out,
+                                                                  level)) {
+            bzip2.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.exception.ReadException;
+import com.baidu.hugegraph.loader.progress.FileItemProgress;
+import com.baidu.hugegraph.loader.progress.InputItemProgress;
+import com.baidu.hugegraph.loader.reader.Readable;
+import com.baidu.hugegraph.loader.reader.file.FileLineFetcher;
+import com.baidu.hugegraph.loader.reader.file.ParallelLineFetcher;
+import com.baidu.hugegraph.loader.reader.file.ParallelLineFetcher.FetchedLine;
+import com.baidu.hugegraph.loader.reader.file.ParallelLineFetcher.Unit;
+import com.baidu.hugegraph.loader.source.file.FileFormat;
+import com.baidu.hugegraph.loader.source.file.FileSource;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class ParallelLineFetcherTest {
+
+    private static final int CAPACITY = 4;
+
+    @Test
+    public void testFetchAllUnits() {
+        List<Unit> units = new ArrayList<>();
+        units.add(unit("a", "1\tmarko\n2\tvadas\n3\tjosh", 0L));
+        units.add(unit("b", "4\tpeter", 0L));
+        units.add(unit("c", "5\tlop\n6\tripple\n", 0L));
+
+        ParallelLineFetcher fetcher = newFetcher(units, 2);
+        try {
+            Map<String, List<String>> lines = new HashMap<>();
+            Map<String, Long> ends = new HashMap<>();
+            FetchedLine fetched;
+            while ((fetched = fetcher.take()) != null) {
+                String name = name(fetched);
+                Assert.assertNull(fetched.error());
+                Assert.assertFalse(ends.containsKey(name));
+                if (fetched.end()) {
+                    ends.put(name, fetched.offset());
+                } else {
+                    lines.computeIfAbsent(name, k -> new ArrayList<>())
+                         .add(fetched.line().rawLine());
+                }
+            }
+            // The lines of a unit are in order, the end offset is its lines
+            Assert.assertEquals(3, ends.size());
+            Assert.assertEquals(3L, (long) ends.get("a"));
+            Assert.assertEquals(1L, (long) ends.get("b"));
+            Assert.assertEquals(2L, (long) ends.get("c"));
+            Assert.assertEquals(ImmutableList.of("1\tmarko", "2\tvadas",
+                                                 "3\tjosh"),
+                                lines.get("a"));
+            Assert.assertEquals(ImmutableList.of("4\tpeter"),
+                                lines.get("b"));
+            Assert.assertEquals(ImmutableList.of("5\tlop", "6\tripple"),
+                                lines.get("c"));
+        } finally {
+            fetcher.close();
+        }
+    }
+
+    @Test
+    public void testFetchWithSkipOffset() {
+        List<Unit> units = new ArrayList<>();
+        units.add(unit("a", "1\tmarko\n2\tvadas\n3\tjosh", 2L));
+
+        ParallelLineFetcher fetcher = newFetcher(units, 1);
+        try {
+            FetchedLine fetched = fetcher.take();
+            Assert.assertEquals("3\tjosh", fetched.line().rawLine());
+            Assert.assertEquals(3L, fetched.offset());
+            fetched = fetcher.take();
+            Assert.assertTrue(fetched.end());
+            Assert.assertEquals(3L, fetched.offset());
+            Assert.assertNull(fetcher.take());
+        } finally {
+            fetcher.close();
+        }
+    }
+
+    @Test
+    public void testFetchWithReadErrorLine() {
+        List<Unit> units = new ArrayList<>();
+        units.add(unit("a", "1\tmarko\n2\tvadas\textra\n3\tjosh", 0L));
+
+        ParallelLineFetcher fetcher = newFetcher(units, 1);
+        try {
+            Assert.assertEquals("1\tmarko", fetcher.take().line().rawLine());
+            // The bad line doesn't end the unit
+            FetchedLine fetched = fetcher.take();
+            Assert.assertTrue(fetched.error() instanceof ReadException);
+            Assert.assertFalse(fetched.end());
+            Assert.assertEquals("3\tjosh", fetcher.take().line().rawLine());
+            Assert.assertTrue(fetcher.take().end());
+            Assert.assertNull(fetcher.take());
+        } finally {
+            fetcher.close();
+        }
+    }
+
+    @Test
+    public void testFetchWithUnexpectedError() {
+        List<Unit> units = new ArrayList<>();
+        units.add(unit("a", "1\tmarko", 0L));
+        units.add(new Unit(new FakeReadable("b", null), progress("b"), 0L));
+        units.add(unit("c", "2\tvadas", 0L));
+
+        ParallelLineFetcher fetcher = newFetcher(units, 1);
+        try {
+            Assert.assertEquals("1\tmarko", fetcher.take().line().rawLine());
+            Assert.assertTrue(fetcher.take().end());
+            // The error ends the broken unit
+            FetchedLine fetched = fetcher.take();
+            Assert.assertEquals("b", name(fetched));
+            Assert.assertTrue(fetched.error() instanceof LoadException);
+            Assert.assertTrue(fetched.end());
+            // The remaining units are still fetched by the same worker
+            Assert.assertEquals("2\tvadas", fetcher.take().line().rawLine());
+            fetched = fetcher.take();
+            Assert.assertEquals("c", name(fetched));
+            Assert.assertTrue(fetched.end());
+            Assert.assertNull(fetcher.take());
+        } finally {
+            fetcher.close();
+        }
+    }
+
+    private static ParallelLineFetcher newFetcher(List<Unit> units,
+                                                  int threads) {
+        FileSource source = new FileSource(null, null, FileFormat.TEXT, null,
+                                           null, null, null, null, null);
+        source.header(new String[]{"id", "name"});
+        return new ParallelLineFetcher(() -> new FileLineFetcher(source),
+                                       units, threads, CAPACITY);
+    }
+
+    private static Unit unit(String name, String content, long skipOffset) {
+        return new Unit(new FakeReadable(name, content), progress(name),
+                        skipOffset);
+    }
+
+    private static InputItemProgress progress(String name) {
+        return new FileItemProgress(name, 1L, "checksum-" + name, 0L);
+    }
+
+    private static String name(FetchedLine fetched) {
+        return ((FileItemProgress) fetched.progress()).name();
+    }
+
+    private static class FakeReadable implements Readable {
+
+        private final String name;
+        // Fail to open if null
+        private final String content;
+
+        public FakeReadable(String name, String content) {
+            this.name = name;
+            this.content = content;
+        }
+
+        @Override
+        public String name() {
+            return this.name;
+        }
+
+        @Override
+        public Path path() {
+            return new Path(this.name);
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            if (this.content == null) {
+                throw new IOException("Failed to open " + this.name);
+            }
+            byte[] bytes = this.content.getBytes(StandardCharsets.UTF_8);
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public InputItemProgress inputItemProgress() {
+            return progress(this.name);
+        }
+    }
+}
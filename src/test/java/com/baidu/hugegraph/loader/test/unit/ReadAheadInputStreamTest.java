@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.reader.file.ReadAheadInputStream;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class ReadAheadInputStreamTest {
+
+    private ExecutorService pool;
+
+    @Before
+    public void init() {
+        this.pool = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void clear() {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        byte[] bytes = new byte[10000];
+        new Random(1L).nextBytes(bytes);
+        InputStream stream = new ByteArrayInputStream(bytes);
+        try (InputStream in = new ReadAheadInputStream(stream, 64,
+                                                       this.pool)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            // Read by single byte and by array alternately
+            byte[] buffer = new byte[100];
+            while (true) {
+                int b = in.read();
+                if (b < 0) {
+                    break;
+                }
+                out.write(b);
+                int read = in.read(buffer, 0, buffer.length);
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+            }
+            Assert.assertArrayEquals(bytes, out.toByteArray());
+            // Keep returning EOF after reached the end
+            Assert.assertEquals(-1, in.read());
+            Assert.assertEquals(-1, in.read(buffer, 0, buffer.length));
+            Assert.assertEquals(0, in.read(buffer, 0, 0));
+        }
+    }
+
+    @Test
+    public void testReadEmpty() throws IOException {
+        InputStream stream = new ByteArrayInputStream(new byte[0]);
+        try (InputStream in = new ReadAheadInputStream(stream, 64,
+                                                       this.pool)) {
+            Assert.assertEquals(-1, in.read());
+            Assert.assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testReadError() throws IOException {
+        InputStream stream = new FailingInputStream(100);
+        try (InputStream in = new ReadAheadInputStream(stream, 16,
+                                                       this.pool)) {
+            byte[] buffer = new byte[10];
+            Assert.assertThrows(IOException.class, () -> {
+                while (in.read(buffer, 0, buffer.length) >= 0) {
+                    // Read until failed
+                }
+            }, e -> {
+                Assert.assertEquals("Failed to read ahead the stream",
+                                    e.getMessage());
+                Assert.assertEquals("Corrupted stream",
+                                    e.getCause().getMessage());
+            });
+            // The error is thrown again rather than returning EOF
+            Assert.assertThrows(IOException.class, () -> {
+                in.read();
+            }, e -> {
+                Assert.assertEquals("Corrupted stream",
+                                    e.getCause().getMessage());
+            });
+            Assert.assertThrows(IOException.class, () -> {
+                in.read(buffer, 0, buffer.length);
+            });
+        }
+    }
+
+    @Test
+    public void testCloseWhileBuffersFull() throws IOException {
+        EndlessInputStream stream = new EndlessInputStream();
+        InputStream in = new ReadAheadInputStream(stream, 16, this.pool);
+        Assert.assertEquals(0, in.read());
+        // The read ahead task is ended since all buffers are filled
+        in.close();
+        Assert.assertTrue(stream.closed);
+        Assert.assertThrows(IOException.class, () -> {
+            in.read();
+        });
+        // Close again is fine
+        in.close();
+    }
+
+    @Test
+    public void testCloseWhileReadingBlocked() throws IOException {
+        BlockingInputStream stream = new BlockingInputStream();
+        InputStream in = new ReadAheadInputStream(stream, 16, this.pool);
+        stream.await();
+        // The read ahead task is blocked by reading the wrapped stream
+        in.close();
+        Assert.assertTrue(stream.closed);
+    }
+
+    @Test
+    public void testReadStreamsSharingPool() throws Exception {
+        // More streams than the pool threads are read alternately
+        int count = 5;
+        byte[][] bytes = new byte[count][];
+        InputStream[] ins = new InputStream[count];
+        ByteArrayOutputStream[] outs = new ByteArrayOutputStream[count];
+        Random random = new Random(2L);
+        for (int i = 0; i < count; i++) {
+            bytes[i] = new byte[1000 + i * 100];
+            random.nextBytes(bytes[i]);
+            ins[i] = new ReadAheadInputStream(
+                     new ByteArrayInputStream(bytes[i]), 32, this.pool);
+            outs[i] = new ByteArrayOutputStream();
+        }
+        byte[] buffer = new byte[10];
+        boolean reading = true;
+        while (reading) {
+            reading = false;
+            for (int i = 0; i < count; i++) {
+                int read = ins[i].read(buffer, 0, buffer.length);
+                if (read > 0) {
+                    outs[i].write(buffer, 0, read);
+                    reading = true;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertArrayEquals(bytes[i], outs[i].toByteArray());
+            ins[i].close();
+        }
+    }
+
+    private static class FailingInputStream extends InputStream {
+
+        private int remaining;
+
+        public FailingInputStream(int size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.remaining-- <= 0) {
+                throw new IOException("Corrupted stream");
+            }
+            return 1;
+        }
+    }
+
+    private static class EndlessInputStream extends InputStream {
+
+        private volatile boolean closed = false;
+
+        @Override
+        public int read() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+
+    private static class BlockingInputStream extends InputStream {
+
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch never = new CountDownLatch(1);
+        private volatile boolean closed = false;
+
+        @Override
+        public int read() throws IOException {
+            this.reading.countDown();
+            try {
+                this.never.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while reading");
+            }
+            return -1;
+        }
+
+        public void await() {
+            try {
+                this.reading.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.exception.LoadException;
+import com.baidu.hugegraph.loader.progress.FileItemProgress;
+import com.baidu.hugegraph.loader.progress.InputItemProgress;
+import com.baidu.hugegraph.loader.progress.InputProgress;
+import com.baidu.hugegraph.loader.reader.Readable;
+import com.baidu.hugegraph.loader.reader.file.ReadablePrefetcher;
+import com.baidu.hugegraph.loader.reader.file.ReadablePrefetcher.Prefetched;
+import com.baidu.hugegraph.loader.source.SourceType;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class ReadablePrefetcherTest {
+
+    private static final long WAIT_TIMEOUT = 5000L;
+
+    @Test
+    public void testOrderPreserved() throws IOException {
+        List<Readable> readables = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            readables.add(new FakeReadable("file" + i));
+        }
+        ReadablePrefetcher prefetcher = new ReadablePrefetcher(
+                                        readables.iterator(), progress(),
+                                        r -> true, 3);
+        try {
+            for (int i = 0; i < 10; i++) {
+                Prefetched prefetched = prefetcher.next();
+                Assert.assertEquals("file" + i, prefetched.name());
+                Assert.assertEquals(progress("file" + i),
+                                    prefetched.inputItemProgress());
+                // The stream opened ahead is used by the first opening
+                Assert.assertSame(prefetched, prefetched.readable());
+                String content;
+                try (InputStream stream = prefetched.readable().open()) {
+                    content = IOUtils.toString(stream, StandardCharsets.UTF_8);
+                }
+                Assert.assertEquals("content of file" + i, content);
+                FakeReadable readable = (FakeReadable) readables.get(i);
+                Assert.assertEquals(1, readable.opened.get());
+            }
+            Assert.assertNull(prefetcher.next());
+            Assert.assertNull(prefetcher.next());
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    public void testLoadedOrNotStreamedNotOpened() {
+        FakeReadable loaded = new FakeReadable("loaded");
+        FakeReadable mapped = new FakeReadable("mapped");
+        FakeReadable normal = new FakeReadable("normal");
+        InputProgress progress = progress();
+        progress.addLoadedItem(loaded.inputItemProgress());
+        ReadablePrefetcher prefetcher = new ReadablePrefetcher(
+                                        Arrays.<Readable>asList(
+                                        loaded, mapped, normal).iterator(),
+                                        progress, r -> r != mapped, 3);
+        try {
+            Prefetched prefetched = prefetcher.next();
+            // The input progress is resolved to skip the loaded readable
+            Assert.assertEquals(progress("loaded"),
+                                prefetched.inputItemProgress());
+            Assert.assertSame(loaded, prefetched.readable());
+            Assert.assertEquals(0, loaded.opened.get());
+
+            prefetched = prefetcher.next();
+            Assert.assertSame(mapped, prefetched.readable());
+            Assert.assertEquals(0, mapped.opened.get());
+
+            prefetched = prefetcher.next();
+            Assert.assertSame(prefetched, prefetched.readable());
+            Assert.assertEquals(1, normal.opened.get());
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    public void testErrorsDeferredUntilUsed() {
+        FakeReadable checkSumError = new FakeReadable("checksum-error");
+        checkSumError.checkSumError = true;
+        FakeReadable openError = new FakeReadable("open-error");
+        openError.openError = true;
+        ReadablePrefetcher prefetcher = new ReadablePrefetcher(
+                                        Arrays.<Readable>asList(
+                                        checkSumError, openError).iterator(),
+                                        progress(), r -> true, 2);
+        try {
+            Prefetched prefetched = prefetcher.next();
+            Assert.assertThrows(LoadException.class, () -> {
+                prefetched.inputItemProgress();
+            }, e -> {
+                Assert.assertEquals("Failed to calculate checksum",
+                                    e.getMessage());
+            });
+            // The error is thrown every time
+            Assert.assertThrows(LoadException.class, () -> {
+                prefetched.inputItemProgress();
+            });
+
+            Prefetched prefetched2 = prefetcher.next();
+            Assert.assertEquals(progress("open-error"),
+                                prefetched2.inputItemProgress());
+            Assert.assertThrows(IOException.class, () -> {
+                prefetched2.readable().open();
+            }, e -> {
+                Assert.assertEquals("Failed to open", e.getMessage());
+            });
+            Assert.assertNull(prefetcher.next());
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    public void testCloseReleaseUnusedStreams() throws InterruptedException {
+        FakeReadable used = new FakeReadable("used");
+        FakeReadable unused1 = new FakeReadable("unused1");
+        FakeReadable unused2 = new FakeReadable("unused2");
+        FakeReadable notPrefetched = new FakeReadable("not-prefetched");
+        ReadablePrefetcher prefetcher = new ReadablePrefetcher(
+                                        Arrays.<Readable>asList(
+                                        used, unused1, unused2,
+                                        notPrefetched).iterator(),
+                                        progress(), r -> true, 2);
+        Prefetched prefetched = prefetcher.next();
+        Assert.assertEquals("used", prefetched.name());
+        /*
+         * Wait the next readables being prefetched, the running prefetching
+         * will be completed before the prefetcher closed
+         */
+        waitOpened(unused1);
+        waitOpened(unused2);
+
+        prefetcher.close();
+        Assert.assertEquals(1, unused1.closed.get());
+        Assert.assertEquals(1, unused2.closed.get());
+        Assert.assertEquals(0, notPrefetched.opened.get());
+        // The taken stream is released by the reader, not the prefetcher
+        Assert.assertEquals(0, used.closed.get());
+        prefetched.release();
+        Assert.assertEquals(1, used.closed.get());
+    }
+
+    private static InputProgress progress() {
+        return new InputProgress(SourceType.FILE, new HashSet<>(), null);
+    }
+
+    private static InputItemProgress progress(String name) {
+        return new FileItemProgress(name, 1L, "checksum-" + name, 0L);
+    }
+
+    private static void waitOpened(FakeReadable readable)
+                                   throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (readable.opened.get() == 0) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+
+    private static class FakeReadable implements Readable {
+
+        private final String name;
+        private final AtomicInteger opened;
+        private final AtomicInteger closed;
+        private volatile boolean checkSumError;
+        private volatile boolean openError;
+
+        public FakeReadable(String name) {
+            this.name = name;
+            this.opened = new AtomicInteger();
+            this.closed = new AtomicInteger();
+            this.checkSumError = false;
+            this.openError = false;
+        }
+
+        @Override
+        public String name() {
+            return this.name;
+        }
+
+        @Override
+        public Path path() {
+            return new Path(this.name);
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            this.opened.incrementAndGet();
+            if (this.openError) {
+                throw new IOException("Failed to open");
+            }
+            byte[] bytes = ("content of " + this.name)
+                           .getBytes(StandardCharsets.UTF_8);
+            return new ByteArrayInputStream(bytes) {
+                @Override
+                public void close() {
+                    FakeReadable.this.closed.incrementAndGet();
+                }
+            };
+        }
+
+        @Override
+        public InputItemProgress inputItemProgress() {
+            if (this.checkSumError) {
+                throw new LoadException("Failed to calculate checksum");
+            }
+            return progress(this.name);
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.builder.Record;
+import com.baidu.hugegraph.loader.mapping.EdgeMapping;
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
+import com.baidu.hugegraph.loader.mapping.InputStruct;
+import com.baidu.hugegraph.loader.mapping.VertexMapping;
+import com.baidu.hugegraph.loader.task.RecordAccumulator;
+import com.baidu.hugegraph.loader.task.RecordAccumulator.BatchSubmitter;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class RecordAccumulatorTest {
+
+    private static final int BATCH_SIZE = 3;
+    // In milliseconds
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1L);
+    private static final long TIMEOUT = 10_000L;
+
+    private final VertexMapping vertexMapping;
+    private final EdgeMapping edgeMapping;
+    private final InputStruct struct;
+    private final List<Submitted> submitted;
+    private final List<RecordAccumulator> accumulators;
+
+    public RecordAccumulatorTest() {
+        this.vertexMapping = new VertexMapping("id", false);
+        this.edgeMapping = new EdgeMapping(ImmutableList.of("source"), false,
+                                           ImmutableList.of("target"), false);
+        this.struct = new InputStruct(ImmutableList.of(this.vertexMapping),
+                                      ImmutableList.of(this.edgeMapping));
+        this.submitted = new ArrayList<>();
+        this.accumulators = new ArrayList<>();
+    }
+
+    @After
+    public void clear() {
+        for (RecordAccumulator accumulator : this.accumulators) {
+            accumulator.close();
+        }
+    }
+
+    @Test
+    public void testAppendTillFullBatch() {
+        RecordAccumulator accumulator = this.newAccumulator(NEVER);
+        List<Record> records = records(0, 8);
+
+        accumulator.append(this.vertexMapping, records.subList(0, 2));
+        Assert.assertEquals(0, this.submitted().size());
+        Assert.assertFalse(accumulator.isEmpty());
+
+        // Coalesced with the held records across appends
+        accumulator.append(this.vertexMapping, records.subList(2, 4));
+        Assert.assertEquals(1, this.submitted().size());
+        this.assertSubmitted(0, this.vertexMapping, records.subList(0, 3));
+        Assert.assertFalse(accumulator.isEmpty());
+
+        accumulator.append(this.vertexMapping, records.subList(4, 8));
+        Assert.assertEquals(2, this.submitted().size());
+        this.assertSubmitted(1, this.vertexMapping, records.subList(3, 6));
+        Assert.assertFalse(accumulator.isEmpty());
+
+        accumulator.flush(true);
+        Assert.assertEquals(3, this.submitted().size());
+        this.assertSubmitted(2, this.vertexMapping, records.subList(6, 8));
+        Assert.assertTrue(accumulator.isEmpty());
+    }
+
+    @Test
+    public void testAppendFullBatchDirectly() {
+        RecordAccumulator accumulator = this.newAccumulator(NEVER);
+        List<Record> records = records(0, BATCH_SIZE + 1);
+        accumulator.append(this.vertexMapping, records);
+        Assert.assertEquals(1, this.submitted().size());
+        // Submitted without copying since none is held
+        Assert.assertSame(records, this.submitted().get(0).batch);
+        Assert.assertTrue(accumulator.isEmpty());
+    }
+
+    @Test
+    public void testAppendToSeparateMappings() {
+        RecordAccumulator accumulator = this.newAccumulator(NEVER);
+        List<Record> vertices = records(0, 2);
+        List<Record> edges = records(2, 4);
+        accumulator.append(this.vertexMapping, vertices);
+        accumulator.append(this.edgeMapping, edges);
+        Assert.assertEquals(0, this.submitted().size());
+
+        accumulator.flush(true);
+        Assert.assertEquals(2, this.submitted().size());
+        for (Submitted submitted : this.submitted()) {
+            if (submitted.mapping == this.vertexMapping) {
+                Assert.assertEquals(vertices, submitted.batch);
+            } else {
+                Assert.assertSame(this.edgeMapping, submitted.mapping);
+                Assert.assertEquals(edges, submitted.batch);
+            }
+        }
+        Assert.assertTrue(accumulator.isEmpty());
+    }
+
+    @Test
+    public void testFlushAfterLinger() throws InterruptedException {
+        long linger = 200L;
+        RecordAccumulator accumulator = this.newAccumulator(linger);
+        List<Record> records = records(0, 1);
+        long start = System.currentTimeMillis();
+        accumulator.append(this.vertexMapping, records);
+
+        // Not held long enough
+        accumulator.flush(false);
+        Assert.assertEquals(0, this.submitted().size());
+        Assert.assertFalse(accumulator.isEmpty());
+
+        // Flushed by the linger thread
+        waitUntil(() -> this.submitted().size() == 1);
+        Assert.assertTrue(System.currentTimeMillis() - start >= linger);
+        this.assertSubmitted(0, this.vertexMapping, records);
+        Assert.assertTrue(accumulator.isEmpty());
+    }
+
+    @Test
+    public void testForceFlush() {
+        RecordAccumulator accumulator = this.newAccumulator(NEVER);
+        List<Record> records = records(0, 2);
+        accumulator.append(this.edgeMapping, records);
+        accumulator.flush(false);
+        Assert.assertEquals(0, this.submitted().size());
+
+        accumulator.flush(true);
+        this.assertSubmitted(0, this.edgeMapping, records);
+        Assert.assertTrue(accumulator.isEmpty());
+        // Nothing to flush
+        accumulator.flush(true);
+        Assert.assertEquals(1, this.submitted().size());
+    }
+
+    @Test
+    public void testNotEmptyTillFlushedBatchSubmitted()
+                throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BatchSubmitter submitter = (mapping, batch) -> {
+            entered.countDown();
+            try {
+                release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        RecordAccumulator accumulator = this.newAccumulator(NEVER, submitter);
+        accumulator.append(this.vertexMapping, records(0, 1));
+
+        Thread flusher = new Thread(() -> accumulator.flush(true));
+        flusher.start();
+        Assert.assertTrue(entered.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        /*
+         * The records are taken out of the buffer but not submitted, the
+         * offset of their lines can't be confirmed yet
+         */
+        Assert.assertFalse(accumulator.isEmpty());
+
+        release.countDown();
+        flusher.join(TIMEOUT);
+        Assert.assertFalse(flusher.isAlive());
+        Assert.assertTrue(accumulator.isEmpty());
+    }
+
+    private RecordAccumulator newAccumulator(long linger) {
+        BatchSubmitter submitter = (mapping, batch) -> {
+            synchronized (this.submitted) {
+                this.submitted.add(new Submitted(mapping, batch));
+            }
+        };
+        return this.newAccumulator(linger, submitter);
+    }
+
+    private RecordAccumulator newAccumulator(long linger,
+                                             BatchSubmitter submitter) {
+        RecordAccumulator accumulator = new RecordAccumulator(
+                                        this.struct, linger,
+                                        mapping -> BATCH_SIZE, submitter);
+        this.accumulators.add(accumulator);
+        return accumulator;
+    }
+
+    private List<Submitted> submitted() {
+        synchronized (this.submitted) {
+            return new ArrayList<>(this.submitted);
+        }
+    }
+
+    private void assertSubmitted(int index, ElementMapping mapping,
+                                 List<Record> records) {
+        Submitted submitted = this.submitted().get(index);
+        Assert.assertSame(mapping, submitted.mapping);
+        Assert.assertEquals(records, submitted.batch);
+    }
+
+    private static List<Record> records(int from, int to) {
+        List<Record> records = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Vertex vertex = new Vertex("person");
+            vertex.id(i);
+            records.add(new Record(String.valueOf(i), vertex));
+        }
+        return records;
+    }
+
+    private static void waitUntil(BooleanSupplier condition)
+                                  throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timeout to wait the condition",
+                              System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+
+    private static class Submitted {
+
+        private final ElementMapping mapping;
+        private final List<Record> batch;
+
+        public Submitted(ElementMapping mapping, List<Record> batch) {
+            this.mapping = mapping;
+            this.batch = batch;
+        }
+    }
+}
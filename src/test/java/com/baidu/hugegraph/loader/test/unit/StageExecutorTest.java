@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.constant.ExecutorType;
+import com.baidu.hugegraph.loader.constant.QueuePolicy;
+import com.baidu.hugegraph.loader.metrics.StageMetrics;
+import com.baidu.hugegraph.loader.task.StageExecutor;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class StageExecutorTest {
+
+    // In milliseconds
+    private static final long TIMEOUT = 10_000L;
+    // Longer than the poll timeout of workers
+    private static final long SETTLE = 300L;
+
+    private final List<StageExecutor> stages = new ArrayList<>();
+
+    @After
+    public void clear() {
+        for (StageExecutor stage : this.stages) {
+            stage.shutdown(1L);
+        }
+    }
+
+    @Test
+    public void testSubmitAndWaitIdle() throws Exception {
+        StageMetrics metrics = new StageMetrics("test", 2, 4);
+        StageExecutor stage = this.newStage(QueuePolicy.BLOCK, metrics, 2);
+        AtomicInteger count = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(stage.submit(count::incrementAndGet));
+        }
+        stage.waitIdle();
+        Assert.assertEquals(100, count.get());
+        for (CompletableFuture<Void> future : futures) {
+            Assert.assertTrue(future.isDone());
+        }
+        Assert.assertEquals(100L, metrics.submitted());
+        Assert.assertTrue(metrics.maxDepth() <= 4L);
+    }
+
+    @Test
+    public void testSubmitFailedTask() throws Exception {
+        StageExecutor stage = this.newStage(QueuePolicy.BLOCK, 1, 1, 2);
+        CompletableFuture<Void> future = stage.submit(() -> {
+            throw new IllegalStateException("Failed task");
+        });
+        // The failed task is finished too
+        stage.waitIdle();
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertThrows(ExecutionException.class, future::get, e -> {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        });
+        AtomicInteger count = new AtomicInteger();
+        stage.submit(count::incrementAndGet).get(TIMEOUT,
+                                                 TimeUnit.MILLISECONDS);
+        Assert.assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testWaitIdle() throws Exception {
+        StageExecutor stage = this.newStage(QueuePolicy.BLOCK, 1, 1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        stage.submit(() -> await(release));
+        stage.submit(() -> await(release));
+
+        Thread waiter = new Thread(() -> {
+            try {
+                stage.waitIdle();
+            } catch (InterruptedException ignored) {
+                // Exit
+            }
+        });
+        waiter.start();
+        waiter.join(SETTLE);
+        // Still waiting for the running and queued tasks
+        Assert.assertTrue(waiter.isAlive());
+
+        release.countDown();
+        waiter.join(TIMEOUT);
+        Assert.assertFalse(waiter.isAlive());
+        // Return at once if idle
+        stage.waitIdle();
+    }
+
+    @Test
+    public void testResize() {
+        StageMetrics metrics = new StageMetrics("test", 2, 8);
+        StageExecutor stage = this.newStage(QueuePolicy.BLOCK, metrics, 4);
+        Assert.assertEquals(2, stage.concurrency());
+        Assert.assertEquals(4, stage.maxThreads());
+
+        // Limited in [1, maxThreads]
+        Assert.assertEquals(4, stage.resize(100));
+        Assert.assertEquals(4, stage.concurrency());
+        Assert.assertEquals(4, metrics.threads());
+        Assert.assertEquals(1, stage.resize(0));
+        Assert.assertEquals(1, stage.concurrency());
+        Assert.assertEquals(1, metrics.threads());
+        Assert.assertEquals(3, stage.resize(3));
+        Assert.assertEquals(3, metrics.threads());
+    }
+
+    @Test
+    public void testResizeSuspendAndResumeWorkers() throws Exception {
+        StageExecutor stage = this.newStage(QueuePolicy.BLOCK, 1, 8, 4);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            stage.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(),
+                                            Math::max);
+                await(release);
+                running.decrementAndGet();
+            });
+        }
+        Thread.sleep(SETTLE);
+        // The other workers are suspended
+        Assert.assertEquals(1, running.get());
+
+        // Resume the suspended workers to take the queued tasks
+        stage.resize(4);
+        waitUntil(() -> running.get() == 4);
+        release.countDown();
+        stage.waitIdle();
+        Assert.assertEquals(4, maxRunning.get());
+
+        // Suspend the workers again after they finished the current tasks
+        stage.resize(2);
+        Thread.sleep(SETTLE);
+        maxRunning.set(0);
+        CountDownLatch release2 = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            stage.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(),
+                                            Math::max);
+                await(release2);
+                running.decrementAndGet();
+            });
+        }
+        Thread.sleep(SETTLE);
+        Assert.assertEquals(2, running.get());
+        release2.countDown();
+        stage.waitIdle();
+        Assert.assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testBlockPolicy() throws Exception {
+        this.testFullQueue(QueuePolicy.BLOCK, Thread.State.WAITING);
+    }
+
+    @Test
+    public void testBackoffPolicy() throws Exception {
+        // The producer sleeps and retries to offer
+        this.testFullQueue(QueuePolicy.BACKOFF, Thread.State.TIMED_WAITING);
+    }
+
+    private void testFullQueue(QueuePolicy policy, Thread.State state)
+                               throws Exception {
+        StageMetrics metrics = new StageMetrics("test", 1, 1);
+        StageExecutor stage = this.newStage(policy, metrics, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger();
+        stage.submit(() -> {
+            started.countDown();
+            await(release);
+            count.incrementAndGet();
+        });
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        // Fill the queue
+        stage.submit(count::incrementAndGet);
+
+        Thread producer = new Thread(() -> {
+            stage.submit(count::incrementAndGet);
+        });
+        producer.start();
+        waitUntil(() -> producer.getState() == state);
+        Thread.sleep(SETTLE);
+        // The producer is held until the queue has free space
+        Assert.assertTrue(producer.isAlive());
+        Assert.assertEquals(2L, metrics.submitted());
+
+        release.countDown();
+        producer.join(TIMEOUT);
+        Assert.assertFalse(producer.isAlive());
+        stage.waitIdle();
+        Assert.assertEquals(3, count.get());
+        Assert.assertEquals(3L, metrics.submitted());
+        Assert.assertTrue(metrics.blockedTime() >= SETTLE);
+    }
+
+    @Test
+    public void testSubmitAfterShutdown() {
+        StageExecutor stage = this.newStage(QueuePolicy.BLOCK, 1, 1, 1);
+        stage.shutdown(1L);
+        Assert.assertThrows(IllegalStateException.class, () -> {
+            stage.submit(() -> { });
+        });
+    }
+
+    private StageExecutor newStage(QueuePolicy policy, int threads,
+                                   int capacity, int maxThreads) {
+        StageMetrics metrics = new StageMetrics("test", threads, capacity);
+        return this.newStage(policy, metrics, maxThreads);
+    }
+
+    private StageExecutor newStage(QueuePolicy policy, StageMetrics metrics,
+                                   int maxThreads) {
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(
+                                        metrics.capacity());
+        StageExecutor stage = new StageExecutor("test", "test-worker-%d",
+                                                policy, metrics, maxThreads,
+                                                ExecutorType.PLATFORM, queue);
+        this.stages.add(stage);
+        return stage;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition)
+                                  throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timeout to wait the condition",
+                              System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+}
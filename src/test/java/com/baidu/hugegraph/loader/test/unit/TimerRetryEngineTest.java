@@ -0,0 +1,334 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.constant.ElemType;
+import com.baidu.hugegraph.loader.constant.ExecutorType;
+import com.baidu.hugegraph.loader.constant.QueuePolicy;
+import com.baidu.hugegraph.loader.metrics.StageMetrics;
+import com.baidu.hugegraph.loader.task.BatchInsertTask;
+import com.baidu.hugegraph.loader.task.InsertScheduler;
+import com.baidu.hugegraph.loader.task.StageExecutor;
+import com.baidu.hugegraph.loader.task.TimerRetryEngine;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class TimerRetryEngineTest {
+
+    // In milliseconds
+    private static final long TIMEOUT = 10_000L;
+    private static final int MAX_RETRIES = 3;
+
+    private StageMetrics metrics;
+    private StageExecutor stage;
+    // Complete the async attempts like the event loop
+    private ExecutorService eventLoop;
+    private List<TimerRetryEngine> engines;
+    private Map<BatchInsertTask, AtomicInteger> callbacks;
+    private Map<BatchInsertTask, Throwable> errors;
+
+    @Before
+    public void init() {
+        this.metrics = new StageMetrics("batch-insert", 1, 4);
+        this.stage = new StageExecutor("batch-insert", "retry-test-%d",
+                                       QueuePolicy.BLOCK, this.metrics, 1,
+                                       ExecutorType.PLATFORM,
+                                       new InsertScheduler(4));
+        this.eventLoop = Executors.newCachedThreadPool();
+        this.engines = new ArrayList<>();
+        this.callbacks = new ConcurrentHashMap<>();
+        this.errors = new ConcurrentHashMap<>();
+    }
+
+    @After
+    public void clear() {
+        for (TimerRetryEngine engine : this.engines) {
+            engine.shutdown();
+        }
+        this.stage.shutdown(1L);
+        this.eventLoop.shutdownNow();
+    }
+
+    @Test
+    public void testRetryByTimer() throws Exception {
+        TimerRetryEngine engine = this.newEngine(4);
+        FakeTask task = new FakeTask(false, failures(2));
+        engine.submit(task, this::finished);
+        engine.waitIdle();
+
+        Assert.assertEquals(3, task.attempts.get());
+        Assert.assertEquals(1, task.finished.get());
+        this.assertFinished(task, null);
+        // The sync attempts are run by the insert workers
+        Assert.assertEquals(3L, this.metrics.submitted());
+        for (String thread : task.threads) {
+            Assert.assertTrue(thread, thread.startsWith("retry-test-"));
+        }
+    }
+
+    @Test
+    public void testRetryAsyncByTimer() throws Exception {
+        TimerRetryEngine engine = this.newEngine(4);
+        FakeTask task = new FakeTask(true, failures(2));
+        engine.submit(task, this::finished);
+        engine.waitIdle();
+
+        Assert.assertEquals(3, task.attempts.get());
+        Assert.assertEquals(1, task.finished.get());
+        this.assertFinished(task, null);
+        // The async attempts don't occupy the insert workers
+        Assert.assertEquals(0L, this.metrics.submitted());
+        for (String thread : task.threads) {
+            Assert.assertFalse(thread, thread.startsWith("retry-test-"));
+        }
+    }
+
+    @Test
+    public void testRetryTooManyTimes() throws Exception {
+        for (boolean async : new boolean[]{false, true}) {
+            TimerRetryEngine engine = this.newEngine(4);
+            List<RuntimeException> failures = failures(MAX_RETRIES + 2);
+            FakeTask task = new FakeTask(async, failures);
+            engine.submit(task, this::finished);
+            engine.waitIdle();
+
+            Assert.assertEquals(MAX_RETRIES + 1, task.attempts.get());
+            Assert.assertEquals(0, task.finished.get());
+            this.assertFinished(task, failures.get(MAX_RETRIES));
+        }
+    }
+
+    @Test
+    public void testFatalError() throws Exception {
+        for (boolean async : new boolean[]{false, true}) {
+            TimerRetryEngine engine = this.newEngine(4);
+            RuntimeException fatal = new IllegalStateException("fatal");
+            FakeTask task = new FakeTask(async, Arrays.asList(fatal));
+            engine.submit(task, this::finished);
+            engine.waitIdle();
+
+            Assert.assertEquals(1, task.attempts.get());
+            Assert.assertEquals(0, task.finished.get());
+            this.assertFinished(task, fatal);
+        }
+    }
+
+    @Test
+    public void testAsyncInFlightNotOccupyWorkers() throws Exception {
+        TimerRetryEngine engine = this.newEngine(16);
+        CountDownLatch release = new CountDownLatch(1);
+        List<FakeTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            FakeTask task = new FakeTask(true, failures(0));
+            task.gate = release;
+            tasks.add(task);
+            engine.submit(task, this::finished);
+        }
+        // The sync batch is inserted while the async ones are in flight
+        FakeTask sync = new FakeTask(false, failures(0));
+        engine.submit(sync, this::finished).get(TIMEOUT,
+                                                TimeUnit.MILLISECONDS);
+        this.assertFinished(sync, null);
+        Assert.assertEquals(1L, this.metrics.submitted());
+        for (FakeTask task : tasks) {
+            Assert.assertFalse(this.callbacks.containsKey(task));
+        }
+
+        release.countDown();
+        engine.waitIdle();
+        for (FakeTask task : tasks) {
+            this.assertFinished(task, null);
+        }
+    }
+
+    @Test
+    public void testSubmitBlockedByMaxPending() throws Exception {
+        TimerRetryEngine engine = this.newEngine(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<FakeTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            FakeTask task = new FakeTask(true, failures(0));
+            task.gate = release;
+            tasks.add(task);
+        }
+        engine.submit(tasks.get(0), this::finished);
+        engine.submit(tasks.get(1), this::finished);
+        Thread producer = new Thread(() -> {
+            engine.submit(tasks.get(2), this::finished);
+        });
+        producer.start();
+        waitUntil(() -> producer.getState() == Thread.State.WAITING);
+        Assert.assertEquals(0, tasks.get(2).attempts.get());
+
+        release.countDown();
+        producer.join(TIMEOUT);
+        engine.waitIdle();
+        for (FakeTask task : tasks) {
+            this.assertFinished(task, null);
+        }
+    }
+
+    private TimerRetryEngine newEngine(int maxPending) {
+        TimerRetryEngine engine = new TimerRetryEngine(this.stage,
+                                                       maxPending, 2);
+        this.engines.add(engine);
+        return engine;
+    }
+
+    private void finished(BatchInsertTask task, Throwable error) {
+        this.callbacks.computeIfAbsent(task, k -> new AtomicInteger())
+                      .incrementAndGet();
+        if (error != null) {
+            this.errors.put(task, error);
+        }
+    }
+
+    private void assertFinished(BatchInsertTask task, Throwable error) {
+        // The callback is called exactly once
+        Assert.assertEquals(1, this.callbacks.get(task).get());
+        Assert.assertEquals(error, this.errors.get(task));
+    }
+
+    private static List<RuntimeException> failures(int count) {
+        List<RuntimeException> failures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            failures.add(new IllegalArgumentException("failure " + i));
+        }
+        return failures;
+    }
+
+    private static void waitUntil(BooleanSupplier condition)
+                                  throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+
+    /**
+     * The task fails with the specified exceptions in order then succeeds,
+     * the IllegalStateException is not retried
+     */
+    private class FakeTask extends BatchInsertTask {
+
+        private final boolean async;
+        private final Deque<RuntimeException> failures;
+        private final AtomicInteger attempts;
+        private final AtomicInteger finished;
+        private final Set<String> threads;
+        // Hold the async attempts until released if not null
+        private volatile CountDownLatch gate;
+
+        public FakeTask(boolean async, List<RuntimeException> failures) {
+            super(null, null, null, new ArrayList<>());
+            this.async = async;
+            this.failures = new ArrayDeque<>(failures);
+            this.attempts = new AtomicInteger();
+            this.finished = new AtomicInteger();
+            this.threads = ConcurrentHashMap.newKeySet();
+            this.gate = null;
+        }
+
+        @Override
+        public ElemType type() {
+            return ElemType.VERTEX;
+        }
+
+        @Override
+        public boolean async() {
+            return this.async;
+        }
+
+        @Override
+        public void insertOnce() {
+            Assert.assertFalse(this.async);
+            this.attempt();
+        }
+
+        @Override
+        public CompletableFuture<Void> insertOnceAsync() {
+            Assert.assertTrue(this.async);
+            CountDownLatch gate = this.gate;
+            return CompletableFuture.runAsync(() -> {
+                if (gate != null) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                this.attempt();
+            }, TimerRetryEngineTest.this.eventLoop);
+        }
+
+        private void attempt() {
+            this.attempts.incrementAndGet();
+            this.threads.add(Thread.currentThread().getName());
+            RuntimeException failure;
+            synchronized (this.failures) {
+                failure = this.failures.poll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public int nextRetry(int retryCount, RuntimeException e) {
+            if (e instanceof IllegalStateException) {
+                throw e;
+            }
+            if (++retryCount > MAX_RETRIES) {
+                throw e;
+            }
+            return retryCount;
+        }
+
+        @Override
+        public long retryInterval(int retryCount) {
+            return 0L;
+        }
+
+        @Override
+        public void finish() {
+            this.finished.incrementAndGet();
+        }
+    }
+}
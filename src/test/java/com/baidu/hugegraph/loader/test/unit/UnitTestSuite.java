@@ -28,7 +28,31 @@ import org.junit.runners.Suite;
     DateUtilTest.class,
     MappingConverterTest.class,
     LoadProgressTest.class,
-    RangesTimerTest.class
+    RangesTimerTest.class,
+    LineRangeInputStreamTest.class,
+    BatchSizeControllerTest.class,
+    InsertSchedulerTest.class,
+    NumberUtilTest.class,
+    CsvTokenizerTest.class,
+    ConcurrencyTunerTest.class,
+    MappedLineReaderTest.class,
+    BytesSplitterTest.class,
+    JsonRecordReaderTest.class,
+    JsonLineParserTest.class,
+    ReadAheadInputStreamTest.class,
+    ParallelBZip2InputStreamTest.class,
+    ReadablePrefetcherTest.class,
+    ParallelLineFetcherTest.class,
+    CsvRecordBoundaryTest.class,
+    CsvRecordReaderTest.class,
+    WireEncoderTest.class,
+    VertexIdEncoderTest.class,
+    DataTypeUtilTest.class,
+    StageExecutorTest.class,
+    RecordAccumulatorTest.class,
+    MemoryBudgetTest.class,
+    HttpEventLoopTest.class,
+    TimerRetryEngineTest.class
 })
 public class UnitTestSuite {
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.builder.VertexIdEncoder;
+import com.baidu.hugegraph.loader.constant.Constants;
+import com.baidu.hugegraph.testutil.Assert;
+import com.baidu.hugegraph.util.LongEncoding;
+
+public class VertexIdEncoderTest {
+
+    private static final String[] SEARCH_LIST = new String[]{":", "!"};
+    private static final String[] TARGET_LIST = new String[]{"`:", "`!"};
+
+    // 3 bytes in UTF-8
+    private static final String CJK = "\u4e2d";
+    // 2 bytes in UTF-8
+    private static final String LATIN = "\u00e9";
+    // 4 bytes in UTF-8
+    private static final String EMOJI = "\ud83d\ude00";
+
+    @Test
+    public void testEncodeWithEscapes() {
+        assertSameAsSplice(1L, "marko");
+        assertSameAsSplice(1L, "ma:rko");
+        assertSameAsSplice(1L, "ma!rko");
+        assertSameAsSplice(1L, ":!::!!");
+        assertSameAsSplice(1L, "`:`!`");
+        assertSameAsSplice(2L, "ma:rko", "2!9", "");
+        assertSameAsSplice(2L, "", "");
+        assertSameAsSplice(3L, (Object) null);
+    }
+
+    @Test
+    public void testEncodeWithNumbers() {
+        assertSameAsSplice(1L, 0);
+        assertSameAsSplice(1L, 29);
+        assertSameAsSplice(1L, -29L);
+        assertSameAsSplice(1L, (short) 3);
+        assertSameAsSplice(1L, (byte) -3);
+        assertSameAsSplice(1L, Long.MAX_VALUE);
+        assertSameAsSplice(1L, Long.MIN_VALUE);
+        assertSameAsSplice(1L, 1.5D);
+        assertSameAsSplice(1L, -0.25F);
+        assertSameAsSplice(1L, new Date(1500000000000L));
+        assertSameAsSplice(12345L, "marko", 29, new Date(0L), true);
+    }
+
+    @Test
+    public void testEncodeWithMultiBytes() {
+        assertSameAsSplice(1L, CJK + ":" + LATIN + "!" + EMOJI);
+        assertSameAsSplice(1L, CJK, LATIN, EMOJI);
+
+        // The label id and ':' take 2 bytes, so 126 bytes are left
+        assertSameAsSplice(1L, StringUtils.repeat(CJK, 42));
+        assertSameAsSplice(1L, StringUtils.repeat(CJK, 43));
+        assertSameAsSplice(1L, StringUtils.repeat(LATIN, 63));
+        assertSameAsSplice(1L, StringUtils.repeat(LATIN, 63) + "a");
+        assertSameAsSplice(1L, "a" + StringUtils.repeat(CJK, 41) + "b");
+        assertSameAsSplice(1L, "a" + StringUtils.repeat(CJK, 41) + LATIN);
+        // The escapes are counted
+        assertSameAsSplice(1L, StringUtils.repeat(CJK, 41) + "::");
+        assertSameAsSplice(1L, StringUtils.repeat(CJK, 41) + ":::");
+        assertSameAsSplice(1L, StringUtils.repeat("a", 62),
+                           StringUtils.repeat("b", 63));
+        assertSameAsSplice(1L, StringUtils.repeat("a", 62),
+                           StringUtils.repeat("b", 64));
+    }
+
+    @Test
+    public void testEncodeWithSurrogates() {
+        assertSameAsSplice(1L, EMOJI + EMOJI);
+        assertSameAsSplice(1L, StringUtils.repeat(EMOJI, 31) + "ab");
+        assertSameAsSplice(1L, StringUtils.repeat(EMOJI, 31) + "abc");
+        assertSameAsSplice(1L, StringUtils.repeat(EMOJI, 32));
+        assertSameAsSplice(1L, "a" + StringUtils.repeat(EMOJI, 31) + "a");
+
+        // The malformed surrogates are rejected
+        assertSameAsSplice(1L, "a\ud83d");
+        assertSameAsSplice(1L, "\ude00a");
+        assertSameAsSplice(1L, "\ud83da");
+        assertSameAsSplice(1L, "\ude00\ud83d");
+        // Not paired with the low surrogate after an escape or a delimiter
+        assertSameAsSplice(1L, "\ud83d:\ude00");
+        assertSameAsSplice(1L, "\ud83d", "\ude00");
+        assertSameAsSplice(1L, "a", "\ud83d");
+    }
+
+    @Test
+    public void testCheckLength() {
+        String[] ids = new String[]{
+                "",
+                "marko",
+                StringUtils.repeat("a", 128),
+                StringUtils.repeat("a", 129),
+                StringUtils.repeat(CJK, 42) + "ab",
+                StringUtils.repeat(CJK, 42) + "abc",
+                StringUtils.repeat(EMOJI, 32),
+                StringUtils.repeat(EMOJI, 32) + "a",
+                StringUtils.repeat(LATIN, 64),
+                StringUtils.repeat(LATIN, 63) + CJK,
+                "a\ud83d",
+                "\ude00a",
+                "\ud83d\ud83d\ude00"
+        };
+        for (String id : ids) {
+            boolean valid = checkLengthByEncoder(id);
+            try {
+                VertexIdEncoder.checkLength(id);
+                Assert.assertTrue("Expect invalid id: " + id, valid);
+            } catch (IllegalArgumentException e) {
+                Assert.assertFalse("Expect valid id: " + id, valid);
+            }
+        }
+    }
+
+    /**
+     * Assert the id is encoded as the splicing and checking of the former
+     * ElementBuilder, which escapes the values by replacing and encodes
+     * the whole id into the limited buffer to check the length
+     */
+    private static void assertSameAsSplice(long labelId, Object... values) {
+        String expected = spliceVertexId(labelId, values);
+        if (!checkLengthByEncoder(expected)) {
+            expected = null;
+        }
+
+        VertexIdEncoder encoder = new VertexIdEncoder();
+        String actual;
+        try {
+            actual = encoder.encode(labelId, values);
+        } catch (IllegalArgumentException e) {
+            actual = null;
+        }
+        Assert.assertEquals(expected, actual);
+
+        if (values.length == 1) {
+            try {
+                actual = encoder.encode(labelId, values[0]);
+            } catch (IllegalArgumentException e) {
+                actual = null;
+            }
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    private static String spliceVertexId(long labelId,
+                                         Object... primaryValues) {
+        StringBuilder vertexId = new StringBuilder();
+        StringBuilder vertexKeysId = new StringBuilder();
+        for (Object value : primaryValues) {
+            String pkValue;
+            if (value instanceof Number || value instanceof Date) {
+                pkValue = LongEncoding.encodeNumber(value);
+            } else {
+                pkValue = String.valueOf(value);
+            }
+            if (StringUtils.containsAny(pkValue, SEARCH_LIST)) {
+                pkValue = StringUtils.replaceEach(pkValue, SEARCH_LIST,
+                                                  TARGET_LIST);
+            }
+            vertexKeysId.append(pkValue);
+            vertexKeysId.append("!");
+        }
+        vertexId.append(labelId).append(":").append(vertexKeysId);
+        vertexId.deleteCharAt(vertexId.length() - 1);
+        return vertexId.toString();
+    }
+
+    private static boolean checkLengthByEncoder(String id) {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer buffer = ByteBuffer.allocate(Constants.VERTEX_ID_LIMIT);
+        CoderResult r = encoder.encode(CharBuffer.wrap(id.toCharArray()),
+                                       buffer, true);
+        return r.isUnderflow();
+    }
+}
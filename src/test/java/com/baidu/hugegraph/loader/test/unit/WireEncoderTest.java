@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.loader.test.unit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.loader.builder.Record;
+import com.baidu.hugegraph.loader.mapping.EdgeMapping;
+import com.baidu.hugegraph.loader.mapping.ElementMapping;
+import com.baidu.hugegraph.loader.mapping.VertexMapping;
+import com.baidu.hugegraph.loader.task.WireEncoder;
+import com.baidu.hugegraph.loader.task.WireEncoder.WireBatch;
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.UpdateStrategy;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class WireEncoderTest {
+
+    /*
+     * The HugeClient posts the batches with the default jackson mapper of
+     * the rest client, which serializes the date as timestamp
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void testEncodeVertices() throws IOException {
+        Vertex marko = new Vertex("person");
+        marko.id("1:marko");
+        marko.property("name", "marko");
+        marko.property("age", 29);
+        marko.property("weight", 60.5D);
+        marko.property("rate", 0.5F);
+        marko.property("salary", 1234567890123L);
+        marko.property("balance", new BigDecimal("12345.6789"));
+        marko.property("married", true);
+        marko.property("birth", new Date(-315648000000L));
+        marko.property("city", "\u5317\u4eac\t\"\\/\u0001");
+        marko.property("tags", ImmutableList.of("a", "b"));
+        marko.property("scores", ImmutableSet.of(1L, 2L));
+
+        Vertex number = new Vertex("software");
+        number.id(-9223372036854775808L);
+        number.property("name", "lop");
+
+        // The id of primary key vertex is generated by server
+        Vertex primary = new Vertex("city");
+        primary.property("name", "beijing");
+
+        assertEncodedAsClient(new VertexMapping("id", false),
+                              ImmutableList.of(marko, number, primary));
+    }
+
+    @Test
+    public void testEncodeEdges() throws IOException {
+        Edge knows = new Edge("knows");
+        knows.sourceId("1:marko");
+        knows.sourceLabel("person");
+        knows.targetId("1:vadas");
+        knows.targetLabel("person");
+        knows.property("date", new Date(1500000000000L));
+        knows.property("weight", 0.5D);
+
+        Edge created = new Edge("created");
+        created.sourceId(1L);
+        created.sourceLabel("person");
+        created.targetId(2L);
+        created.targetLabel("software");
+
+        EdgeMapping mapping = new EdgeMapping(ImmutableList.of("source"),
+                                              false,
+                                              ImmutableList.of("target"),
+                                              false);
+        assertEncodedAsClient(mapping, ImmutableList.of(knows, created));
+    }
+
+    @Test
+    public void testEncodeWithUpdateStrategies() {
+        Vertex vertex = new Vertex("person");
+        vertex.id("1:marko");
+        vertex.property("age", 29);
+
+        VertexMapping mapping = new VertexMapping("id", false);
+        mapping.updateStrategies().put("age", UpdateStrategy.BIGGER);
+        WireEncoder encoder = new WireEncoder(1);
+        // Left to the client to send the update strategies
+        Assert.assertNull(encoder.encode(mapping, records(vertex)));
+    }
+
+    @Test
+    public void testEncodeWithUnsupportedValues() {
+        Vertex uuid = new Vertex("person");
+        uuid.id(UUID.randomUUID());
+
+        Vertex property = new Vertex("person");
+        property.id("1:marko");
+        property.property("uuid", UUID.randomUUID());
+
+        Vertex elem = new Vertex("person");
+        elem.id("1:vadas");
+        elem.property("ids", ImmutableList.of(UUID.randomUUID()));
+
+        VertexMapping mapping = new VertexMapping("id", false);
+        WireEncoder encoder = new WireEncoder(1);
+        Assert.assertNull(encoder.encode(mapping, records(uuid)));
+        Assert.assertNull(encoder.encode(mapping, records(property)));
+        Assert.assertNull(encoder.encode(mapping, records(elem)));
+    }
+
+    private static void assertEncodedAsClient(ElementMapping mapping,
+                                              List<? extends GraphElement>
+                                              elements) throws IOException {
+        WireEncoder encoder = new WireEncoder(1);
+        WireBatch batch = encoder.encode(mapping, records(elements));
+        Assert.assertNotNull(batch);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            batch.writeTo(out);
+            Assert.assertEquals(out.size(), batch.size());
+        } finally {
+            batch.release();
+        }
+
+        List<Map<String, Object>> encoded = parse(out.toString("UTF-8"));
+        String json = MAPPER.writeValueAsString(elements);
+        List<Map<String, Object>> expected = parse(json);
+        for (Map<String, Object> element : expected) {
+            // The server takes the element type from the request path
+            element.remove("type");
+            // The absent id is the same as null
+            if (element.get("id") == null) {
+                element.remove("id");
+            }
+        }
+        Assert.assertEquals(expected, encoded);
+    }
+
+    private static List<Map<String, Object>> parse(String json)
+                                                   throws IOException {
+        return MAPPER.readValue(json,
+                                new TypeReference<List<Map<String, Object>>>() {
+                                });
+    }
+
+    private static List<Record> records(GraphElement... elements) {
+        return records(ImmutableList.copyOf(elements));
+    }
+
+    private static List<Record> records(List<? extends GraphElement>
+                                        elements) {
+        List<Record> records = new ArrayList<>();
+        for (GraphElement element : elements) {
+            records.add(new Record("", element));
+        }
+        return records;
+    }
+}